@@ -0,0 +1,494 @@
+package games.strategy.engine.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+
+/**
+ * Reads a graph of game objects written by BinaryGameObjectOutput.
+ * <p>
+ * The fields of each class are matched by the name of the field and of the class declaring it. A field the stream
+ * has that the class no longer has, or whose value no longer fits the field, is skipped, and a field the stream does
+ * not have keeps the value the class gives it when it is created, as serialization does. Objects of a class that no
+ * longer exists are read as null.
+ */
+public final class BinaryGameObjectInput extends DataInputStream implements ObjectInput {
+  private static final Logger s_logger = Logger.getLogger(BinaryGameObjectInput.class.getName());
+  private static final Object IN_PROGRESS = new Object();
+  private static final Map<String, Class<?>> s_primitiveTypes = new HashMap<>();
+
+  static {
+    for (final Class<?> type : new Class<?>[] {int.class, boolean.class, long.class, double.class, float.class,
+        short.class, byte.class, char.class, void.class}) {
+      s_primitiveTypes.put(type.getName(), type);
+    }
+  }
+
+  private final List<Object> m_objects = new ArrayList<>();
+  private final List<ClassInfo> m_classes = new ArrayList<>();
+
+  public BinaryGameObjectInput(final InputStream in) {
+    super(in);
+  }
+
+  @Override
+  public Object readObject() throws ClassNotFoundException, IOException {
+    final int tag = readUnsignedByte();
+    switch (tag) {
+      case BinaryGameObjectOutput.NULL:
+        return null;
+      case BinaryGameObjectOutput.REFERENCE: {
+        final int handle = readVarInt();
+        if (handle >= m_objects.size()) {
+          throw new StreamCorruptedException("Unknown object: " + handle);
+        }
+        final Object obj = m_objects.get(handle);
+        if (obj == IN_PROGRESS) {
+          throw new InvalidObjectException("Object refers to itself before it is created: " + handle);
+        }
+        return obj;
+      }
+      case BinaryGameObjectOutput.STRING:
+        return register(readString());
+      // new boxes, not the shared ones, so == is as it was written
+      case BinaryGameObjectOutput.INTEGER:
+        return register(new Integer(readInt()));
+      case BinaryGameObjectOutput.LONG:
+        return register(new Long(readLong()));
+      case BinaryGameObjectOutput.BOOLEAN:
+        return register(new Boolean(readBoolean()));
+      case BinaryGameObjectOutput.DOUBLE:
+        return register(new Double(readDouble()));
+      case BinaryGameObjectOutput.FLOAT:
+        return register(new Float(readFloat()));
+      case BinaryGameObjectOutput.SHORT:
+        return register(new Short(readShort()));
+      case BinaryGameObjectOutput.BYTE:
+        return register(new Byte(readByte()));
+      case BinaryGameObjectOutput.CHARACTER:
+        return register(new Character(readChar()));
+      case BinaryGameObjectOutput.ENUM:
+        return readEnum();
+      case BinaryGameObjectOutput.CLASS:
+        return classForName(readString());
+      case BinaryGameObjectOutput.ARRAY:
+        return readArray();
+      case BinaryGameObjectOutput.COLLECTION:
+        return readCollection();
+      case BinaryGameObjectOutput.MAP:
+        return readMap();
+      case BinaryGameObjectOutput.IMMUTABLE:
+        return readImmutable();
+      case BinaryGameObjectOutput.EMPTY: {
+        final int kind = readUnsignedByte();
+        return kind == BinaryGameObjectOutput.LIST ? Collections.emptyList()
+            : kind == BinaryGameObjectOutput.SET ? Collections.emptySet() : Collections.emptyMap();
+      }
+      case BinaryGameObjectOutput.OBJECT:
+        return readSerializable();
+      case BinaryGameObjectOutput.EXTERNALIZABLE:
+        return readExternalizable();
+      case BinaryGameObjectOutput.SERIALIZED: {
+        final byte[] bytes = new byte[readVarInt()];
+        readFully(bytes);
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+          return register(in.readObject());
+        }
+      }
+      case BinaryGameObjectOutput.DELEGATE_LIST: {
+        final int handle = reserve();
+        return set(handle, new DelegateList((GameData) readObject()));
+      }
+      case BinaryGameObjectOutput.LOCK:
+        return register(new ReentrantReadWriteLock());
+      default:
+        throw new StreamCorruptedException("Unknown tag: " + tag);
+    }
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private Object readEnum() throws IOException {
+    final ClassInfo info = readClass(false);
+    final String name = readString();
+    if (info.m_type == null) {
+      return null;
+    }
+    try {
+      return Enum.valueOf((Class<? extends Enum>) info.m_type, name);
+    } catch (final IllegalArgumentException e) {
+      s_logger.log(Level.INFO, "No longer a constant of " + info.m_name + ": " + name);
+      return null;
+    }
+  }
+
+  private Object readArray() throws ClassNotFoundException, IOException {
+    final ClassInfo info = readClass(false);
+    final int length = readVarInt();
+    final Class<?> componentType = requireType(info).getComponentType();
+    final Object array = register(Array.newInstance(componentType, length));
+    if (!componentType.isPrimitive()) {
+      final Object[] elements = (Object[]) array;
+      for (int i = 0; i < length; i++) {
+        elements[i] = readObject();
+      }
+    } else if (componentType == byte.class) {
+      readFully((byte[]) array);
+    } else if (componentType == int.class) {
+      final int[] elements = (int[]) array;
+      for (int i = 0; i < length; i++) {
+        elements[i] = readInt();
+      }
+    } else if (componentType == boolean.class) {
+      final boolean[] elements = (boolean[]) array;
+      for (int i = 0; i < length; i++) {
+        elements[i] = readBoolean();
+      }
+    } else if (componentType == long.class) {
+      final long[] elements = (long[]) array;
+      for (int i = 0; i < length; i++) {
+        elements[i] = readLong();
+      }
+    } else if (componentType == double.class) {
+      final double[] elements = (double[]) array;
+      for (int i = 0; i < length; i++) {
+        elements[i] = readDouble();
+      }
+    } else if (componentType == float.class) {
+      final float[] elements = (float[]) array;
+      for (int i = 0; i < length; i++) {
+        elements[i] = readFloat();
+      }
+    } else if (componentType == short.class) {
+      final short[] elements = (short[]) array;
+      for (int i = 0; i < length; i++) {
+        elements[i] = readShort();
+      }
+    } else {
+      final char[] elements = (char[]) array;
+      for (int i = 0; i < length; i++) {
+        elements[i] = readChar();
+      }
+    }
+    return array;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Object readCollection() throws ClassNotFoundException, IOException {
+    final int handle = reserve();
+    final Class<?> type = requireType(readClass(false));
+    final Collection<Object> collection;
+    if (type == TreeSet.class) {
+      collection = new TreeSet<>((Comparator<Object>) readObject());
+    } else {
+      collection = (Collection<Object>) newInstance(type);
+    }
+    set(handle, collection);
+    // like serialization, each element is completely read before it is added, so hash codes are stable
+    final int size = readVarInt();
+    for (int i = 0; i < size; i++) {
+      collection.add(readObject());
+    }
+    return collection;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Object readMap() throws ClassNotFoundException, IOException {
+    final int handle = reserve();
+    final Class<?> type = requireType(readClass(false));
+    final Map<Object, Object> map;
+    if (type == TreeMap.class) {
+      map = new TreeMap<>((Comparator<Object>) readObject());
+    } else {
+      map = (Map<Object, Object>) newInstance(type);
+    }
+    set(handle, map);
+    final int size = readVarInt();
+    for (int i = 0; i < size; i++) {
+      final Object key = readObject();
+      map.put(key, readObject());
+    }
+    return map;
+  }
+
+  /**
+   * Immutable collections can only be built once their contents exist, so nothing may refer to them before that.
+   */
+  private Object readImmutable() throws ClassNotFoundException, IOException {
+    final int handle = reserve();
+    final int kind = readUnsignedByte();
+    final int size = readVarInt();
+    if (kind == BinaryGameObjectOutput.LIST_MULTIMAP || kind == BinaryGameObjectOutput.SET_MULTIMAP) {
+      final ImmutableMultimap.Builder<Object, Object> builder = kind == BinaryGameObjectOutput.LIST_MULTIMAP
+          ? ImmutableListMultimap.builder() : ImmutableSetMultimap.builder();
+      for (int i = 0; i < size; i++) {
+        final Object key = readObject();
+        builder.put(key, readObject());
+      }
+      return set(handle, builder.build());
+    } else if (kind == BinaryGameObjectOutput.MAP_KIND) {
+      final ImmutableMap.Builder<Object, Object> builder = ImmutableMap.builder();
+      for (int i = 0; i < size; i++) {
+        final Object key = readObject();
+        builder.put(key, readObject());
+      }
+      return set(handle, builder.build());
+    }
+    final ImmutableCollection.Builder<Object> builder =
+        kind == BinaryGameObjectOutput.LIST ? ImmutableList.builder() : ImmutableSet.builder();
+    for (int i = 0; i < size; i++) {
+      builder.add(readObject());
+    }
+    return set(handle, builder.build());
+  }
+
+  private Object readSerializable() throws ClassNotFoundException, IOException {
+    final ClassInfo info = readClass(true);
+    final int handle = reserve();
+    final Object obj;
+    if (info.m_type == null) {
+      obj = null;
+    } else if (info.m_type == GameData.class) {
+      obj = new GameData();
+    } else if (info.m_type == GameSequence.class) {
+      // the game data is one of the fields
+      obj = new GameSequence(null);
+    } else {
+      obj = newSerializable(info.m_plan);
+    }
+    set(handle, obj);
+    for (int i = 0; i < info.m_typeCodes.length; i++) {
+      final Object value = readField(info.m_typeCodes[i]);
+      final Field field = info.m_fields[i];
+      if (obj == null || field == null) {
+        continue;
+      }
+      if (field.getType().isPrimitive() ? BinaryGameObjectOutput.typeCode(field.getType()) != info.m_typeCodes[i]
+          : value != null && !field.getType().isInstance(value)) {
+        s_logger.log(Level.INFO, "Skipped " + field + ", it can not be set to: " + value);
+        continue;
+      }
+      try {
+        field.set(obj, value);
+      } catch (final IllegalAccessException e) {
+        throw (InvalidClassException) new InvalidClassException(info.m_name, "Can not set " + field.getName())
+            .initCause(e);
+      }
+    }
+    if (obj != null && info.m_plan.readResolve != null) {
+      return set(handle, invoke(info.m_plan, info.m_plan.readResolve, obj));
+    }
+    return obj;
+  }
+
+  private Object readField(final char typeCode) throws ClassNotFoundException, IOException {
+    switch (typeCode) {
+      case 'I':
+        return readInt();
+      case 'Z':
+        return readBoolean();
+      case 'J':
+        return readLong();
+      case 'D':
+        return readDouble();
+      case 'F':
+        return readFloat();
+      case 'S':
+        return readShort();
+      case 'B':
+        return readByte();
+      case 'C':
+        return readChar();
+      case 'L':
+        return readObject();
+      default:
+        throw new StreamCorruptedException("Unknown field type: " + typeCode);
+    }
+  }
+
+  private Object readExternalizable() throws ClassNotFoundException, IOException {
+    final int handle = reserve();
+    final ClassInfo info = readClass(false);
+    final Class<?> type = requireType(info);
+    final Externalizable obj;
+    try {
+      obj = (Externalizable) type.getConstructor().newInstance();
+    } catch (final ReflectiveOperationException | ClassCastException e) {
+      throw (InvalidClassException) new InvalidClassException(info.m_name, "Can not create").initCause(e);
+    }
+    set(handle, obj);
+    obj.readExternal(this);
+    final ClassPlan plan = plan(type);
+    if (plan.readResolve != null) {
+      return set(handle, invoke(plan, plan.readResolve, obj));
+    }
+    return obj;
+  }
+
+  private Object newSerializable(final ClassPlan plan) throws InvalidClassException {
+    try {
+      return plan.newInstance();
+    } catch (final GameDataCopier.CopyException e) {
+      throw (InvalidClassException) new InvalidClassException(plan.type.getName(), e.getMessage()).initCause(e);
+    }
+  }
+
+  private static Object invoke(final ClassPlan plan, final java.lang.reflect.Method method, final Object target)
+      throws InvalidObjectException {
+    try {
+      return plan.invoke(method, target);
+    } catch (final GameDataCopier.CopyException e) {
+      throw (InvalidObjectException) new InvalidObjectException(e.getMessage()).initCause(e);
+    }
+  }
+
+  private static ClassPlan plan(final Class<?> type) throws InvalidClassException {
+    try {
+      return ClassPlan.of(type);
+    } catch (final GameDataCopier.CopyException e) {
+      throw (InvalidClassException) new InvalidClassException(type.getName(), e.getMessage()).initCause(e);
+    }
+  }
+
+  private static Object newInstance(final Class<?> type) throws InvalidClassException {
+    try {
+      return type.newInstance();
+    } catch (final InstantiationException | IllegalAccessException e) {
+      throw (InvalidClassException) new InvalidClassException(type.getName(), "Can not create").initCause(e);
+    }
+  }
+
+  private static Class<?> requireType(final ClassInfo info) throws ClassNotFoundException {
+    if (info.m_type == null) {
+      throw new ClassNotFoundException(info.m_name);
+    }
+    return info.m_type;
+  }
+
+  private static Class<?> classForName(final String name) throws ClassNotFoundException {
+    final Class<?> primitive = s_primitiveTypes.get(name);
+    return primitive != null ? primitive : Class.forName(name);
+  }
+
+  private Object register(final Object obj) {
+    m_objects.add(obj);
+    return obj;
+  }
+
+  private int reserve() {
+    m_objects.add(IN_PROGRESS);
+    return m_objects.size() - 1;
+  }
+
+  private Object set(final int handle, final Object obj) {
+    m_objects.set(handle, obj);
+    return obj;
+  }
+
+  /**
+   * Read the number of a class, and the first time the class is read its name and, for objects written field by
+   * field, the fields it was written with.
+   */
+  private ClassInfo readClass(final boolean withFields) throws IOException {
+    final int number = readVarInt();
+    if (number < m_classes.size()) {
+      return m_classes.get(number);
+    }
+    if (number != m_classes.size()) {
+      throw new StreamCorruptedException("Unknown class: " + number);
+    }
+    final ClassInfo info = new ClassInfo(readString());
+    m_classes.add(info);
+    try {
+      info.m_type = classForName(info.m_name);
+    } catch (final ClassNotFoundException e) {
+      s_logger.log(Level.INFO, "No longer a class, its objects are skipped: " + info.m_name);
+    }
+    if (!withFields) {
+      return info;
+    }
+    final int count = readVarInt();
+    info.m_typeCodes = new char[count];
+    info.m_fields = new Field[count];
+    final Map<String, Field> localFields = new HashMap<>();
+    if (info.m_type != null) {
+      info.m_plan = plan(info.m_type);
+      for (final Field field : info.m_plan.fields) {
+        localFields.put(field.getDeclaringClass().getName() + "." + field.getName(), field);
+      }
+    }
+    for (int i = 0; i < count; i++) {
+      final String name = readString() + "." + readString();
+      info.m_typeCodes[i] = (char) readUnsignedByte();
+      info.m_fields[i] = localFields.get(name);
+      if (info.m_type != null && info.m_fields[i] == null) {
+        s_logger.log(Level.FINE, "No longer a field, its values are skipped: " + name);
+      }
+    }
+    return info;
+  }
+
+  private String readString() throws IOException {
+    final byte[] bytes = new byte[readVarInt()];
+    readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private int readVarInt() throws IOException {
+    int value = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      final int b = readUnsignedByte();
+      value |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new StreamCorruptedException("Bad number");
+  }
+
+  /**
+   * A class as it was written, and how its fields are read into the class as it is now.
+   */
+  private static final class ClassInfo {
+    private final String m_name;
+    // null if the class no longer exists
+    private Class<?> m_type;
+    private ClassPlan m_plan;
+    // the fields the class was written with, and the field each is read into now, null to skip it
+    private char[] m_typeCodes;
+    private Field[] m_fields;
+
+    private ClassInfo(final String name) {
+      m_name = name;
+    }
+  }
+}
@@ -0,0 +1,461 @@
+package games.strategy.engine.data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.NotSerializableException;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+
+/**
+ * Writes a graph of game objects in a binary format that is described by the stream itself, read back by
+ * BinaryGameObjectInput.
+ * <p>
+ * The graph is walked by the rules of serialization, as GameDataCopier does: the same fields are written, == is kept,
+ * and writeReplace / readResolve are honoured. Unlike serialization, the first time a class is written its fields are
+ * written by name and type, and each object of the class is then a plain record of the values of those fields, so
+ * units, attachments and the like take little more than their values. A reader matches the fields by name, so fields
+ * added or removed between versions of the engine do not stop a game from loading.
+ * <p>
+ * The first object written is normally the GameData; anything the format does not support makes writeObject throw a
+ * NotSerializableException, and the caller should use serialization instead.
+ */
+public final class BinaryGameObjectOutput extends DataOutputStream implements ObjectOutput {
+  // what follows an object tag
+  static final int NULL = 0;
+  // the number of an object written before
+  static final int REFERENCE = 1;
+  static final int STRING = 2;
+  static final int INTEGER = 3;
+  static final int LONG = 4;
+  static final int BOOLEAN = 5;
+  static final int DOUBLE = 6;
+  static final int FLOAT = 7;
+  static final int SHORT = 8;
+  static final int BYTE = 9;
+  static final int CHARACTER = 10;
+  // a class and the name of the constant
+  static final int ENUM = 11;
+  static final int CLASS = 12;
+  // an array class, the length and the elements
+  static final int ARRAY = 13;
+  // a class, the comparator if it is sorted, the size and the elements or keys and values
+  static final int COLLECTION = 14;
+  static final int MAP = 15;
+  // a kind, the size and the elements or keys and values
+  static final int IMMUTABLE = 16;
+  // a kind
+  static final int EMPTY = 17;
+  // a class with its fields, and the value of each field
+  static final int OBJECT = 18;
+  // a class, and what the object writes itself
+  static final int EXTERNALIZABLE = 19;
+  // the length and the serialized bytes of a value type of the jdk
+  static final int SERIALIZED = 20;
+  // the game data it belongs to
+  static final int DELEGATE_LIST = 21;
+  static final int LOCK = 22;
+  // kinds of immutable and empty collections
+  static final int LIST = 0;
+  static final int SET = 1;
+  static final int MAP_KIND = 2;
+  static final int LIST_MULTIMAP = 3;
+  static final int SET_MULTIMAP = 4;
+  private static final Set<Class<?>> s_collectionTypes = new HashSet<>();
+  private static final Set<Class<?>> s_mapTypes = new HashSet<>();
+  // immutable values the jdk serializes itself, they never refer to game objects
+  private static final Set<Class<?>> s_serializedTypes = new HashSet<>();
+
+  static {
+    Collections.addAll(s_collectionTypes, ArrayList.class, LinkedList.class, Vector.class,
+        CopyOnWriteArrayList.class, HashSet.class, LinkedHashSet.class, TreeSet.class);
+    Collections.addAll(s_mapTypes, HashMap.class, LinkedHashMap.class, Hashtable.class, Properties.class,
+        IdentityHashMap.class, ConcurrentHashMap.class, TreeMap.class);
+    Collections.addAll(s_serializedTypes, BigInteger.class, BigDecimal.class, UUID.class, java.rmi.dgc.VMID.class,
+        java.rmi.server.UID.class);
+  }
+
+  // the number of each object written, an object replaced by writeReplace has the number of its replacement
+  private final Map<Object, Integer> m_handles = new IdentityHashMap<>();
+  private int m_nextHandle;
+  // objects whose writeReplace is being written, a reference back to them can not be written
+  private final Set<Object> m_replacing = Collections.newSetFromMap(new IdentityHashMap<>());
+  private final Map<Class<?>, Integer> m_classes = new HashMap<>();
+  private final Map<Class<?>, ClassPlan> m_plans = new HashMap<>();
+
+  public BinaryGameObjectOutput(final OutputStream out) {
+    super(out);
+  }
+
+  @Override
+  public void writeObject(final Object obj) throws IOException {
+    try {
+      writeValue(obj);
+    } catch (final GameDataCopier.CopyException e) {
+      throw (NotSerializableException) new NotSerializableException(e.getMessage()).initCause(e);
+    }
+  }
+
+  private void writeValue(final Object obj) throws IOException {
+    if (obj == null) {
+      writeByte(NULL);
+      return;
+    }
+    final Integer handle = m_handles.get(obj);
+    if (handle != null) {
+      writeByte(REFERENCE);
+      writeVarInt(handle);
+      return;
+    }
+    if (m_replacing.contains(obj)) {
+      throw new NotSerializableException("Object refers back to itself through its serialization proxy: "
+          + obj.getClass());
+    }
+    final Class<?> type = obj.getClass();
+    if (type == String.class) {
+      register(obj);
+      writeByte(STRING);
+      writeString((String) obj);
+    } else if (obj instanceof Number || obj instanceof Boolean || obj instanceof Character) {
+      if (!writeBoxed(obj)) {
+        writeOther(obj, type);
+      }
+    } else if (obj instanceof Enum) {
+      writeByte(ENUM);
+      writeClass(((Enum<?>) obj).getDeclaringClass(), null);
+      writeString(((Enum<?>) obj).name());
+    } else if (type == Class.class) {
+      writeByte(CLASS);
+      writeString(((Class<?>) obj).getName());
+    } else if (type.isArray()) {
+      writeArray(obj, type);
+    } else if (s_collectionTypes.contains(type)) {
+      register(obj);
+      writeByte(COLLECTION);
+      writeClass(type, null);
+      if (obj instanceof TreeSet) {
+        writeValue(((TreeSet<?>) obj).comparator());
+      }
+      final Collection<?> collection = (Collection<?>) obj;
+      writeVarInt(collection.size());
+      for (final Object element : collection) {
+        writeValue(element);
+      }
+    } else if (s_mapTypes.contains(type)) {
+      register(obj);
+      writeByte(MAP);
+      writeClass(type, null);
+      if (obj instanceof TreeMap) {
+        writeValue(((TreeMap<?, ?>) obj).comparator());
+      }
+      writeEntries(((Map<?, ?>) obj).entrySet());
+    } else if (obj == Collections.emptyList() || obj == Collections.emptySet() || obj == Collections.emptyMap()) {
+      writeByte(EMPTY);
+      writeByte(obj == Collections.emptyList() ? LIST : obj == Collections.emptySet() ? SET : MAP_KIND);
+    } else if (obj instanceof ImmutableList || obj instanceof ImmutableSet || obj instanceof ImmutableMap
+        || obj instanceof ImmutableMultimap) {
+      writeImmutable(obj);
+    } else {
+      writeOther(obj, type);
+    }
+  }
+
+  private boolean writeBoxed(final Object obj) throws IOException {
+    final Class<?> type = obj.getClass();
+    if (type == Integer.class) {
+      register(obj);
+      writeByte(INTEGER);
+      writeInt((Integer) obj);
+    } else if (type == Long.class) {
+      register(obj);
+      writeByte(LONG);
+      writeLong((Long) obj);
+    } else if (type == Boolean.class) {
+      register(obj);
+      writeByte(BOOLEAN);
+      writeBoolean((Boolean) obj);
+    } else if (type == Double.class) {
+      register(obj);
+      writeByte(DOUBLE);
+      writeDouble((Double) obj);
+    } else if (type == Float.class) {
+      register(obj);
+      writeByte(FLOAT);
+      writeFloat((Float) obj);
+    } else if (type == Short.class) {
+      register(obj);
+      writeByte(SHORT);
+      writeShort((Short) obj);
+    } else if (type == Byte.class) {
+      register(obj);
+      writeByte(BYTE);
+      writeByte((Byte) obj);
+    } else if (type == Character.class) {
+      register(obj);
+      writeByte(CHARACTER);
+      writeChar((Character) obj);
+    } else {
+      return false;
+    }
+    return true;
+  }
+
+  private void writeOther(final Object obj, final Class<?> type) throws IOException {
+    if (s_serializedTypes.contains(type)) {
+      register(obj);
+      writeByte(SERIALIZED);
+      final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+        out.writeObject(obj);
+      }
+      writeVarInt(bytes.size());
+      bytes.writeTo(this);
+    } else if (type == ReentrantReadWriteLock.class) {
+      register(obj);
+      writeByte(LOCK);
+    } else if (obj instanceof DelegateList) {
+      // delegates are not part of the data, they are written separately
+      register(obj);
+      writeByte(DELEGATE_LIST);
+      writeValue(((DelegateList) obj).getData());
+    } else if (obj instanceof Externalizable) {
+      register(obj);
+      writeByte(EXTERNALIZABLE);
+      writeClass(type, null);
+      ((Externalizable) obj).writeExternal(this);
+    } else {
+      writeSerializable(obj, ClassPlan.of(type));
+    }
+  }
+
+  private void writeSerializable(final Object obj, final ClassPlan plan) throws IOException {
+    if (plan.writeReplace != null) {
+      final Object replacement = plan.invoke(plan.writeReplace, obj);
+      if (replacement == obj) {
+        writeSerializable(obj, plan.withoutWriteReplace());
+        return;
+      }
+      m_replacing.add(obj);
+      writeValue(replacement);
+      m_replacing.remove(obj);
+      final Integer handle = m_handles.get(replacement);
+      if (handle != null) {
+        m_handles.put(obj, handle);
+      }
+      return;
+    }
+    register(obj);
+    writeByte(OBJECT);
+    final ClassPlan written = writeClass(obj.getClass(), plan);
+    try {
+      for (final Field field : written.fields) {
+        final Class<?> fieldType = field.getType();
+        if (!fieldType.isPrimitive()) {
+          writeValue(field.get(obj));
+        } else if (fieldType == int.class) {
+          writeInt(field.getInt(obj));
+        } else if (fieldType == boolean.class) {
+          writeBoolean(field.getBoolean(obj));
+        } else if (fieldType == long.class) {
+          writeLong(field.getLong(obj));
+        } else if (fieldType == double.class) {
+          writeDouble(field.getDouble(obj));
+        } else if (fieldType == float.class) {
+          writeFloat(field.getFloat(obj));
+        } else if (fieldType == short.class) {
+          writeShort(field.getShort(obj));
+        } else if (fieldType == byte.class) {
+          writeByte(field.getByte(obj));
+        } else {
+          writeChar(field.getChar(obj));
+        }
+      }
+    } catch (final IllegalAccessException e) {
+      throw (NotSerializableException) new NotSerializableException("Can not read fields of: " + obj.getClass())
+          .initCause(e);
+    }
+  }
+
+  private void writeArray(final Object obj, final Class<?> type) throws IOException {
+    register(obj);
+    writeByte(ARRAY);
+    writeClass(type, null);
+    final int length = Array.getLength(obj);
+    writeVarInt(length);
+    final Class<?> componentType = type.getComponentType();
+    if (!componentType.isPrimitive()) {
+      for (final Object element : (Object[]) obj) {
+        writeValue(element);
+      }
+    } else if (componentType == byte.class) {
+      write((byte[]) obj);
+    } else if (componentType == int.class) {
+      for (final int element : (int[]) obj) {
+        writeInt(element);
+      }
+    } else if (componentType == boolean.class) {
+      for (final boolean element : (boolean[]) obj) {
+        writeBoolean(element);
+      }
+    } else if (componentType == long.class) {
+      for (final long element : (long[]) obj) {
+        writeLong(element);
+      }
+    } else if (componentType == double.class) {
+      for (final double element : (double[]) obj) {
+        writeDouble(element);
+      }
+    } else if (componentType == float.class) {
+      for (final float element : (float[]) obj) {
+        writeFloat(element);
+      }
+    } else if (componentType == short.class) {
+      for (final short element : (short[]) obj) {
+        writeShort(element);
+      }
+    } else {
+      for (final char element : (char[]) obj) {
+        writeChar(element);
+      }
+    }
+  }
+
+  private void writeImmutable(final Object obj) throws IOException {
+    register(obj);
+    writeByte(IMMUTABLE);
+    if (obj instanceof ImmutableMultimap) {
+      if (!(obj instanceof ImmutableListMultimap) && !(obj instanceof ImmutableSetMultimap)) {
+        throw new NotSerializableException("Unsupported immutable collection: " + obj.getClass());
+      }
+      writeByte(obj instanceof ImmutableListMultimap ? LIST_MULTIMAP : SET_MULTIMAP);
+      writeEntries(((ImmutableMultimap<?, ?>) obj).entries());
+    } else if (obj instanceof ImmutableMap) {
+      writeByte(MAP_KIND);
+      writeEntries(((ImmutableMap<?, ?>) obj).entrySet());
+    } else {
+      writeByte(obj instanceof ImmutableList ? LIST : SET);
+      final Collection<?> collection = (Collection<?>) obj;
+      writeVarInt(collection.size());
+      for (final Object element : collection) {
+        writeValue(element);
+      }
+    }
+  }
+
+  private void writeEntries(final Collection<? extends Map.Entry<?, ?>> entries) throws IOException {
+    writeVarInt(entries.size());
+    for (final Map.Entry<?, ?> entry : entries) {
+      writeValue(entry.getKey());
+      writeValue(entry.getValue());
+    }
+  }
+
+  private void register(final Object obj) {
+    m_handles.put(obj, m_nextHandle++);
+  }
+
+  /**
+   * Write the number of the class, and the first time the class is written its name, and the name and type of the
+   * fields of the given plan.
+   *
+   * @return the plan the fields of the class are written by.
+   */
+  private ClassPlan writeClass(final Class<?> type, final ClassPlan plan) throws IOException {
+    final Integer number = m_classes.get(type);
+    if (number != null) {
+      writeVarInt(number);
+      return m_plans.get(type);
+    }
+    final int newNumber = m_classes.size();
+    m_classes.put(type, newNumber);
+    writeVarInt(newNumber);
+    writeString(type.getName());
+    if (plan != null) {
+      m_plans.put(type, plan);
+      writeVarInt(plan.fields.size());
+      for (final Field field : plan.fields) {
+        writeString(field.getDeclaringClass().getName());
+        writeString(field.getName());
+        writeByte(typeCode(field.getType()));
+      }
+    }
+    return plan;
+  }
+
+  /**
+   * The letter serialization uses for the type of a field, with L for any reference.
+   */
+  static char typeCode(final Class<?> type) {
+    if (!type.isPrimitive()) {
+      return 'L';
+    } else if (type == int.class) {
+      return 'I';
+    } else if (type == boolean.class) {
+      return 'Z';
+    } else if (type == long.class) {
+      return 'J';
+    } else if (type == double.class) {
+      return 'D';
+    } else if (type == float.class) {
+      return 'F';
+    } else if (type == short.class) {
+      return 'S';
+    } else if (type == byte.class) {
+      return 'B';
+    } else {
+      return 'C';
+    }
+  }
+
+  private void writeString(final String value) throws IOException {
+    final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    writeVarInt(bytes.length);
+    write(bytes);
+  }
+
+  /**
+   * Seven bits a byte, the high bit set on all but the last byte.
+   */
+  private void writeVarInt(final int value) throws IOException {
+    int remaining = value;
+    while ((remaining & ~0x7F) != 0) {
+      writeByte((remaining & 0x7F) | 0x80);
+      remaining >>>= 7;
+    }
+    writeByte(remaining);
+  }
+}
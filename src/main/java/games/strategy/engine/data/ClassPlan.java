@@ -0,0 +1,170 @@
+package games.strategy.engine.data;
+
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * How to copy or write instances of one class: its serializable fields, how to allocate it the way serialization
+ * does, and its serialization proxy hooks.
+ * <p>
+ * Used by GameDataCopier and the binary game data format, which follow the rules of serialization without using it.
+ */
+final class ClassPlan {
+  private static final Map<Class<?>, ClassPlan> s_plans = new ConcurrentHashMap<>();
+  // classes with a readObject/writeObject the copier mimics, either because a field by field copy does the same or
+  // because they are built through their constructor, which sets up their transient fields
+  private static final Set<Class<?>> s_customSerializationHandled = new HashSet<>();
+
+  static {
+    Collections.addAll(s_customSerializationHandled, GameData.class, GameSequence.class, GameDataComponent.class,
+        games.strategy.engine.data.changefactory.ObjectPropertyChange.class);
+  }
+
+  final Class<?> type;
+  final List<Field> fields = new ArrayList<>();
+  final Method writeReplace;
+  final Method readResolve;
+  private Constructor<?> constructor;
+
+  static ClassPlan of(final Class<?> type) {
+    ClassPlan plan = s_plans.get(type);
+    if (plan == null) {
+      plan = new ClassPlan(type);
+      s_plans.put(type, plan);
+    }
+    return plan;
+  }
+
+  private ClassPlan(final Class<?> type) {
+    this(type, true);
+  }
+
+  private ClassPlan(final Class<?> type, final boolean honourWriteReplace) {
+    this.type = type;
+    if (!Serializable.class.isAssignableFrom(type)) {
+      throw new GameDataCopier.CopyException("Not serializable: " + type);
+    }
+    if (type.getName().contains("$$Lambda")) {
+      throw new GameDataCopier.CopyException("Lambdas are not supported: " + type);
+    }
+    writeReplace = honourWriteReplace ? findInherited(type, "writeReplace") : null;
+    readResolve = findInherited(type, "readResolve");
+    if (writeReplace != null) {
+      // only the replacement is copied
+      return;
+    }
+    final List<Class<?>> hierarchy = new ArrayList<>();
+    for (Class<?> c = type; c != null && Serializable.class.isAssignableFrom(c); c = c.getSuperclass()) {
+      hierarchy.add(0, c);
+    }
+    for (final Class<?> c : hierarchy) {
+      if (!s_customSerializationHandled.contains(c) && (findPrivate(c, "readObject", ObjectInputStream.class) != null
+          || findPrivate(c, "writeObject", ObjectOutputStream.class) != null)) {
+        throw new GameDataCopier.CopyException("Custom serialization is not supported: " + c);
+      }
+      for (final Field field : c.getDeclaredFields()) {
+        final int modifiers = field.getModifiers();
+        if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers)) {
+          makeAccessible(field);
+          fields.add(field);
+        }
+      }
+    }
+  }
+
+  ClassPlan withoutWriteReplace() {
+    return new ClassPlan(type, false);
+  }
+
+  Object newInstance() {
+    try {
+      if (constructor == null) {
+        constructor = serializationConstructor(type);
+      }
+      return constructor.newInstance();
+    } catch (final ReflectiveOperationException e) {
+      throw new GameDataCopier.CopyException("Can not create: " + type, e);
+    }
+  }
+
+  Object invoke(final Method method, final Object target) {
+    try {
+      return method.invoke(target);
+    } catch (final IllegalAccessException e) {
+      throw new GameDataCopier.CopyException("Can not call " + method, e);
+    } catch (final InvocationTargetException e) {
+      throw new GameDataCopier.CopyException("Error in " + method, e.getCause());
+    }
+  }
+
+  private static Method findPrivate(final Class<?> c, final String name, final Class<?> parameter) {
+    try {
+      final Method method = c.getDeclaredMethod(name, parameter);
+      return Modifier.isPrivate(method.getModifiers()) ? method : null;
+    } catch (final NoSuchMethodException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Same lookup rules as serialization: any access on the class itself, non private on its superclasses.
+   */
+  private static Method findInherited(final Class<?> type, final String name) {
+    for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+      try {
+        final Method method = c.getDeclaredMethod(name);
+        if (method.getReturnType() != Object.class || Modifier.isStatic(method.getModifiers())
+            || (c != type && Modifier.isPrivate(method.getModifiers()))) {
+          return null;
+        }
+        makeAccessible(method);
+        return method;
+      } catch (final NoSuchMethodException e) {
+        // keep looking in the super class
+      }
+    }
+    return null;
+  }
+
+  /**
+   * A constructor that, like deserialization, only runs the no-arg constructor of the first non serializable
+   * super class.
+   */
+  private static Constructor<?> serializationConstructor(final Class<?> type) throws ReflectiveOperationException {
+    Class<?> initClass = type;
+    while (Serializable.class.isAssignableFrom(initClass)) {
+      initClass = initClass.getSuperclass();
+    }
+    final Constructor<?> initConstructor = initClass.getDeclaredConstructor();
+    final Class<?> factoryClass = Class.forName("sun.reflect.ReflectionFactory");
+    final Object factory = factoryClass.getMethod("getReflectionFactory").invoke(null);
+    final Constructor<?> constructor = (Constructor<?>) factoryClass
+        .getMethod("newConstructorForSerialization", Class.class, Constructor.class)
+        .invoke(factory, type, initConstructor);
+    makeAccessible(constructor);
+    return constructor;
+  }
+
+  private static void makeAccessible(final AccessibleObject member) {
+    try {
+      member.setAccessible(true);
+    } catch (final RuntimeException e) {
+      // newer jvms do not let us look inside some jdk classes
+      throw new GameDataCopier.CopyException("Can not access: " + member, e);
+    }
+  }
+}
@@ -1,14 +1,13 @@
 package games.strategy.engine.data;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.logging.Logger;
 
-import games.strategy.triplea.delegate.Matches;
 import games.strategy.util.CompositeMatchOr;
 import games.strategy.util.Match;
 
@@ -38,39 +37,58 @@ public class CompositeRouteFinder {
     s_logger.finer("Initializing CompositeRouteFinderClass...");
   }
 
-  private HashSet<Territory> ToHashSet(final Collection<Territory> ters) {
-    final HashSet<Territory> result = new HashSet<>();
-    for (final Territory ter : ters) {
-      result.add(ter);
-    }
-    return result;
-  }
-
   public Route findRoute(final Territory start, final Territory end) {
-    final HashSet<Territory> allMatchingTers =
-        ToHashSet(Match.getMatches(m_map.getTerritories(), new CompositeMatchOr<>(m_matches.keySet())));
-    final HashMap<Territory, Integer> terScoreMap = CreateScoreMap(allMatchingTers, start);
-    final HashMap<Territory, Integer> routeScoreMap = new HashMap<>();
+    final TerritoryGraph graph = m_map.getGraph();
+    final int startIndex = graph.getIndex(start);
+    final int endIndex = graph.getIndex(end);
+    if (startIndex < 0 || endIndex < 0) {
+      return null;
+    }
+    final int size = graph.size();
+    final Match<Territory> anyMatch = new CompositeMatchOr<>(m_matches.keySet());
+    final BitSet allMatchingTers = new BitSet(size);
+    final int[] terScores = new int[size];
+    for (int i = 0; i < size; i++) {
+      final Territory ter = graph.getTerritory(i);
+      terScores[i] = getTerScore(ter);
+      if (anyMatch.match(ter)) {
+        allMatchingTers.set(i);
+      }
+    }
+    final int[] routeScores = new int[size];
     int bestRouteToEndScore = Integer.MAX_VALUE;
-    final HashMap<Territory, Territory> previous = new HashMap<>();
-    List<Territory> routeLeadersToProcess = new ArrayList<>();
-    for (final Territory ter : m_map.getNeighbors(start, Matches.territoryIsInList(allMatchingTers))) {
-      final int routeScore = terScoreMap.get(start) + terScoreMap.get(ter);
-      routeScoreMap.put(ter, routeScore);
-      routeLeadersToProcess.add(ter);
-      previous.put(ter, start);
+    final int[] previous = new int[size];
+    Arrays.fill(previous, -1);
+    int[] routeLeadersToProcess = new int[size];
+    int leaderCount = 0;
+    final BitSet isRouteLeader = new BitSet(size);
+    for (final int ter : graph.getNeighbors(startIndex)) {
+      if (allMatchingTers.get(ter)) {
+        routeScores[ter] = terScores[startIndex] + terScores[ter];
+        routeLeadersToProcess[leaderCount++] = ter;
+        previous[ter] = startIndex;
+      }
     }
-    while (routeLeadersToProcess.size() > 0) {
-      final List<Territory> newLeaders = new ArrayList<>();
-      for (final Territory oldLeader : routeLeadersToProcess) {
-        for (final Territory ter : m_map.getNeighbors(oldLeader, Matches.territoryIsInList(allMatchingTers))) {
-          final int routeScore = routeScoreMap.get(oldLeader) + terScoreMap.get(ter);
-          if (routeLeadersToProcess.contains(ter) || ter.equals(start)) {
+    int[] newLeaders = new int[size];
+    while (leaderCount > 0) {
+      isRouteLeader.clear();
+      for (int i = 0; i < leaderCount; i++) {
+        isRouteLeader.set(routeLeadersToProcess[i]);
+      }
+      int newLeaderCount = 0;
+      for (int i = 0; i < leaderCount; i++) {
+        final int oldLeader = routeLeadersToProcess[i];
+        for (final int ter : graph.getNeighbors(oldLeader)) {
+          if (!allMatchingTers.get(ter)) {
+            continue;
+          }
+          final int routeScore = routeScores[oldLeader] + terScores[ter];
+          if (isRouteLeader.get(ter) || ter == startIndex) {
             continue;
           }
-          if (previous.containsKey(ter)) // If we're bumping into an existing route
+          if (previous[ter] >= 0) // If we're bumping into an existing route
           {
-            if (routeScore >= routeScoreMap.get(ter)) {
+            if (routeScore >= routeScores[ter]) {
               continue;
             }
           }
@@ -78,45 +96,42 @@ public class CompositeRouteFinder {
             // Ignore this route leader, as we know we already have a better route
             continue;
           }
-          routeScoreMap.put(ter, routeScore);
-          newLeaders.add(ter);
-          previous.put(ter, oldLeader);
-          if (ter.equals(end)) {
+          routeScores[ter] = routeScore;
+          if (newLeaderCount == newLeaders.length) {
+            newLeaders = Arrays.copyOf(newLeaders, newLeaders.length * 2);
+          }
+          newLeaders[newLeaderCount++] = ter;
+          previous[ter] = oldLeader;
+          if (ter == endIndex) {
             if (routeScore < bestRouteToEndScore) {
               bestRouteToEndScore = routeScore;
             }
           }
         }
       }
+      final int[] processed = routeLeadersToProcess;
       routeLeadersToProcess = newLeaders;
+      leaderCount = newLeaderCount;
+      newLeaders = processed.length >= size ? processed : new int[size];
     }
     if (bestRouteToEndScore == Integer.MAX_VALUE) {
       return null;
     }
-    return AssembleRoute(start, end, previous);
+    return AssembleRoute(graph, startIndex, endIndex, previous);
   }
 
-  private Route AssembleRoute(final Territory start, final Territory end,
-      final HashMap<Territory, Territory> previous) {
+  private Route AssembleRoute(final TerritoryGraph graph, final int start, final int end, final int[] previous) {
     final List<Territory> routeTers = new ArrayList<>();
-    Territory curTer = end;
-    while (previous.containsKey(curTer)) {
-      routeTers.add(curTer);
-      curTer = previous.get(curTer);
+    int curTer = end;
+    while (previous[curTer] >= 0) {
+      routeTers.add(graph.getTerritory(curTer));
+      curTer = previous[curTer];
     }
-    routeTers.add(start);
+    routeTers.add(graph.getTerritory(start));
     Collections.reverse(routeTers);
     return new Route(routeTers);
   }
 
-  private HashMap<Territory, Integer> CreateScoreMap(final Collection<Territory> ters, final Territory startTer) {
-    final HashMap<Territory, Integer> result = new HashMap<>();
-    for (final Territory ter : m_map.getTerritories()) {
-      result.put(ter, getTerScore(ter));
-    }
-    return result;
-  }
-
   /*
    * Returns the score of the best match that matches this territory
    */
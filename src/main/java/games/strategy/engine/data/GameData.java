@@ -10,6 +10,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -97,6 +98,8 @@ public class GameData implements java.io.Serializable {
       new ArrayList<>();
   private final Hashtable<String, TerritoryEffect> territoryEffectList = new Hashtable<>();
   private final BattleRecordsList battleRecordsList = new BattleRecordsList(this);
+  // bumped on any change to the data, including those not made by a Change
+  private transient AtomicLong changeVersion = new AtomicLong();
 
   /** Creates new GameData */
   public GameData() {
@@ -108,6 +111,7 @@ public class GameData implements java.io.Serializable {
   private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
     in.defaultReadObject();
     lockUtil = LockUtil.INSTANCE;
+    changeVersion = new AtomicLong();
   }
 
   /**
@@ -377,6 +381,8 @@ public class GameData implements java.io.Serializable {
       return;
     }
     lockUtil.acquireLock(readWriteLock.writeLock());
+    // whoever takes the write lock is about to change the data
+    dataChanged();
   }
 
   public void releaseWriteLock() {
@@ -491,9 +497,26 @@ public class GameData implements java.io.Serializable {
     try {
       acquireWriteLock();
       change.perform(this);
+      dataChanged();
     } finally {
       releaseWriteLock();
     }
     notifyGameDataChanged(change);
   }
+
+  /**
+   * @return a number that grows whenever this game data changes: on every change performed, whenever the write lock
+   *         is taken and when the sequence moves. Readers can compare it to tell whether what they worked out from the
+   *         data may be out of date.
+   */
+  public long getChangeVersion() {
+    return changeVersion.get();
+  }
+
+  /**
+   * Count a change to the data.
+   */
+  void dataChanged() {
+    changeVersion.incrementAndGet();
+  }
 }
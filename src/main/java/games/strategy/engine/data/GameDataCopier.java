@@ -0,0 +1,321 @@
+package games.strategy.engine.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.google.common.collect.ImmutableCollection;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableSetMultimap;
+
+import games.strategy.engine.delegate.IDelegate;
+import games.strategy.engine.framework.GameObjectStreamFactory;
+import games.strategy.net.GUID;
+
+/**
+ * Creates a deep copy of a GameData by walking its object graph directly, rather than saving it to a byte array with
+ * GameDataManager and loading it back.
+ * <p>
+ * The copy follows the same rules java serialization does, so the result is the same graph a save and load would
+ * produce: == relationships between territories, players, units and attachments are kept, transient fields are not
+ * copied, and the writeReplace / readResolve methods used by the serialization proxies (AllianceTracker, History,
+ * BattleRecords...) are honoured. Only the classes whose private readObject the copier knows how to mimic are copied,
+ * anything else makes the copy fail with a CopyException, and the caller should fall back to serialization.
+ * <p>
+ * <Strong>You should have the game datas read or write lock before calling this method</STRONG>
+ */
+public final class GameDataCopier {
+  private static final Set<Class<?>> s_immutableTypes = new HashSet<>();
+  private static final Set<Class<?>> s_collectionTypes = new HashSet<>();
+  private static final Set<Class<?>> s_mapTypes = new HashSet<>();
+  private static final Object IN_PROGRESS = new Object();
+
+  static {
+    Collections.addAll(s_immutableTypes, String.class, Boolean.class, Character.class, Byte.class, Short.class,
+        Integer.class, Long.class, Float.class, Double.class, BigInteger.class, BigDecimal.class, Class.class,
+        UUID.class, java.rmi.dgc.VMID.class, java.rmi.server.UID.class, GUID.class);
+    Collections.addAll(s_collectionTypes, ArrayList.class, LinkedList.class, Vector.class,
+        CopyOnWriteArrayList.class, HashSet.class, LinkedHashSet.class, TreeSet.class);
+    Collections.addAll(s_mapTypes, HashMap.class, LinkedHashMap.class, Hashtable.class, Properties.class,
+        IdentityHashMap.class, ConcurrentHashMap.class, TreeMap.class);
+  }
+
+  private final GameData m_source;
+  private final Map<Object, Object> m_copies = new IdentityHashMap<>();
+  private GameData m_target;
+
+  private GameDataCopier(final GameData source) {
+    m_source = source;
+  }
+
+  /**
+   * Create a deep copy of GameData, optionally including the state of its delegates.
+   *
+   * @throws CopyException
+   *         if the graph contains something that cannot be copied without serialization.
+   */
+  public static GameData copy(final GameData data, final boolean copyDelegates) throws CopyException {
+    final GameDataCopier copier = new GameDataCopier(data);
+    final GameData copy = (GameData) copier.copy(data);
+    if (copyDelegates) {
+      copier.copyDelegates();
+    }
+    copy.postDeSerialize();
+    return copy;
+  }
+
+  private void copyDelegates() {
+    for (final IDelegate delegate : m_source.getDelegateList()) {
+      final IDelegate instance;
+      try {
+        instance = delegate.getClass().newInstance();
+      } catch (final InstantiationException | IllegalAccessException e) {
+        throw new CopyException("Can not create delegate: " + delegate.getName(), e);
+      }
+      instance.initialize(delegate.getName(), delegate.getDisplayName());
+      m_target.getDelegateList().addDelegate(instance);
+      instance.loadState((Serializable) copy(delegate.saveState()));
+    }
+  }
+
+  private Object copy(final Object original) {
+    if (original == null) {
+      return null;
+    }
+    final Object existing = m_copies.get(original);
+    if (existing == IN_PROGRESS) {
+      throw new CopyException("Object refers back to itself through its serialization proxy: " + original.getClass());
+    } else if (existing != null) {
+      return existing;
+    }
+    final Class<?> type = original.getClass();
+    if (s_immutableTypes.contains(type) || original instanceof Enum) {
+      return original;
+    } else if (type.isArray()) {
+      return copyArray(original);
+    } else if (s_collectionTypes.contains(type)) {
+      return copyCollection((Collection<?>) original);
+    } else if (s_mapTypes.contains(type)) {
+      return copyMap((Map<?, ?>) original);
+    } else if (original instanceof ImmutableCollection || original instanceof ImmutableMap
+        || original instanceof ImmutableMultimap) {
+      return copyImmutable(original);
+    } else if (original == Collections.emptyList() || original == Collections.emptySet()
+        || original == Collections.emptyMap()) {
+      return original;
+    } else if (type == ReentrantReadWriteLock.class) {
+      return register(original, new ReentrantReadWriteLock());
+    } else if (original instanceof GameData) {
+      m_target = (GameData) register(original, new GameData());
+      copyFields(original, m_target, ClassPlan.of(type));
+      return m_target;
+    } else if (original instanceof DelegateList) {
+      // delegates are not part of the data, they are copied separately
+      return register(original, new DelegateList((GameData) copy(((DelegateList) original).getData())));
+    } else if (original instanceof GameSequence) {
+      final GameSequence sequence =
+          (GameSequence) register(original, new GameSequence((GameData) copy(((GameSequence) original).getData())));
+      copyFields(original, sequence, ClassPlan.of(type));
+      return sequence;
+    } else if (original instanceof Externalizable) {
+      return copyExternalizable(original);
+    }
+    return copyObject(original, ClassPlan.of(type));
+  }
+
+  private Object register(final Object original, final Object copy) {
+    m_copies.put(original, copy);
+    return copy;
+  }
+
+  private Object copyArray(final Object original) {
+    final int length = Array.getLength(original);
+    final Class<?> componentType = original.getClass().getComponentType();
+    final Object copy = Array.newInstance(componentType, length);
+    register(original, copy);
+    if (componentType.isPrimitive()) {
+      System.arraycopy(original, 0, copy, 0, length);
+    } else {
+      final Object[] from = (Object[]) original;
+      final Object[] to = (Object[]) copy;
+      for (int i = 0; i < length; i++) {
+        to[i] = copy(from[i]);
+      }
+    }
+    return copy;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Object copyCollection(final Collection<?> original) {
+    final Collection<Object> copy;
+    if (original instanceof TreeSet) {
+      copy = new TreeSet<>((java.util.Comparator<Object>) copy(((TreeSet<?>) original).comparator()));
+    } else {
+      copy = (Collection<Object>) newInstance(original.getClass());
+    }
+    register(original, copy);
+    // like serialization, each element is completely copied before it is added, so hash codes are stable
+    for (final Object element : original) {
+      copy.add(copy(element));
+    }
+    return copy;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Object copyMap(final Map<?, ?> original) {
+    final Map<Object, Object> copy;
+    if (original instanceof TreeMap) {
+      copy = new TreeMap<>((java.util.Comparator<Object>) copy(((TreeMap<?, ?>) original).comparator()));
+    } else {
+      copy = (Map<Object, Object>) newInstance(original.getClass());
+    }
+    register(original, copy);
+    for (final Map.Entry<?, ?> entry : original.entrySet()) {
+      final Object key = copy(entry.getKey());
+      copy.put(key, copy(entry.getValue()));
+    }
+    return copy;
+  }
+
+  private static Object newInstance(final Class<?> type) {
+    try {
+      return type.newInstance();
+    } catch (final InstantiationException | IllegalAccessException e) {
+      throw new CopyException("Can not create: " + type, e);
+    }
+  }
+
+  /**
+   * Immutable collections can only be built once their contents exist, so they are registered after their elements
+   * are copied.
+   */
+  private Object copyImmutable(final Object original) {
+    m_copies.put(original, IN_PROGRESS);
+    final Object copy;
+    if (original instanceof ImmutableListMultimap || original instanceof ImmutableSetMultimap) {
+      final ImmutableMultimap.Builder<Object, Object> builder = original instanceof ImmutableListMultimap
+          ? ImmutableListMultimap.builder() : ImmutableSetMultimap.builder();
+      for (final Map.Entry<?, ?> entry : ((ImmutableMultimap<?, ?>) original).entries()) {
+        builder.put(copy(entry.getKey()), copy(entry.getValue()));
+      }
+      copy = builder.build();
+    } else if (original instanceof ImmutableMap) {
+      final ImmutableMap.Builder<Object, Object> builder = ImmutableMap.builder();
+      for (final Map.Entry<?, ?> entry : ((ImmutableMap<?, ?>) original).entrySet()) {
+        builder.put(copy(entry.getKey()), copy(entry.getValue()));
+      }
+      copy = builder.build();
+    } else if (original instanceof ImmutableList || original instanceof ImmutableSet) {
+      final ImmutableCollection.Builder<Object> builder =
+          original instanceof ImmutableList ? ImmutableList.builder() : ImmutableSet.builder();
+      for (final Object element : (ImmutableCollection<?>) original) {
+        builder.add(copy(element));
+      }
+      copy = builder.build();
+    } else {
+      throw new CopyException("Unsupported immutable collection: " + original.getClass());
+    }
+    return register(original, copy);
+  }
+
+  /**
+   * Externalizable classes write their own state, so let them do it, resolving game objects against the copy.
+   */
+  private Object copyExternalizable(final Object original) {
+    try {
+      final ByteArrayOutputStream sink = new ByteArrayOutputStream(256);
+      try (ObjectOutputStream out = new GameObjectOutputStream(sink)) {
+        out.writeObject(original);
+      }
+      try (ObjectInputStream in = new GameObjectInputStream(new GameObjectStreamFactory(m_target),
+          new ByteArrayInputStream(sink.toByteArray()))) {
+        return register(original, in.readObject());
+      }
+    } catch (final IOException | ClassNotFoundException e) {
+      throw new CopyException("Can not copy: " + original.getClass(), e);
+    }
+  }
+
+  private Object copyObject(final Object original, final ClassPlan plan) {
+    if (plan.writeReplace != null) {
+      m_copies.put(original, IN_PROGRESS);
+      final Object replacement = plan.invoke(plan.writeReplace, original);
+      final Object copy =
+          replacement == original ? copyObject(original, plan.withoutWriteReplace()) : copy(replacement);
+      return register(original, copy);
+    }
+    final Object copy = plan.newInstance();
+    register(original, copy);
+    copyFields(original, copy, plan);
+    if (plan.readResolve != null) {
+      return register(original, plan.invoke(plan.readResolve, copy));
+    }
+    return copy;
+  }
+
+  private void copyFields(final Object original, final Object copy, final ClassPlan plan) {
+    try {
+      for (final Field field : plan.fields) {
+        final Class<?> fieldType = field.getType();
+        if (!fieldType.isPrimitive()) {
+          field.set(copy, copy(field.get(original)));
+        } else if (fieldType == int.class) {
+          field.setInt(copy, field.getInt(original));
+        } else if (fieldType == boolean.class) {
+          field.setBoolean(copy, field.getBoolean(original));
+        } else {
+          field.set(copy, field.get(original));
+        }
+      }
+    } catch (final IllegalAccessException e) {
+      throw new CopyException("Can not copy fields of: " + original.getClass(), e);
+    }
+  }
+
+  /**
+   * Thrown when the game data contains something the copier can not copy.
+   */
+  public static class CopyException extends RuntimeException {
+    private static final long serialVersionUID = -3462127311524468474L;
+
+    CopyException(final String message) {
+      super(message);
+    }
+
+    CopyException(final String message, final Throwable cause) {
+      super(message, cause);
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package games.strategy.engine.data;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -11,6 +12,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import games.strategy.triplea.delegate.Matches;
 import games.strategy.util.CompositeMatch;
@@ -33,6 +35,10 @@ public class GameMap extends GameDataComponent implements Iterable<Territory> {
   // otherwise, m_gridDimensions.length is the number of dimensions,
   // and each element is the size of a dimension
   private int[] m_gridDimensions = null;
+  // the territories and connections as numbers, built lazily and dropped when the map changes
+  private transient volatile TerritoryGraph m_graph;
+  // distances for the plain land, water and any territory conditions, built lazily and dropped when the map changes
+  private transient volatile DistanceCache m_distanceCache;
 
   GameMap(final GameData data) {
     super(data);
@@ -93,6 +99,7 @@ public class GameMap extends GameDataComponent implements Iterable<Territory> {
 
   protected void reorderTerritoryList() {
     Collections.sort(m_territories, TERRITORY_GRID_ORDERING);
+    clearGraph();
   }
 
   private static Comparator<Territory> TERRITORY_GRID_ORDERING = (t1, t2) -> {
@@ -168,6 +175,7 @@ public class GameMap extends GameDataComponent implements Iterable<Territory> {
     m_territories.add(t1);
     m_connections.put(t1, Collections.emptySet());
     m_territoryLookup.put(t1.getName(), t1);
+    clearGraph();
   }
 
   public void removeTerritory(final Territory t1) {
@@ -177,6 +185,7 @@ public class GameMap extends GameDataComponent implements Iterable<Territory> {
     m_territories.remove(t1);
     m_connections.remove(t1);
     m_territoryLookup.remove(t1.getName());
+    clearGraph();
     // remove territory from other connections
     final Map<Territory, Set<Territory>> tempConnections = new HashMap<>();
     for (final Entry<Territory, Set<Territory>> entry : m_connections.entrySet()) {
@@ -234,6 +243,7 @@ public class GameMap extends GameDataComponent implements Iterable<Territory> {
     final Set<Territory> modified = new HashSet<>(current);
     modified.add(to);
     m_connections.put(from, Collections.unmodifiableSet(modified));
+    clearGraph();
   }
 
   /**
@@ -294,7 +304,7 @@ public class GameMap extends GameDataComponent implements Iterable<Territory> {
    *         Does NOT include the original/starting territory in the returned Set.
    */
   @SuppressWarnings("unchecked")
-  public Set<Territory> getNeighbors(final Territory territory, int distance) {
+  public Set<Territory> getNeighbors(final Territory territory, final int distance) {
     if (distance < 0) {
       throw new IllegalArgumentException("Distance must be positive not:" + distance);
     }
@@ -305,9 +315,7 @@ public class GameMap extends GameDataComponent implements Iterable<Territory> {
     if (distance == 1) {
       return start;
     }
-    final Set<Territory> neighbors = getNeighbors(start, new HashSet<>(start), --distance);
-    neighbors.remove(territory);
-    return neighbors;
+    return getNeighbors(Collections.singleton(territory), distance, null, true);
   }
 
   /**
@@ -318,20 +326,17 @@ public class GameMap extends GameDataComponent implements Iterable<Territory> {
    *         Does NOT include the original/starting territory in the returned Set.
    */
   @SuppressWarnings("unchecked")
-  public Set<Territory> getNeighbors(final Territory territory, int distance, final Match<Territory> cond) {
+  public Set<Territory> getNeighbors(final Territory territory, final int distance, final Match<Territory> cond) {
     if (distance < 0) {
       throw new IllegalArgumentException("Distance must be positive not:" + distance);
     }
     if (distance == 0) {
       return Collections.EMPTY_SET;
     }
-    final Set<Territory> start = getNeighbors(territory, cond);
     if (distance == 1) {
-      return start;
+      return getNeighbors(territory, cond);
     }
-    final Set<Territory> neighbors = getNeighbors(start, new HashSet<>(start), --distance, cond);
-    neighbors.remove(territory);
-    return neighbors;
+    return getNeighbors(Collections.singleton(territory), distance, cond, false);
   }
 
   /**
@@ -343,9 +348,7 @@ public class GameMap extends GameDataComponent implements Iterable<Territory> {
    *         other.
    */
   public Set<Territory> getNeighbors(final Set<Territory> frontier, final int distance, final Match<Territory> cond) {
-    final Set<Territory> rVal = getNeighbors(frontier, new HashSet<>(frontier), distance, cond);
-    rVal.removeAll(frontier);
-    return rVal;
+    return getNeighbors(frontier, distance, cond, false);
   }
 
   /**
@@ -356,40 +359,37 @@ public class GameMap extends GameDataComponent implements Iterable<Territory> {
    *         other.
    */
   public Set<Territory> getNeighbors(final Set<Territory> frontier, final int distance) {
-    final Set<Territory> rVal = getNeighbors(frontier, new HashSet<>(frontier), distance);
-    rVal.removeAll(frontier);
-    return rVal;
+    return getNeighbors(frontier, distance, null, true);
   }
 
-  private Set<Territory> getNeighbors(final Set<Territory> frontier, final Set<Territory> searched, int distance,
-      final Match<Territory> cond) {
-    if (distance == 0) {
-      return searched;
-    }
-    final Iterator<Territory> iter = frontier.iterator();
-    final Set<Territory> newFrontier = new HashSet<>();
-    while (iter.hasNext()) {
-      final Territory t = iter.next();
-      newFrontier.addAll(getNeighbors(t, cond));
+  /**
+   * Flood fills the territory graph from the frontier.
+   *
+   * @param mustBeOnMap
+   *        whether a frontier territory the map does not know is an error, rather than a territory without neighbors
+   */
+  private Set<Territory> getNeighbors(final Set<Territory> frontier, final int distance, final Match<Territory> cond,
+      final boolean mustBeOnMap) {
+    final Set<Territory> rVal = new HashSet<>();
+    if (distance <= 0) {
+      return rVal;
     }
-    newFrontier.removeAll(searched);
-    searched.addAll(newFrontier);
-    return getNeighbors(newFrontier, searched, --distance, cond);
-  }
-
-  private Set<Territory> getNeighbors(final Set<Territory> frontier, final Set<Territory> searched, int distance) {
-    if (distance == 0) {
-      return searched;
+    final TerritoryGraph graph = getGraph();
+    final BitSet start = new BitSet(graph.size());
+    for (final Territory t : frontier) {
+      final int index = graph.getIndex(t);
+      if (index >= 0) {
+        start.set(index);
+      } else if (mustBeOnMap) {
+        throw new IllegalArgumentException("No neighbors for:" + t);
+      }
     }
-    final Iterator<Territory> iter = frontier.iterator();
-    final Set<Territory> newFrontier = new HashSet<>();
-    while (iter.hasNext()) {
-      final Territory t = iter.next();
-      newFrontier.addAll(getNeighbors(t));
+    final BitSet reached = graph.getReachable(start, distance, cond);
+    reached.andNot(start);
+    for (int i = reached.nextSetBit(0); i >= 0; i = reached.nextSetBit(i + 1)) {
+      rVal.add(graph.getTerritory(i));
     }
-    newFrontier.removeAll(searched);
-    searched.addAll(newFrontier);
-    return getNeighbors(newFrontier, searched, --distance);
+    return rVal;
   }
 
   /**
@@ -535,9 +535,17 @@ public class GameMap extends GameDataComponent implements Iterable<Territory> {
     if (t1.equals(t2)) {
       return 0;
     }
-    final Set<Territory> frontier = new HashSet<>();
-    frontier.add(t1);
-    return getDistance(0, new HashSet<>(), frontier, t2, cond);
+    final int cached = getCachedDistance(t1, t2, cond);
+    if (cached != DistanceCache.NOT_CACHED) {
+      return cached;
+    }
+    final TerritoryGraph graph = getGraph();
+    final int start = graph.getIndex(t1);
+    final int end = graph.getIndex(t2);
+    if (start < 0 || end < 0) {
+      return -1;
+    }
+    return graph.getDistance(start, end, cond);
   }
 
   /**
@@ -556,36 +564,45 @@ public class GameMap extends GameDataComponent implements Iterable<Territory> {
   }
 
   /**
-   * Guaranteed that frontier doesn't contain target.
-   * Territories on the frontier are not target. They represent the extent of paths already searched.
-   * Territories in searched have already been on the frontier.
+   * Looks the distance up in the distance cache, which only knows the plain land, water and any territory conditions.
+   *
+   * @return the distance, -1 if not connected, or DistanceCache.NOT_CACHED if the cache can not answer
    */
-  private int getDistance(final int distance, final Set<Territory> searched, final Set<Territory> frontier,
-      final Territory target, final Match<Territory> cond) {
-    // add the frontier to the searched
-    searched.addAll(frontier);
-    // find the new frontier
-    final Set<Territory> newFrontier = new HashSet<>();
-    final Iterator<Territory> frontierIterator = frontier.iterator();
-    while (frontierIterator.hasNext()) {
-      final Territory onFrontier = frontierIterator.next();
-      final Set<Territory> connections = m_connections.get(onFrontier);
-      final Iterator<Territory> connectionIterator = connections.iterator();
-      while (connectionIterator.hasNext()) {
-        final Territory nextFrontier = connectionIterator.next();
-        if (cond == null || cond.match(nextFrontier)) {
-          newFrontier.add(nextFrontier);
-        }
-      }
+  private int getCachedDistance(final Territory t1, final Territory t2, final Match<Territory> cond) {
+    final int matrix;
+    if (cond == Matches.TerritoryIsLandOrWater || cond == null) {
+      matrix = DistanceCache.ALL;
+    } else if (cond == Matches.TerritoryIsLand) {
+      matrix = DistanceCache.LAND;
+    } else if (cond == Matches.TerritoryIsWater) {
+      matrix = DistanceCache.WATER;
+    } else {
+      return DistanceCache.NOT_CACHED;
     }
-    if (newFrontier.contains(target)) {
-      return distance + 1;
+    DistanceCache cache = m_distanceCache;
+    if (cache == null) {
+      cache = new DistanceCache(getGraph());
+      m_distanceCache = cache;
     }
-    newFrontier.removeAll(searched);
-    if (newFrontier.isEmpty()) {
-      return -1;
+    return cache.getDistance(t1, t2, matrix);
+  }
+
+  /**
+   * @return the territories and connections of this map as numbers, for searches that should not be allocating sets
+   *         and maps of territories. A new graph is built after the map changes.
+   */
+  public TerritoryGraph getGraph() {
+    TerritoryGraph graph = m_graph;
+    if (graph == null) {
+      graph = new TerritoryGraph(m_territories, m_connections);
+      m_graph = graph;
     }
-    return getDistance(distance + 1, searched, newFrontier, target, cond);
+    return graph;
+  }
+
+  private void clearGraph() {
+    m_graph = null;
+    m_distanceCache = null;
   }
 
   public IntegerMap<Territory> getDistance(final Territory target, final Collection<Territory> territories,
@@ -643,6 +660,57 @@ public class GameMap extends GameDataComponent implements Iterable<Territory> {
    * If the actual territories in the map are deleted, or new ones added, call this.
    */
   public void notifyChanged() {
+    clearGraph();
     getData().notifyMapDataChanged();
   }
+
+  /**
+   * Distances between territories for the land, water and any territory conditions. Each matrix holds one row per
+   * start territory, found with a breadth first search the first time a distance from that territory is asked for.
+   * Rows are shorts, since no route is anywhere near that long, and unreachable territories are -1.
+   * <p>
+   * Rows may be computed twice when two threads ask at the same time, but both come out the same, so the reference
+   * arrays only need to publish them safely.
+   */
+  private static final class DistanceCache {
+    static final int ALL = 0;
+    static final int LAND = 1;
+    static final int WATER = 2;
+    static final int NOT_CACHED = Integer.MIN_VALUE;
+    private final TerritoryGraph m_graph;
+    private final List<AtomicReferenceArray<short[]>> m_matrices = new ArrayList<>(3);
+
+    private DistanceCache(final TerritoryGraph graph) {
+      m_graph = graph;
+      for (int i = 0; i < 3; i++) {
+        m_matrices.add(new AtomicReferenceArray<>(graph.size()));
+      }
+    }
+
+    private int getDistance(final Territory from, final Territory to, final int matrix) {
+      final int fromIndex = m_graph.getIndex(from);
+      final int toIndex = m_graph.getIndex(to);
+      if (fromIndex < 0 || toIndex < 0) {
+        return NOT_CACHED;
+      }
+      final AtomicReferenceArray<short[]> rows = m_matrices.get(matrix);
+      short[] row = rows.get(fromIndex);
+      if (row == null) {
+        row = computeRow(fromIndex, matrix);
+        rows.set(fromIndex, row);
+      }
+      return row[toIndex];
+    }
+
+    private short[] computeRow(final int from, final int matrix) {
+      final Match<Territory> cond =
+          matrix == LAND ? Matches.TerritoryIsLand : (matrix == WATER ? Matches.TerritoryIsWater : null);
+      final int[] distances = m_graph.getDistances(from, cond);
+      final short[] row = new short[distances.length];
+      for (int i = 0; i < distances.length; i++) {
+        row[i] = (short) distances[i];
+      }
+      return row;
+    }
+  }
 }
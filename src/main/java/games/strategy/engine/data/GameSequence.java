@@ -29,6 +29,7 @@ public class GameSequence extends GameDataComponent implements Iterable<GameStep
    */
   public synchronized void setRoundAndStep(final int currentRound, final String stepDisplayName,
       final PlayerID player) {
+    changed();
     m_round = currentRound;
     boolean found = false;
     for (int i = 0; i < m_steps.size(); i++) {
@@ -48,7 +49,16 @@ public class GameSequence extends GameDataComponent implements Iterable<GameStep
     }
   }
 
+  /**
+   * Only used when loading an incremental savegame, to move to the round and step it was saved at.
+   */
+  public synchronized void setRoundAndStepIndex(final int currentRound, final int stepIndex) {
+    m_round = currentRound - m_roundOffset;
+    setStepIndex(stepIndex);
+  }
+
   public void addStep(final GameStep step) {
+    changed();
     m_steps.add(step);
   }
 
@@ -59,14 +69,17 @@ public class GameSequence extends GameDataComponent implements Iterable<GameStep
     if (!m_steps.contains(step)) {
       throw new IllegalArgumentException("Step does not exist");
     }
+    changed();
     m_steps.remove(step);
   }
 
   protected void removeStep(final int index) {
+    changed();
     m_steps.remove(index);
   }
 
   public void removeAllSteps() {
+    changed();
     m_steps.clear();
     m_round = 1;
   }
@@ -80,6 +93,7 @@ public class GameSequence extends GameDataComponent implements Iterable<GameStep
   }
 
   public void setRoundOffset(final int roundOffset) {
+    changed();
     m_roundOffset = roundOffset;
   }
 
@@ -91,6 +105,7 @@ public class GameSequence extends GameDataComponent implements Iterable<GameStep
     if ((newIndex < 0) || (newIndex >= m_steps.size())) {
       throw new IllegalArgumentException("New index out of range: " + newIndex);
     }
+    changed();
     m_currentIndex = newIndex;
   }
 
@@ -99,6 +114,7 @@ public class GameSequence extends GameDataComponent implements Iterable<GameStep
    */
   public boolean next() {
     synchronized (m_currentStepMutex) {
+      changed();
       m_currentIndex++;
       if (m_currentIndex >= m_steps.size()) {
         m_currentIndex = 0;
@@ -149,6 +165,15 @@ public class GameSequence extends GameDataComponent implements Iterable<GameStep
     return m_steps.size();
   }
 
+  /**
+   * The sequence is changed without a Change, let the game data know.
+   */
+  private void changed() {
+    if (getData() != null) {
+      getData().dataChanged();
+    }
+  }
+
   /** make sure transient lock object is initialized on deserialization. */
   private void readObject(final java.io.ObjectInputStream in) throws IOException, ClassNotFoundException {
     in.defaultReadObject();
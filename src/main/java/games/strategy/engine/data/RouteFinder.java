@@ -1,12 +1,7 @@
 package games.strategy.engine.data;
 
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
 
 import games.strategy.util.Match;
 
@@ -15,57 +10,27 @@ import games.strategy.util.Match;
 public class RouteFinder {
   private final GameMap m_map;
   private final Match<Territory> m_condition;
-  private final Map<Territory, Territory> m_previous;
 
   public RouteFinder(final GameMap map, final Match<Territory> condition) {
     m_map = map;
     m_condition = condition;
-    m_previous = new HashMap<>();
   }
 
   public Route findRoute(final Territory start, final Territory end) {
-    final Set<Territory> startSet = m_map.getNeighbors(start, m_condition);
-    for (final Territory t : startSet) {
-      m_previous.put(t, start);
+    final TerritoryGraph graph = m_map.getGraph();
+    final int startIndex = graph.getIndex(start);
+    final int endIndex = graph.getIndex(end);
+    if (startIndex < 0 || endIndex < 0) {
+      return null;
     }
-    if (calculate(startSet, end)) {
-      return getRoute(start, end);
+    final int[] path = graph.findPath(startIndex, endIndex, m_condition);
+    if (path == null) {
+      return null;
     }
-    return null;
-  }
-
-  private boolean calculate(final Set<Territory> startSet, final Territory end) {
-    final Set<Territory> nextSet = new HashSet<>();
-    for (final Territory t : startSet) {
-      final Set<Territory> neighbors = m_map.getNeighbors(t, m_condition);
-      for (final Territory neighbor : neighbors) {
-        if (!m_previous.containsKey(neighbor)) {
-          m_previous.put(neighbor, t);
-          if (neighbor.equals(end)) {
-            return true;
-          }
-          nextSet.add(neighbor);
-        }
-      }
-    }
-    if (nextSet.isEmpty()) {
-      return false;
-    }
-    return calculate(nextSet, end);
-  }
-
-  private Route getRoute(final Territory start, final Territory destination) {
-    final List<Territory> route = new ArrayList<>();
-    Territory current = destination;
-    while (current != start) {
-      if (current == null) {
-        return null;
-      }
-      route.add(current);
-      current = m_previous.get(current);
+    final List<Territory> route = new ArrayList<>(path.length);
+    for (final int index : path) {
+      route.add(graph.getTerritory(index));
     }
-    route.add(start);
-    Collections.reverse(route);
     return new Route(route);
   }
 }
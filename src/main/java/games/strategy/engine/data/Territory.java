@@ -7,6 +7,9 @@ public class Territory extends NamedAttachable implements NamedUnitHolder, Compa
   private final UnitCollection m_units;
   // In a grid-based game, stores the coordinate of the Territory
   private final int[] m_coordinate;
+  // the number of this territory in the TerritoryGraph of its map, only a hint since the graph is rebuilt when the map
+  // changes
+  private transient int m_index = -1;
 
   public Territory(final String name, final GameData data) {
     this(name, false, data);
@@ -32,6 +35,14 @@ public class Territory extends NamedAttachable implements NamedUnitHolder, Compa
     }
   }
 
+  int getIndex() {
+    return m_index;
+  }
+
+  void setIndex(final int index) {
+    m_index = index;
+  }
+
   public boolean isWater() {
     return m_water;
   }
@@ -0,0 +1,210 @@
+package games.strategy.engine.data;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import games.strategy.util.Match;
+
+/**
+ * The territories of a GameMap numbered 0 to size() - 1, with the connections between them as arrays of those
+ * numbers, and breadth first searches that work on bit sets and int arrays instead of sets and maps of territories.
+ * <p>
+ * A graph is a snapshot of the map, GameMap builds a new one when territories or connections change. Conditions
+ * given to the searches are only matched once per territory and search, and only for territories the search reaches.
+ * The start of a search never has to match the condition.
+ */
+public final class TerritoryGraph {
+  private final Territory[] m_territories;
+  private final Map<Territory, Integer> m_indexes;
+  private final int[][] m_neighbors;
+
+  TerritoryGraph(final List<Territory> territories, final Map<Territory, Set<Territory>> connections) {
+    m_territories = territories.toArray(new Territory[territories.size()]);
+    m_indexes = new HashMap<>(m_territories.length * 2);
+    for (int i = 0; i < m_territories.length; i++) {
+      m_indexes.put(m_territories[i], i);
+      m_territories[i].setIndex(i);
+    }
+    m_neighbors = new int[m_territories.length][];
+    for (int i = 0; i < m_territories.length; i++) {
+      final Set<Territory> neighbors = connections.get(m_territories[i]);
+      final int[] indexes = new int[neighbors.size()];
+      int count = 0;
+      for (final Territory neighbor : neighbors) {
+        indexes[count++] = m_indexes.get(neighbor);
+      }
+      m_neighbors[i] = indexes;
+    }
+  }
+
+  public int size() {
+    return m_territories.length;
+  }
+
+  /**
+   * @return the number of the territory in this graph, or -1 if the territory is not on the map
+   */
+  public int getIndex(final Territory territory) {
+    final int index = territory.getIndex();
+    if (index >= 0 && index < m_territories.length && m_territories[index] == territory) {
+      return index;
+    }
+    // an equal territory from a copy of the game data, or an index left by an older graph
+    final Integer found = m_indexes.get(territory);
+    return found == null ? -1 : found;
+  }
+
+  public Territory getTerritory(final int index) {
+    return m_territories[index];
+  }
+
+  /**
+   * @return the numbers of the territories connected to the given one. The array is shared, do not change it.
+   */
+  public int[] getNeighbors(final int index) {
+    return m_neighbors[index];
+  }
+
+  /**
+   * Finds every territory within maxDistance steps of the start territories, moving only into territories that match
+   * the condition.
+   *
+   * @param start
+   *        the territories to start from, these are included in the result
+   * @param maxDistance
+   *        the number of steps to take, or -1 for no limit
+   * @param cond
+   *        condition the territories moved into must match, or null to move anywhere
+   * @return the territories reached
+   */
+  public BitSet getReachable(final BitSet start, final int maxDistance, final Match<Territory> cond) {
+    final BitSet reached = (BitSet) start.clone();
+    final ConditionCache matches = new ConditionCache(cond);
+    final int[] queue = new int[m_territories.length];
+    final int[] distances = new int[m_territories.length];
+    int head = 0;
+    int tail = 0;
+    for (int i = start.nextSetBit(0); i >= 0; i = start.nextSetBit(i + 1)) {
+      queue[tail++] = i;
+    }
+    while (head < tail) {
+      final int current = queue[head++];
+      if (maxDistance >= 0 && distances[current] >= maxDistance) {
+        continue;
+      }
+      for (final int neighbor : m_neighbors[current]) {
+        if (!reached.get(neighbor) && matches.match(neighbor)) {
+          reached.set(neighbor);
+          distances[neighbor] = distances[current] + 1;
+          queue[tail++] = neighbor;
+        }
+      }
+    }
+    return reached;
+  }
+
+  /**
+   * @return the number of steps from start to every territory, moving only into territories that match the
+   *         condition, -1 for territories that can not be reached
+   */
+  public int[] getDistances(final int start, final Match<Territory> cond) {
+    final int[] distances = new int[m_territories.length];
+    Arrays.fill(distances, -1);
+    search(start, -1, cond, distances, null);
+    return distances;
+  }
+
+  /**
+   * @return the number of steps from start to end, moving only into territories that match the condition, or -1 if
+   *         end can not be reached
+   */
+  public int getDistance(final int start, final int end, final Match<Territory> cond) {
+    final int[] distances = new int[m_territories.length];
+    Arrays.fill(distances, -1);
+    search(start, end, cond, distances, null);
+    return distances[end];
+  }
+
+  /**
+   * Finds a shortest path from start to end, moving only into territories that match the condition.
+   *
+   * @return the numbers of the territories on the path, start and end included, or null if end can not be reached
+   */
+  public int[] findPath(final int start, final int end, final Match<Territory> cond) {
+    final int[] distances = new int[m_territories.length];
+    Arrays.fill(distances, -1);
+    final int[] previous = new int[m_territories.length];
+    search(start, end, cond, distances, previous);
+    if (distances[end] < 0) {
+      return null;
+    }
+    final int[] path = new int[distances[end] + 1];
+    int current = end;
+    for (int i = path.length - 1; i >= 0; i--) {
+      path[i] = current;
+      current = previous[current];
+    }
+    return path;
+  }
+
+  /**
+   * Breadth first search from start, filling in distances and, if given, the previous territory on a shortest path.
+   * Stops as soon as end is reached, pass -1 to search the whole graph.
+   */
+  private void search(final int start, final int end, final Match<Territory> cond, final int[] distances,
+      final int[] previous) {
+    final ConditionCache matches = new ConditionCache(cond);
+    final int[] queue = new int[m_territories.length];
+    int head = 0;
+    int tail = 0;
+    distances[start] = 0;
+    queue[tail++] = start;
+    while (head < tail) {
+      final int current = queue[head++];
+      for (final int neighbor : m_neighbors[current]) {
+        if (distances[neighbor] < 0 && matches.match(neighbor)) {
+          distances[neighbor] = distances[current] + 1;
+          if (previous != null) {
+            previous[neighbor] = current;
+          }
+          if (neighbor == end) {
+            return;
+          }
+          queue[tail++] = neighbor;
+        }
+      }
+    }
+  }
+
+  /**
+   * Remembers what the condition said about each territory, so it is matched at most once per search.
+   */
+  private final class ConditionCache {
+    private final Match<Territory> m_cond;
+    private final BitSet m_checked;
+    private final BitSet m_passed;
+
+    private ConditionCache(final Match<Territory> cond) {
+      m_cond = cond;
+      m_checked = cond == null ? null : new BitSet(m_territories.length);
+      m_passed = cond == null ? null : new BitSet(m_territories.length);
+    }
+
+    private boolean match(final int index) {
+      if (m_cond == null) {
+        return true;
+      }
+      if (!m_checked.get(index)) {
+        m_checked.set(index);
+        if (m_cond.match(m_territories[index])) {
+          m_passed.set(index);
+        }
+      }
+      return m_passed.get(index);
+    }
+  }
+}
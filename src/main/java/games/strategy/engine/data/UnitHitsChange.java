@@ -11,7 +11,11 @@ public class UnitHitsChange extends Change {
   private final IntegerMap<Unit> m_hits;
   private final IntegerMap<Unit> m_undoHits;
 
-  private UnitHitsChange(final IntegerMap<Unit> hits, final IntegerMap<Unit> undoHits) {
+  /**
+   * @param undoHits
+   *        the hits the units have before the change, set when it is inverted
+   */
+  public UnitHitsChange(final IntegerMap<Unit> hits, final IntegerMap<Unit> undoHits) {
     m_hits = hits;
     m_undoHits = undoHits;
   }
@@ -20,6 +24,14 @@ public class UnitHitsChange extends Change {
     return m_hits.keySet();
   }
 
+  public IntegerMap<Unit> getHits() {
+    return m_hits;
+  }
+
+  public IntegerMap<Unit> getUndoHits() {
+    return m_undoHits;
+  }
+
   public UnitHitsChange(final IntegerMap<Unit> hits) {
     m_hits = hits.copy();
     m_undoHits = new IntegerMap<>();
@@ -41,6 +41,18 @@ class AddUnits extends Change {
     holder.getUnits().addAllUnits(m_units);
   }
 
+  String getName() {
+    return m_name;
+  }
+
+  String getType() {
+    return m_type;
+  }
+
+  Collection<Unit> getUnits() {
+    return m_units;
+  }
+
   @Override
   public String toString() {
     return "Add unit change.  Add to:" + m_name + " units:" + m_units;
@@ -234,6 +234,12 @@ public class ChangeFactory {
   public static Change markNoMovementChange(final Unit unit) {
     return unitPropertyChange(unit, TripleAUnit.get(unit).getMaxMovementAllowed(), TripleAUnit.ALREADY_MOVED);
   }
-}
-
 
+  /**
+   * A change with the net effect of the given changes, which were made one after another. Units added and later
+   * removed, resources gained and spent, and properties changed again and again are only changed once.
+   */
+  public static Change fold(final List<Change> changes) {
+    return ChangeFolder.fold(changes);
+  }
+}
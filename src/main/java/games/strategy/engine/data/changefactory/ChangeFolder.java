@@ -0,0 +1,168 @@
+package games.strategy.engine.data.changefactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import games.strategy.engine.data.Change;
+import games.strategy.engine.data.CompositeChange;
+import games.strategy.engine.data.Unit;
+import games.strategy.engine.data.UnitHitsChange;
+import games.strategy.util.IntegerMap;
+import games.strategy.util.Tuple;
+
+/**
+ * Folds a list of changes into the changes of their net effect.
+ * <p>
+ * Units added to and removed from the same holder cancel, as do resources gained and spent, and only the first and
+ * last value of a territory owner, unit property or unit hits is kept. Changes of any other kind are kept as they are,
+ * and the changes before them are folded apart from the changes after them, so the order they see the game in is
+ * kept.
+ * <p>
+ * The folded changes leave the game as the changes would, except for the order of the units in a holder.
+ */
+final class ChangeFolder {
+  // the units added to a holder, 1, or removed from it, -1, keyed by the type and name of the holder
+  private final Map<Tuple<String, String>, Map<Unit, Integer>> m_units = new LinkedHashMap<>();
+  // the first old and the last new owner of a territory
+  private final Map<String, String[]> m_owners = new LinkedHashMap<>();
+  private final Map<Tuple<String, String>, Integer> m_resources = new LinkedHashMap<>();
+  // the first old and the last new value of a unit property
+  private final Map<Tuple<Unit, String>, Object[]> m_properties = new LinkedHashMap<>();
+  private final IntegerMap<Unit> m_hits = new IntegerMap<>();
+  private final IntegerMap<Unit> m_undoHits = new IntegerMap<>();
+  private final List<Change> m_folded = new ArrayList<>();
+
+  static Change fold(final List<Change> changes) {
+    final ChangeFolder folder = new ChangeFolder();
+    for (final Change change : changes) {
+      if (!folder.add(change)) {
+        return new CompositeChange(changes);
+      }
+    }
+    folder.flush();
+    return new CompositeChange(folder.m_folded);
+  }
+
+  /**
+   * @return false if the changes can not be folded.
+   */
+  private boolean add(final Change change) {
+    if (change instanceof CompositeChange) {
+      for (final Change child : ((CompositeChange) change).getChanges()) {
+        if (!add(child)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    if (change instanceof AddUnits) {
+      final AddUnits add = (AddUnits) change;
+      return addUnits(add.getType(), add.getName(), add.getUnits(), 1);
+    } else if (change instanceof RemoveUnits) {
+      final RemoveUnits remove = (RemoveUnits) change;
+      return addUnits(remove.getType(), remove.getName(), remove.getUnits(), -1);
+    } else if (change instanceof OwnerChange) {
+      final OwnerChange owner = (OwnerChange) change;
+      final String[] values = m_owners.get(owner.getTerritory());
+      if (values == null) {
+        m_owners.put(owner.getTerritory(), new String[] {owner.getOldOwner(), owner.getNewOwner()});
+      } else {
+        values[1] = owner.getNewOwner();
+      }
+    } else if (change instanceof ChangeResourceChange) {
+      final ChangeResourceChange resource = (ChangeResourceChange) change;
+      m_resources.merge(Tuple.of(resource.getPlayer(), resource.getResource()), resource.getQuantity(), Integer::sum);
+    } else if (change instanceof ObjectPropertyChange && isUnitProperty((ObjectPropertyChange) change)) {
+      final ObjectPropertyChange property = (ObjectPropertyChange) change;
+      final Tuple<Unit, String> key = Tuple.of((Unit) property.getObject(), property.getProperty());
+      final Object[] values = m_properties.get(key);
+      if (values == null) {
+        m_properties.put(key, new Object[] {property.getOldValue(), property.getNewValue()});
+      } else {
+        values[1] = property.getNewValue();
+      }
+    } else if (change instanceof UnitHitsChange) {
+      final UnitHitsChange hits = (UnitHitsChange) change;
+      for (final Unit unit : hits.getUnits()) {
+        if (!m_hits.containsKey(unit)) {
+          m_undoHits.put(unit, hits.getUndoHits().getInt(unit));
+        }
+        m_hits.put(unit, hits.getHits().getInt(unit));
+      }
+    } else {
+      flush();
+      m_folded.add(change);
+    }
+    return true;
+  }
+
+  // hits are also changed by UnitHitsChange, so a property change of them is not folded with the others
+  private static boolean isUnitProperty(final ObjectPropertyChange change) {
+    return change.getObject() instanceof Unit && !"hits".equals(change.getProperty());
+  }
+
+  private boolean addUnits(final String type, final String name, final Collection<Unit> units, final int direction) {
+    final Map<Unit, Integer> holder = m_units.computeIfAbsent(Tuple.of(type, name), key -> new LinkedHashMap<>());
+    for (final Unit unit : units) {
+      final int count = holder.getOrDefault(unit, 0) + direction;
+      // a unit is added twice, or removed twice, only if the changes are not in the order they were made
+      if (Math.abs(count) > 1) {
+        return false;
+      }
+      if (count == 0) {
+        holder.remove(unit);
+      } else {
+        holder.put(unit, count);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Adds the net changes seen so far to the folded changes.
+   */
+  private void flush() {
+    // remove before adding, a unit that moved is then only ever in one holder
+    for (final int direction : new int[] {-1, 1}) {
+      for (final Map.Entry<Tuple<String, String>, Map<Unit, Integer>> entry : m_units.entrySet()) {
+        final List<Unit> units = new ArrayList<>();
+        for (final Map.Entry<Unit, Integer> unit : entry.getValue().entrySet()) {
+          if (unit.getValue() == direction) {
+            units.add(unit.getKey());
+          }
+        }
+        if (units.isEmpty()) {
+          continue;
+        }
+        final String type = entry.getKey().getFirst();
+        final String name = entry.getKey().getSecond();
+        m_folded.add(direction > 0 ? new AddUnits(name, type, units) : new RemoveUnits(name, type, units));
+      }
+    }
+    for (final Map.Entry<String, String[]> entry : m_owners.entrySet()) {
+      m_folded.add(new OwnerChange(entry.getKey(), entry.getValue()[1], entry.getValue()[0]));
+    }
+    for (final Map.Entry<Tuple<String, String>, Integer> entry : m_resources.entrySet()) {
+      if (entry.getValue() != 0) {
+        m_folded.add(
+            new ChangeResourceChange(entry.getKey().getFirst(), entry.getKey().getSecond(), entry.getValue()));
+      }
+    }
+    for (final Map.Entry<Tuple<Unit, String>, Object[]> entry : m_properties.entrySet()) {
+      m_folded.add(new ObjectPropertyChange(entry.getKey().getFirst(), entry.getKey().getSecond(),
+          entry.getValue()[1], entry.getValue()[0]));
+    }
+    if (m_hits.size() > 0) {
+      m_folded.add(new UnitHitsChange(m_hits.copy(), m_undoHits.copy()));
+    }
+    m_units.clear();
+    m_owners.clear();
+    m_resources.clear();
+    m_properties.clear();
+    m_hits.clear();
+    m_undoHits.clear();
+  }
+}
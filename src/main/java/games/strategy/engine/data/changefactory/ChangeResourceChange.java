@@ -21,7 +21,7 @@ class ChangeResourceChange extends Change {
     m_quantity = quantity;
   }
 
-  private ChangeResourceChange(final String player, final String resource, final int quantity) {
+  ChangeResourceChange(final String player, final String resource, final int quantity) {
     m_player = player;
     m_resource = resource;
     m_quantity = quantity;
@@ -43,6 +43,18 @@ class ChangeResourceChange extends Change {
     }
   }
 
+  String getPlayer() {
+    return m_player;
+  }
+
+  String getResource() {
+    return m_resource;
+  }
+
+  int getQuantity() {
+    return m_quantity;
+  }
+
   @Override
   public String toString() {
     return "Change resource.  Resource:" + m_resource + " quantity:" + m_quantity + " Player:" + m_player;
@@ -46,6 +46,22 @@ public class ObjectPropertyChange extends Change {
     PropertyUtil.set(m_property, m_newValue, m_object);
   }
 
+  Object getObject() {
+    return m_object;
+  }
+
+  String getProperty() {
+    return m_property;
+  }
+
+  Object getNewValue() {
+    return m_newValue;
+  }
+
+  Object getOldValue() {
+    return m_oldValue;
+  }
+
   @Override
   public String toString() {
     return "Property change, unit:" + m_object + " property:" + m_property + " newValue:" + m_newValue + " oldValue:"
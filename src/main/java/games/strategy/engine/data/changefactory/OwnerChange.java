@@ -26,7 +26,7 @@ class OwnerChange extends Change {
     m_old = getName(territory.getOwner());
   }
 
-  private OwnerChange(final String name, final String newOwner, final String oldOwner) {
+  OwnerChange(final String name, final String newOwner, final String oldOwner) {
     m_territory = name;
     m_new = newOwner;
     m_old = oldOwner;
@@ -57,6 +57,18 @@ class OwnerChange extends Change {
     data.getMap().getTerritory(m_territory).setOwner(getPlayerID(m_new, data));
   }
 
+  String getTerritory() {
+    return m_territory;
+  }
+
+  String getOldOwner() {
+    return m_old;
+  }
+
+  String getNewOwner() {
+    return m_new;
+  }
+
   @Override
   public String toString() {
     return m_new + " takes " + m_territory + " from " + m_old;
@@ -40,6 +40,18 @@ class RemoveUnits extends Change {
     holder.getUnits().removeAllUnits(m_units);
   }
 
+  String getName() {
+    return m_name;
+  }
+
+  String getType() {
+    return m_type;
+  }
+
+  Collection<Unit> getUnits() {
+    return m_units;
+  }
+
   @Override
   public String toString() {
     return "Remove unit change. Remove from:" + m_name + " units:" + m_units;
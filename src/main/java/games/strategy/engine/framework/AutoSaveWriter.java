@@ -0,0 +1,325 @@
+package games.strategy.engine.framework;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.SyncFailedException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import games.strategy.debug.ClientLogger;
+import games.strategy.engine.data.GameData;
+
+/**
+ * Writes autosaves on a thread of its own, so the game only waits while a copy of the game data is made.
+ * <p>
+ * Each save has a slot. A full save, or the base of an incremental save, replaces the saves of its slot that have not
+ * started to be written, so at most one copy per slot waits while another is written. Deltas are appended to the
+ * file of the last base of their slot, in the order they were made, and are dropped if that base could not be
+ * written or its file was changed by someone else; needsBase then tells the game to make a new base.
+ * <p>
+ * A full save or base is written to a temporary file which is synced and then renamed over the autosave, so a crash
+ * never leaves a partly written autosave. A crash while a delta is appended leaves a partly written delta at the end
+ * of the file, which loading ignores.
+ */
+final class AutoSaveWriter {
+  private static final Logger s_logger = Logger.getLogger(AutoSaveWriter.class.getName());
+  private final ExecutorService m_executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS,
+      new LinkedBlockingQueue<>(), r -> {
+        final Thread t = new Thread(r, "Autosave writer");
+        t.setDaemon(true);
+        return t;
+      });
+  private final Map<String, Slot> m_slots = new HashMap<>();
+  private volatile long m_lastWriteMillis;
+  private volatile long m_lastBytes;
+
+  /**
+   * Queue a full save.
+   *
+   * @param data
+   *        a copy of the game data no one else changes
+   * @param copyMillis
+   *        how long the game waited for the copy, to report with the save
+   * @param file
+   *        gets the file to save to, called when the save is written
+   */
+  void save(final String slot, final GameData data, final long copyMillis, final Supplier<File> file) {
+    queue(slot, new FullSave(data, copyMillis, file));
+  }
+
+  /**
+   * Queue the base of an incremental save, to which the deltas queued after it are appended.
+   */
+  void saveBase(final String slot, final GameData data, final long copyMillis, final Supplier<File> file) {
+    queue(slot, new BaseSave(data, copyMillis, file));
+  }
+
+  /**
+   * Queue a delta made by GameDataManager.saveDelta, to append to the last base of the slot.
+   */
+  void append(final String slot, final byte[] delta, final long copyMillis) {
+    queue(slot, new Delta(delta, copyMillis));
+  }
+
+  /**
+   * The delta save of the slot must start over with a base if no base was queued, if writing the base or a delta
+   * failed, or if the deltas written since the base are bigger than the base.
+   */
+  boolean needsBase(final String slot) {
+    synchronized (m_slots) {
+      final Slot s = m_slots.get(slot);
+      return s == null || !s.m_hasBase || s.m_failed || (s.m_baseBytes > 0 && s.m_deltaBytes > s.m_baseBytes);
+    }
+  }
+
+  private void queue(final String slot, final Save save) {
+    synchronized (m_slots) {
+      final Slot s = m_slots.computeIfAbsent(slot, key -> new Slot());
+      if (save instanceof Delta) {
+        s.m_deltaBytes += ((Delta) save).m_delta.length;
+      } else {
+        s.m_queue.clear();
+        s.m_hasBase = save instanceof BaseSave;
+        s.m_failed = false;
+        s.m_baseBytes = 0;
+        s.m_deltaBytes = 0;
+      }
+      s.m_queue.add(save);
+      if (s.m_scheduled) {
+        return;
+      }
+      s.m_scheduled = true;
+    }
+    try {
+      m_executor.execute(() -> write(slot));
+    } catch (final RejectedExecutionException e) {
+      s_logger.log(Level.WARNING, "Autosave after shut down, not saved:" + slot);
+    }
+  }
+
+  private void write(final String slot) {
+    while (true) {
+      final Slot s;
+      final Save save;
+      synchronized (m_slots) {
+        s = m_slots.get(slot);
+        save = s.m_queue.poll();
+        if (save == null) {
+          s.m_scheduled = false;
+          return;
+        }
+      }
+      final long start = System.nanoTime();
+      try {
+        final File file = save.write(s);
+        m_lastWriteMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        m_lastBytes = file.length();
+        s_logger.log(Level.INFO, "Autosaved " + file.getName() + ": " + save.describe() + ", copied in "
+            + save.m_copyMillis + " ms, written in " + m_lastWriteMillis + " ms");
+      } catch (final IOException | RuntimeException e) {
+        ClientLogger.logQuietly(e);
+        synchronized (m_slots) {
+          s.m_file = null;
+          s.m_failed = true;
+        }
+      }
+    }
+  }
+
+  /**
+   * Write to a temporary file next to the given file, and rename it over the file.
+   */
+  private static void writeAndRename(final File file, final SaveContent content) throws IOException {
+    final File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+    try {
+      try (FileOutputStream out = new FileOutputStream(temp)) {
+        content.write(out);
+        sync(out);
+      }
+      try {
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (final AtomicMoveNotSupportedException e) {
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (final IOException | RuntimeException e) {
+      if (temp.exists() && !temp.delete()) {
+        s_logger.log(Level.WARNING, "Could not delete " + temp);
+      }
+      throw e;
+    }
+  }
+
+  private static void sync(final FileOutputStream out) throws IOException {
+    try {
+      out.getFD().sync();
+    } catch (final SyncFailedException e) {
+      // some file systems can not sync, the rename still keeps a half written save from replacing the autosave
+      s_logger.log(Level.FINE, "Could not sync", e);
+    }
+  }
+
+  /**
+   * @return how long writing the last autosave took, in milliseconds.
+   */
+  long getLastWriteMillis() {
+    return m_lastWriteMillis;
+  }
+
+  /**
+   * @return the size of the file last written.
+   */
+  long getLastBytes() {
+    return m_lastBytes;
+  }
+
+  /**
+   * Write the saves already queued, waiting at most the given time, and take no more.
+   */
+  void shutDown(final long timeoutMillis) {
+    m_executor.shutdown();
+    try {
+      if (!m_executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+        s_logger.log(Level.WARNING, "Autosaves not written after " + timeoutMillis + " ms");
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private interface SaveContent {
+    void write(FileOutputStream out) throws IOException;
+  }
+
+  private static final class Slot {
+    private final Deque<Save> m_queue = new ArrayDeque<>();
+    // a task is queued or running to write the queue
+    private boolean m_scheduled;
+    // the last full save queued was the base of an incremental save
+    private boolean m_hasBase;
+    private boolean m_failed;
+    private long m_baseBytes;
+    private long m_deltaBytes;
+    // the file deltas are appended to, and its length after the last write, set by the writer thread
+    private File m_file;
+    private long m_fileLength;
+  }
+
+  private abstract class Save {
+    private final long m_copyMillis;
+
+    private Save(final long copyMillis) {
+      m_copyMillis = copyMillis;
+    }
+
+    /**
+     * @return the file written.
+     */
+    abstract File write(Slot slot) throws IOException;
+
+    abstract String describe();
+  }
+
+  private final class FullSave extends Save {
+    private final GameData m_data;
+    private final Supplier<File> m_file;
+
+    private FullSave(final GameData data, final long copyMillis, final Supplier<File> file) {
+      super(copyMillis);
+      m_data = data;
+      m_file = file;
+    }
+
+    @Override
+    File write(final Slot slot) throws IOException {
+      final File file = m_file.get();
+      writeAndRename(file, out -> new GameDataManager().saveGame(out, m_data));
+      return file;
+    }
+
+    @Override
+    String describe() {
+      return "full save";
+    }
+  }
+
+  private final class BaseSave extends Save {
+    private final GameData m_data;
+    private final Supplier<File> m_file;
+
+    private BaseSave(final GameData data, final long copyMillis, final Supplier<File> file) {
+      super(copyMillis);
+      m_data = data;
+      m_file = file;
+    }
+
+    @Override
+    File write(final Slot slot) throws IOException {
+      final File file = m_file.get();
+      writeAndRename(file, out -> new GameDataManager().saveDeltaBase(out, m_data));
+      final long length = file.length();
+      synchronized (m_slots) {
+        slot.m_file = file;
+        slot.m_fileLength = length;
+        slot.m_baseBytes = length;
+      }
+      return file;
+    }
+
+    @Override
+    String describe() {
+      return "base of incremental save";
+    }
+  }
+
+  private final class Delta extends Save {
+    private final byte[] m_delta;
+
+    private Delta(final byte[] delta, final long copyMillis) {
+      super(copyMillis);
+      m_delta = delta;
+    }
+
+    @Override
+    File write(final Slot slot) throws IOException {
+      final File file;
+      final long expectedLength;
+      synchronized (m_slots) {
+        file = slot.m_file;
+        expectedLength = slot.m_fileLength;
+      }
+      if (file == null) {
+        throw new IOException("No base to append the delta to");
+      }
+      if (file.length() != expectedLength) {
+        throw new IOException(file + " was changed since the last autosave, not appending the delta");
+      }
+      try (FileOutputStream out = new FileOutputStream(file, true)) {
+        out.write(m_delta);
+        sync(out);
+      }
+      synchronized (m_slots) {
+        slot.m_fileLength = expectedLength + m_delta.length;
+      }
+      return file;
+    }
+
+    @Override
+    String describe() {
+      return m_delta.length + " byte delta";
+    }
+  }
+}
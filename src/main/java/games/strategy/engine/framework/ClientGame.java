@@ -3,12 +3,16 @@ package games.strategy.engine.framework;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import games.strategy.debug.ClientLogger;
 import games.strategy.engine.data.Change;
 import games.strategy.engine.data.GameData;
+import games.strategy.engine.data.GameStep;
 import games.strategy.engine.data.PlayerID;
 import games.strategy.engine.gamePlayer.IGamePlayer;
 import games.strategy.engine.history.EventChild;
@@ -21,19 +25,39 @@ import games.strategy.net.Messengers;
 import games.strategy.util.ThreadUtil;
 
 public class ClientGame extends AbstractGame {
+  private static final Logger s_logger = Logger.getLogger(ClientGame.class.getName());
   public static RemoteName getRemoteStepAdvancerName(final INode node) {
     return new RemoteName(ClientGame.class.getName() + ".REMOTE_STEP_ADVANCER:" + node.getName(),
         IGameStepAdvancer.class);
   }
 
+  // if we have subscribed to the game modification channel
+  private volatile boolean m_subscribed = false;
+  // how far the game has got, null if that is not known
+  private volatile ModificationIndex m_modificationIndex;
+
   public ClientGame(final GameData data, final Set<IGamePlayer> gamePlayers,
       final Map<String, INode> remotePlayerMapping, final Messengers messengers) {
+    this(data, gamePlayers, remotePlayerMapping, messengers, true);
+  }
+
+  /**
+   * @param subscribe
+   *        false if the game is joined while running, the server then sends the modifications made since the game
+   *        data was saved before it has us subscribe
+   */
+  public ClientGame(final GameData data, final Set<IGamePlayer> gamePlayers,
+      final Map<String, INode> remotePlayerMapping, final Messengers messengers, final boolean subscribe) {
     super(data, gamePlayers, remotePlayerMapping, messengers);
+    if (subscribe) {
+      m_modificationIndex = new ModificationIndex(data.getHistory().getChangeCount(), 0);
+    }
     m_gameModifiedChannel = new IGameModifiedChannel() {
       @Override
       public void gameDataChanged(final Change aChange) {
         m_data.performChange(aChange);
         m_data.getHistory().getHistoryWriter().addChange(aChange);
+        modified(true);
       }
 
       @Override
@@ -47,11 +71,13 @@ public class ClientGame extends AbstractGame {
       @Override
       public void startHistoryEvent(final String event) {
         m_data.getHistory().getHistoryWriter().startEvent(event);
+        modified(false);
       }
 
       @Override
       public void addChildToEvent(final String text, final Object renderingData) {
         m_data.getHistory().getHistoryWriter().addChildToEvent(new EventChild(text, renderingData));
+        modified(false);
       }
 
       protected void setRenderingData(final Object renderingData) {
@@ -62,9 +88,11 @@ public class ClientGame extends AbstractGame {
       public void stepChanged(final String stepName, final String delegateName, final PlayerID player, final int round,
           final String displayName, final boolean loadedFromSavedGame) {
         // we want to skip the first iteration, since that simply advances us to step 0
-        if (m_firstRun) {
+        // a game joined while running may be in the step before, and is advanced like any other time
+        if (m_firstRun && isCurrentStep(stepName, delegateName, player)) {
           m_firstRun = false;
         } else {
+          m_firstRun = false;
           m_data.acquireWriteLock();
           try {
             m_data.getSequence().next();
@@ -102,6 +130,7 @@ public class ClientGame extends AbstractGame {
           m_data.getHistory().getHistoryWriter().startNextStep(stepName, delegateName, player, displayName);
         }
         notifyGameStepListeners(stepName, delegateName, player, round, displayName);
+        modified(false);
       }
 
       @Override
@@ -109,7 +138,9 @@ public class ClientGame extends AbstractGame {
         ClientGame.this.shutDown();
       }
     };
-    m_channelMessenger.registerChannelSubscriber(m_gameModifiedChannel, IGame.GAME_MODIFICATION_CHANNEL);
+    if (subscribe) {
+      subscribeToGameModifications();
+    }
     final IGameStepAdvancer m_gameStepAdvancer = (stepName, player) -> {
       if (m_isGameOver) {
         return;
@@ -159,13 +190,81 @@ public class ClientGame extends AbstractGame {
     }
   }
 
+  private boolean isCurrentStep(final String stepName, final String delegateName, final PlayerID player) {
+    m_data.acquireReadLock();
+    try {
+      final GameStep step = m_data.getSequence().getStep();
+      return step.getName().equals(stepName) && step.getDelegate().getName().equals(delegateName)
+          && (step.getPlayerID() == null ? player == null : step.getPlayerID().equals(player));
+    } finally {
+      m_data.releaseReadLock();
+    }
+  }
+
+  private void modified(final boolean change) {
+    final ModificationIndex index = m_modificationIndex;
+    if (index != null) {
+      m_modificationIndex = index.next(change);
+    }
+  }
+
+  /**
+   * @return how far the game has got on the game modification channel, or null if that is not known.
+   */
+  public ModificationIndex getModificationIndex() {
+    return m_modificationIndex;
+  }
+
+  /**
+   * Apply modifications the server recorded since the game data was saved, as if they came over the channel.
+   */
+  public void applyGameModifications(final List<GameModification> modifications) {
+    if (m_subscribed) {
+      throw new IllegalStateException("Already subscribed to game modifications");
+    }
+    for (final GameModification modification : modifications) {
+      modification.applyTo(m_gameModifiedChannel);
+    }
+  }
+
+  /**
+   * @param index
+   *        how far the game has got according to the server
+   */
+  public synchronized void subscribeToGameModifications(final ModificationIndex index) {
+    if (m_subscribed || m_isGameOver) {
+      return;
+    }
+    // the count of changes has to agree with ours, or we can not rejoin with only what we missed
+    if (index.getChangeIndex() == m_data.getHistory().getChangeCount()) {
+      m_modificationIndex = index;
+    } else {
+      s_logger.log(Level.INFO,
+          "Game has " + m_data.getHistory().getChangeCount() + " changes, server says " + index + ", rejoining fully");
+      m_modificationIndex = null;
+    }
+    subscribeToGameModifications();
+  }
+
+  private synchronized void subscribeToGameModifications() {
+    if (m_subscribed || m_isGameOver) {
+      return;
+    }
+    m_subscribed = true;
+    m_channelMessenger.registerChannelSubscriber(m_gameModifiedChannel, IGame.GAME_MODIFICATION_CHANNEL);
+  }
+
   public void shutDown() {
     if (m_isGameOver) {
       return;
     }
     m_isGameOver = true;
     try {
-      m_channelMessenger.unregisterChannelSubscriber(m_gameModifiedChannel, IGame.GAME_MODIFICATION_CHANNEL);
+      synchronized (this) {
+        if (m_subscribed) {
+          m_channelMessenger.unregisterChannelSubscriber(m_gameModifiedChannel, IGame.GAME_MODIFICATION_CHANNEL);
+        }
+      }
       m_remoteMessenger.unregisterRemote(getRemoteStepAdvancerName(m_channelMessenger.getLocalNode()));
       m_vault.shutDown();
       for (final IGamePlayer gp : m_gamePlayers.values()) {
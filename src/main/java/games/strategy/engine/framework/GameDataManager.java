@@ -1,16 +1,28 @@
 package games.strategy.engine.framework;
 
 import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.NotSerializableException;
+import java.io.ObjectInput;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
@@ -20,9 +32,12 @@ import javax.swing.JOptionPane;
 import games.strategy.debug.ClientLogger;
 import games.strategy.engine.ClientContext;
 import games.strategy.engine.ClientFileSystemHelper;
+import games.strategy.engine.data.BinaryGameObjectInput;
+import games.strategy.engine.data.BinaryGameObjectOutput;
 import games.strategy.engine.data.GameData;
 import games.strategy.engine.delegate.IDelegate;
 import games.strategy.engine.framework.headlessGameServer.HeadlessGameServer;
+import games.strategy.engine.history.SerializationWriter;
 import games.strategy.triplea.UrlConstants;
 import games.strategy.util.ThreadUtil;
 import games.strategy.util.Version;
@@ -39,6 +54,41 @@ public class GameDataManager {
   private final static String DELEGATE_START = "<DelegateStart>";
   private final static String DELEGATE_DATA_NEXT = "<DelegateData>";
   private final static String DELEGATE_LIST_END = "<EndDelegateList>";
+  // An incremental save starts with these bytes ("TADS"), followed by the format, a base segment holding a full save,
+  // and delta segments, each holding what changed since the segment before it.
+  // Segments are a type byte and an int length. A full save is gzipped, and so starts with other bytes.
+  private final static int DELTA_SAVE_MAGIC = 0x54414453;
+  private final static int DELTA_SAVE_FORMAT = 1;
+  private final static int BASE_SEGMENT = 1;
+  private final static int DELTA_SEGMENT = 2;
+  // A binary save starts with these bytes ("TABF"), followed by the format, and the gzipped engine version, game data
+  // and delegates, written by BinaryGameObjectOutput.
+  private final static int BINARY_SAVE_MAGIC = 0x54414246;
+  private final static int BINARY_SAVE_FORMAT = 1;
+  private static final Logger s_logger = Logger.getLogger(GameDataManager.class.getName());
+  /**
+   * System property for the format games are saved in, "binary" or "serialized". Games in either format are loaded.
+   */
+  public static final String SAVE_FORMAT_PROPERTY = "triplea.save.format";
+
+  /**
+   * The formats a game can be saved in.
+   */
+  public enum SaveFormat {
+    /**
+     * Java serialization of the game data.
+     */
+    SERIALIZED,
+    /**
+     * The schema driven binary format of BinaryGameObjectOutput, which loads across engine versions that add or
+     * remove fields. A game holding objects the format does not support is saved serialized instead.
+     */
+    BINARY;
+
+    static SaveFormat fromSystemProperty() {
+      return "binary".equalsIgnoreCase(System.getProperty(SAVE_FORMAT_PROPERTY)) ? BINARY : SERIALIZED;
+    }
+  }
 
   public GameDataManager() {}
 
@@ -57,6 +107,138 @@ public class GameDataManager {
   }
 
   public GameData loadGame(final InputStream inputStream, final String savegamePath) throws IOException {
+    final InputStream input = inputStream.markSupported() ? inputStream : new BufferedInputStream(inputStream);
+    if (startsWith(input, DELTA_SAVE_MAGIC)) {
+      return loadDeltaSave(new DataInputStream(input), savegamePath);
+    }
+    return loadFullSave(input, savegamePath);
+  }
+
+  private static boolean startsWith(final InputStream input, final int magic) throws IOException {
+    input.mark(4);
+    try {
+      final DataInputStream in = new DataInputStream(input);
+      return in.readInt() == magic;
+    } catch (final EOFException e) {
+      return false;
+    } finally {
+      input.reset();
+    }
+  }
+
+  /**
+   * @param input
+   *        supports mark
+   */
+  private GameData loadFullSave(final InputStream input, final String savegamePath) throws IOException {
+    if (startsWith(input, BINARY_SAVE_MAGIC)) {
+      return loadBinary(new DataInputStream(input));
+    }
+    return loadSnapshot(input, savegamePath);
+  }
+
+  private GameData loadDeltaSave(final DataInputStream in, final String savegamePath) throws IOException {
+    in.readInt();
+    final int formatVersion = in.readInt();
+    if (formatVersion != DELTA_SAVE_FORMAT) {
+      throw new IOException("Unknown incremental save format: " + formatVersion);
+    }
+    if (in.read() != BASE_SEGMENT) {
+      throw new IOException("Incremental save does not start with a base");
+    }
+    final byte[] base = readSegment(in);
+    if (base == null) {
+      throw new IOException("Incremental save base is incomplete");
+    }
+    final GameData data = loadFullSave(new ByteArrayInputStream(base), savegamePath);
+    if (data == null) {
+      return null;
+    }
+    for (int type = in.read(); type != -1; type = in.read()) {
+      final byte[] delta = readSegment(in);
+      if (delta == null) {
+        // the game stopped while the last delta was written, we have what was saved before it
+        ClientLogger.logQuietly("Incomplete last delta ignored in " + savegamePath);
+        break;
+      }
+      if (type != DELTA_SEGMENT) {
+        throw new IOException("Unknown incremental save segment: " + type);
+      }
+      try {
+        loadDelta(delta, data);
+      } catch (final ClassNotFoundException e) {
+        throw new IOException(e.getMessage());
+      }
+    }
+    return data;
+  }
+
+  /**
+   * @return null if the stream ends before the segment does.
+   */
+  private static byte[] readSegment(final DataInputStream in) throws IOException {
+    try {
+      final int length = in.readInt();
+      if (length < 0) {
+        throw new IOException("Bad segment length: " + length);
+      }
+      final byte[] rVal = new byte[length];
+      in.readFully(rVal);
+      return rVal;
+    } catch (final EOFException e) {
+      return null;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void loadDelta(final byte[] delta, final GameData data) throws IOException, ClassNotFoundException {
+    try (ObjectInputStream input =
+        new GameObjectStreamFactory(data).create(new GZIPInputStream(new ByteArrayInputStream(delta)))) {
+      final List<SerializationWriter> journal = (List<SerializationWriter>) input.readObject();
+      final int round = input.readInt();
+      final int stepIndex = input.readInt();
+      final Map<String, Serializable> delegateStates = (Map<String, Serializable>) input.readObject();
+      data.getHistory().replayJournal(journal);
+      data.getSequence().setRoundAndStepIndex(round, stepIndex);
+      for (final Map.Entry<String, Serializable> entry : delegateStates.entrySet()) {
+        final IDelegate delegate = data.getDelegateList().getDelegate(entry.getKey());
+        if (delegate != null) {
+          delegate.loadState(entry.getValue());
+        }
+      }
+    }
+  }
+
+  private GameData loadBinary(final DataInputStream in) throws IOException {
+    in.readInt();
+    final int formatVersion = in.readInt();
+    if (formatVersion != BINARY_SAVE_FORMAT) {
+      throw new IOException("Unknown binary save format: " + formatVersion);
+    }
+    final ObjectInput input = new BinaryGameObjectInput(new BufferedInputStream(new GZIPInputStream(in)));
+    try {
+      final Version readVersion = (Version) input.readObject();
+      if (!readVersion.equals(ClientContext.engineVersion().getVersion(), true)) {
+        // fields are matched by name, so unlike a serialized save this can be loaded, but the rules may have changed
+        s_logger.log(Level.INFO, "Loading a game saved with engine " + readVersion + ", we are "
+            + ClientContext.engineVersion().getVersion());
+      }
+      final GameData data = (GameData) input.readObject();
+      updateDataToBeCompatibleWithNewEngine(readVersion, data);
+      final int delegateCount = input.readInt();
+      for (int i = 0; i < delegateCount; i++) {
+        final IDelegate instance =
+            addDelegate(data, (String) input.readObject(), (String) input.readObject(), (String) input.readObject());
+        instance.loadState((Serializable) input.readObject());
+      }
+      data.postDeSerialize();
+      return data;
+    } catch (final ClassNotFoundException | ClassCastException e) {
+      throw new IOException(e.getMessage());
+    }
+  }
+
+  private GameData loadSnapshot(final InputStream inputStream, final String savegamePath) throws IOException {
     ObjectInputStream input = new ObjectInputStream(new GZIPInputStream(inputStream));
     try {
       final Version readVersion = (Version) input.readObject();
@@ -189,15 +371,7 @@ public class GameDataManager {
       final String name = (String) input.readObject();
       final String displayName = (String) input.readObject();
       final String className = (String) input.readObject();
-      IDelegate instance;
-      try {
-        instance = (IDelegate) Class.forName(className).newInstance();
-        instance.initialize(name, displayName);
-        data.getDelegateList().addDelegate(instance);
-      } catch (final Exception e) {
-        ClientLogger.logQuietly(e);
-        throw new IOException(e.getMessage());
-      }
+      final IDelegate instance = addDelegate(data, name, displayName, className);
       final String next = (String) input.readObject();
       if (next.equals(DELEGATE_DATA_NEXT)) {
         instance.loadState((Serializable) input.readObject());
@@ -205,12 +379,41 @@ public class GameDataManager {
     }
   }
 
+  private static IDelegate addDelegate(final GameData data, final String name, final String displayName,
+      final String className) throws IOException {
+    try {
+      final IDelegate instance = (IDelegate) Class.forName(className).newInstance();
+      instance.initialize(name, displayName);
+      data.getDelegateList().addDelegate(instance);
+      return instance;
+    } catch (final Exception e) {
+      ClientLogger.logQuietly(e);
+      throw new IOException(e.getMessage());
+    }
+  }
+
   public void saveGame(final OutputStream sink, final GameData data) throws IOException {
     saveGame(sink, data, true);
   }
 
+  /**
+   * Save in the format chosen by the system property SAVE_FORMAT_PROPERTY, serialized by default.
+   */
   public void saveGame(final OutputStream sink, final GameData data, final boolean saveDelegateInfo)
       throws IOException {
+    saveGame(sink, data, saveDelegateInfo, SaveFormat.fromSystemProperty());
+  }
+
+  public void saveGame(final OutputStream sink, final GameData data, final boolean saveDelegateInfo,
+      final SaveFormat format) throws IOException {
+    if (format == SaveFormat.BINARY) {
+      try {
+        saveBinary(sink, data, saveDelegateInfo);
+        return;
+      } catch (final NotSerializableException e) {
+        s_logger.log(Level.WARNING, "Can not save the game in the binary format, saving it serialized", e);
+      }
+    }
     // write internally first in case of error
     final ByteArrayOutputStream bytes = new ByteArrayOutputStream(25000);
     final ObjectOutputStream outStream = new ObjectOutputStream(bytes);
@@ -232,6 +435,86 @@ public class GameDataManager {
     }
   }
 
+  private static void saveBinary(final OutputStream sink, final GameData data, final boolean saveDelegateInfo)
+      throws IOException {
+    // write internally first in case of error
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(25000);
+    final DataOutputStream header = new DataOutputStream(bytes);
+    header.writeInt(BINARY_SAVE_MAGIC);
+    header.writeInt(BINARY_SAVE_FORMAT);
+    header.flush();
+    final GZIPOutputStream zipped = new GZIPOutputStream(bytes);
+    final BinaryGameObjectOutput out = new BinaryGameObjectOutput(new BufferedOutputStream(zipped));
+    out.writeObject(ClientContext.engineVersion().getVersion());
+    data.acquireReadLock();
+    try {
+      out.writeObject(data);
+      if (saveDelegateInfo) {
+        out.writeInt(data.getDelegateList().size());
+        for (final IDelegate delegate : data.getDelegateList()) {
+          out.writeObject(delegate.getName());
+          out.writeObject(delegate.getDisplayName());
+          out.writeObject(delegate.getClass().getName());
+          out.writeObject(delegate.saveState());
+        }
+      } else {
+        out.writeInt(0);
+      }
+    } finally {
+      data.releaseReadLock();
+    }
+    out.flush();
+    zipped.finish();
+    // now write to file
+    try (OutputStream target = sink) {
+      bytes.writeTo(target);
+    }
+  }
+
+  /**
+   * Start an incremental save with a full save of the game, to which deltas are appended.
+   */
+  public void saveDeltaBase(final OutputStream sink, final GameData data) throws IOException {
+    final ByteArrayOutputStream base = new ByteArrayOutputStream(25000);
+    saveGame(base, data);
+    final DataOutputStream out = new DataOutputStream(sink);
+    out.writeInt(DELTA_SAVE_MAGIC);
+    out.writeInt(DELTA_SAVE_FORMAT);
+    out.writeByte(BASE_SEGMENT);
+    out.writeInt(base.size());
+    base.writeTo(out);
+    out.flush();
+  }
+
+  /**
+   * The caller must keep the game data and delegates from changing.
+   *
+   * @param journal
+   *        what was written to the history since the last delta, or the base
+   * @return a delta to append to an incremental save, with the journal, the current step, and the state of the
+   *         delegates
+   */
+  public byte[] saveDelta(final GameData data, final List<SerializationWriter> journal) throws IOException {
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new GameObjectStreamFactory(data).create(new GZIPOutputStream(bytes))) {
+      out.writeObject(journal);
+      out.writeInt(data.getSequence().getRound());
+      out.writeInt(data.getSequence().getStepIndex());
+      final Map<String, Serializable> delegateStates = new LinkedHashMap<>();
+      for (final IDelegate delegate : data.getDelegateList()) {
+        delegateStates.put(delegate.getName(), delegate.saveState());
+      }
+      out.writeObject(delegateStates);
+    }
+    final ByteArrayOutputStream segment = new ByteArrayOutputStream(bytes.size() + 5);
+    final DataOutputStream out = new DataOutputStream(segment);
+    out.writeByte(DELTA_SEGMENT);
+    out.writeInt(bytes.size());
+    bytes.writeTo(out);
+    out.flush();
+    return segment.toByteArray();
+  }
+
   private void writeDelegates(final GameData data, final ObjectOutputStream out) throws IOException {
     final Iterator<IDelegate> iter = data.getDelegateList().iterator();
     while (iter.hasNext()) {
@@ -4,21 +4,37 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import games.strategy.debug.ClientLogger;
 import games.strategy.engine.data.GameData;
+import games.strategy.engine.data.GameDataCopier;
 import games.strategy.engine.data.GameObjectOutputStream;
 
 public class GameDataUtils {
+  private static final Logger s_logger = Logger.getLogger(GameDataUtils.class.getName());
+
   public static GameData cloneGameData(final GameData data) {
     return cloneGameData(data, false);
   }
 
   /**
    * Create a deep copy of GameData.
+   * The copy is made directly by GameDataCopier, falling back to saving and loading the game if the data holds
+   * something the copier does not support.
    * <Strong>You should have the game datas read or write lock before calling this method</STRONG>
    */
   public static GameData cloneGameData(final GameData data, final boolean copyDelegates) {
+    try {
+      return GameDataCopier.copy(data, copyDelegates);
+    } catch (final GameDataCopier.CopyException e) {
+      s_logger.log(Level.FINE, "Could not copy game data directly, using serialization instead", e);
+    }
+    return cloneGameDataBySerialization(data, copyDelegates);
+  }
+
+  static GameData cloneGameDataBySerialization(final GameData data, final boolean copyDelegates) {
     try {
       final GameDataManager manager = new GameDataManager();
       ByteArrayOutputStream sink = new ByteArrayOutputStream(10000);
@@ -0,0 +1,99 @@
+package games.strategy.engine.framework;
+
+import java.io.Serializable;
+
+import games.strategy.engine.data.Change;
+import games.strategy.engine.data.PlayerID;
+
+/**
+ * A call made on the game modification channel, recorded by the server so an observer joining the game can catch up
+ * on what happened after the game was sent to it.
+ */
+public class GameModification implements Serializable {
+  private static final long serialVersionUID = -6118370377462717214L;
+
+  private enum Type {
+    CHANGE, EVENT, CHILD, STEP
+  }
+
+  private final Type m_type;
+  private final Change m_change;
+  private final String m_text;
+  private final Object m_renderingData;
+  private final String m_delegateName;
+  private final PlayerID m_player;
+  private final int m_round;
+  private final String m_displayName;
+  private final boolean m_loadedFromSavedGame;
+
+  private GameModification(final Type type, final Change change, final String text, final Object renderingData,
+      final String delegateName, final PlayerID player, final int round, final String displayName,
+      final boolean loadedFromSavedGame) {
+    m_type = type;
+    m_change = change;
+    m_text = text;
+    m_renderingData = renderingData;
+    m_delegateName = delegateName;
+    m_player = player;
+    m_round = round;
+    m_displayName = displayName;
+    m_loadedFromSavedGame = loadedFromSavedGame;
+  }
+
+  static GameModification gameDataChanged(final Change change) {
+    return new GameModification(Type.CHANGE, change, null, null, null, null, 0, null, false);
+  }
+
+  /**
+   * @param renderingData
+   *        null if the event was started without rendering data
+   */
+  static GameModification startHistoryEvent(final String event, final Object renderingData) {
+    return new GameModification(Type.EVENT, null, event, renderingData, null, null, 0, null, false);
+  }
+
+  static GameModification addChildToEvent(final String text, final Object renderingData) {
+    return new GameModification(Type.CHILD, null, text, renderingData, null, null, 0, null, false);
+  }
+
+  static GameModification stepChanged(final String stepName, final String delegateName, final PlayerID player,
+      final int round, final String displayName, final boolean loadedFromSavedGame) {
+    return new GameModification(Type.STEP, null, stepName, null, delegateName, player, round, displayName,
+        loadedFromSavedGame);
+  }
+
+  boolean isChange() {
+    return m_type == Type.CHANGE;
+  }
+
+  /**
+   * Make the call again on the given channel.
+   */
+  void applyTo(final IGameModifiedChannel channel) {
+    switch (m_type) {
+      case CHANGE:
+        channel.gameDataChanged(m_change);
+        break;
+      case EVENT:
+        if (m_renderingData == null) {
+          channel.startHistoryEvent(m_text);
+        } else {
+          channel.startHistoryEvent(m_text, m_renderingData);
+        }
+        break;
+      case CHILD:
+        channel.addChildToEvent(m_text, m_renderingData);
+        break;
+      case STEP:
+        channel.stepChanged(m_text, m_delegateName, m_player, m_round, m_displayName, m_loadedFromSavedGame);
+        break;
+      default:
+        throw new IllegalStateException("Unknown type:" + m_type);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "GameModification:" + m_type + " " + (m_type == Type.CHANGE ? m_change : m_text);
+  }
+}
@@ -0,0 +1,58 @@
+package games.strategy.engine.framework;
+
+import java.io.Serializable;
+
+/**
+ * How far a game has got on the game modification channel: the number of changes in its history, and how many other
+ * modifications (history events and steps) were made after the last of them.
+ * <p>
+ * The server and every client apply the same modifications in the same order, so a client that lost its connection
+ * can tell the server what it has, and the server can send it only what it missed.
+ */
+public final class ModificationIndex implements Serializable {
+  private static final long serialVersionUID = 2936618436390120512L;
+  private final int m_changeIndex;
+  private final int m_sinceChange;
+
+  public ModificationIndex(final int changeIndex, final int sinceChange) {
+    m_changeIndex = changeIndex;
+    m_sinceChange = sinceChange;
+  }
+
+  /**
+   * @return the index after the next modification is made.
+   */
+  ModificationIndex next(final boolean change) {
+    if (change) {
+      return new ModificationIndex(m_changeIndex + 1, 0);
+    }
+    return new ModificationIndex(m_changeIndex, m_sinceChange + 1);
+  }
+
+  public int getChangeIndex() {
+    return m_changeIndex;
+  }
+
+  public int getSinceChange() {
+    return m_sinceChange;
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (!(o instanceof ModificationIndex)) {
+      return false;
+    }
+    final ModificationIndex other = (ModificationIndex) o;
+    return m_changeIndex == other.m_changeIndex && m_sinceChange == other.m_sinceChange;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * m_changeIndex + m_sinceChange;
+  }
+
+  @Override
+  public String toString() {
+    return "ModificationIndex:" + m_changeIndex + "." + m_sinceChange;
+  }
+}
@@ -0,0 +1,67 @@
+package games.strategy.engine.framework;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The last modifications made to a game, so a client that lost its connection can be sent only what it missed.
+ * <p>
+ * Holds at most a fixed number of modifications, once full the oldest are dropped, and a client that is further
+ * behind has to be sent the whole game. Not thread safe, callers synchronize on the instance.
+ */
+final class RecentGameModifications {
+  /**
+   * System property for the most modifications kept.
+   */
+  static final String SIZE_PROPERTY = "triplea.resync.modifications";
+  private final int m_capacity;
+  private final Deque<GameModification> m_modifications = new ArrayDeque<>();
+  // the index of the game before the oldest modification kept, and after the newest
+  private ModificationIndex m_first;
+  private ModificationIndex m_last;
+
+  RecentGameModifications(final ModificationIndex start) {
+    this(start, Integer.getInteger(SIZE_PROPERTY, 5000));
+  }
+
+  RecentGameModifications(final ModificationIndex start, final int capacity) {
+    m_capacity = capacity;
+    m_first = start;
+    m_last = start;
+  }
+
+  void add(final GameModification modification) {
+    m_modifications.addLast(modification);
+    m_last = m_last.next(modification.isChange());
+    while (m_modifications.size() > m_capacity) {
+      m_first = m_first.next(m_modifications.removeFirst().isChange());
+    }
+  }
+
+  /**
+   * @return the index of the game after the newest modification.
+   */
+  ModificationIndex getIndex() {
+    return m_last;
+  }
+
+  /**
+   * @return the modifications made after the game was at the given index, or null if they are not all kept.
+   */
+  List<GameModification> since(final ModificationIndex index) {
+    ModificationIndex current = m_first;
+    final List<GameModification> rVal = new ArrayList<>();
+    boolean found = current.equals(index);
+    for (final GameModification modification : m_modifications) {
+      current = current.next(modification.isChange());
+      if (found) {
+        rVal.add(modification);
+      } else {
+        found = current.equals(index);
+      }
+    }
+    return found ? rVal : null;
+  }
+}
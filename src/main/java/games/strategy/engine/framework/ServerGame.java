@@ -5,12 +5,20 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import games.strategy.debug.ClientLogger;
 import games.strategy.debug.ErrorConsole;
@@ -38,6 +46,7 @@ import games.strategy.engine.history.DelegateHistoryWriter;
 import games.strategy.engine.history.Event;
 import games.strategy.engine.history.EventChild;
 import games.strategy.engine.history.HistoryNode;
+import games.strategy.engine.history.SerializationWriter;
 import games.strategy.engine.history.Step;
 import games.strategy.engine.message.ConnectionLostException;
 import games.strategy.engine.message.IRemote;
@@ -56,6 +65,7 @@ import games.strategy.triplea.TripleAPlayer;
  * Lookups to get a GamePlayer from PlayerId and the current Delegate.
  */
 public class ServerGame extends AbstractGame {
+  private static final Logger s_logger = Logger.getLogger(ServerGame.class.getName());
   public static final RemoteName SERVER_REMOTE =
       new RemoteName("games.strategy.engine.framework.ServerGame.SERVER_REMOTE", IServerRemote.class);
 
@@ -79,6 +89,20 @@ public class ServerGame extends AbstractGame {
    * Has the delegate signaled that delegate execution should stop.
    */
   private volatile boolean m_delegateExecutionStopped = false;
+  // the modifications made since the game was saved for each observer joining
+  private final List<List<GameModification>> m_modificationRecorders = new CopyOnWriteArrayList<>();
+  private static final int OBSERVER_JOIN_CHUNK_SIZE = 256 * 1024;
+  // how many modifications may be left to send to a joining observer while the game is blocked
+  private static final int OBSERVER_JOIN_BLOCKED_CATCH_UP = 50;
+  // the last modifications made, for clients rejoining after losing their connection
+  private final RecentGameModifications m_recentModifications;
+  private final AutoSaveWriter m_autoSaveWriter = new AutoSaveWriter();
+  private static final String AUTOSAVE_SLOT = "autosave";
+  // the autosave made after steps is incremental, appending what changed since the last autosave to a base,
+  // unless turned off with -Dtriplea.autosave.delta=false
+  private static final boolean DELTA_AUTOSAVE =
+      Boolean.parseBoolean(System.getProperty("triplea.autosave.delta", "true"));
+  private volatile long m_autoSaveCopyMillis;
 
   /**
    * @param data
@@ -93,12 +117,15 @@ public class ServerGame extends AbstractGame {
   public ServerGame(final GameData data, final Set<IGamePlayer> localPlayers,
       final Map<String, INode> remotePlayerMapping, final Messengers messengers) {
     super(data, localPlayers, remotePlayerMapping, messengers);
+    m_recentModifications =
+        new RecentGameModifications(new ModificationIndex(data.getHistory().getChangeCount(), 0));
     m_gameModifiedChannel = new IGameModifiedChannel() {
       @Override
       public void gameDataChanged(final Change aChange) {
         assertCorrectCaller();
         m_data.performChange(aChange);
         m_data.getHistory().getHistoryWriter().addChange(aChange);
+        record(GameModification.gameDataChanged(aChange));
       }
 
       private void assertCorrectCaller() {
@@ -109,22 +136,26 @@ public class ServerGame extends AbstractGame {
 
       @Override
       public void startHistoryEvent(final String event, final Object renderingData) {
-        startHistoryEvent(event);
+        assertCorrectCaller();
+        m_data.getHistory().getHistoryWriter().startEvent(event);
         if (renderingData != null) {
           setRenderingData(renderingData);
         }
+        record(GameModification.startHistoryEvent(event, renderingData));
       }
 
       @Override
       public void startHistoryEvent(final String event) {
         assertCorrectCaller();
         m_data.getHistory().getHistoryWriter().startEvent(event);
+        record(GameModification.startHistoryEvent(event, null));
       }
 
       @Override
       public void addChildToEvent(final String text, final Object renderingData) {
         assertCorrectCaller();
         m_data.getHistory().getHistoryWriter().addChildToEvent(new EventChild(text, renderingData));
+        record(GameModification.addChildToEvent(text, renderingData));
       }
 
       protected void setRenderingData(final Object renderingData) {
@@ -136,6 +167,7 @@ public class ServerGame extends AbstractGame {
       public void stepChanged(final String stepName, final String delegateName, final PlayerID player, final int round,
           final String displayName, final boolean loadedFromSavedGame) {
         assertCorrectCaller();
+        record(GameModification.stepChanged(stepName, delegateName, player, round, displayName, loadedFromSavedGame));
         if (loadedFromSavedGame) {
           return;
         }
@@ -162,8 +194,32 @@ public class ServerGame extends AbstractGame {
     m_remoteMessenger.registerRemote(m_serverRemote, SERVER_REMOTE);
   }
 
+  /**
+   * Sends the game to an observer while the game goes on.
+   * <p>
+   * Delegate execution is only blocked while the game is saved, from then on the modifications made to the game are
+   * recorded. The save is sent in chunks and the observer starts the game from it, then it is sent the recorded
+   * modifications until few are left. Delegate execution is blocked again to send the last of them and have the
+   * observer subscribe to the game modification channel, so it misses nothing and gets nothing twice.
+   */
   public void addObserver(final IObserverWaitingToJoin blockingObserver,
       final IObserverWaitingToJoin nonBlockingObserver, final INode newNode) {
+    addObserver(blockingObserver, nonBlockingObserver, newNode, null, null);
+  }
+
+  /**
+   * As addObserver, for a client that lost its connection to this game and still has the game as it was at the given
+   * index. If the modifications made since are still kept the client resumes its own copy of the game and is sent
+   * only those, otherwise it is sent the whole game.
+   *
+   * @param gameUuid
+   *        the GAME_UUID property of the client's game, or null if it has none
+   */
+  public void addObserver(final IObserverWaitingToJoin blockingObserver,
+      final IObserverWaitingToJoin nonBlockingObserver, final INode newNode, final String gameUuid,
+      final ModificationIndex index) {
+    final List<GameModification> modifications = new ArrayList<>();
+    GameData copy = null;
     try {
       if (!m_delegateExecutionManager.blockDelegateExecution(2000)) {
         nonBlockingObserver.cannotJoinGame("Could not block delegate execution");
@@ -174,33 +230,151 @@ public class ServerGame extends AbstractGame {
       return;
     }
     try {
-      final CountDownLatch waitOnObserver = new CountDownLatch(1);
-      final ByteArrayOutputStream sink = new ByteArrayOutputStream(1000);
-      saveGame(sink);
-      (new Thread(() -> {
+      List<GameModification> missed = null;
+      if (index != null && gameUuid != null && gameUuid.equals(m_data.getProperties().get(GameData.GAME_UUID))) {
+        synchronized (m_recentModifications) {
+          missed = m_recentModifications.since(index);
+          if (missed != null) {
+            modifications.addAll(missed);
+            m_modificationRecorders.add(modifications);
+          }
+        }
+      }
+      if (missed == null) {
+        // only the copy is made while delegate execution is blocked, the copy is saved after
+        m_data.acquireReadLock();
         try {
-          blockingObserver.joinGame(sink.toByteArray(), m_playerManager.getPlayerMapping());
-          waitOnObserver.countDown();
-        } catch (final ConnectionLostException cle) {
-          System.out.println("Connection lost to observer while joining: " + newNode.getName());
-        } catch (final Exception e) {
-          ClientLogger.logQuietly(e);
+          copy = GameDataUtils.cloneGameData(m_data, true);
+        } finally {
+          m_data.releaseReadLock();
         }
-      }, "Waiting on observer to finish joining: " + newNode.getName())).start();
-      try {
-        if (!waitOnObserver.await(GameRunner.getServerObserverJoinWaitTime(), TimeUnit.SECONDS)) {
-          nonBlockingObserver.cannotJoinGame("Taking too long to join.");
+        if (copy == null) {
+          nonBlockingObserver.cannotJoinGame("Could not copy the game");
+          return;
         }
-      } catch (final InterruptedException e) {
+        m_modificationRecorders.add(modifications);
+      } else {
+        s_logger.log(Level.FINE,
+            newNode.getName() + " rejoining, sending the " + missed.size() + " modifications missed");
+      }
+    } catch (final Exception e) {
+      ClientLogger.logQuietly(e);
+      nonBlockingObserver.cannotJoinGame(e.getMessage());
+      return;
+    } finally {
+      m_delegateExecutionManager.resumeDelegateExecution();
+    }
+    byte[] gameData = null;
+    if (copy != null) {
+      try {
+        final ByteArrayOutputStream sink = new ByteArrayOutputStream(1000);
+        new GameDataManager().saveGame(sink, copy);
+        gameData = sink.toByteArray();
+      } catch (final Exception e) {
         ClientLogger.logQuietly(e);
+        m_modificationRecorders.remove(modifications);
         nonBlockingObserver.cannotJoinGame(e.getMessage());
+        return;
       }
-    } catch (final Exception e) {
+    }
+    final CountDownLatch waitOnObserver = new CountDownLatch(1);
+    final AtomicBoolean abandoned = new AtomicBoolean();
+    final byte[] gameDataToSend = gameData;
+    (new Thread(() -> {
+      try {
+        if (sendGame(blockingObserver, gameDataToSend, modifications, abandoned)) {
+          waitOnObserver.countDown();
+        } else if (!abandoned.get()) {
+          nonBlockingObserver.cannotJoinGame("Could not block delegate execution");
+        }
+      } catch (final ConnectionLostException cle) {
+        System.out.println("Connection lost to observer while joining: " + newNode.getName());
+      } catch (final Exception e) {
+        ClientLogger.logQuietly(e);
+      } finally {
+        m_modificationRecorders.remove(modifications);
+      }
+    }, "Waiting on observer to finish joining: " + newNode.getName())).start();
+    try {
+      if (!waitOnObserver.await(GameRunner.getServerObserverJoinWaitTime(), TimeUnit.SECONDS)) {
+        abandoned.set(true);
+        nonBlockingObserver.cannotJoinGame("Taking too long to join.");
+      }
+    } catch (final InterruptedException e) {
       ClientLogger.logQuietly(e);
+      abandoned.set(true);
       nonBlockingObserver.cannotJoinGame(e.getMessage());
+    }
+  }
+
+  /**
+   * @param gameData
+   *        the saved game, or null if the observer resumes its own copy of the game
+   * @return false if delegate execution could not be blocked to finish joining, or the join was abandoned
+   */
+  private boolean sendGame(final IObserverWaitingToJoin observer, final byte[] gameData,
+      final List<GameModification> modifications, final AtomicBoolean abandoned) throws InterruptedException {
+    if (gameData == null) {
+      observer.resumeGame(m_playerManager.getPlayerMapping());
+    } else {
+      for (int start = 0; start < gameData.length && !abandoned.get(); start += OBSERVER_JOIN_CHUNK_SIZE) {
+        observer.receiveGameData(
+            Arrays.copyOfRange(gameData, start, Math.min(gameData.length, start + OBSERVER_JOIN_CHUNK_SIZE)));
+      }
+      if (abandoned.get()) {
+        return false;
+      }
+      observer.joinGame(m_playerManager.getPlayerMapping());
+    }
+    // catch up while the game goes on, if the game does not move faster than we can send
+    int sent = 0;
+    for (int i = 0; i < 10 && !abandoned.get(); i++) {
+      final List<GameModification> unsent = getUnsent(modifications, sent);
+      if (unsent.size() <= OBSERVER_JOIN_BLOCKED_CATCH_UP) {
+        break;
+      }
+      observer.catchUp(unsent);
+      sent += unsent.size();
+    }
+    if (abandoned.get() || !m_delegateExecutionManager.blockDelegateExecution(2000)) {
+      return false;
+    }
+    try {
+      final List<GameModification> unsent;
+      final ModificationIndex index;
+      synchronized (m_recentModifications) {
+        unsent = getUnsent(modifications, sent);
+        index = m_recentModifications.getIndex();
+      }
+      if (!unsent.isEmpty()) {
+        observer.catchUp(unsent);
+      }
+      observer.caughtUp(index);
+      m_modificationRecorders.remove(modifications);
     } finally {
       m_delegateExecutionManager.resumeDelegateExecution();
     }
+    return true;
+  }
+
+  private static List<GameModification> getUnsent(final List<GameModification> modifications, final int sent) {
+    synchronized (modifications) {
+      return new ArrayList<>(modifications.subList(sent, modifications.size()));
+    }
+  }
+
+  /**
+   * Record a modification for the observers joining the game, and for clients that may rejoin.
+   */
+  private void record(final GameModification modification) {
+    synchronized (m_recentModifications) {
+      m_recentModifications.add(modification);
+      for (final List<GameModification> modifications : m_modificationRecorders) {
+        synchronized (modifications) {
+          modifications.add(modification);
+        }
+      }
+    }
   }
 
   private void setupDelegateMessaging(final GameData data) {
@@ -341,6 +515,8 @@ public class ServerGame extends AbstractGame {
     } finally {
       m_delegateExecutionManager.resumeDelegateExecution();
     }
+    // finish writing the autosaves already made
+    m_autoSaveWriter.shutDown(30000);
     m_data.getGameLoader().shutDown();
     if (HeadlessGameServer.headless()) {
       System.out.println("StopGame successful.");
@@ -349,21 +525,33 @@ public class ServerGame extends AbstractGame {
 
   private void autoSave() {
     SaveGameFileChooser.ensureMapsFolderExists();
-    final File f1 =
-        new File(ClientContext.folderSettings().getSaveGamePath(), SaveGameFileChooser.getAutoSaveFileName());
-    final File f2 =
-        new File(ClientContext.folderSettings().getSaveGamePath(), SaveGameFileChooser.getAutoSave2FileName());
-    final File f;
-    if (f1.lastModified() > f2.lastModified()) {
-      f = f2;
-    } else {
-      f = f1;
+    if (DELTA_AUTOSAVE && !m_autoSaveWriter.needsBase(AUTOSAVE_SLOT)) {
+      final byte[] delta = copyDeltaForAutoSave();
+      if (delta != null) {
+        m_autoSaveWriter.append(AUTOSAVE_SLOT, delta, m_autoSaveCopyMillis);
+        return;
+      }
     }
-
-    try (FileOutputStream out = new FileOutputStream(f)) {
-      saveGame(out);
-    } catch (final Exception e) {
-      ClientLogger.logQuietly(e);
+    final GameData copy = copyForAutoSave(DELTA_AUTOSAVE);
+    if (copy == null) {
+      return;
+    }
+    // the older of the two autosaves is chosen when the save is written, after the saves queued before it
+    final Supplier<File> file = () -> {
+      final File f1 =
+          new File(ClientContext.folderSettings().getSaveGamePath(), SaveGameFileChooser.getAutoSaveFileName());
+      final File f2 =
+          new File(ClientContext.folderSettings().getSaveGamePath(), SaveGameFileChooser.getAutoSave2FileName());
+      if (f1.lastModified() > f2.lastModified()) {
+        return f2;
+      } else {
+        return f1;
+      }
+    };
+    if (DELTA_AUTOSAVE) {
+      m_autoSaveWriter.saveBase(AUTOSAVE_SLOT, copy, m_autoSaveCopyMillis, file);
+    } else {
+      m_autoSaveWriter.save(AUTOSAVE_SLOT, copy, m_autoSaveCopyMillis, file);
     }
   }
 
@@ -377,14 +565,107 @@ public class ServerGame extends AbstractGame {
       autosaveFile =
           new File(ClientContext.folderSettings().getSaveGamePath(), SaveGameFileChooser.getAutoSaveOddFileName());
     }
+    final GameData copy = copyForAutoSave(false);
+    if (copy == null) {
+      return;
+    }
+    m_autoSaveWriter.save(autosaveFile.getName(), copy, m_autoSaveCopyMillis, () -> autosaveFile);
+  }
 
-    try (FileOutputStream out = new FileOutputStream(autosaveFile)) {
-      saveGame(out);
-    } catch (final Exception e) {
+  /**
+   * Copy the game data, with the state of the delegates, for the autosave writer.
+   * Delegate execution is blocked only while the copy is made.
+   *
+   * @param startJournal
+   *        the copy is the base of an incremental save, record the history written after it for the deltas
+   * @return null if the game data could not be copied
+   */
+  private GameData copyForAutoSave(final boolean startJournal) {
+    try {
+      if (!m_delegateExecutionManager.blockDelegateExecution(6000)) {
+        System.err.println("Could not lock delegate execution, not autosaving");
+        return null;
+      }
+    } catch (final InterruptedException ie) {
+      ClientLogger.logQuietly(ie);
+      return null;
+    }
+    final long start = System.nanoTime();
+    try {
+      m_data.acquireReadLock();
+      try {
+        final GameData copy = GameDataUtils.cloneGameData(m_data, true);
+        if (startJournal && copy != null) {
+          m_data.getHistory().startJournal();
+        }
+        return copy;
+      } finally {
+        m_data.releaseReadLock();
+      }
+    } finally {
+      m_delegateExecutionManager.resumeDelegateExecution();
+      m_autoSaveCopyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Write what happened since the last autosave, and the state of the delegates, for the autosave writer to append
+   * to the incremental autosave.
+   *
+   * @return null if the history since the last autosave is not known, or the delta could not be written
+   */
+  private byte[] copyDeltaForAutoSave() {
+    try {
+      if (!m_delegateExecutionManager.blockDelegateExecution(6000)) {
+        System.err.println("Could not lock delegate execution, not autosaving");
+        return null;
+      }
+    } catch (final InterruptedException ie) {
+      ClientLogger.logQuietly(ie);
+      return null;
+    }
+    final long start = System.nanoTime();
+    try {
+      m_data.acquireReadLock();
+      try {
+        final List<SerializationWriter> journal = m_data.getHistory().takeJournal();
+        if (journal == null) {
+          return null;
+        }
+        return new GameDataManager().saveDelta(m_data, journal);
+      } finally {
+        m_data.releaseReadLock();
+      }
+    } catch (final IOException e) {
       ClientLogger.logQuietly(e);
+      return null;
+    } finally {
+      m_delegateExecutionManager.resumeDelegateExecution();
+      m_autoSaveCopyMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
     }
   }
 
+  /**
+   * @return how long delegate execution was blocked to copy the game for the last autosave, in milliseconds.
+   */
+  public long getLastAutoSaveCopyMillis() {
+    return m_autoSaveCopyMillis;
+  }
+
+  /**
+   * @return how long writing the last autosave took, in milliseconds.
+   */
+  public long getLastAutoSaveWriteMillis() {
+    return m_autoSaveWriter.getLastWriteMillis();
+  }
+
+  /**
+   * @return the size of the last autosave written.
+   */
+  public long getLastAutoSaveBytes() {
+    return m_autoSaveWriter.getLastBytes();
+  }
+
   @Override
   public void saveGame(final File f) {
     try (FileOutputStream fout = new FileOutputStream(f)) {
@@ -23,6 +23,7 @@ import games.strategy.engine.framework.startup.ui.ServerSetupPanel;
 import games.strategy.engine.framework.ui.SaveGameFileChooser;
 import games.strategy.net.INode;
 import games.strategy.net.IServerMessenger;
+import games.strategy.net.MessengerMetrics;
 
 public class HeadlessConsoleController {
 
@@ -72,6 +73,8 @@ public class HeadlessConsoleController {
       threads();
     } else if (noun.equalsIgnoreCase("dump")) {
       printThreadDumpsAndStatus();
+    } else if (noun.equalsIgnoreCase("metrics")) {
+      metrics(command);
     } else {
       out.println("Unrecognized command:" + command);
       showHelp();
@@ -144,6 +147,34 @@ public class HeadlessConsoleController {
     HeadlessGameServer.log(sb.toString());
   }
 
+  private void metrics(final String command) {
+    final String[] words = command.split("\\s+");
+    final MessengerMetrics metrics = MessengerMetrics.getInstance();
+    if (words.length == 1) {
+      out.println(metrics.getReport());
+    } else if (words[1].equalsIgnoreCase("on")) {
+      metrics.setEnabled(true);
+      out.println("Metrics on");
+    } else if (words[1].equalsIgnoreCase("off")) {
+      metrics.setEnabled(false);
+      out.println("Metrics off");
+    } else if (words[1].equalsIgnoreCase("reset")) {
+      metrics.reset();
+      out.println("Metrics reset");
+    } else if (words[1].equalsIgnoreCase("dump")) {
+      final File file =
+          new File(words.length > 2 ? words[2] : "messenger-metrics-" + System.currentTimeMillis() + ".txt");
+      try {
+        metrics.dump(file);
+        out.println("Metrics written to " + file.getAbsolutePath());
+      } catch (final IOException e) {
+        out.println("Could not write metrics: " + e.getMessage());
+      }
+    } else {
+      out.println("Unrecognized metrics command:" + command);
+    }
+  }
+
   private void threads() {
     out.println(DebugUtils.getThreadDumps());
   }
@@ -445,6 +476,11 @@ public class HeadlessConsoleController {
         + "  chatlog - shows the chat log\n"
         + "  memory - show memory usage\n"
         + "  threads - get thread dumps\n"
+        + "  metrics - show messages and bytes sent and received, and how long they took\n"
+        + "  metrics on|off - start or stop counting metrics, off unless -D" + MessengerMetrics.ENABLED_PROPERTY
+        + "=true\n"
+        + "  metrics reset - start counting metrics again\n"
+        + "  metrics dump <file> - write metrics to a file\n"
         + "  save - saves game to filename\n"
         + "  stop - saves then stops current game and goes back to waiting\n"
         + "  quit - quit\n");
@@ -25,6 +25,7 @@ import games.strategy.engine.data.GameData;
 import games.strategy.engine.data.PlayerID;
 import games.strategy.engine.framework.GameDataManager;
 import games.strategy.engine.framework.GameRunner;
+import games.strategy.engine.framework.ModificationIndex;
 import games.strategy.engine.framework.ServerGame;
 import games.strategy.engine.framework.headlessGameServer.HeadlessGameServer;
 import games.strategy.engine.framework.message.PlayerListing;
@@ -320,14 +321,21 @@ public class ServerLauncher extends AbstractLauncher {
     t.start();
   }
 
+  /**
+   * @param gameUuid
+   *        the game a rejoining client kept, or null
+   * @param index
+   *        how far the kept game had got, or null
+   */
   public void addObserver(final IObserverWaitingToJoin blockingObserver,
-      final IObserverWaitingToJoin nonBlockingObserver, final INode newNode) {
+      final IObserverWaitingToJoin nonBlockingObserver, final INode newNode, final String gameUuid,
+      final ModificationIndex index) {
     if (m_isLaunching) {
       m_observersThatTriedToJoinDuringStartup.add(newNode);
       nonBlockingObserver.cannotJoinGame("Game is launching, try again soon");
       return;
     }
-    m_serverGame.addObserver(blockingObserver, nonBlockingObserver, newNode);
+    m_serverGame.addObserver(blockingObserver, nonBlockingObserver, newNode, gameUuid, index);
   }
 
   private static byte[] gameDataToBytes(final GameData data) throws IOException {
@@ -2,7 +2,9 @@ package games.strategy.engine.framework.startup.mc;
 
 import java.awt.Component;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.lang.ref.SoftReference;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -13,6 +15,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.prefs.Preferences;
@@ -28,9 +31,12 @@ import games.strategy.engine.chat.IChatPanel;
 import games.strategy.engine.data.GameData;
 import games.strategy.engine.framework.ClientGame;
 import games.strategy.engine.framework.GameDataManager;
+import games.strategy.engine.framework.GameDataUtils;
+import games.strategy.engine.framework.GameModification;
 import games.strategy.engine.framework.GameObjectStreamFactory;
 import games.strategy.engine.framework.GameRunner;
 import games.strategy.engine.framework.IGameLoader;
+import games.strategy.engine.framework.ModificationIndex;
 import games.strategy.engine.framework.message.PlayerListing;
 import games.strategy.engine.framework.networkMaintenance.ChangeGameOptionsClientAction;
 import games.strategy.engine.framework.networkMaintenance.ChangeGameToSaveGameClientAction;
@@ -77,6 +83,11 @@ public class ClientModel implements IMessengerErrorListener {
   private Component m_ui;
   private IChatPanel m_chatPanel;
   private ClientGame m_game;
+  // the game we were in when the connection to the host was lost, so we can rejoin it without being sent all of it.
+  // it is dropped when a game starts, when we leave a host without rejoining it, or when memory runs low
+  private static volatile LostGame s_lostGame;
+  // the data of the lost game, while we offer the host to rejoin it
+  private GameData m_lostGameData;
   private boolean m_hostIsHeadlessBot = false;
   private final WaitWindow m_gameLoadingWindow = new WaitWindow();
   // we set the game data to be null, since we
@@ -185,7 +196,11 @@ public class ClientModel implements IMessengerErrorListener {
     final IServerStartupRemote serverStartup = getServerStartup();
     final PlayerListing players = serverStartup.getPlayerListing();
     internalPlayerListingChanged(players);
-    if (!serverStartup.isGameStarted(m_messenger.getLocalNode())) {
+    final LostGame lostGame = s_lostGame;
+    m_lostGameData = lostGame == null ? null : lostGame.m_data.get();
+    final boolean gameStarted = m_lostGameData == null ? serverStartup.isGameStarted(m_messenger.getLocalNode())
+        : serverStartup.isGameStarted(m_messenger.getLocalNode(), lostGame.m_gameUuid, lostGame.m_index);
+    if (!gameStarted) {
       m_remoteMessenger.unregisterRemote(ServerModel.getObserverWaitingToStartName(m_messenger.getLocalNode()));
     }
     m_gameSelectorModel.setIsHostHeadlessBot(m_hostIsHeadlessBot);
@@ -220,6 +235,11 @@ public class ClientModel implements IMessengerErrorListener {
   }
 
   public void cancel() {
+    if (m_lostGameData != null) {
+      // we are leaving a host we could have rejoined the lost game on
+      s_lostGame = null;
+      m_lostGameData = null;
+    }
     if (m_messenger == null) {
       return;
     }
@@ -258,9 +278,24 @@ public class ClientModel implements IMessengerErrorListener {
     }
   };
   IObserverWaitingToJoin m_observerWaitingToJoin = new IObserverWaitingToJoin() {
+    // the saved game sent so far, access synchronized on this
+    private ByteArrayOutputStream m_gameData = new ByteArrayOutputStream();
+    // the server gave up on this join, a game started for it is stopped, access synchronized on this
+    private boolean m_joinFailed;
+    private boolean m_joinedGameStopped;
+
     @Override
-    public void joinGame(final byte[] gameData, final Map<String, INode> players) {
-      m_remoteMessenger.unregisterRemote(ServerModel.getObserverWaitingToStartName(m_messenger.getLocalNode()));
+    public synchronized void receiveGameData(final byte[] gameData) {
+      m_gameData.write(gameData, 0, gameData.length);
+    }
+
+    @Override
+    public void joinGame(final Map<String, INode> players) {
+      final byte[] gameData;
+      synchronized (this) {
+        gameData = m_gameData.toByteArray();
+        m_gameData = new ByteArrayOutputStream();
+      }
       final CountDownLatch latch = new CountDownLatch(1);
       startGame(gameData, players, latch, true);
       try {
@@ -268,10 +303,60 @@ public class ClientModel implements IMessengerErrorListener {
       } catch (final InterruptedException e) {
         ClientLogger.logQuietly(e);
       }
+      stopIfJoinFailed();
+    }
+
+    @Override
+    public void resumeGame(final Map<String, INode> players) {
+      final GameData lostGameData = m_lostGameData;
+      if (lostGameData == null) {
+        throw new IllegalStateException("No game to resume");
+      }
+      final CountDownLatch latch = new CountDownLatch(1);
+      startGame(() -> lostGameData, players, latch, true);
+      try {
+        latch.await(GameRunner.MINIMUM_CLIENT_GAMEDATA_LOAD_GRACE_TIME, TimeUnit.SECONDS);
+      } catch (final InterruptedException e) {
+        ClientLogger.logQuietly(e);
+      }
+      stopIfJoinFailed();
+    }
+
+    /**
+     * The server may give up while the game is starting, the game is stopped once it is started.
+     */
+    private synchronized void stopIfJoinFailed() {
+      if (m_joinFailed && !m_joinedGameStopped) {
+        m_joinedGameStopped = stopJoinedGame();
+      }
+    }
+
+    @Override
+    public void catchUp(final List<GameModification> modifications) {
+      final ClientGame game = m_game;
+      if (game == null) {
+        throw new IllegalStateException("Game not started");
+      }
+      game.applyGameModifications(modifications);
+    }
+
+    @Override
+    public void caughtUp(final ModificationIndex index) {
+      m_remoteMessenger.unregisterRemote(ServerModel.getObserverWaitingToStartName(m_messenger.getLocalNode()));
+      final ClientGame game = m_game;
+      if (game == null) {
+        throw new IllegalStateException("Game not started");
+      }
+      game.subscribeToGameModifications(index);
     }
 
     @Override
     public void cannotJoinGame(final String reason) {
+      // the game may already be started, it can not go on without the modifications the server did not send
+      synchronized (this) {
+        m_joinFailed = true;
+      }
+      stopIfJoinFailed();
       SwingUtilities.invokeLater(() -> {
         m_typePanelModel.showSelectType();
         EventThreadJOptionPane.showMessageDialog(m_ui, "Could not join game: " + reason,
@@ -280,8 +365,48 @@ public class ClientModel implements IMessengerErrorListener {
     }
   };
 
+  /**
+   * Stop the game started to join a running game, if it was started, and leave the server.
+   *
+   * @return false if the game was not started yet
+   */
+  private boolean stopJoinedGame() {
+    final ClientGame game = m_game;
+    if (game == null) {
+      return false;
+    }
+    // not on the thread the server called us on, shutting down the messenger waits for that call
+    new Thread(() -> {
+      game.shutDown();
+      m_messenger.shutDown();
+      MainFrame.getInstance().clientLeftGame();
+    }, "Stopping game that could not be joined").start();
+    return true;
+  }
+
   private void startGame(final byte[] gameData, final Map<String, INode> players, final CountDownLatch onDone,
       final boolean gameRunning) {
+    startGame(() -> {
+      try {
+        // this normally takes a couple seconds, but can take
+        // up to 60 seconds for a freaking huge game
+        return new GameDataManager().loadGame(new ByteArrayInputStream(gameData), null);
+      } catch (final IOException ex) {
+        ClientLogger.logQuietly(ex);
+        return null;
+      }
+    }, players, onDone, gameRunning);
+  }
+
+  /**
+   * @param gameData
+   *        gets the game data, or null if it could not
+   */
+  private void startGame(final Supplier<GameData> gameData, final Map<String, INode> players,
+      final CountDownLatch onDone, final boolean gameRunning) {
+    // the lost game is either resumed by this game, or will not be anymore
+    s_lostGame = null;
+    m_lostGameData = null;
     SwingUtilities.invokeLater(() -> {
       m_gameLoadingWindow.setVisible(true);
       m_gameLoadingWindow.setLocationRelativeTo(JOptionPane.getFrameForComponent(m_ui));
@@ -299,15 +424,10 @@ public class ClientModel implements IMessengerErrorListener {
     }
   }
 
-  private void startGameInNewThread(final byte[] gameData, final Map<String, INode> players,
+  private void startGameInNewThread(final Supplier<GameData> gameData, final Map<String, INode> players,
       final boolean gameRunning) {
-    final GameData data;
-    try {
-      // this normally takes a couple seconds, but can take
-      // up to 60 seconds for a freaking huge game
-      data = new GameDataManager().loadGame(new ByteArrayInputStream(gameData), null);
-    } catch (final IOException ex) {
-      ClientLogger.logQuietly(ex);
+    final GameData data = gameData.get();
+    if (data == null) {
       return;
     }
     m_objectStreamFactory.setData(data);
@@ -320,7 +440,8 @@ public class ClientModel implements IMessengerErrorListener {
     }
     final Set<IGamePlayer> playerSet = data.getGameLoader().createPlayers(playerMapping);
     final Messengers messengers = new Messengers(m_messenger, m_remoteMessenger, m_channelMessenger);
-    m_game = new ClientGame(data, playerSet, players, messengers);
+    // a game that is running is joined as an observer, and is sent what changed since it was saved
+    m_game = new ClientGame(data, playerSet, players, messengers, !gameRunning);
     new Thread(() -> {
       SwingUtilities.invokeLater(() -> JOptionPane.getFrameForComponent(m_ui).setVisible(false));
       try {
@@ -415,10 +536,50 @@ public class ClientModel implements IMessengerErrorListener {
     // The self chat disconnect notification is simply so we have an on-screen notification of the disconnect.
     // In case for example there are many game windows open, it may not be clear which game disconnected.
     MainFrame.getInstance().getChat().sendMessage("*** Was Disconnected ***", false);
+    keepLostGame();
     EventThreadJOptionPane.showMessageDialog(m_ui, "Connection to game host lost.\nPlease save and restart.", "Connection Lost!",
         JOptionPane.ERROR_MESSAGE, new CountDownLatchHandler(true));
   }
 
+  /**
+   * Keep a copy of the game we were in, if we rejoin while the host still has the modifications made since we are
+   * sent only those.
+   */
+  private void keepLostGame() {
+    final ClientGame game = m_game;
+    if (game == null || game.isGameOver()) {
+      return;
+    }
+    final GameData data = game.getData();
+    final GameData copy;
+    final ModificationIndex index;
+    data.acquireReadLock();
+    try {
+      index = game.getModificationIndex();
+      if (index == null || index.getChangeIndex() != data.getHistory().getChangeCount()) {
+        return;
+      }
+      copy = GameDataUtils.cloneGameData(data, true);
+    } finally {
+      data.releaseReadLock();
+    }
+    if (copy != null) {
+      s_lostGame = new LostGame(copy, index);
+    }
+  }
+
+  private static class LostGame {
+    private final SoftReference<GameData> m_data;
+    private final String m_gameUuid;
+    private final ModificationIndex m_index;
+
+    LostGame(final GameData data, final ModificationIndex index) {
+      m_data = new SoftReference<>(data);
+      m_gameUuid = (String) data.getProperties().get(GameData.GAME_UUID);
+      m_index = index;
+    }
+  }
+
   public IChatPanel getChatPanel() {
     return m_chatPanel;
   }
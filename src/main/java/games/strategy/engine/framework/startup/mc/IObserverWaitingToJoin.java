@@ -1,7 +1,10 @@
 package games.strategy.engine.framework.startup.mc;
 
+import java.util.List;
 import java.util.Map;
 
+import games.strategy.engine.framework.GameModification;
+import games.strategy.engine.framework.ModificationIndex;
 import games.strategy.engine.message.IRemote;
 import games.strategy.net.INode;
 
@@ -11,10 +14,37 @@ import games.strategy.net.INode;
  */
 public interface IObserverWaitingToJoin extends IRemote {
   /**
+   * The next part of the saved game, the parts are sent in order before joinGame.
+   */
+  void receiveGameData(byte[] gameData);
+
+  /**
+   * All of the saved game has been sent.
    * This method should not return until the client is ready to start the game.
-   * This includes the display running, with all remote and channel listeners set up.
+   * This includes the display running, with all remote and channel listeners set up,
+   * except for the game modification channel, the server sends the modifications made since the game was saved
+   * with catchUp.
+   */
+  void joinGame(Map<String, INode> players);
+
+  /**
+   * Instead of being sent the saved game, start the copy of the game kept when the connection to the server was lost,
+   * as joinGame does. The server then sends the modifications made since the connection was lost with catchUp.
+   */
+  void resumeGame(Map<String, INode> players);
+
+  /**
+   * Modifications made to the game since it was saved, in order, not yet sent.
+   */
+  void catchUp(List<GameModification> modifications);
+
+  /**
+   * All modifications have been sent, the server waits while the game modification channel is subscribed to.
+   *
+   * @param index
+   *        how far the game has got, kept by the client in case it loses its connection
    */
-  void joinGame(byte[] gameData, Map<String, INode> players);
+  void caughtUp(ModificationIndex index);
 
   /**
    * You could not join the game, usually this is due to an error.
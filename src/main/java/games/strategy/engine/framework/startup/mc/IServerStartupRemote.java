@@ -2,6 +2,7 @@ package games.strategy.engine.framework.startup.mc;
 
 import java.util.Set;
 
+import games.strategy.engine.framework.ModificationIndex;
 import games.strategy.engine.framework.message.PlayerListing;
 import games.strategy.engine.framework.ui.SaveGameFileChooser;
 import games.strategy.engine.message.IRemote;
@@ -28,6 +29,18 @@ public interface IServerStartupRemote extends IRemote {
    */
   boolean isGameStarted(INode newNode);
 
+  /**
+   * As isGameStarted, for a client that lost its connection to a game and kept its copy of it.
+   * If the game is the same and the server still has what the client missed, the server has our ObserverWaitingToJoin
+   * resume the kept game and sends only that, otherwise it sends the whole game.
+   *
+   * @param gameUuid
+   *        the GAME_UUID property of the kept game
+   * @param index
+   *        how far the kept game had got
+   */
+  boolean isGameStarted(INode newNode, String gameUuid, ModificationIndex index);
+
   boolean getIsServerHeadless();
 
   Set<String> getAvailableGames();
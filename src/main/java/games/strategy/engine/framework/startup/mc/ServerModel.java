@@ -39,6 +39,7 @@ import games.strategy.engine.data.properties.IEditableProperty;
 import games.strategy.engine.framework.GameDataManager;
 import games.strategy.engine.framework.GameObjectStreamFactory;
 import games.strategy.engine.framework.GameRunner;
+import games.strategy.engine.framework.ModificationIndex;
 import games.strategy.engine.framework.headlessGameServer.HeadlessGameServer;
 import games.strategy.engine.framework.message.PlayerListing;
 import games.strategy.engine.framework.startup.launcher.ILauncher;
@@ -309,13 +310,19 @@ public class ServerModel extends Observable implements IMessengerErrorListener,
 
     @Override
     public boolean isGameStarted(final INode newNode) {
+      return isGameStarted(newNode, null, null);
+    }
+
+    @Override
+    public boolean isGameStarted(final INode newNode, final String gameUuid, final ModificationIndex index) {
       if (serverLauncher != null) {
         final RemoteName remoteName = getObserverWaitingToStartName(newNode);
         final IObserverWaitingToJoin observerWaitingToJoinBlocking =
             (IObserverWaitingToJoin) remoteMessenger.getRemote(remoteName);
         final IObserverWaitingToJoin observerWaitingToJoinNonBlocking =
             (IObserverWaitingToJoin) remoteMessenger.getRemote(remoteName, true);
-        serverLauncher.addObserver(observerWaitingToJoinBlocking, observerWaitingToJoinNonBlocking, newNode);
+        serverLauncher.addObserver(observerWaitingToJoinBlocking, observerWaitingToJoinNonBlocking, newNode, gameUuid,
+            index);
         return true;
       } else {
         return false;
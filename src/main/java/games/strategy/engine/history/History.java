@@ -1,8 +1,10 @@
 package games.strategy.engine.history;
 
+import java.io.IOException;
 import java.io.ObjectStreamException;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.List;
 
@@ -34,6 +36,10 @@ public class History extends DefaultTreeModel {
   private final List<Change> m_changes = new ArrayList<>();
   private final GameData m_data;
   private HistoryNode m_currentNode;
+  private final HistoryCheckpoints m_checkpoints = new HistoryCheckpoints();
+  // what the history writer wrote since the journal was last taken, null if no one takes the journal
+  private List<SerializationWriter> m_journal;
+  private boolean m_journalBroken;
 
   private void assertCorrectThread() {
     if (m_data.areChangesOnlyInSwingEventThread() && !SwingUtilities.isEventDispatchThread()) {
@@ -100,8 +106,9 @@ public class History extends DefaultTreeModel {
     if (firstChange == lastChange) {
       return null;
     }
-    final List<Change> changes =
-        m_changes.subList(Math.min(firstChange, lastChange), Math.max(firstChange, lastChange));
+    loadRounds(Math.min(firstChange, lastChange), Math.max(firstChange, lastChange));
+    final List<Change> changes = m_checkpoints.getChanges(m_changes, getRoundStarts(),
+        Math.min(firstChange, lastChange), Math.max(firstChange, lastChange));
     final Change compositeChange = new CompositeChange(changes);
     if (lastChange >= firstChange) {
       return compositeChange;
@@ -110,6 +117,15 @@ public class History extends DefaultTreeModel {
     }
   }
 
+  private int[] getRoundStarts() {
+    final HistoryNode root = (HistoryNode) getRoot();
+    final int[] rVal = new int[root.getChildCount()];
+    for (int i = 0; i < rVal.length; i++) {
+      rVal[i] = ((Round) root.getChildAt(i)).getChangeStartIndex();
+    }
+    return rVal;
+  }
+
   public synchronized void gotoNode(final HistoryNode node) {
     assertCorrectThread();
     getGameData().acquireWriteLock();
@@ -130,8 +146,16 @@ public class History extends DefaultTreeModel {
   public synchronized void removeAllHistoryAfterNode(final HistoryNode removeAfterNode) {
     gotoNode(removeAfterNode);
     assertCorrectThread();
+    loadAllRounds();
     getGameData().acquireWriteLock();
     try {
+      // the journal can not remove history
+      m_journalBroken = true;
+      m_checkpoints.clear();
+      final HistoryNode root = (HistoryNode) getRoot();
+      for (int i = 0; i < root.getChildCount(); i++) {
+        ((Round) root.getChildAt(i)).setSegment(null);
+      }
       final int lastChange = getLastChange(removeAfterNode);
       while (m_changes.size() > lastChange) {
         m_changes.remove(lastChange);
@@ -170,14 +194,176 @@ public class History extends DefaultTreeModel {
     }
   }
 
+  /**
+   * Load the round, or the round the node is in, if it was not loaded yet.
+   */
+  public synchronized void loadRound(final HistoryNode node) {
+    for (HistoryNode n = node; n != null; n = (HistoryNode) n.getParent()) {
+      if (n instanceof Round) {
+        loadRound((Round) n);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Load the rounds not loaded yet, for going through all nodes of the history.
+   */
+  public synchronized void loadAllRounds() {
+    loadRounds(0, m_changes.size());
+  }
+
+  /**
+   * Load the rounds not loaded yet holding changes from the first up to the last.
+   */
+  private synchronized void loadRounds(final int firstChange, final int lastChange) {
+    final HistoryNode root = (HistoryNode) getRoot();
+    for (int i = 0; i < root.getChildCount(); i++) {
+      final Round round = (Round) root.getChildAt(i);
+      if (round.isUnloaded() && round.getChangeStartIndex() <= lastChange
+          && round.getChangeEndIndex() >= firstChange) {
+        loadRound(round);
+      }
+    }
+  }
+
+  private void loadRound(final Round round) {
+    if (!round.isUnloaded()) {
+      return;
+    }
+    final RoundSegment segment = round.getSegment();
+    final List<SerializationWriter> writers;
+    try {
+      writers = segment.read(m_data);
+    } catch (final IOException e) {
+      throw new IllegalStateException("Could not read " + round, e);
+    }
+    // write the round to a history of its own, its changes numbered from where the round starts
+    final History loaded = new History(new GameData());
+    loaded.m_changes.addAll(Collections.nCopies(segment.getChangeStartIndex(), null));
+    for (final SerializationWriter writer : writers) {
+      writer.write(loaded.getHistoryWriter());
+    }
+    // closes the last event, step and round
+    loaded.getHistoryWriter().startNextRound(round.getRoundNo() + 1);
+    final HistoryNode loadedRound = (HistoryNode) ((HistoryNode) loaded.getRoot()).getChildAt(0);
+    m_data.acquireWriteLock();
+    try {
+      for (int i = segment.getChangeStartIndex(); i < segment.getChangeEndIndex(); i++) {
+        m_changes.set(i, loaded.m_changes.get(i));
+      }
+      final int[] indices = new int[loadedRound.getChildCount()];
+      for (int i = 0; i < indices.length; i++) {
+        round.add((HistoryNode) loadedRound.getChildAt(0));
+        indices[i] = i;
+      }
+      round.setLoaded();
+      // the nodes and changes are in memory now, the round is written again when the game is saved
+      round.setSegment(null);
+      nodesWereInserted(round, indices);
+    } finally {
+      m_data.releaseWriteLock();
+    }
+  }
+
+  /**
+   * @return the rounds before the last round, compressed on their own. Rounds already compressed are not written
+   *         again, unless they were loaded since, or the garbage collector took the segment of a loaded round.
+   */
+  synchronized List<RoundSegment> getSegments() throws IOException {
+    final List<RoundSegment> rVal = new ArrayList<>();
+    final HistoryNode root = (HistoryNode) getRoot();
+    int changeIndex = 0;
+    for (int i = 0; i + 1 < root.getChildCount(); i++) {
+      final Round round = (Round) root.getChildAt(i);
+      if (round.getChangeStartIndex() != changeIndex) {
+        break;
+      }
+      final int changeEndIndex = ((Round) root.getChildAt(i + 1)).getChangeStartIndex();
+      RoundSegment segment = round.getSegment();
+      if (segment == null) {
+        segment = RoundSegment.write(round, m_changes, changeEndIndex);
+        round.setSegment(segment);
+      }
+      rVal.add(segment);
+      changeIndex = changeEndIndex;
+    }
+    return rVal;
+  }
+
+  /**
+   * Add rounds read from segments, before anything is written to the history.
+   */
+  void addSegments(final List<RoundSegment> segments) {
+    final HistoryNode root = (HistoryNode) getRoot();
+    for (final RoundSegment segment : segments) {
+      root.add(new Round(segment));
+      m_changes.addAll(Collections.nCopies(segment.getChangeEndIndex() - m_changes.size(), null));
+    }
+  }
+
+  synchronized void journal(final SerializationWriter writer) {
+    if (m_journal != null) {
+      m_journal.add(writer);
+    }
+  }
+
+  /**
+   * Start recording what is written to the history, to write it to an incremental save.
+   * What was recorded before is dropped.
+   */
+  public synchronized void startJournal() {
+    m_journal = new ArrayList<>();
+    m_journalBroken = false;
+  }
+
+  /**
+   * @return what was written to the history since the journal was started or last taken, or null if the journal was
+   *         not started or can not be replayed, in which case it must be started again.
+   */
+  public synchronized List<SerializationWriter> takeJournal() {
+    if (m_journal == null || m_journalBroken) {
+      return null;
+    }
+    final List<SerializationWriter> rVal = m_journal;
+    m_journal = new ArrayList<>();
+    return rVal;
+  }
+
+  /**
+   * Write a journal taken from another history with the same past to this history, performing its changes on the
+   * game data.
+   */
+  public void replayJournal(final List<SerializationWriter> journal) {
+    for (final SerializationWriter entry : journal) {
+      if (entry instanceof ChangeSerializationWriter) {
+        m_data.performChange(((ChangeSerializationWriter) entry).getChange());
+      }
+      entry.write(m_writer);
+    }
+  }
+
   private Object writeReplace() throws ObjectStreamException {
-    return new SerializedHistory(this, m_data, m_changes);
+    try {
+      return new SerializedHistory(this, m_data, m_changes);
+    } catch (final ObjectStreamException e) {
+      throw e;
+    } catch (final IOException e) {
+      throw new IllegalStateException("Could not write the history", e);
+    }
   }
 
   List<Change> getChanges() {
     return m_changes;
   }
 
+  /**
+   * @return how many changes have been made to the game.
+   */
+  public int getChangeCount() {
+    return m_changes.size();
+  }
+
   GameData getGameData() {
     return m_data;
   }
@@ -192,23 +378,29 @@ class SerializedHistory implements Serializable {
   private static final long serialVersionUID = -5808427923253751651L;
   private final List<SerializationWriter> m_Writers = new ArrayList<>();
   private final GameData m_data;
+  // the rounds before the last, compressed on their own and read when they are needed, null in old saves
+  private final List<RoundSegment> m_segments;
 
-  public SerializedHistory(final History history, final GameData data, final List<Change> changes) {
+  public SerializedHistory(final History history, final GameData data, final List<Change> changes)
+      throws IOException {
     m_data = data;
-    int changeIndex = 0;
-    final Enumeration<?> enumeration = ((DefaultMutableTreeNode) history.getRoot()).preorderEnumeration();
-    enumeration.nextElement();
-    while (enumeration.hasMoreElements()) {
-      final HistoryNode node = (HistoryNode) enumeration.nextElement();
-      // write the changes to the start of the node
-      if (node instanceof IndexedHistoryNode) {
-        while (changeIndex < ((IndexedHistoryNode) node).getChangeStartIndex()) {
-          m_Writers.add(new ChangeSerializationWriter(changes.get(changeIndex)));
-          changeIndex++;
+    m_segments = history.getSegments();
+    final HistoryNode root = (HistoryNode) history.getRoot();
+    int changeIndex = m_segments.isEmpty() ? 0 : m_segments.get(m_segments.size() - 1).getChangeEndIndex();
+    for (int i = m_segments.size(); i < root.getChildCount(); i++) {
+      final Enumeration<?> enumeration = ((DefaultMutableTreeNode) root.getChildAt(i)).preorderEnumeration();
+      while (enumeration.hasMoreElements()) {
+        final HistoryNode node = (HistoryNode) enumeration.nextElement();
+        // write the changes to the start of the node
+        if (node instanceof IndexedHistoryNode) {
+          while (changeIndex < ((IndexedHistoryNode) node).getChangeStartIndex()) {
+            m_Writers.add(new ChangeSerializationWriter(changes.get(changeIndex)));
+            changeIndex++;
+          }
         }
+        // write the node itself
+        m_Writers.add(node.getWriter());
       }
-      // write the node itself
-      m_Writers.add(node.getWriter());
     }
     // write out remaining changes
     while (changeIndex < changes.size()) {
@@ -219,6 +411,9 @@ class SerializedHistory implements Serializable {
 
   public Object readResolve() throws ObjectStreamException {
     final History rVal = new History(m_data);
+    if (m_segments != null) {
+      rVal.addSegments(m_segments);
+    }
     final HistoryWriter historyWriter = rVal.getHistoryWriter();
     for (final SerializationWriter element : m_Writers) {
       element.write(historyWriter);
@@ -240,18 +435,3 @@ class RootHistoryNode extends HistoryNode {
     throw new IllegalStateException("Not implemented");
   }
 }
-
-
-class ChangeSerializationWriter implements SerializationWriter {
-  private static final long serialVersionUID = -3802807345707883606L;
-  private final Change aChange;
-
-  public ChangeSerializationWriter(final Change change) {
-    aChange = change;
-  }
-
-  @Override
-  public void write(final HistoryWriter writer) {
-    writer.addChange(aChange);
-  }
-}
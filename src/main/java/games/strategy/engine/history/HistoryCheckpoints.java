@@ -0,0 +1,107 @@
+package games.strategy.engine.history;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import games.strategy.engine.data.Change;
+import games.strategy.engine.data.changefactory.ChangeFactory;
+
+/**
+ * Checkpoints at the start of rounds of the history, so going to a node far away performs the net change between the
+ * checkpoints in between rather than every change made.
+ * <p>
+ * The changes from a checkpoint to the next are folded with ChangeFactory.fold the first time the history goes over
+ * them, and the fold is kept. To bound their memory at most a given number of folds are kept: when there are more,
+ * checkpoints are only kept every other one, and the folds of neighbouring checkpoints are folded together.
+ */
+class HistoryCheckpoints {
+  /**
+   * System property for the most folds kept, 0 turns checkpoints off.
+   */
+  static final String MAX_PROPERTY = "triplea.history.checkpoints";
+  private final int m_max;
+  // rounds from a checkpoint to the next, a power of two
+  private int m_stride = 1;
+  // the folded changes from a checkpoint to the next, keyed by the number of the checkpoint
+  private final Map<Integer, Change> m_folds = new TreeMap<>();
+
+  HistoryCheckpoints() {
+    this(Integer.getInteger(MAX_PROPERTY, 64));
+  }
+
+  HistoryCheckpoints(final int max) {
+    m_max = max;
+  }
+
+  /**
+   * @param changes
+   *        all changes of the history, those from first to last must be loaded
+   * @param roundStarts
+   *        the index of the first change of each round, the last round may still get changes and is never folded
+   * @return changes that perform the same as the changes from first up to last
+   */
+  synchronized List<Change> getChanges(final List<Change> changes, final int[] roundStarts, final int first,
+      final int last) {
+    if (m_max <= 0) {
+      return changes.subList(first, last);
+    }
+    final List<Change> rVal = new ArrayList<>();
+    int index = first;
+    for (int checkpoint = 0; (checkpoint + 1) * m_stride < roundStarts.length; checkpoint++) {
+      final int start = roundStarts[checkpoint * m_stride];
+      final int end = roundStarts[(checkpoint + 1) * m_stride];
+      if (start < index) {
+        continue;
+      }
+      if (end > last) {
+        break;
+      }
+      rVal.addAll(changes.subList(index, start));
+      Change fold = m_folds.get(checkpoint);
+      if (fold == null) {
+        fold = ChangeFactory.fold(changes.subList(start, end));
+        m_folds.put(checkpoint, fold);
+      }
+      rVal.add(fold);
+      index = end;
+    }
+    rVal.addAll(changes.subList(index, last));
+    while (m_folds.size() > m_max) {
+      coarsen();
+    }
+    return rVal;
+  }
+
+  /**
+   * Keep every other checkpoint, folding the folds of each pair together.
+   * A fold whose neighbour was never made is dropped, and made again when needed.
+   */
+  private void coarsen() {
+    final Map<Integer, Change> folds = new TreeMap<>();
+    for (final Map.Entry<Integer, Change> entry : m_folds.entrySet()) {
+      final int checkpoint = entry.getKey();
+      final Change next = m_folds.get(checkpoint + 1);
+      if (checkpoint % 2 == 0 && next != null) {
+        folds.put(checkpoint / 2, ChangeFactory.fold(Arrays.asList(entry.getValue(), next)));
+      }
+    }
+    m_stride *= 2;
+    m_folds.clear();
+    m_folds.putAll(folds);
+  }
+
+  /**
+   * Forget all folds, after changes were removed from the history.
+   */
+  synchronized void clear() {
+    m_folds.clear();
+    m_stride = 1;
+  }
+
+  synchronized int getStride() {
+    return m_stride;
+  }
+}
@@ -41,6 +41,7 @@ public class HistoryWriter implements java.io.Serializable {
       }
       startNextRound(round);
     }
+    m_history.journal(new StepHistorySerializer(stepName, delegateName, player, stepDisplayName));
     if (isCurrentEvent()) {
       closeCurrent();
     }
@@ -57,6 +58,7 @@ public class HistoryWriter implements java.io.Serializable {
 
   public void startNextRound(final int round) {
     assertCorrectThread();
+    m_history.journal(new RoundHistorySerializer(round));
     if (isCurrentEvent()) {
       closeCurrent();
     }
@@ -118,6 +120,7 @@ public class HistoryWriter implements java.io.Serializable {
       throw new IllegalStateException("Cant add an event, not a step. "
           + "Must be in a step to add an event to the step. \nTrying to add event: " + eventName);
     }
+    m_history.journal(new EventHistorySerializer(eventName, null));
     final Event event = new Event(eventName, m_history.getChanges().size());
     addToAndSetCurrent(event);
   }
@@ -144,6 +147,7 @@ public class HistoryWriter implements java.io.Serializable {
           .printStackTrace(System.out);
       startEvent("???");
     }
+    m_history.journal(node.getWriter());
     addToCurrent(node);
   }
 
@@ -157,6 +161,7 @@ public class HistoryWriter implements java.io.Serializable {
           .printStackTrace(System.out);
       startEvent("Bad Event for change: \n" + change.toString());
     }
+    m_history.journal(new ChangeSerializationWriter(change));
     m_history.changeAdded(change);
   }
 
@@ -167,6 +172,7 @@ public class HistoryWriter implements java.io.Serializable {
           .printStackTrace(System.out);
       startEvent("???");
     }
+    m_history.journal(new RenderingDataWriter(details));
     m_history.getGameData().acquireWriteLock();
     try {
       ((Event) m_current).setRenderingData(details);
@@ -176,3 +182,18 @@ public class HistoryWriter implements java.io.Serializable {
     m_history.goToEnd();
   }
 }
+
+
+class RenderingDataWriter implements SerializationWriter {
+  private static final long serialVersionUID = 4811226718442946214L;
+  private final Object m_renderingData;
+
+  public RenderingDataWriter(final Object renderingData) {
+    m_renderingData = renderingData;
+  }
+
+  @Override
+  public void write(final HistoryWriter writer) {
+    writer.setRenderingData(m_renderingData);
+  }
+}
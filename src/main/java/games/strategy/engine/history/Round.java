@@ -1,35 +1,78 @@
 package games.strategy.engine.history;
 
+import java.lang.ref.SoftReference;
+
 public class Round extends IndexedHistoryNode {
   private static final long serialVersionUID = 7645058269791039043L;
   private final int m_RoundNo;
+  // the nodes and changes of the round, compressed, while the round is not loaded
+  private transient RoundSegment m_segment;
+  // the round compressed when it was last saved, which the garbage collector may take as the nodes are loaded
+  private transient SoftReference<RoundSegment> m_savedSegment;
+  // the nodes and changes of the segment are not read yet
+  private transient boolean m_unloaded;
 
   Round(final int round, final int changeStartIndex) {
     super("Round: " + round, changeStartIndex);
     m_RoundNo = round;
   }
 
+  /**
+   * A round whose nodes and changes are read from the segment when they are needed.
+   */
+  Round(final RoundSegment segment) {
+    this(segment.getRoundNo(), segment.getChangeStartIndex());
+    setChangeEndIndex(segment.getChangeEndIndex());
+    m_segment = segment;
+    m_unloaded = true;
+  }
+
   public int getRoundNo() {
     return m_RoundNo;
   }
 
-  @Override
-  public SerializationWriter getWriter() {
-    return new RoundHistorySerializer(m_RoundNo);
+  /**
+   * @return the round compressed, or null if it has not been compressed since it was loaded or changed, or the
+   *         garbage collector took it.
+   */
+  RoundSegment getSegment() {
+    if (m_segment != null) {
+      return m_segment;
+    }
+    return m_savedSegment == null ? null : m_savedSegment.get();
   }
-}
 
+  /**
+   * A round not loaded yet keeps its segment, it is the only copy. A loaded round only keeps it softly, to write it
+   * again without compressing it when the game is saved, unless memory runs short.
+   */
+  void setSegment(final RoundSegment segment) {
+    if (m_unloaded) {
+      m_segment = segment;
+    } else {
+      m_segment = null;
+      m_savedSegment = segment == null ? null : new SoftReference<>(segment);
+    }
+  }
 
-class RoundHistorySerializer implements SerializationWriter {
-  private static final long serialVersionUID = 9006488114384654514L;
-  private final int m_roundNo;
+  boolean isUnloaded() {
+    return m_unloaded;
+  }
 
-  public RoundHistorySerializer(final int roundNo) {
-    m_roundNo = roundNo;
+  void setLoaded() {
+    m_unloaded = false;
   }
 
+  /**
+   * A round not loaded yet can be expanded, which loads it.
+   */
   @Override
-  public void write(final HistoryWriter writer) {
-    writer.startNextRound(m_roundNo);
+  public boolean isLeaf() {
+    return !m_unloaded && super.isLeaf();
+  }
+
+  @Override
+  public SerializationWriter getWriter() {
+    return new RoundHistorySerializer(m_RoundNo);
   }
 }
@@ -0,0 +1,93 @@
+package games.strategy.engine.history;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import games.strategy.engine.data.Change;
+import games.strategy.engine.data.GameData;
+import games.strategy.engine.data.GameObjectOutputStream;
+import games.strategy.engine.framework.GameObjectStreamFactory;
+
+/**
+ * The nodes and changes of a round of the history, written for a HistoryWriter and compressed on their own.
+ * <p>
+ * Game objects are written as references, as they are sent over the network, so the segment can be read after the
+ * game data it belongs to is loaded. The round number and the changes it holds are the index, which is known without
+ * reading the segment.
+ */
+class RoundSegment implements Serializable {
+  private static final long serialVersionUID = 3914265183476298262L;
+  private final int m_roundNo;
+  private final int m_changeStartIndex;
+  private final int m_changeEndIndex;
+  private final byte[] m_bytes;
+
+  private RoundSegment(final int roundNo, final int changeStartIndex, final int changeEndIndex, final byte[] bytes) {
+    m_roundNo = roundNo;
+    m_changeStartIndex = changeStartIndex;
+    m_changeEndIndex = changeEndIndex;
+    m_bytes = bytes;
+  }
+
+  /**
+   * @param changes
+   *        the changes of the history, the round holds those from its start up to changeEndIndex
+   */
+  static RoundSegment write(final Round round, final List<Change> changes, final int changeEndIndex)
+      throws IOException {
+    final List<SerializationWriter> writers = new ArrayList<>();
+    int changeIndex = round.getChangeStartIndex();
+    final Enumeration<?> enumeration = round.preorderEnumeration();
+    while (enumeration.hasMoreElements()) {
+      final HistoryNode node = (HistoryNode) enumeration.nextElement();
+      // write the changes to the start of the node
+      if (node instanceof IndexedHistoryNode) {
+        while (changeIndex < ((IndexedHistoryNode) node).getChangeStartIndex()) {
+          writers.add(new ChangeSerializationWriter(changes.get(changeIndex)));
+          changeIndex++;
+        }
+      }
+      writers.add(node.getWriter());
+    }
+    while (changeIndex < changeEndIndex) {
+      writers.add(new ChangeSerializationWriter(changes.get(changeIndex)));
+      changeIndex++;
+    }
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = new GameObjectOutputStream(new GZIPOutputStream(bytes))) {
+      out.writeObject(writers);
+    }
+    return new RoundSegment(round.getRoundNo(), round.getChangeStartIndex(), changeEndIndex, bytes.toByteArray());
+  }
+
+  @SuppressWarnings("unchecked")
+  List<SerializationWriter> read(final GameData data) throws IOException {
+    try (ObjectInputStream in =
+        new GameObjectStreamFactory(data).create(new GZIPInputStream(new ByteArrayInputStream(m_bytes)))) {
+      return (List<SerializationWriter>) in.readObject();
+    } catch (final ClassNotFoundException e) {
+      throw new IOException(e.getMessage());
+    }
+  }
+
+  int getRoundNo() {
+    return m_roundNo;
+  }
+
+  int getChangeStartIndex() {
+    return m_changeStartIndex;
+  }
+
+  int getChangeEndIndex() {
+    return m_changeEndIndex;
+  }
+}
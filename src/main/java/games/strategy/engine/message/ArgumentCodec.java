@@ -0,0 +1,196 @@
+package games.strategy.engine.message;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Map.Entry;
+
+import games.strategy.engine.data.GameData;
+import games.strategy.engine.data.GameObjectInputStream;
+import games.strategy.engine.data.GameObjectOutputStream;
+import games.strategy.engine.data.PlayerID;
+import games.strategy.engine.data.Territory;
+import games.strategy.engine.data.UnitType;
+import games.strategy.net.GUID;
+import games.strategy.util.IntegerMap;
+
+/**
+ * Writes the arguments and return values of remote method calls.
+ * <p>
+ * Each value is written as a type byte, followed by the value in as few bytes as we can. Common types are written
+ * without java serialization, which would write the class description of the value again for every message. Game
+ * objects are written as a reference that the reading side resolves in its own game data, the same way
+ * GameObjectStreamData does it, so they are only written this way between game object streams. Anything else falls
+ * back to writeObject.
+ * <p>
+ * Units are not written by id, the other side may not have seen the unit yet, they are resolved by id when
+ * serialized anyway.
+ */
+final class ArgumentCodec {
+  private static final byte NULL = 0;
+  private static final byte SERIALIZED = 1;
+  private static final byte INTEGER = 2;
+  private static final byte LONG = 3;
+  private static final byte TRUE = 4;
+  private static final byte FALSE = 5;
+  private static final byte STRING = 6;
+  private static final byte DOUBLE = 7;
+  private static final byte FLOAT = 8;
+  private static final byte SHORT = 9;
+  private static final byte BYTE = 10;
+  private static final byte GUID_VALUE = 11;
+  private static final byte TERRITORY = 12;
+  private static final byte PLAYER = 13;
+  private static final byte UNIT_TYPE = 14;
+  private static final byte INTEGER_MAP = 15;
+  // writeUTF can write at most 65535 bytes, and a char may take 3
+  private static final int MAX_UTF_LENGTH = 65535 / 3;
+
+  private ArgumentCodec() {}
+
+  static void write(final ObjectOutput out, final Object value) throws IOException {
+    if (value == null) {
+      out.writeByte(NULL);
+    } else if (value instanceof Integer) {
+      out.writeByte(INTEGER);
+      out.writeInt((Integer) value);
+    } else if (value instanceof Boolean) {
+      out.writeByte((Boolean) value ? TRUE : FALSE);
+    } else if (value instanceof String && ((String) value).length() <= MAX_UTF_LENGTH) {
+      out.writeByte(STRING);
+      out.writeUTF((String) value);
+    } else if (value instanceof Long) {
+      out.writeByte(LONG);
+      out.writeLong((Long) value);
+    } else if (value instanceof Double) {
+      out.writeByte(DOUBLE);
+      out.writeDouble((Double) value);
+    } else if (value instanceof Float) {
+      out.writeByte(FLOAT);
+      out.writeFloat((Float) value);
+    } else if (value instanceof Short) {
+      out.writeByte(SHORT);
+      out.writeShort((Short) value);
+    } else if (value instanceof Byte) {
+      out.writeByte(BYTE);
+      out.writeByte((Byte) value);
+    } else if (value.getClass() == GUID.class) {
+      out.writeByte(GUID_VALUE);
+      ((GUID) value).writeExternal(out);
+    } else if (value.getClass() == IntegerMap.class) {
+      final IntegerMap<?> map = (IntegerMap<?>) value;
+      out.writeByte(INTEGER_MAP);
+      out.writeInt(map.size());
+      for (final Entry<?, Integer> entry : map.entrySet()) {
+        write(out, entry.getKey());
+        out.writeInt(entry.getValue());
+      }
+    } else if (!(out instanceof GameObjectOutputStream) || !writeGameObject(out, value)) {
+      out.writeByte(SERIALIZED);
+      out.writeObject(value);
+    }
+  }
+
+  /**
+   * @return false if value is not a game object we can write
+   */
+  private static boolean writeGameObject(final ObjectOutput out, final Object value) throws IOException {
+    if (value.getClass() == Territory.class) {
+      final Territory territory = (Territory) value;
+      if (territory.getData() == null) {
+        return false;
+      }
+      final int index = territory.getData().getMap().getGraph().getIndex(territory);
+      if (index < 0) {
+        return false;
+      }
+      out.writeByte(TERRITORY);
+      out.writeInt(index);
+      return true;
+    } else if (value.getClass() == PlayerID.class) {
+      out.writeByte(PLAYER);
+      out.writeUTF(((PlayerID) value).getName());
+      return true;
+    } else if (value.getClass() == UnitType.class) {
+      out.writeByte(UNIT_TYPE);
+      out.writeUTF(((UnitType) value).getName());
+      return true;
+    }
+    return false;
+  }
+
+  static Object read(final ObjectInput in) throws IOException, ClassNotFoundException {
+    final byte type = in.readByte();
+    switch (type) {
+      case NULL:
+        return null;
+      case SERIALIZED:
+        return in.readObject();
+      case INTEGER:
+        return in.readInt();
+      case LONG:
+        return in.readLong();
+      case TRUE:
+        return Boolean.TRUE;
+      case FALSE:
+        return Boolean.FALSE;
+      case STRING:
+        return in.readUTF();
+      case DOUBLE:
+        return in.readDouble();
+      case FLOAT:
+        return in.readFloat();
+      case SHORT:
+        return in.readShort();
+      case BYTE:
+        return in.readByte();
+      case GUID_VALUE:
+        final GUID guid = new GUID();
+        guid.readExternal(in);
+        return guid;
+      case INTEGER_MAP:
+        final int size = in.readInt();
+        final IntegerMap<Object> map = new IntegerMap<>(size);
+        for (int i = 0; i < size; i++) {
+          final Object key = read(in);
+          map.put(key, in.readInt());
+        }
+        return map;
+      case TERRITORY:
+      case PLAYER:
+      case UNIT_TYPE:
+        return readGameObject(in, type);
+      default:
+        throw new IOException("Unknown argument type:" + type);
+    }
+  }
+
+  private static Object readGameObject(final ObjectInput in, final byte type) throws IOException {
+    if (!(in instanceof GameObjectInputStream)) {
+      throw new IOException("Game object read without game data, type:" + type);
+    }
+    final GameData data = ((GameObjectInputStream) in).getData();
+    if (data == null) {
+      throw new IOException("Game object read without game data, type:" + type);
+    }
+    if (type == TERRITORY) {
+      final int index = in.readInt();
+      data.acquireReadLock();
+      try {
+        if (index < 0 || index >= data.getMap().getTerritories().size()) {
+          throw new IOException("Unknown territory index:" + index);
+        }
+        return data.getMap().getTerritories().get(index);
+      } finally {
+        data.releaseReadLock();
+      }
+    }
+    final String name = in.readUTF();
+    data.acquireReadLock();
+    try {
+      return type == PLAYER ? data.getPlayerList().getPlayerID(name) : data.getUnitTypeList().getUnitType(name);
+    } finally {
+      data.releaseReadLock();
+    }
+  }
+}
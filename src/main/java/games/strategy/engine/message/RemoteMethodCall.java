@@ -153,6 +153,26 @@ public class RemoteMethodCall implements Externalizable {
     }
   }
 
+  /**
+   * Write the call in the compact encoding, which only peers that said so at login can read. The arguments are written
+   * by ArgumentCodec, and the remote name by number.
+   *
+   * @param names
+   *        the remote names of the connection written to, or null to write the remote name in full
+   */
+  public void writeCompact(final ObjectOutput out, final RemoteNameTable names) throws IOException {
+    RemoteNameTable.write(out, m_remoteName, names);
+    out.writeByte(m_methodNumber);
+    if (m_args == null) {
+      out.writeByte(Byte.MAX_VALUE);
+    } else {
+      out.writeByte(m_args.length);
+      for (final Object m_arg : m_args) {
+        ArgumentCodec.write(out, m_arg);
+      }
+    }
+  }
+
   @Override
   public void readExternal(final ObjectInput in) throws IOException, ClassNotFoundException {
     m_remoteName = in.readUTF();
@@ -166,6 +186,22 @@ public class RemoteMethodCall implements Externalizable {
     }
   }
 
+  /**
+   * Read a call written by writeCompact.
+   */
+  public void readCompact(final ObjectInput in, final RemoteNameTable names)
+      throws IOException, ClassNotFoundException {
+    m_remoteName = RemoteNameTable.read(in, names);
+    m_methodNumber = in.readByte();
+    final byte count = in.readByte();
+    if (count != Byte.MAX_VALUE) {
+      m_args = new Object[count];
+      for (int i = 0; i < count; i++) {
+        m_args[i] = ArgumentCodec.read(in);
+      }
+    }
+  }
+
   /**
    * After we have been de-serialized, we do not transmit enough
    * informatin to determine the method without being told
@@ -47,6 +47,20 @@ public class RemoteMethodCallResults implements Externalizable {
     }
   }
 
+  /**
+   * Write the results in the compact encoding, which only peers that said so at login can read. The return value is
+   * written by ArgumentCodec.
+   */
+  public void writeCompact(final ObjectOutput out) throws IOException {
+    if (m_rVal != null) {
+      out.write(1);
+      ArgumentCodec.write(out, m_rVal);
+    } else {
+      out.write(0);
+      out.writeObject(m_exception);
+    }
+  }
+
   @Override
   public void readExternal(final ObjectInput in) throws IOException, ClassNotFoundException {
     final boolean rVal = in.read() == 1;
@@ -56,4 +70,16 @@ public class RemoteMethodCallResults implements Externalizable {
       m_exception = (Throwable) in.readObject();
     }
   }
+
+  /**
+   * Read results written by writeCompact.
+   */
+  public void readCompact(final ObjectInput in) throws IOException, ClassNotFoundException {
+    final boolean rVal = in.read() == 1;
+    if (rVal) {
+      m_rVal = ArgumentCodec.read(in);
+    } else {
+      m_exception = (Throwable) in.readObject();
+    }
+  }
 }
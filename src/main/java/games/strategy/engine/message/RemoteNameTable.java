@@ -0,0 +1,95 @@
+package games.strategy.engine.message;
+
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The remote names sent over one connection.
+ * <p>
+ * The first time a name is written it is sent with a number, after that only the number is sent. The writing side
+ * and the reading side of a connection each keep a table, and they agree as long as every message written with the
+ * table is read in the order it was written. Tables are not thread safe, the writer has to hold the table's lock from
+ * encoding a message until it has been queued.
+ */
+public class RemoteNameTable {
+  private static final byte INLINE = 0;
+  private static final byte DEFINE = 1;
+  private static final byte REFERENCE = 2;
+  // the names a connection uses are few, this only guards against a runaway
+  private static final int MAX_NAMES = Short.MAX_VALUE;
+  private final Map<String, Integer> m_ids = new HashMap<>();
+  private final List<String> m_names = new ArrayList<>();
+
+  /**
+   * @return how many names have been numbered
+   */
+  public int size() {
+    return Math.max(m_ids.size(), m_names.size());
+  }
+
+  /**
+   * Forget the names numbered from size on, when the message numbering them was not sent.
+   */
+  public void truncate(final int size) {
+    m_ids.values().removeIf(id -> id >= size);
+    while (m_names.size() > size) {
+      m_names.remove(m_names.size() - 1);
+    }
+  }
+
+  /**
+   * @param names
+   *        the table of the connection, or null to write the name in full
+   */
+  static void write(final ObjectOutput out, final String name, final RemoteNameTable names) throws IOException {
+    if (names == null) {
+      out.writeByte(INLINE);
+      out.writeUTF(name);
+      return;
+    }
+    final Integer id = names.m_ids.get(name);
+    if (id != null) {
+      out.writeByte(REFERENCE);
+      out.writeShort(id);
+    } else if (names.m_ids.size() < MAX_NAMES) {
+      final int newId = names.m_ids.size();
+      names.m_ids.put(name, newId);
+      out.writeByte(DEFINE);
+      out.writeShort(newId);
+      out.writeUTF(name);
+    } else {
+      out.writeByte(INLINE);
+      out.writeUTF(name);
+    }
+  }
+
+  static String read(final ObjectInput in, final RemoteNameTable names) throws IOException {
+    final byte kind = in.readByte();
+    if (kind == INLINE) {
+      return in.readUTF();
+    }
+    if (names == null) {
+      throw new IOException("Remote name sent by number, but there is no name table");
+    }
+    final int id = in.readShort();
+    if (kind == DEFINE) {
+      final String name = in.readUTF();
+      if (id != names.m_names.size()) {
+        throw new IOException("Remote name out of order, expected:" + names.m_names.size() + " got:" + id);
+      }
+      names.m_names.add(name);
+      return name;
+    } else if (kind == REFERENCE) {
+      if (id < 0 || id >= names.m_names.size()) {
+        throw new IOException("Unknown remote name:" + id);
+      }
+      return names.m_names.get(id);
+    }
+    throw new IOException("Invalid remote name kind:" + kind);
+  }
+}
@@ -34,9 +34,23 @@ public class SpokeInvoke extends Invoke {
     ((Node) m_invoker).readExternal(in);
   }
 
+  @Override
+  public void readCompact(final ObjectInput in, final RemoteNameTable names)
+      throws IOException, ClassNotFoundException {
+    super.readCompact(in, names);
+    m_invoker = new Node();
+    ((Node) m_invoker).readExternal(in);
+  }
+
   @Override
   public void writeExternal(final ObjectOutput out) throws IOException {
     super.writeExternal(out);
     ((Node) m_invoker).writeExternal(out);
   }
+
+  @Override
+  public void writeCompact(final ObjectOutput out, final RemoteNameTable names) throws IOException {
+    super.writeCompact(out, names);
+    ((Node) m_invoker).writeExternal(out);
+  }
 }
@@ -2,9 +2,13 @@ package games.strategy.engine.message.unifiedmessenger;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 import games.strategy.debug.ClientLogger;
 import games.strategy.engine.message.MessageContext;
@@ -29,6 +33,10 @@ class EndPoint {
   private final Class<?> m_remoteClass;
   private final List<Object> m_implementors = new ArrayList<>();
   private final boolean m_singleThreaded;
+  // invocations of a single threaded end point waiting to run, in the order of their numbers
+  private final Queue<Runnable> m_queuedInvocations = new ArrayDeque<>();
+  // if a thread is running the queued invocations, access synchronized on m_queuedInvocations
+  private boolean m_runningQueued = false;
 
   public EndPoint(final String name, final Class<?> remoteClass, final boolean singleThreaded) {
     m_name = name;
@@ -135,6 +143,49 @@ class EndPoint {
     }
   }
 
+  /**
+   * Invoke on the executor, and give the results to the consumer.
+   * <p>
+   * The invocations of a single threaded end point are queued here and run one after another by one task on the
+   * executor, so invocations waiting their turn do not hold a thread each. The number is taken while queueing, the
+   * invocations must be queued in the order they arrived.
+   */
+  void invokeLocalLater(final RemoteMethodCall call, final INode messageOriginator, final Executor executor,
+      final Consumer<List<RemoteMethodCallResults>> resultsConsumer) {
+    if (!m_singleThreaded) {
+      final long number = takeANumber();
+      executor.execute(() -> resultsConsumer.accept(invokeLocal(call, number, messageOriginator)));
+      return;
+    }
+    synchronized (m_queuedInvocations) {
+      // take the number with the lock held, so numbers are queued in order
+      final long number = takeANumber();
+      m_queuedInvocations.add(() -> resultsConsumer.accept(invokeLocal(call, number, messageOriginator)));
+      if (!m_runningQueued) {
+        m_runningQueued = true;
+        executor.execute(() -> runQueuedInvocations());
+      }
+    }
+  }
+
+  private void runQueuedInvocations() {
+    while (true) {
+      final Runnable next;
+      synchronized (m_queuedInvocations) {
+        next = m_queuedInvocations.poll();
+        if (next == null) {
+          m_runningQueued = false;
+          return;
+        }
+      }
+      try {
+        next.run();
+      } catch (final RuntimeException e) {
+        ClientLogger.logQuietly(e);
+      }
+    }
+  }
+
   /**
    * @param call
    * @param rVal
@@ -0,0 +1,108 @@
+package games.strategy.engine.message.unifiedmessenger;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs the invocations remote nodes make on local end points.
+ * <p>
+ * Invocations may block for a long time, waiting for the user or for remote calls of their own, so threads are
+ * started as they are needed, up to a maximum, and stop again once they have been idle for a while. When all threads
+ * are busy invocations wait in a bounded queue. If the queue is full the invocation is run on a thread of its own
+ * rather than dropped or run by the caller, which is the thread reading messages and may be the one the invocation
+ * waits on, and the overflow is counted. There are at most as many of those extra threads as pool threads, past that
+ * the caller has to run the invocation itself, which slows down the node flooding us.
+ */
+public class InvocationExecutor implements Executor {
+  private static final Logger s_logger = Logger.getLogger(InvocationExecutor.class.getName());
+  /**
+   * System property for the most threads running invocations.
+   */
+  public static final String THREADS_PROPERTY = "triplea.invocation.threads";
+  /**
+   * System property for the most invocations waiting for a thread.
+   */
+  public static final String QUEUE_PROPERTY = "triplea.invocation.queue";
+  private final ThreadPoolExecutor m_pool;
+  private final AtomicLong m_overflows = new AtomicLong();
+  private final AtomicInteger m_threadCount = new AtomicInteger();
+  private final int m_maxOverflowThreads;
+  private final AtomicInteger m_overflowThreads = new AtomicInteger();
+
+  InvocationExecutor() {
+    this(Integer.getInteger(THREADS_PROPERTY, 64), Integer.getInteger(QUEUE_PROPERTY, 10000));
+  }
+
+  InvocationExecutor(final int maxThreads, final int queueSize) {
+    // as many core threads as the maximum, so threads are added before invocations are queued
+    m_pool = new ThreadPoolExecutor(maxThreads, maxThreads, 60, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(queueSize), r -> new Thread(r, "Invocation " + m_threadCount.incrementAndGet()),
+        (r, pool) -> overflow(r));
+    m_pool.allowCoreThreadTimeOut(true);
+    m_maxOverflowThreads = maxThreads;
+  }
+
+  private void overflow(final Runnable task) {
+    if (m_overflows.incrementAndGet() == 1) {
+      s_logger.log(Level.WARNING, "Invocation queue full, running invocations on extra threads");
+    }
+    if (m_overflowThreads.incrementAndGet() > m_maxOverflowThreads) {
+      m_overflowThreads.decrementAndGet();
+      task.run();
+      return;
+    }
+    new Thread(() -> {
+      try {
+        task.run();
+      } finally {
+        m_overflowThreads.decrementAndGet();
+      }
+    }, "Invocation overflow " + m_threadCount.incrementAndGet()).start();
+  }
+
+  @Override
+  public void execute(final Runnable task) {
+    m_pool.execute(task);
+  }
+
+  /**
+   * @return the invocations waiting for a thread.
+   */
+  public int getQueueSize() {
+    return m_pool.getQueue().size();
+  }
+
+  /**
+   * @return the threads running invocations now.
+   */
+  public int getActiveCount() {
+    return m_pool.getActiveCount();
+  }
+
+  public int getLargestPoolSize() {
+    return m_pool.getLargestPoolSize();
+  }
+
+  public long getCompletedCount() {
+    return m_pool.getCompletedTaskCount();
+  }
+
+  /**
+   * @return how many invocations found the queue full and were run on an extra thread or by the caller.
+   */
+  public long getOverflowCount() {
+    return m_overflows.get();
+  }
+
+  @Override
+  public String toString() {
+    return "active:" + getActiveCount() + " queued:" + getQueueSize() + " largest pool:" + getLargestPoolSize()
+        + " completed:" + getCompletedCount() + " overflows:" + getOverflowCount();
+  }
+}
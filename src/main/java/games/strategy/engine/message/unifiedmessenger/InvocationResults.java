@@ -38,6 +38,14 @@ public abstract class InvocationResults implements Externalizable {
     methodCallID.writeExternal(out);
   }
 
+  /**
+   * Write the results in the compact encoding, which only peers that said so at login can read.
+   */
+  public void writeCompact(final ObjectOutput out) throws IOException {
+    results.writeCompact(out);
+    methodCallID.writeExternal(out);
+  }
+
   @Override
   public void readExternal(final ObjectInput in) throws IOException, ClassNotFoundException {
     results = new RemoteMethodCallResults();
@@ -45,4 +53,14 @@ public abstract class InvocationResults implements Externalizable {
     methodCallID = new GUID();
     methodCallID.readExternal(in);
   }
+
+  /**
+   * Read results written by writeCompact.
+   */
+  public void readCompact(final ObjectInput in) throws IOException, ClassNotFoundException {
+    results = new RemoteMethodCallResults();
+    results.readCompact(in);
+    methodCallID = new GUID();
+    methodCallID.readExternal(in);
+  }
 }
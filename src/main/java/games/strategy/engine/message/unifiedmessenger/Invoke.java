@@ -6,6 +6,7 @@ import java.io.ObjectInput;
 import java.io.ObjectOutput;
 
 import games.strategy.engine.message.RemoteMethodCall;
+import games.strategy.engine.message.RemoteNameTable;
 import games.strategy.net.GUID;
 
 // someone wants us to invoke something locally
@@ -45,6 +46,23 @@ public abstract class Invoke implements Externalizable {
     call.readExternal(in);
   }
 
+  /**
+   * Read an invoke written by writeCompact.
+   *
+   * @param names
+   *        the remote names of the connection read from
+   */
+  public void readCompact(final ObjectInput in, final RemoteNameTable names)
+      throws IOException, ClassNotFoundException {
+    needReturnValues = in.read() == 1;
+    if (needReturnValues) {
+      methodCallID = new GUID();
+      methodCallID.readExternal(in);
+    }
+    call = new RemoteMethodCall();
+    call.readCompact(in, names);
+  }
+
   @Override
   public void writeExternal(final ObjectOutput out) throws IOException {
     out.write(needReturnValues ? 1 : 0);
@@ -53,4 +71,18 @@ public abstract class Invoke implements Externalizable {
     }
     call.writeExternal(out);
   }
+
+  /**
+   * Write the invoke in the compact encoding, which only peers that said so at login can read.
+   *
+   * @param names
+   *        the remote names of the connection written to, or null to write names in full
+   */
+  public void writeCompact(final ObjectOutput out, final RemoteNameTable names) throws IOException {
+    out.write(needReturnValues ? 1 : 0);
+    if (needReturnValues) {
+      methodCallID.writeExternal(out);
+    }
+    call.writeCompact(out, names);
+  }
 }
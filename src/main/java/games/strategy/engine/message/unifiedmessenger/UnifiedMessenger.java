@@ -6,8 +6,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -26,6 +24,7 @@ import games.strategy.net.IMessageListener;
 import games.strategy.net.IMessenger;
 import games.strategy.net.IMessengerErrorListener;
 import games.strategy.net.INode;
+import games.strategy.net.MessengerMetrics;
 import games.strategy.util.ThreadUtil;
 
 /**
@@ -35,7 +34,12 @@ import games.strategy.util.ThreadUtil;
 public class UnifiedMessenger {
   private final static Logger s_logger = Logger.getLogger(UnifiedMessenger.class.getName());
 
-  private static final ExecutorService threadPool = Executors.newFixedThreadPool(15);
+  private static final InvocationExecutor s_invocationExecutor = new InvocationExecutor();
+
+  static {
+    MessengerMetrics.getInstance().addQueue("Invocations", s_invocationExecutor::getQueueSize);
+  }
+
   // the messenger we are based on
   private final IMessenger m_messenger;
   // lock on this for modifications to create or remove local end points
@@ -71,6 +75,13 @@ public class UnifiedMessenger {
     }
   }
 
+  /**
+   * @return the executor running the invocations remote nodes make on local end points, shared by all messengers
+   */
+  public static InvocationExecutor getInvocationExecutor() {
+    return s_invocationExecutor;
+  }
+
   UnifiedMessengerHub getHub() {
     return m_hub;
   }
@@ -117,6 +128,7 @@ public class UnifiedMessenger {
     }
     // invoke remotely
     final Invoke invoke = new HubInvoke(methodCallID, true, remoteCall);
+    final long start = System.nanoTime();
     send(invoke, m_messenger.getServerNode());
 
     try {
@@ -124,6 +136,11 @@ public class UnifiedMessenger {
     } catch (final InterruptedException e) {
       s_logger.log(Level.WARNING, e.getMessage());
     }
+    final MessengerMetrics metrics = MessengerMetrics.getInstance();
+    if (metrics.isEnabled()) {
+      // by method, remote names can name nodes
+      metrics.invocationReturned(remoteCall.getMethodName(), System.nanoTime() - start);
+    }
 
     synchronized (m_pendingLock) {
       final RemoteMethodCallResults results = m_results.remove(methodCallID);
@@ -292,15 +309,12 @@ public class UnifiedMessenger {
       // however, once we delegate to the thread pool, there is no
       // guarantee that the thread pool task will run before
       // we get the next message notification
-      // get the number for the invocation here
-      final long methodRunNumber = local.takeANumber();
+      // so the end point takes the number for the invocation here
       // we dont want to block the message thread, only one thread is
       // reading messages
-      // per connection, so run with out thread pool
+      // per connection, so run with the invocation executor
       final EndPoint localFinal = local;
-      final Runnable task = () -> {
-        final List<RemoteMethodCallResults> results =
-            localFinal.invokeLocal(invoke.call, methodRunNumber, invoke.getInvoker());
+      local.invokeLocalLater(invoke.call, invoke.getInvoker(), s_invocationExecutor, results -> {
         if (invoke.needReturnValues) {
           RemoteMethodCallResults result = null;
           if (results.size() == 1) {
@@ -311,8 +325,7 @@ public class UnifiedMessenger {
           }
           send(new HubInvocationResults(result, invoke.methodCallID), from);
         }
-      };
-      threadPool.execute(task);
+      });
     }
     // a remote machine is returning results
     else if (msg instanceof SpokeInvocationResults) {
@@ -0,0 +1,345 @@
+package games.strategy.net;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Counts what the messengers of this process send and receive, to see which messages use the bandwidth and time.
+ * <p>
+ * Messages are counted by type, which for a remote method call is the message and method, and separately by the node
+ * at the other end of the connection, until the connection is closed. So what is kept does not grow with the nodes
+ * and remote names seen over the life of a server. Encoding and decoding times, and the round trip time of remote
+ * calls waiting for their results, are kept in histograms by type. Queues register to have their depth shown.
+ * <p>
+ * Nothing is counted unless counting is turned on, with setEnabled or the system property, and callers check
+ * isEnabled before working out what to count.
+ */
+public final class MessengerMetrics {
+  /**
+   * System property to count from the start.
+   */
+  public static final String ENABLED_PROPERTY = "triplea.messenger.metrics";
+  private static final MessengerMetrics s_instance = new MessengerMetrics();
+  private static final String UNKNOWN_NODE = "<unknown>";
+  private volatile boolean m_enabled = Boolean.getBoolean(ENABLED_PROPERTY);
+  private final Map<String, Traffic> m_trafficByType = new ConcurrentHashMap<>();
+  private final Map<String, Traffic> m_trafficByNode = new ConcurrentHashMap<>();
+  private final Map<String, Histogram> m_encodeTimes = new ConcurrentHashMap<>();
+  private final Map<String, Histogram> m_decodeTimes = new ConcurrentHashMap<>();
+  private final Map<String, Histogram> m_roundTripTimes = new ConcurrentHashMap<>();
+  private final List<Queue> m_queues = new CopyOnWriteArrayList<>();
+  private volatile long m_since = System.currentTimeMillis();
+
+  MessengerMetrics() {}
+
+  public static MessengerMetrics getInstance() {
+    return s_instance;
+  }
+
+  public boolean isEnabled() {
+    return m_enabled;
+  }
+
+  /**
+   * Start or stop counting, what was counted so far is kept.
+   */
+  public void setEnabled(final boolean enabled) {
+    m_enabled = enabled;
+  }
+
+  /**
+   * @param node
+   *        the node at the other end of the connection, null if not known yet
+   */
+  public void sent(final INode node, final String type, final int bytes) {
+    if (m_enabled) {
+      getTraffic(m_trafficByType, type).add(false, bytes);
+      getTraffic(m_trafficByNode, node == null ? UNKNOWN_NODE : node.getName()).add(false, bytes);
+    }
+  }
+
+  /**
+   * @param node
+   *        the node at the other end of the connection, null if not known yet
+   */
+  public void received(final INode node, final String type, final int bytes) {
+    if (m_enabled) {
+      getTraffic(m_trafficByType, type).add(true, bytes);
+      getTraffic(m_trafficByNode, node == null ? UNKNOWN_NODE : node.getName()).add(true, bytes);
+    }
+  }
+
+  /**
+   * Forget the traffic of a node whose connection was closed.
+   */
+  public void removeNode(final INode node) {
+    m_trafficByNode.remove(node.getName());
+  }
+
+  public void encoded(final String type, final long nanos) {
+    if (m_enabled) {
+      getHistogram(m_encodeTimes, type).add(nanos);
+    }
+  }
+
+  public void decoded(final String type, final long nanos) {
+    if (m_enabled) {
+      getHistogram(m_decodeTimes, type).add(nanos);
+    }
+  }
+
+  /**
+   * A remote method call got its results after the given time.
+   */
+  public void invocationReturned(final String type, final long nanos) {
+    if (m_enabled) {
+      getHistogram(m_roundTripTimes, type).add(nanos);
+    }
+  }
+
+  /**
+   * Show the depth of a queue, until removeQueue is called with the same depth.
+   */
+  public void addQueue(final String name, final IntSupplier depth) {
+    m_queues.add(new Queue(name, depth));
+  }
+
+  public void removeQueue(final IntSupplier depth) {
+    m_queues.removeIf(queue -> queue.m_depth == depth);
+  }
+
+  /**
+   * Forget everything counted so far, the queues are kept.
+   */
+  public void reset() {
+    m_trafficByType.clear();
+    m_trafficByNode.clear();
+    m_encodeTimes.clear();
+    m_decodeTimes.clear();
+    m_roundTripTimes.clear();
+    m_since = System.currentTimeMillis();
+  }
+
+  private static Traffic getTraffic(final Map<String, Traffic> traffic, final String key) {
+    return traffic.computeIfAbsent(key, ignored -> new Traffic());
+  }
+
+  private static Histogram getHistogram(final Map<String, Histogram> histograms, final String type) {
+    return histograms.computeIfAbsent(type, key -> new Histogram());
+  }
+
+  /**
+   * @return the traffic of each type, summed over all nodes.
+   */
+  public Map<String, Traffic> getTrafficByType() {
+    return new TreeMap<>(m_trafficByType);
+  }
+
+  /**
+   * @return the traffic to and from each node still connected, summed over all types.
+   */
+  public Map<String, Traffic> getTrafficByNode() {
+    return new TreeMap<>(m_trafficByNode);
+  }
+
+  /**
+   * @return the round trip time of remote method calls of the type, or null if none has returned.
+   */
+  public Histogram getRoundTripTimes(final String type) {
+    return m_roundTripTimes.get(type);
+  }
+
+  /**
+   * Everything counted, with the types using the most bytes first.
+   */
+  public String getReport() {
+    final StringBuilder sb = new StringBuilder();
+    sb.append("Messenger metrics since ").append(new Date(m_since)).append("\n");
+    if (!m_enabled) {
+      sb.append("Counting is off\n");
+    }
+    sb.append("\nQueues:\n");
+    for (final Queue queue : m_queues) {
+      sb.append("  ").append(queue.m_name).append(": ").append(queue.m_depth.getAsInt()).append("\n");
+    }
+    sb.append("\nBy node:\n");
+    appendTraffic(sb, getTrafficByNode());
+    sb.append("\nBy type:\n");
+    appendTraffic(sb, getTrafficByType());
+    sb.append("\nEncode times:\n");
+    appendHistograms(sb, m_encodeTimes);
+    sb.append("\nDecode times:\n");
+    appendHistograms(sb, m_decodeTimes);
+    sb.append("\nRemote call round trip times:\n");
+    appendHistograms(sb, m_roundTripTimes);
+    return sb.toString();
+  }
+
+  private static void appendTraffic(final StringBuilder sb, final Map<String, Traffic> traffic) {
+    final List<Map.Entry<String, Traffic>> entries = new ArrayList<>(traffic.entrySet());
+    entries.sort((a, b) -> Long.compare(b.getValue().getTotalBytes(), a.getValue().getTotalBytes()));
+    for (final Map.Entry<String, Traffic> entry : entries) {
+      sb.append("  ").append(entry.getKey()).append(": ").append(entry.getValue()).append("\n");
+    }
+  }
+
+  private static void appendHistograms(final StringBuilder sb, final Map<String, Histogram> histograms) {
+    final List<Map.Entry<String, Histogram>> entries = new ArrayList<>(histograms.entrySet());
+    entries.sort((a, b) -> Long.compare(b.getValue().getTotalNanos(), a.getValue().getTotalNanos()));
+    for (final Map.Entry<String, Histogram> entry : entries) {
+      sb.append("  ").append(entry.getKey()).append(": ").append(entry.getValue()).append("\n");
+    }
+  }
+
+  /**
+   * Write the report to a file.
+   */
+  public void dump(final File file) throws IOException {
+    try (PrintWriter out =
+        new PrintWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+      out.print(getReport());
+    }
+  }
+
+  private static final class Queue {
+    private final String m_name;
+    private final IntSupplier m_depth;
+
+    private Queue(final String name, final IntSupplier depth) {
+      m_name = name;
+      m_depth = depth;
+    }
+  }
+
+  /**
+   * Messages and bytes received and sent.
+   */
+  public static final class Traffic {
+    private final LongAdder m_messagesIn = new LongAdder();
+    private final LongAdder m_bytesIn = new LongAdder();
+    private final LongAdder m_messagesOut = new LongAdder();
+    private final LongAdder m_bytesOut = new LongAdder();
+
+    private void add(final boolean in, final int bytes) {
+      if (in) {
+        m_messagesIn.increment();
+        m_bytesIn.add(bytes);
+      } else {
+        m_messagesOut.increment();
+        m_bytesOut.add(bytes);
+      }
+    }
+
+    public long getMessagesIn() {
+      return m_messagesIn.sum();
+    }
+
+    public long getBytesIn() {
+      return m_bytesIn.sum();
+    }
+
+    public long getMessagesOut() {
+      return m_messagesOut.sum();
+    }
+
+    public long getBytesOut() {
+      return m_bytesOut.sum();
+    }
+
+    public long getTotalBytes() {
+      return getBytesIn() + getBytesOut();
+    }
+
+    @Override
+    public String toString() {
+      return "in:" + getMessagesIn() + " msgs " + getBytesIn() + " bytes, out:" + getMessagesOut() + " msgs "
+          + getBytesOut() + " bytes";
+    }
+  }
+
+  /**
+   * Times counted in buckets that double in size, starting at a microsecond.
+   */
+  public static final class Histogram {
+    private static final int BUCKETS = 32;
+    // bucket i counts times under 2^i microseconds, the last bucket counts the rest
+    private final AtomicLongArray m_buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder m_count = new LongAdder();
+    private final LongAdder m_totalNanos = new LongAdder();
+    private volatile long m_maxNanos;
+
+    void add(final long nanos) {
+      final long micros = Math.max(0, nanos / 1000);
+      final int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+      m_buckets.incrementAndGet(bucket);
+      m_count.increment();
+      m_totalNanos.add(nanos);
+      if (nanos > m_maxNanos) {
+        // a lost race only loses a maximum briefly passed
+        m_maxNanos = nanos;
+      }
+    }
+
+    public long getCount() {
+      return m_count.sum();
+    }
+
+    public long getTotalNanos() {
+      return m_totalNanos.sum();
+    }
+
+    public double getAverageMillis() {
+      final long count = getCount();
+      return count == 0 ? 0 : getTotalNanos() / 1000000.0 / count;
+    }
+
+    public double getMaxMillis() {
+      return m_maxNanos / 1000000.0;
+    }
+
+    /**
+     * @param fraction
+     *        between 0 and 1, 0.99 for the 99th percentile
+     * @return the time the given fraction of times were under, rounded up to the end of its bucket
+     */
+    public double getPercentileMillis(final double fraction) {
+      long total = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        total += m_buckets.get(i);
+      }
+      if (total == 0) {
+        return 0;
+      }
+      final long wanted = (long) Math.ceil(total * fraction);
+      long seen = 0;
+      for (int i = 0; i < BUCKETS - 1; i++) {
+        seen += m_buckets.get(i);
+        if (seen >= wanted) {
+          return Math.min((1L << i) / 1000.0, getMaxMillis());
+        }
+      }
+      return getMaxMillis();
+    }
+
+    @Override
+    public String toString() {
+      return String.format("count:%d average ms:%.3f p50 ms:%.3f p90 ms:%.3f p99 ms:%.3f max ms:%.3f", getCount(),
+          getAverageMillis(), getPercentileMillis(0.5), getPercentileMillis(0.9), getPercentileMillis(0.99),
+          getMaxMillis());
+    }
+  }
+}
@@ -467,11 +467,8 @@ public class ServerMessenger implements IServerMessenger, NIOSocketListener {
     if (logger.isLoggable(Level.FINEST)) {
       logger.log(Level.FINEST, "broadcasting to" + nodes);
     }
-    for (final SocketChannel channel : nodes) {
-      if (channel != fromChannel) {
-        nioSocket.send(channel, msg);
-      }
-    }
+    nodes.remove(fromChannel);
+    nioSocket.send(nodes, msg);
   }
 
   private boolean isNameTaken(final String nodeName) {
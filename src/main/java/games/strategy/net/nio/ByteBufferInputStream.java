@@ -0,0 +1,48 @@
+package games.strategy.net.nio;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads the remaining bytes of a ByteBuffer, so a packet can be decoded without copying it to a byte[] first.
+ */
+class ByteBufferInputStream extends InputStream {
+  private final ByteBuffer m_buffer;
+
+  public ByteBufferInputStream(final ByteBuffer buffer) {
+    m_buffer = buffer;
+  }
+
+  @Override
+  public int read() {
+    if (!m_buffer.hasRemaining()) {
+      return -1;
+    }
+    return m_buffer.get() & 0xFF;
+  }
+
+  @Override
+  public int read(final byte[] b, final int off, final int len) {
+    if (len == 0) {
+      return 0;
+    }
+    if (!m_buffer.hasRemaining()) {
+      return -1;
+    }
+    final int count = Math.min(len, m_buffer.remaining());
+    m_buffer.get(b, off, count);
+    return count;
+  }
+
+  @Override
+  public long skip(final long n) {
+    final int count = (int) Math.max(0, Math.min(n, m_buffer.remaining()));
+    m_buffer.position(m_buffer.position() + count);
+    return count;
+  }
+
+  @Override
+  public int available() {
+    return m_buffer.remaining();
+  }
+}
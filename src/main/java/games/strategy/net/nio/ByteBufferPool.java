@@ -0,0 +1,109 @@
+package games.strategy.net.nio;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of direct byte buffers, in size classes of powers of two, for the packets read and written by an NIOSocket.
+ * <p>
+ * Direct buffers are expensive to allocate but save the copy the channel does when writing or reading a heap buffer,
+ * so they are kept and handed out again. The free buffers of a pool hold at most 1 MB in all, and a size class at most
+ * a quarter of that, but at least one buffer. Extra buffers given back are left to the garbage collector. Packets
+ * bigger than the largest class are given plain heap buffers, they are rare and it is not worth holding on to that much
+ * memory.
+ * <p>
+ * A buffer handed out has its limit set to the size asked for. Buffers must only be given back once nothing reads or
+ * writes them any more.
+ */
+class ByteBufferPool {
+  private static final int MIN_CLASS_SHIFT = 9;
+  private static final int MAX_CLASS_SHIFT = 20;
+  // how many bytes the free buffers of the pool may hold
+  static final int MAX_FREE_BYTES = 1024 * 1024;
+  // how many bytes each size class may keep, unless that is less than one buffer
+  private static final int BYTES_PER_CLASS = MAX_FREE_BYTES / 4;
+  private final SizeClass[] m_classes = new SizeClass[MAX_CLASS_SHIFT - MIN_CLASS_SHIFT + 1];
+  private final AtomicLong m_freeBytes = new AtomicLong();
+
+  ByteBufferPool() {
+    for (int i = 0; i < m_classes.length; i++) {
+      final int capacity = 1 << (MIN_CLASS_SHIFT + i);
+      m_classes[i] = new SizeClass(capacity, Math.max(1, BYTES_PER_CLASS / capacity));
+    }
+  }
+
+  private static int getClassIndex(final int size) {
+    if (size <= 1 << MIN_CLASS_SHIFT) {
+      return 0;
+    }
+    // the number of bits needed for size - 1 is the shift of the smallest power of two holding size
+    return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_CLASS_SHIFT;
+  }
+
+  /**
+   * @return a buffer with position 0 and limit size
+   */
+  ByteBuffer acquire(final int size) {
+    final int index = getClassIndex(size);
+    if (index >= m_classes.length) {
+      return ByteBuffer.allocate(size);
+    }
+    final SizeClass sizeClass = m_classes[index];
+    ByteBuffer buffer = sizeClass.m_free.poll();
+    if (buffer == null) {
+      buffer = ByteBuffer.allocateDirect(sizeClass.m_capacity);
+    } else {
+      sizeClass.m_count.decrementAndGet();
+      m_freeBytes.addAndGet(-sizeClass.m_capacity);
+    }
+    buffer.clear();
+    buffer.limit(size);
+    return buffer;
+  }
+
+  /**
+   * Give a buffer from acquire back to the pool.
+   */
+  void release(final ByteBuffer buffer) {
+    if (!buffer.isDirect()) {
+      return;
+    }
+    final int index = getClassIndex(buffer.capacity());
+    if (index >= m_classes.length || m_classes[index].m_capacity != buffer.capacity()) {
+      return;
+    }
+    final SizeClass sizeClass = m_classes[index];
+    if (sizeClass.m_count.incrementAndGet() > sizeClass.m_maxCount) {
+      sizeClass.m_count.decrementAndGet();
+      return;
+    }
+    if (m_freeBytes.addAndGet(sizeClass.m_capacity) > MAX_FREE_BYTES) {
+      m_freeBytes.addAndGet(-sizeClass.m_capacity);
+      sizeClass.m_count.decrementAndGet();
+      return;
+    }
+    sizeClass.m_free.offer(buffer);
+  }
+
+  /**
+   * @return how many bytes the free buffers of the pool hold
+   */
+  long getFreeBytes() {
+    return m_freeBytes.get();
+  }
+
+  private static final class SizeClass {
+    private final int m_capacity;
+    private final int m_maxCount;
+    private final ConcurrentLinkedQueue<ByteBuffer> m_free = new ConcurrentLinkedQueue<>();
+    // the size of m_free, which is slow to count
+    private final AtomicInteger m_count = new AtomicInteger();
+
+    private SizeClass(final int capacity, final int maxCount) {
+      m_capacity = capacity;
+      m_maxCount = maxCount;
+    }
+  }
+}
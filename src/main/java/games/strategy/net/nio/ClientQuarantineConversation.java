@@ -3,6 +3,7 @@ package games.strategy.net.nio;
 import java.io.Serializable;
 import java.net.InetSocketAddress;
 import java.nio.channels.SocketChannel;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.logging.Level;
@@ -113,13 +114,14 @@ public class ClientQuarantineConversation extends QuarantineConversation {
             if (s_logger.isLoggable(Level.FINER)) {
               s_logger.log(Level.FINER, "writing response" + challengeResponse);
             }
-            send((Serializable) challengeResponse);
+            send(withCapabilities(challengeResponse));
           } else {
             showLatch.countDown();
             if (s_logger.isLoggable(Level.FINER)) {
-              s_logger.log(Level.FINER, "sending null response");
+              s_logger.log(Level.FINER, "sending capabilities as response");
             }
-            send(null);
+            // servers without a challenge ignore the response
+            send(withCapabilities(null));
           }
           step = STEP.READ_ERROR;
           return ACTION.NONE;
@@ -142,6 +144,13 @@ public class ClientQuarantineConversation extends QuarantineConversation {
           }
           localName = strings[0];
           serverName = strings[1];
+          // older servers only send the names
+          if (strings.length > 2 && PacketCompression.CAPABILITY.equals(strings[2])) {
+            socket.setCompressing(channel);
+          }
+          if (strings.length > 3 && PROTOCOL_VERSION.equals(strings[3])) {
+            socket.setCompactInvocations(channel);
+          }
           step = STEP.READ_ADDRESS;
           return ACTION.NONE;
         case READ_ADDRESS:
@@ -169,6 +178,16 @@ public class ClientQuarantineConversation extends QuarantineConversation {
     }
   }
 
+  /**
+   * Adds what this client can do to the challenge response, older servers do not look at the extra properties.
+   */
+  private static HashMap<String, String> withCapabilities(final Map<String, String> response) {
+    final HashMap<String, String> rVal = response == null ? new HashMap<>() : new HashMap<>(response);
+    rVal.put(PacketCompression.LOGIN_PROPERTY, PacketCompression.CAPABILITY);
+    rVal.put(PROTOCOL_PROPERTY, PROTOCOL_VERSION);
+    return rVal;
+  }
+
   private void send(final Serializable object) {
     // this messenger is quarantined, so to and from dont matter
     final MessageHeader header = new MessageHeader(Node.NULL_NODE, Node.NULL_NODE, object);
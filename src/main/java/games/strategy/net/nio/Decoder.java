@@ -1,32 +1,56 @@
 package games.strategy.net.nio;
 
-import java.io.ByteArrayInputStream;
 import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.net.Socket;
 import java.nio.channels.SocketChannel;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import games.strategy.engine.message.HubInvocationResults;
 import games.strategy.engine.message.HubInvoke;
+import games.strategy.engine.message.RemoteNameTable;
 import games.strategy.engine.message.SpokeInvocationResults;
 import games.strategy.engine.message.SpokeInvoke;
+import games.strategy.engine.message.unifiedmessenger.InvocationResults;
+import games.strategy.engine.message.unifiedmessenger.Invoke;
 import games.strategy.net.CouldNotLogInException;
 import games.strategy.net.INode;
 import games.strategy.net.IObjectStreamFactory;
 import games.strategy.net.MessageHeader;
+import games.strategy.net.MessengerMetrics;
 import games.strategy.net.Node;
 import games.strategy.net.nio.QuarantineConversation.ACTION;
 
 /**
- * A thread to Decode messages from a reader.
+ * Decodes messages from a reader.
+ * <p>
+ * A thread takes packets from the reader and hands them to the decoder of their channel. Channels are decoded in
+ * parallel by a pool of threads, but each channel only by one thread at a time, in the order its packets were read,
+ * so a big message from one channel does not hold up the others.
  */
 public class Decoder {
   private static final Logger logger = Logger.getLogger(Decoder.class.getName());
+  /**
+   * System property for the number of threads decoding packets.
+   */
+  public static final String THREADS_PROPERTY = "triplea.nio.decodeThreads";
+  private static final int THREADS =
+      Integer.getInteger(THREADS_PROPERTY, Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors())));
+  // how many packets a channel decodes before letting other channels have the thread
+  private static final int MAX_PACKETS_PER_RUN = 32;
   private final NIOReader reader;
   private volatile boolean running = true;
   private final IErrorReporter errorReporter;
@@ -38,7 +62,16 @@ public class Decoder {
    */
   private final ConcurrentHashMap<SocketChannel, QuarantineConversation> quarantine =
       new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<SocketChannel, ChannelDecoder> channels = new ConcurrentHashMap<>();
+  // channels whose peer negotiated compressed packets during login
+  private final Set<SocketChannel> decompressing = ConcurrentHashMap.newKeySet();
+  // channels whose peer writes invocations in the compact encoding
+  private final Set<SocketChannel> compactInvocations = ConcurrentHashMap.newKeySet();
+  private final ThreadPoolExecutor executor;
   private final Thread thread;
+  // packets read but not yet decoded, over all channels
+  private final AtomicInteger queuedPackets = new AtomicInteger();
+  private final IntSupplier queueDepth = queuedPackets::get;
 
   public Decoder(final NIOSocket nioSocket, final NIOReader reader, final IErrorReporter reporter,
       final IObjectStreamFactory objectStreamFactory, final String threadSuffix) {
@@ -46,13 +79,28 @@ public class Decoder {
     errorReporter = reporter;
     this.objectStreamFactory = objectStreamFactory;
     this.nioSocket = nioSocket;
+    final AtomicInteger threadCount = new AtomicInteger();
+    executor = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+        r -> new Thread(r, "Decoder -" + threadSuffix + " " + threadCount.incrementAndGet()));
+    executor.allowCoreThreadTimeOut(true);
     thread = new Thread(() -> loop(), "Decoder -" + threadSuffix);
     thread.start();
+    MessengerMetrics.getInstance().addQueue("Decoder -" + threadSuffix, queueDepth);
   }
 
   public void shutDown() {
+    MessengerMetrics.getInstance().removeQueue(queueDepth);
     running = false;
     thread.interrupt();
+    executor.shutdownNow();
+  }
+
+  /**
+   * @return the packets decoded from the channel so far, or null if nothing has been read from it
+   */
+  public DecodeStats getStats(final SocketChannel channel) {
+    final ChannelDecoder decoder = channels.get(channel);
+    return decoder == null ? null : decoder.stats;
   }
 
   private void loop() {
@@ -67,42 +115,7 @@ public class Decoder {
         if (data == null || !running) {
           continue;
         }
-        if (logger.isLoggable(Level.FINEST)) {
-          logger.finest("Decoding packet:" + data);
-        }
-        final ByteArrayInputStream stream = new ByteArrayInputStream(data.getData());
-        try {
-          final MessageHeader header = readMessageHeader(data.getChannel(), objectStreamFactory.create(stream));
-          if (logger.isLoggable(Level.FINEST)) {
-            logger.log(Level.FINEST, "header decoded:" + header);
-          }
-          // make sure we are still open
-          final Socket s = data.getChannel().socket();
-          if (!running || s == null || s.isInputShutdown()) {
-            continue;
-          }
-          final QuarantineConversation converstation = quarantine.get(data.getChannel());
-          if (converstation != null) {
-            sendQuarantine(data.getChannel(), converstation, header);
-          } else {
-            if (nioSocket.getLocalNode() == null) {
-              throw new IllegalStateException("we are writing messages, but no local node");
-            }
-            if (header.getFrom() == null) {
-              throw new IllegalArgumentException("Null from:" + header);
-            }
-            if (logger.isLoggable(Level.FINER)) {
-              logger.log(Level.FINER, "decoded  msg:" + header.getMessage() + " size:" + data.size());
-            }
-            nioSocket.messageReceived(header, data.getChannel());
-          }
-        } catch (final Exception ioe) {
-          // we are reading from memory here
-          // there should be no network errors, something
-          // is odd
-          logger.log(Level.SEVERE, "error reading object", ioe);
-          errorReporter.error(data.getChannel(), ioe);
-        }
+        channels.computeIfAbsent(data.getChannel(), ChannelDecoder::new).add(data);
       } catch (final Exception e) {
         // catch unhandles exceptions to that the decoder
         // thread doesnt die
@@ -111,6 +124,60 @@ public class Decoder {
     }
   }
 
+  private void decode(final SocketReadData data, final RemoteNameTable remoteNames) {
+    if (logger.isLoggable(Level.FINEST)) {
+      logger.finest("Decoding packet:" + data);
+    }
+    try {
+      if (data.isCompressed()
+          && (quarantine.containsKey(data.getChannel()) || !decompressing.contains(data.getChannel()))) {
+        throw new IOException("Compressed packet from a connection that did not negotiate compression");
+      }
+      final long start = System.nanoTime();
+      final ByteBufferInputStream stream = new ByteBufferInputStream(
+          data.isCompressed() ? PacketCompression.decompress(data.getContent()) : data.getContent());
+      final MessageHeader header =
+          readMessageHeader(data.getChannel(), objectStreamFactory.create(stream), remoteNames);
+      final MessengerMetrics metrics = MessengerMetrics.getInstance();
+      if (metrics.isEnabled()) {
+        final String type = getMetricsType(header.getMessage());
+        metrics.decoded(type, System.nanoTime() - start);
+        metrics.received(nioSocket.getRemoteNode(data.getChannel()), type, data.size());
+      }
+      if (logger.isLoggable(Level.FINEST)) {
+        logger.log(Level.FINEST, "header decoded:" + header);
+      }
+      // make sure we are still open
+      final Socket s = data.getChannel().socket();
+      if (!running || s == null || s.isInputShutdown()) {
+        return;
+      }
+      final QuarantineConversation converstation = quarantine.get(data.getChannel());
+      if (converstation != null) {
+        sendQuarantine(data.getChannel(), converstation, header);
+      } else {
+        if (nioSocket.getLocalNode() == null) {
+          throw new IllegalStateException("we are writing messages, but no local node");
+        }
+        if (header.getFrom() == null) {
+          throw new IllegalArgumentException("Null from:" + header);
+        }
+        if (logger.isLoggable(Level.FINER)) {
+          logger.log(Level.FINER, "decoded  msg:" + header.getMessage() + " size:" + data.size());
+        }
+        nioSocket.messageReceived(header, data.getChannel());
+      }
+    } catch (final Exception ioe) {
+      // we are reading from memory here
+      // there should be no network errors, something
+      // is odd
+      logger.log(Level.SEVERE, "error reading object", ioe);
+      errorReporter.error(data.getChannel(), ioe);
+    } finally {
+      data.release();
+    }
+  }
+
   private void sendQuarantine(final SocketChannel channel, final QuarantineConversation conversation,
       final MessageHeader header) {
     final ACTION a = conversation.message(header.getMessage());
@@ -130,8 +197,8 @@ public class Decoder {
     }
   }
 
-  private MessageHeader readMessageHeader(final SocketChannel channel, final ObjectInputStream objectInput)
-      throws IOException, ClassNotFoundException {
+  private MessageHeader readMessageHeader(final SocketChannel channel, final ObjectInputStream objectInput,
+      final RemoteNameTable remoteNames) throws IOException, ClassNotFoundException {
     INode to;
     if (objectInput.read() == 1) {
       to = null;
@@ -159,7 +226,14 @@ public class Decoder {
     final byte type = (byte) objectInput.read();
     if (type != Byte.MAX_VALUE) {
       final Externalizable template = getTemplate(type);
-      template.readExternal(objectInput);
+      final boolean compact = compactInvocations.contains(channel);
+      if (compact && template instanceof Invoke) {
+        ((Invoke) template).readCompact(objectInput, remoteNames);
+      } else if (compact && template instanceof InvocationResults) {
+        ((InvocationResults) template).readCompact(objectInput);
+      } else {
+        template.readExternal(objectInput);
+      }
       message = template;
     } else {
       message = (Serializable) objectInput.readObject();
@@ -202,15 +276,190 @@ public class Decoder {
     return Byte.MAX_VALUE;
   }
 
+  /**
+   * @return what the message is counted as in the messenger metrics, by class, and for remote method calls by method
+   *         too when it is known, which is only when sending. Remote names are left out, they name nodes.
+   */
+  static String getMetricsType(final Object msg) {
+    if (msg == null) {
+      return "null";
+    }
+    if (msg instanceof Invoke) {
+      final String method = ((Invoke) msg).call.getMethodName();
+      if (method != null) {
+        return msg.getClass().getSimpleName() + "." + method;
+      }
+    }
+    return msg.getClass().getSimpleName();
+  }
+
   public void add(final SocketChannel channel, final QuarantineConversation conversation) {
     quarantine.put(channel, conversation);
   }
 
+  /**
+   * Accept compressed packets from this channel once it is out of quarantine, its peer negotiated them.
+   */
+  void setDecompressing(final SocketChannel channel) {
+    decompressing.add(channel);
+  }
+
+  /**
+   * Read invocations from this channel in the compact encoding, its peer negotiated it during login.
+   */
+  void setCompactInvocations(final SocketChannel channel) {
+    compactInvocations.add(channel);
+  }
+
   public void closed(final SocketChannel channel) {
+    channels.remove(channel);
+    decompressing.remove(channel);
+    compactInvocations.remove(channel);
     // remove if it exists
     final QuarantineConversation conversation = quarantine.remove(channel);
     if (conversation != null) {
       conversation.close();
     }
   }
+
+  /**
+   * Decodes the packets of one channel, one at a time and in order.
+   */
+  private final class ChannelDecoder implements Runnable {
+    private final SocketChannel channel;
+    private final ConcurrentLinkedQueue<Pending> pending = new ConcurrentLinkedQueue<>();
+    // the size of pending, which is slow to count
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    // only used while decoding, one packet at a time
+    private final RemoteNameTable remoteNames = new RemoteNameTable();
+    private final DecodeStats stats = new DecodeStats();
+
+    private ChannelDecoder(final SocketChannel channel) {
+      this.channel = channel;
+    }
+
+    private void add(final SocketReadData data) {
+      pending.add(new Pending(data, System.nanoTime()));
+      queuedPackets.incrementAndGet();
+      stats.queued(queued.incrementAndGet());
+      schedule();
+    }
+
+    private void schedule() {
+      if (!scheduled.compareAndSet(false, true)) {
+        return;
+      }
+      try {
+        executor.execute(this);
+      } catch (final RejectedExecutionException e) {
+        // we are shutting down
+        scheduled.set(false);
+      }
+    }
+
+    @Override
+    public void run() {
+      try {
+        for (int i = 0; i < MAX_PACKETS_PER_RUN && running; i++) {
+          final Pending next = pending.poll();
+          if (next == null) {
+            break;
+          }
+          queued.decrementAndGet();
+          queuedPackets.decrementAndGet();
+          final long start = System.nanoTime();
+          decode(next.data, remoteNames);
+          stats.decoded(start - next.queuedNanos, System.nanoTime() - start);
+        }
+      } catch (final Exception e) {
+        logger.log(Level.WARNING, "error in decoder", e);
+      } finally {
+        scheduled.set(false);
+        // packets added after the last poll, or left for the next run
+        if (!pending.isEmpty() && running) {
+          schedule();
+        } else if (!channel.isOpen()) {
+          // packets read after the channel was closed may have added us again
+          channels.remove(channel, this);
+        }
+      }
+    }
+  }
+
+  private static final class Pending {
+    private final SocketReadData data;
+    private final long queuedNanos;
+
+    private Pending(final SocketReadData data, final long queuedNanos) {
+      this.data = data;
+      this.queuedNanos = queuedNanos;
+    }
+  }
+
+  /**
+   * How much was decoded from a channel, how long it waited to be decoded, and how long decoding took.
+   */
+  public static class DecodeStats {
+    private volatile long packets;
+    private volatile long waitNanos;
+    private volatile long decodeNanos;
+    private volatile long maxDecodeNanos;
+    private volatile int queueDepth;
+    private volatile int maxQueueDepth;
+
+    // only the reading thread calls this
+    private void queued(final int depth) {
+      queueDepth = depth;
+      if (depth > maxQueueDepth) {
+        maxQueueDepth = depth;
+      }
+    }
+
+    // only the thread decoding the channel calls this
+    private void decoded(final long waited, final long took) {
+      packets++;
+      waitNanos += waited;
+      decodeNanos += took;
+      if (took > maxDecodeNanos) {
+        maxDecodeNanos = took;
+      }
+    }
+
+    public long getPackets() {
+      return packets;
+    }
+
+    /**
+     * @return the packets waiting to be decoded when the last packet was read.
+     */
+    public int getQueueDepth() {
+      return queueDepth;
+    }
+
+    public int getMaxQueueDepth() {
+      return maxQueueDepth;
+    }
+
+    public double getAverageWaitMillis() {
+      final long count = packets;
+      return count == 0 ? 0 : waitNanos / 1000000.0 / count;
+    }
+
+    public double getAverageDecodeMillis() {
+      final long count = packets;
+      return count == 0 ? 0 : decodeNanos / 1000000.0 / count;
+    }
+
+    public double getMaxDecodeMillis() {
+      return maxDecodeNanos / 1000000.0;
+    }
+
+    @Override
+    public String toString() {
+      return "packets:" + packets + " queue depth:" + queueDepth + " max queue depth:" + maxQueueDepth
+          + " average wait ms:" + getAverageWaitMillis() + " average decode ms:" + getAverageDecodeMillis()
+          + " max decode ms:" + getMaxDecodeMillis();
+    }
+  }
 }
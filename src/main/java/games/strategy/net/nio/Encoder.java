@@ -4,11 +4,20 @@ import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import games.strategy.engine.message.RemoteNameTable;
+import games.strategy.engine.message.unifiedmessenger.InvocationResults;
+import games.strategy.engine.message.unifiedmessenger.Invoke;
 import games.strategy.net.IObjectStreamFactory;
 import games.strategy.net.MessageHeader;
+import games.strategy.net.MessengerMetrics;
 import games.strategy.net.Node;
 
 /**
@@ -19,11 +28,47 @@ public class Encoder {
   private final NIOWriter m_writer;
   private final IObjectStreamFactory m_objectStreamFactory;
   private final NIOSocket m_nioSocket;
+  private final ByteBufferPool m_bufferPool;
+  // sinks are kept per encoding thread, as long as they have not grown too big for a message
+  private static final int MAX_KEPT_SINK_SIZE = 64 * 1024;
+  private final ThreadLocal<ByteArrayOutputStream2> m_sinks = new ThreadLocal<>();
+  // channels whose peer can read compressed packets
+  private final Set<SocketChannel> m_compressing = ConcurrentHashMap.newKeySet();
+  // channels whose peer reads invocations in the compact encoding
+  private final Set<SocketChannel> m_compactInvocations = ConcurrentHashMap.newKeySet();
+  // the remote names sent to each channel by number
+  private final ConcurrentHashMap<SocketChannel, RemoteNameTable> m_remoteNames = new ConcurrentHashMap<>();
 
   public Encoder(final NIOSocket nioSocket, final NIOWriter writer, final IObjectStreamFactory objectStreamFactory) {
+    this(nioSocket, writer, objectStreamFactory, null);
+  }
+
+  Encoder(final NIOSocket nioSocket, final NIOWriter writer, final IObjectStreamFactory objectStreamFactory,
+      final ByteBufferPool bufferPool) {
     m_nioSocket = nioSocket;
     m_writer = writer;
     m_objectStreamFactory = objectStreamFactory;
+    m_bufferPool = bufferPool;
+  }
+
+  /**
+   * Send packets above the compression threshold compressed to this channel, whose peer said it can read them.
+   */
+  void setCompressing(final SocketChannel channel) {
+    m_compressing.add(channel);
+  }
+
+  /**
+   * Write invocations to this channel in the compact encoding, its peer negotiated it during login.
+   */
+  void setCompactInvocations(final SocketChannel channel) {
+    m_compactInvocations.add(channel);
+  }
+
+  void closed(final SocketChannel channel) {
+    m_compressing.remove(channel);
+    m_compactInvocations.remove(channel);
+    m_remoteNames.remove(channel);
   }
 
   public void write(final SocketChannel to, final MessageHeader header) {
@@ -36,25 +81,221 @@ public class Encoder {
     if (to == null) {
       throw new IllegalArgumentException("No to channel!");
     }
-    final ByteArrayOutputStream2 sink = new ByteArrayOutputStream2(512);
-    SocketWriteData data;
+    final boolean compact = m_compactInvocations.contains(to);
+    final RemoteNameTable names = compact ? getRemoteNames(to, header) : null;
+    if (names == null) {
+      encode(to, header, compact, null);
+      return;
+    }
+    // names are numbered in the order they are written, so messages using the table must be queued in that order
+    synchronized (names) {
+      final int mark = names.size();
+      if (!encode(to, header, true, names)) {
+        // the message numbering the names will never arrive
+        names.truncate(mark);
+      }
+    }
+  }
+
+  /**
+   * @return the remote names of the channel if the message can send remote names by number, otherwise null
+   */
+  private RemoteNameTable getRemoteNames(final SocketChannel to, final MessageHeader header) {
+    final byte type = Decoder.getType(header.getMessage());
+    if ((type != 1 && type != 2) || !to.isOpen()) {
+      return null;
+    }
+    return m_remoteNames.computeIfAbsent(to, key -> new RemoteNameTable());
+  }
+
+  /**
+   * @return false if the message could not be written
+   */
+  private boolean encode(final SocketChannel to, final MessageHeader header, final boolean compact,
+      final RemoteNameTable names) {
+    final long start = System.nanoTime();
+    final ByteArrayOutputStream2 sink = serialize(header, to, compact, names);
+    if (sink == null) {
+      return false;
+    }
+    final Packets packets = new Packets(header, sink);
+    final SocketWriteData data = packets.get(m_compressing.contains(to));
+    keepSink(sink);
+    if (data == null) {
+      return false;
+    }
+    final MessengerMetrics metrics = MessengerMetrics.getInstance();
+    if (metrics.isEnabled()) {
+      final String type = Decoder.getMetricsType(header.getMessage());
+      metrics.encoded(type, System.nanoTime() - start);
+      metrics.sent(m_nioSocket.getRemoteNode(to), type, data.size());
+    }
+    m_writer.enque(data, to);
+    return true;
+  }
+
+  /**
+   * Writes a broadcast to several channels. The message is only encoded once for each encoding the channels read,
+   * since otherwise how a broadcast is written does not depend on who it goes to, and every channel is given a packet
+   * sharing the encoded bytes.
+   */
+  public void write(final Collection<SocketChannel> to, final MessageHeader header) {
+    if (header.getFor() != null) {
+      throw new IllegalArgumentException("Not a broadcast:" + header);
+    }
+    if (header.getFrom() == null) {
+      throw new IllegalArgumentException("No from node");
+    }
+    if (to.isEmpty()) {
+      return;
+    }
+    if (s_logger.isLoggable(Level.FINEST)) {
+      s_logger.log(Level.FINEST, "Encoding broadcast:" + header + " to:" + to);
+    }
+    if (Decoder.getType(header.getMessage()) == Byte.MAX_VALUE) {
+      // only invocations are written differently
+      broadcast(to, header, false);
+      return;
+    }
+    final List<SocketChannel> compact = new ArrayList<>();
+    final List<SocketChannel> plain = new ArrayList<>();
+    for (final SocketChannel channel : to) {
+      (m_compactInvocations.contains(channel) ? compact : plain).add(channel);
+    }
+    if (!compact.isEmpty()) {
+      broadcast(compact, header, true);
+    }
+    if (!plain.isEmpty()) {
+      broadcast(plain, header, false);
+    }
+  }
+
+  private void broadcast(final Collection<SocketChannel> to, final MessageHeader header, final boolean compact) {
+    final long start = System.nanoTime();
+    final ByteArrayOutputStream2 sink = serialize(header, null, compact, null);
+    if (sink == null) {
+      return;
+    }
+    final Packets packets = new Packets(header, sink);
+    final MessengerMetrics metrics = MessengerMetrics.getInstance();
+    final String type = metrics.isEnabled() ? Decoder.getMetricsType(header.getMessage()) : null;
+    for (final SocketChannel channel : to) {
+      final SocketWriteData data = packets.get(m_compressing.contains(channel));
+      if (data != null) {
+        if (type != null) {
+          metrics.sent(m_nioSocket.getRemoteNode(channel), type, data.size());
+        }
+        m_writer.enque(data.duplicate(), channel);
+      }
+    }
+    if (type != null) {
+      // a broadcast is encoded once, however many it is sent to
+      metrics.encoded(type, System.nanoTime() - start);
+    }
+    keepSink(sink);
+    // the copies hold the content now
+    packets.release();
+  }
+
+  /**
+   * @return the serialized message, or null if it could not be serialized
+   */
+  private ByteArrayOutputStream2 serialize(final MessageHeader header, final SocketChannel to, final boolean compact,
+      final RemoteNameTable names) {
+    ByteArrayOutputStream2 sink = m_sinks.get();
+    if (sink == null) {
+      sink = new ByteArrayOutputStream2(512);
+    } else {
+      m_sinks.remove();
+      sink.reset();
+    }
     try {
-      write(header, m_objectStreamFactory.create(sink), to);
-      data = new SocketWriteData(sink.getBuffer(), sink.size());
+      write(header, m_objectStreamFactory.create(sink), to, compact, names);
     } catch (final Exception e) {
       // we arent doing any io, just writing in memory
       // so something is very wrong
       s_logger.log(Level.SEVERE, "Error writing object:" + header, e);
-      return;
+      return null;
     }
-    if (s_logger.isLoggable(Level.FINER)) {
-      s_logger.log(Level.FINER, "encoded  msg:" + header.getMessage() + " size:" + data.size());
+    return sink;
+  }
+
+  private void keepSink(final ByteArrayOutputStream2 sink) {
+    if (sink.getBuffer().length <= MAX_KEPT_SINK_SIZE) {
+      m_sinks.set(sink);
+    }
+  }
+
+  /**
+   * The packets for one serialized message, made when first needed: as is, and compressed if that is worth it.
+   */
+  private final class Packets {
+    private final MessageHeader m_header;
+    private final ByteArrayOutputStream2 m_sink;
+    private SocketWriteData m_plain;
+    private SocketWriteData m_compressed;
+    private boolean m_triedCompressing = false;
+    private boolean m_failed = false;
+
+    private Packets(final MessageHeader header, final ByteArrayOutputStream2 sink) {
+      m_header = header;
+      m_sink = sink;
+    }
+
+    /**
+     * @return the packet, or null if the message can not be sent
+     */
+    private SocketWriteData get(final boolean compress) {
+      if (compress && !m_triedCompressing) {
+        m_triedCompressing = true;
+        final ByteArrayOutputStream2 compressed = PacketCompression.compress(m_sink.getBuffer(), m_sink.size());
+        if (compressed != null) {
+          m_compressed = create(compressed, true);
+        }
+      }
+      if (compress && m_compressed != null) {
+        return m_compressed;
+      }
+      if (m_plain == null && !m_failed) {
+        m_plain = create(m_sink, false);
+        m_failed = m_plain == null;
+      }
+      return m_plain;
+    }
+
+    private SocketWriteData create(final ByteArrayOutputStream2 bytes, final boolean compressed) {
+      final SocketWriteData data;
+      try {
+        data = new SocketWriteData(bytes.getBuffer(), bytes.size(), m_bufferPool, compressed);
+      } catch (final Exception e) {
+        s_logger.log(Level.SEVERE, "Error writing object:" + m_header, e);
+        return null;
+      }
+      if (s_logger.isLoggable(Level.FINER)) {
+        s_logger.log(Level.FINER, "encoded  msg:" + m_header.getMessage() + " size:" + data.size()
+            + (compressed ? " compressed from:" + m_sink.size() : ""));
+      }
+      return data;
+    }
+
+    private void release() {
+      if (m_plain != null) {
+        m_plain.release();
+      }
+      if (m_compressed != null) {
+        m_compressed.release();
+      }
     }
-    m_writer.enque(data, to);
   }
 
-  private void write(final MessageHeader header, final ObjectOutputStream out, final SocketChannel remote)
-      throws IOException {
+  /**
+   * @param compact
+   *        whether invocations are written in the compact encoding
+   * @param names
+   *        the remote names of the channel, or null to write remote names in full
+   */
+  private void write(final MessageHeader header, final ObjectOutputStream out, final SocketChannel remote,
+      final boolean compact, final RemoteNameTable names) throws IOException {
     if (header.getFrom() == null) {
       throw new IllegalArgumentException("null from");
     }
@@ -83,7 +324,11 @@ public class Encoder {
     }
     final byte type = Decoder.getType(header.getMessage());
     out.write(type);
-    if (type != Byte.MAX_VALUE) {
+    if (compact && header.getMessage() instanceof Invoke) {
+      ((Invoke) header.getMessage()).writeCompact(out, names);
+    } else if (compact && header.getMessage() instanceof InvocationResults) {
+      ((InvocationResults) header.getMessage()).writeCompact(out);
+    } else if (type != Byte.MAX_VALUE) {
       ((Externalizable) header.getMessage()).writeExternal(out);
     } else {
       out.writeObject(header.getMessage());
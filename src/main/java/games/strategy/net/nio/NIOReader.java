@@ -15,9 +15,12 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.IntSupplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import games.strategy.net.MessengerMetrics;
+
 /**
  * A thread that reads socket data using NIO from a collection of sockets.<br>
  * Data is read in packets, and placed in the output queye.<br>
@@ -33,9 +36,17 @@ public class NIOReader {
   private final Object socketsToAddMutex = new Object();
   private final List<SocketChannel> socketsToAdd = new ArrayList<>();
   private long totalBytes;
+  // where packets get their content buffers from, null to allocate them
+  private final ByteBufferPool bufferPool;
+  private final IntSupplier queueDepth = outputQueue::size;
 
   public NIOReader(final IErrorReporter reporter, final String threadSuffix) {
+    this(reporter, threadSuffix, null);
+  }
+
+  NIOReader(final IErrorReporter reporter, final String threadSuffix, final ByteBufferPool bufferPool) {
     errorReporter = reporter;
+    this.bufferPool = bufferPool;
     try {
       selector = Selector.open();
     } catch (final IOException e) {
@@ -44,9 +55,11 @@ public class NIOReader {
     }
     final Thread t = new Thread(() -> loop(), "NIO Reader - " + threadSuffix);
     t.start();
+    MessengerMetrics.getInstance().addQueue("NIO Reader - " + threadSuffix, queueDepth);
   }
 
   public void shutDown() {
+    MessengerMetrics.getInstance().removeQueue(queueDepth);
     running = false;
     try {
       selector.close();
@@ -161,7 +174,7 @@ public class NIOReader {
     if (reading.containsKey(channel)) {
       return reading.get(channel);
     }
-    final SocketReadData packet = new SocketReadData(channel);
+    final SocketReadData packet = new SocketReadData(channel, bufferPool);
     reading.put(channel, packet);
     return packet;
   }
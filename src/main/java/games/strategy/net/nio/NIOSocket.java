@@ -3,12 +3,14 @@ package games.strategy.net.nio;
 import java.io.IOException;
 import java.net.Socket;
 import java.nio.channels.SocketChannel;
+import java.util.Collection;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import games.strategy.net.INode;
 import games.strategy.net.IObjectStreamFactory;
 import games.strategy.net.MessageHeader;
+import games.strategy.net.MessengerMetrics;
 
 /**
  * The threads needed for a group of sockets using NIO.
@@ -25,13 +27,15 @@ public class NIOSocket implements IErrorReporter {
   private final NIOWriter m_writer;
   private final NIOReader m_reader;
   private final NIOSocketListener m_listener;
+  // the buffers of the packets read and written
+  private final ByteBufferPool m_bufferPool = new ByteBufferPool();
 
   public NIOSocket(final IObjectStreamFactory factory, final NIOSocketListener listener, final String name) {
     m_listener = listener;
     m_writer = new NIOWriter(this, name);
-    m_reader = new NIOReader(this, name);
+    m_reader = new NIOReader(this, name, m_bufferPool);
     m_decoder = new Decoder(this, m_reader, this, factory, name);
-    m_encoder = new Encoder(this, m_writer, factory);
+    m_encoder = new Encoder(this, m_writer, factory, m_bufferPool);
   }
 
   INode getLocalNode() {
@@ -62,6 +66,19 @@ public class NIOSocket implements IErrorReporter {
     m_encoder.write(to, header);
   }
 
+  /**
+   * Send a broadcast to all the given channels, encoding it only once.
+   */
+  public void send(final Collection<SocketChannel> to, final MessageHeader header) {
+    if (to == null) {
+      throw new IllegalArgumentException("to cant be null!");
+    }
+    if (header == null) {
+      throw new IllegalArgumentException("header cant be null");
+    }
+    m_encoder.write(to, header);
+  }
+
   /**
    * Add this channel.
    * The channel will either be unquarantined, or an error will be reported
@@ -75,6 +92,23 @@ public class NIOSocket implements IErrorReporter {
     m_reader.add(channel);
   }
 
+  /**
+   * The peer of the channel and this side both said during login they can read compressed packets.
+   */
+  void setCompressing(final SocketChannel channel) {
+    m_encoder.setCompressing(channel);
+    m_decoder.setDecompressing(channel);
+  }
+
+  /**
+   * The peer of the channel and this side both sent the same protocol version during login, invocations to and from
+   * it are written in the compact encoding.
+   */
+  void setCompactInvocations(final SocketChannel channel) {
+    m_encoder.setCompactInvocations(channel);
+    m_decoder.setCompactInvocations(channel);
+  }
+
   void unquarantine(final SocketChannel channel, final QuarantineConversation conversation) {
     m_listener.socketUnqaurantined(channel, conversation);
   }
@@ -89,6 +123,10 @@ public class NIOSocket implements IErrorReporter {
    * Close the channel, and clean up any data associated with it
    */
   public void close(final SocketChannel channel) {
+    final INode node = getRemoteNode(channel);
+    if (node != null) {
+      MessengerMetrics.getInstance().removeNode(node);
+    }
     try {
       final Socket s = channel.socket();
       if (!s.isInputShutdown()) {
@@ -105,6 +143,7 @@ public class NIOSocket implements IErrorReporter {
       s_logger.log(Level.FINE, "error closing channel", e1);
     }
     m_decoder.closed(channel);
+    m_encoder.closed(channel);
     m_writer.closed(channel);
     m_reader.closed(channel);
   }
@@ -3,37 +3,58 @@ package games.strategy.net.nio;
 import java.io.IOException;
 import java.net.Socket;
 import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import games.strategy.net.MessengerMetrics;
+
 /**
  * A thread that writes socket data using NIO .<br>
  * Data is written in packets that are enqued on our buffer.
  * Packets are sent to the sockets in the order that they are received.
+ * <p>
+ * All the packets waiting for a channel are written with one gathering write. When a channel that had nothing to
+ * write gets a packet, the writer can linger a little before writing it, so that the rest of a burst of small messages
+ * goes out in the same write.
  */
 public class NIOWriter {
   private static final Logger s_logger = Logger.getLogger(NIOWriter.class.getName());
+  /**
+   * System property for the default linger, in microseconds.
+   */
+  public static final String LINGER_MICROS_PROPERTY = "triplea.nio.lingerMicros";
+  // the most packets put in one write, the OS limits how many buffers one write can take
+  private static final int MAX_PACKETS_PER_WRITE = 256;
   private final Selector m_selector;
   private final IErrorReporter m_errorReporter;
   // this is the data we are writing
   private final Map<SocketChannel, List<SocketWriteData>> m_writing =
       new HashMap<>();
-  // these are the sockets we arent selecting on, but should now
-  private List<SocketChannel> m_socketsToWake = new ArrayList<>();
+  // these are the sockets we arent selecting on, but should now, with the time they got data to write
+  private Map<SocketChannel, Long> m_socketsToWake = new LinkedHashMap<>();
   // the writing thread and threads adding data to write synchronize on this lock
   private final Object m_mutex = new Object();
   private long m_totalBytes = 0;
   private volatile boolean m_running = true;
+  private volatile long m_lingerNanos = TimeUnit.MICROSECONDS.toNanos(Long.getLong(LINGER_MICROS_PROPERTY, 0));
+  private final Map<SocketChannel, WriteStats> m_stats = new ConcurrentHashMap<>();
+  private final IntSupplier m_queueDepth = this::getQueuedPackets;
 
   public NIOWriter(final IErrorReporter reporter, final String threadSuffix) {
     m_errorReporter = reporter;
@@ -45,9 +66,43 @@ public class NIOWriter {
     }
     final Thread t = new Thread(() -> loop(), "NIO Writer - " + threadSuffix);
     t.start();
+    MessengerMetrics.getInstance().addQueue("NIO Writer - " + threadSuffix, m_queueDepth);
+  }
+
+  /**
+   * How long to wait before writing to a channel that had nothing to write, so more packets can go in the same write.
+   * 0 writes straight away. The wait is at least a millisecond, the selector can not wait any less.
+   */
+  public void setLingerMicros(final long lingerMicros) {
+    if (lingerMicros < 0) {
+      throw new IllegalArgumentException("Linger can not be negative:" + lingerMicros);
+    }
+    m_lingerNanos = TimeUnit.MICROSECONDS.toNanos(lingerMicros);
+    m_selector.wakeup();
+  }
+
+  /**
+   * @return the packets and bytes written to the channel so far, or null if nothing has been written to it
+   */
+  public WriteStats getStats(final SocketChannel channel) {
+    return m_stats.get(channel);
+  }
+
+  /**
+   * @return the packets waiting to be written, over all channels.
+   */
+  public int getQueuedPackets() {
+    synchronized (m_mutex) {
+      int rVal = 0;
+      for (final List<SocketWriteData> packets : m_writing.values()) {
+        rVal += packets.size();
+      }
+      return rVal;
+    }
   }
 
   public void shutDown() {
+    MessengerMetrics.getInstance().removeQueue(m_queueDepth);
     m_running = false;
     try {
       m_selector.close();
@@ -56,14 +111,31 @@ public class NIOWriter {
     }
   }
 
-  private void addNewSocketsToSelector() {
-    List<SocketChannel> socketsToWriteCopy;
+  /**
+   * Registers the channels that got data to write and have lingered long enough.
+   *
+   * @return how long until the next channel is due in milliseconds, or 0 if none are waiting
+   */
+  private long addNewSocketsToSelector() {
+    final List<SocketChannel> socketsToWriteCopy = new ArrayList<>();
+    long nextDue = 0;
     synchronized (m_mutex) {
       if (m_socketsToWake.isEmpty()) {
-        return;
+        return 0;
+      }
+      final long now = System.nanoTime();
+      final Iterator<Map.Entry<SocketChannel, Long>> iter = m_socketsToWake.entrySet().iterator();
+      while (iter.hasNext()) {
+        final Map.Entry<SocketChannel, Long> entry = iter.next();
+        final long waited = now - entry.getValue();
+        if (waited >= m_lingerNanos) {
+          socketsToWriteCopy.add(entry.getKey());
+          iter.remove();
+        } else {
+          final long due = Math.max(1, TimeUnit.NANOSECONDS.toMillis(m_lingerNanos - waited + 999999));
+          nextDue = nextDue == 0 ? due : Math.min(nextDue, due);
+        }
       }
-      socketsToWriteCopy = m_socketsToWake;
-      m_socketsToWake = new ArrayList<>();
     }
     for (final SocketChannel channel : socketsToWriteCopy) {
       try {
@@ -72,16 +144,18 @@ public class NIOWriter {
         s_logger.log(Level.FINEST, "socket already closed", e);
       }
     }
+    return nextDue;
   }
 
   private void loop() {
+    long selectTimeout = 0;
     while (m_running) {
       try {
         if (s_logger.isLoggable(Level.FINEST)) {
           s_logger.finest("selecting...");
         }
         try {
-          m_selector.select();
+          m_selector.select(selectTimeout);
         }
         // exceptions can be thrown here, nothing we can do
         // http://bugs.sun.com/bugdatabase/view_bug.do?bug_id=4729342
@@ -92,7 +166,7 @@ public class NIOWriter {
           continue;
         }
         // select any new sockets that can be written to
-        addNewSocketsToSelector();
+        selectTimeout = addNewSocketsToSelector();
         final Set<SelectionKey> selected = m_selector.selectedKeys();
         if (s_logger.isLoggable(Level.FINEST)) {
           s_logger.finest("selected:" + selected.size());
@@ -103,30 +177,10 @@ public class NIOWriter {
           iter.remove();
           if (key.isValid() && key.isWritable()) {
             final SocketChannel channel = (SocketChannel) key.channel();
-            final SocketWriteData packet = getData(channel);
-            if (packet != null) {
+            final List<SocketWriteData> packets = getData(channel);
+            if (!packets.isEmpty()) {
               try {
-                if (s_logger.isLoggable(Level.FINEST)) {
-                  s_logger.finest("writing packet:" + packet + " to:" + channel.socket().getRemoteSocketAddress());
-                }
-                final boolean done = packet.write(channel);
-                if (done) {
-                  m_totalBytes += packet.size();
-                  if (s_logger.isLoggable(Level.FINE)) {
-                    String remote = "null";
-                    final Socket s = channel.socket();
-                    SocketAddress sa = null;
-                    if (s != null) {
-                      sa = s.getRemoteSocketAddress();
-                    }
-                    if (sa != null) {
-                      remote = sa.toString();
-                    }
-                    s_logger.log(Level.FINE, " done writing to:" + remote + " size:" + packet.size() + " writeCalls;"
-                        + packet.getWriteCalls() + " total:" + m_totalBytes);
-                  }
-                  removeLast(channel);
-                }
+                write(channel, packets);
               } catch (final Exception e) {
                 s_logger.log(Level.FINER, "exception writing", e);
                 m_errorReporter.error(channel, e);
@@ -148,6 +202,49 @@ public class NIOWriter {
     }
   }
 
+  /**
+   * Writes the packets with one gathering write, and removes the ones that were written completely.
+   */
+  private void write(final SocketChannel channel, final List<SocketWriteData> packets) throws IOException {
+    if (s_logger.isLoggable(Level.FINEST)) {
+      s_logger.finest("writing packets:" + packets + " to:" + channel.socket().getRemoteSocketAddress());
+    }
+    final ByteBuffer[] buffers = new ByteBuffer[packets.size() * 2];
+    for (int i = 0; i < packets.size(); i++) {
+      final SocketWriteData packet = packets.get(i);
+      packet.countWriteCall();
+      System.arraycopy(packet.getBuffers(), 0, buffers, i * 2, 2);
+    }
+    final long count = channel.write(buffers);
+    if (count == -1) {
+      throw new IOException("triplea: end of stream detected");
+    }
+    int done = 0;
+    while (done < packets.size() && packets.get(done).isWritten()) {
+      final SocketWriteData packet = packets.get(done);
+      m_totalBytes += packet.size();
+      if (s_logger.isLoggable(Level.FINE)) {
+        String remote = "null";
+        final Socket s = channel.socket();
+        SocketAddress sa = null;
+        if (s != null) {
+          sa = s.getRemoteSocketAddress();
+        }
+        if (sa != null) {
+          remote = sa.toString();
+        }
+        s_logger.log(Level.FINE, " done writing to:" + remote + " size:" + packet.size() + " writeCalls;"
+            + packet.getWriteCalls() + " total:" + m_totalBytes);
+      }
+      done++;
+    }
+    removeFirst(channel, done);
+    for (int i = 0; i < done; i++) {
+      packets.get(i).release();
+    }
+    m_stats.computeIfAbsent(channel, c -> new WriteStats()).add(done, count);
+  }
+
   /**
    * Remove the data for this channel
    */
@@ -158,17 +255,22 @@ public class NIOWriter {
   private void removeAll(final SocketChannel to) {
     synchronized (m_mutex) {
       m_writing.remove(to);
+      m_socketsToWake.remove(to);
     }
+    m_stats.remove(to);
   }
 
-  private void removeLast(final SocketChannel to) {
+  private void removeFirst(final SocketChannel to, final int count) {
+    if (count == 0) {
+      return;
+    }
     synchronized (m_mutex) {
       final List<SocketWriteData> values = m_writing.get(to);
       if (values == null) {
         s_logger.log(Level.SEVERE, "NO socket data to:" + to + " all:" + values);
         return;
       }
-      values.remove(0);
+      values.subList(0, count).clear();
       // remove empty lists, so we can detect that we need to wake up the socket
       if (values.isEmpty()) {
         m_writing.remove(to);
@@ -176,16 +278,16 @@ public class NIOWriter {
     }
   }
 
-  private SocketWriteData getData(final SocketChannel to) {
+  /**
+   * @return the packets waiting to be written to the channel, at most MAX_PACKETS_PER_WRITE of them
+   */
+  private List<SocketWriteData> getData(final SocketChannel to) {
     synchronized (m_mutex) {
-      if (!m_writing.containsKey(to)) {
-        return null;
-      }
       final List<SocketWriteData> values = m_writing.get(to);
-      if (values.isEmpty()) {
-        return null;
+      if (values == null || values.isEmpty()) {
+        return Collections.emptyList();
       }
-      return values.get(0);
+      return new ArrayList<>(values.subList(0, Math.min(values.size(), MAX_PACKETS_PER_WRITE)));
     }
   }
 
@@ -200,9 +302,55 @@ public class NIOWriter {
         final List<SocketWriteData> values = new ArrayList<>();
         values.add(data);
         m_writing.put(channel, values);
-        m_socketsToWake.add(channel);
+        m_socketsToWake.put(channel, System.nanoTime());
         m_selector.wakeup();
       }
     }
   }
+
+  /**
+   * Counts of what was written to one channel, to see how well packets are being coalesced.
+   */
+  public static class WriteStats {
+    private volatile long m_packets;
+    private volatile long m_bytes;
+    private volatile long m_writes;
+
+    // only the writer thread adds
+    private void add(final int packets, final long bytes) {
+      m_packets += packets;
+      m_bytes += bytes;
+      m_writes++;
+    }
+
+    public long getPackets() {
+      return m_packets;
+    }
+
+    public long getBytes() {
+      return m_bytes;
+    }
+
+    /**
+     * @return how many writes (system calls) were made.
+     */
+    public long getWrites() {
+      return m_writes;
+    }
+
+    public double getPacketsPerWrite() {
+      final long writes = m_writes;
+      return writes == 0 ? 0 : (double) m_packets / writes;
+    }
+
+    public double getBytesPerWrite() {
+      final long writes = m_writes;
+      return writes == 0 ? 0 : (double) m_bytes / writes;
+    }
+
+    @Override
+    public String toString() {
+      return "packets:" + m_packets + " bytes:" + m_bytes + " writes:" + m_writes;
+    }
+  }
 }
@@ -0,0 +1,112 @@
+package games.strategy.net.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compression of large packets.
+ * <p>
+ * A compressed packet is flagged by writing COMPRESSED_MAGIC instead of SocketReadData.MAGIC in the upper bits of its
+ * size. Its content is the size of the uncompressed data as 32 bits, then the data compressed with Deflater at its
+ * fastest level. Older versions do not know the flag and drop the connection if they read it, so packets are only
+ * compressed for a peer that said during login that it can read them. Both sides add their capability to the login
+ * conversation in a way older versions ignore: the client as an extra property in its challenge response, the server
+ * as an extra element after the names it sends.
+ * <p>
+ * Small packets would not get smaller, so only packets of at least the threshold are compressed, and only if
+ * compressing saves something.
+ * <p>
+ * The uncompressed size is chosen by the peer, so it is only trusted as an upper bound: compressed packets are only
+ * read from peers that negotiated compression and have logged in, and are inflated into a buffer that grows with the
+ * data actually inflated, up to SocketReadData.MAX_MESSAGE_SIZE like any other packet.
+ */
+final class PacketCompression {
+  static final int COMPRESSED_MAGIC = 0x9c000000;
+  /**
+   * The challenge response property, and the value sent after the names, saying compressed packets can be read.
+   */
+  static final String LOGIN_PROPERTY = "Packet Compression";
+  static final String CAPABILITY = "deflate";
+  /**
+   * System property for the smallest packet, in bytes, to compress.
+   */
+  static final String THRESHOLD_PROPERTY = "triplea.nio.compressionThreshold";
+  static final int THRESHOLD = Integer.getInteger(THRESHOLD_PROPERTY, 16 * 1024);
+  // the data of a compressed packet is limited like that of an uncompressed one
+  static final int MAX_UNCOMPRESSED_SIZE = SocketReadData.MAX_MESSAGE_SIZE;
+  private static final ThreadLocal<Deflater> s_deflaters =
+      ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+  private static final ThreadLocal<Inflater> s_inflaters = ThreadLocal.withInitial(Inflater::new);
+
+  private PacketCompression() {}
+
+  /**
+   * @return the content of a compressed packet, or null if the data should be sent uncompressed
+   */
+  static ByteArrayOutputStream2 compress(final byte[] data, final int count) {
+    if (count < THRESHOLD || count > MAX_UNCOMPRESSED_SIZE) {
+      return null;
+    }
+    final Deflater deflater = s_deflaters.get();
+    deflater.reset();
+    deflater.setInput(data, 0, count);
+    deflater.finish();
+    final ByteArrayOutputStream2 out = new ByteArrayOutputStream2(count / 2 + 64);
+    out.write(count >>> 24);
+    out.write(count >>> 16);
+    out.write(count >>> 8);
+    out.write(count);
+    final byte[] chunk = new byte[16 * 1024];
+    while (!deflater.finished()) {
+      final int written = deflater.deflate(chunk);
+      out.write(chunk, 0, written);
+      // not worth it
+      if (out.size() >= count || out.size() > SocketReadData.MAX_MESSAGE_SIZE) {
+        return null;
+      }
+    }
+    return out;
+  }
+
+  /**
+   * @return the uncompressed data of a compressed packet's content
+   */
+  static ByteBuffer decompress(final ByteBuffer content) throws IOException {
+    if (content.remaining() < 4) {
+      throw new IOException("Compressed packet too short");
+    }
+    final int size = content.getInt();
+    if (size <= 0 || size > MAX_UNCOMPRESSED_SIZE) {
+      throw new IOException("Invalid uncompressed packet size:" + size);
+    }
+    final byte[] compressed = new byte[content.remaining()];
+    content.get(compressed);
+    final Inflater inflater = s_inflaters.get();
+    inflater.reset();
+    inflater.setInput(compressed);
+    // grow with what is inflated rather than trusting the size
+    final ByteArrayOutputStream2 out = new ByteArrayOutputStream2(Math.min(size, compressed.length * 4 + 64));
+    final byte[] chunk = new byte[16 * 1024];
+    try {
+      while (!inflater.finished()) {
+        final int count = inflater.inflate(chunk);
+        if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+          break;
+        }
+        if (out.size() + count > size) {
+          throw new IOException("Compressed packet holds more than " + size + " bytes");
+        }
+        out.write(chunk, 0, count);
+      }
+    } catch (final DataFormatException e) {
+      throw new IOException("Invalid compressed packet", e);
+    }
+    if (out.size() != size) {
+      throw new IOException("Compressed packet does not hold " + size + " bytes");
+    }
+    return ByteBuffer.wrap(out.getBuffer(), 0, out.size());
+  }
+}
@@ -11,6 +11,14 @@ package games.strategy.net.nio;
  * <p>
  */
 public abstract class QuarantineConversation {
+  /**
+   * The challenge response property, and the value sent after the names, giving the version of how invocations are
+   * encoded. When both sides send this version they write remote method calls and their results in the compact
+   * encoding, otherwise, as with older versions that send nothing, they keep serializing them.
+   */
+  static final String PROTOCOL_PROPERTY = "Protocol Version";
+  static final String PROTOCOL_VERSION = "2";
+
   public static enum ACTION {
     NONE, TERMINATE, UNQUARANTINE
   }
@@ -3,6 +3,7 @@ package games.strategy.net.nio;
 import java.io.Serializable;
 import java.net.InetSocketAddress;
 import java.nio.channels.SocketChannel;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -36,6 +37,8 @@ public class ServerQuarantineConversation extends QuarantineConversation {
   private String m_remoteName;
   private String m_remoteMac;
   private Map<String, String> challenge;
+  private boolean m_remoteCanDecompress = false;
+  private boolean m_remoteReadsCompactInvocations = false;
   private final ServerMessenger m_serverMessenger;
 
   public ServerQuarantineConversation(final ILoginValidator validator, final SocketChannel channel,
@@ -83,10 +86,18 @@ public class ServerQuarantineConversation extends QuarantineConversation {
           m_step = STEP.CHALLENGE;
           return ACTION.NONE;
         case CHALLENGE:
-          final Map<String, String> response = (Map<String, String>) o;
+          Map<String, String> response = (Map<String, String>) o;
           if (s_logger.isLoggable(Level.FINER)) {
             s_logger.log(Level.FINER, "read challenge response:" + response);
           }
+          // newer clients say what they can do in the response, take it out before it is validated
+          if (response != null && (response.containsKey(PacketCompression.LOGIN_PROPERTY)
+              || response.containsKey(PROTOCOL_PROPERTY))) {
+            response = new HashMap<>(response);
+            m_remoteCanDecompress =
+                PacketCompression.CAPABILITY.equals(response.remove(PacketCompression.LOGIN_PROPERTY));
+            m_remoteReadsCompactInvocations = PROTOCOL_VERSION.equals(response.remove(PROTOCOL_PROPERTY));
+          }
           if (m_validator != null) {
             final String error = m_validator.verifyConnection(challenge, response, m_remoteName, m_remoteMac,
                 m_channel.socket().getRemoteSocketAddress());
@@ -106,8 +117,16 @@ public class ServerQuarantineConversation extends QuarantineConversation {
           if (s_logger.isLoggable(Level.FINER)) {
             s_logger.log(Level.FINER, "Sending name:" + m_remoteName);
           }
-          // send the node its name and our name
-          send(new String[] {m_remoteName, m_serverMessenger.getLocalNode().getName()});
+          // send the node its name and our name,
+          // that we can read compressed packets and our protocol version, older clients only read the names
+          send(new String[] {m_remoteName, m_serverMessenger.getLocalNode().getName(), PacketCompression.CAPABILITY,
+              PROTOCOL_VERSION});
+          if (m_remoteCanDecompress) {
+            m_socket.setCompressing(m_channel);
+          }
+          if (m_remoteReadsCompactInvocations) {
+            m_socket.setCompactInvocations(m_channel);
+          }
           // send the node its and our address as we see it
           send(new InetSocketAddress[] {(InetSocketAddress) m_channel.socket().getRemoteSocketAddress(),
               m_serverMessenger.getLocalNode().getSocketAddress()});
@@ -31,9 +31,18 @@ class SocketReadData {
   private final SocketChannel channel;
   private final int number = counter.incrementAndGet();
   private int readCalls;
+  // whether the content is compressed, see PacketCompression
+  private boolean compressed;
+  // where the content buffer comes from, null to allocate it
+  private final ByteBufferPool bufferPool;
 
   public SocketReadData(final SocketChannel channel) {
+    this(channel, null);
+  }
+
+  SocketReadData(final SocketChannel channel, final ByteBufferPool bufferPool) {
     this.channel = channel;
+    this.bufferPool = bufferPool;
   }
 
   /**
@@ -61,7 +70,8 @@ class SocketReadData {
       if (!sizeBuffer.hasRemaining()) {
         sizeBuffer.flip();
         targetSize = sizeBuffer.getInt();
-        if ((targetSize & 0xFF000000) != MAGIC) {
+        compressed = (targetSize & 0xFF000000) == PacketCompression.COMPRESSED_MAGIC;
+        if ((targetSize & 0xFF000000) != MAGIC && !compressed) {
           throw new IOException("Did not write magic!");
         }
         targetSize = targetSize & 0x00ffffff;
@@ -69,7 +79,7 @@ class SocketReadData {
         if (targetSize <= 0 || targetSize > MAX_MESSAGE_SIZE) {
           throw new IOException("Invalid triplea packet size:" + targetSize);
         }
-        contentBuffer = ByteBuffer.allocate(targetSize);
+        contentBuffer = bufferPool == null ? ByteBuffer.allocate(targetSize) : bufferPool.acquire(targetSize);
         sizeBuffer = null;
       } else {
         // we ddnt read all 4 bytes, return
@@ -96,13 +106,36 @@ class SocketReadData {
    * This method can only be called once.
    */
   public byte[] getData() {
-    final byte[] rVal = new byte[contentBuffer.capacity()];
+    final byte[] rVal = new byte[targetSize];
     contentBuffer.flip();
     contentBuffer.get(rVal);
-    contentBuffer = null;
+    release();
     return rVal;
   }
 
+  /**
+   * Get the data as a buffer, positioned at the start of the data.
+   * Call release once done with it, the buffer may be handed out again after that.
+   */
+  ByteBuffer getContent() {
+    contentBuffer.flip();
+    return contentBuffer;
+  }
+
+  /**
+   * Give the content buffer back to the pool.
+   */
+  void release() {
+    if (contentBuffer != null && bufferPool != null) {
+      bufferPool.release(contentBuffer);
+    }
+    contentBuffer = null;
+  }
+
+  boolean isCompressed() {
+    return compressed;
+  }
+
   public int size() {
     // add 4 to count the bytes used to send our size
     return targetSize + 4;
@@ -12,32 +12,80 @@ import java.util.logging.Logger;
  * <p>
  * Packets do not correspond to ip packets. A packet is just the data for one serialized object.
  * <p>
- * The packet is written over the network as 32 bits indicating the size in bytes, then the data itself.
+ * The packet is written over the network as 32 bits indicating the size in bytes, then the data itself. Both are
+ * written with one gathering write.
  */
 public class SocketWriteData {
   private static final Logger s_logger = Logger.getLogger(SocketWriteData.class.getName());
   private static final AtomicInteger s_counter = new AtomicInteger();
   private final ByteBuffer m_size;
   private final ByteBuffer m_content;
+  // the size and content, for writing both with one gathering write
+  private final ByteBuffer[] m_buffers;
   private final int m_number = s_counter.incrementAndGet();
   // how many times we called write before we finished writing ourselves
   private int m_writeCalls = 0;
+  // where the content came from, null if it is not pooled
+  private final ByteBufferPool m_pool;
+  // how many packets still share the content, the last one to be released gives it back to the pool
+  private final AtomicInteger m_references;
+  private boolean m_released = false;
 
-  public SocketWriteData(final byte[] data, int count) {
-    m_content = ByteBuffer.allocate(count);
-    m_content.put(data, 0, count);
-    m_size = ByteBuffer.allocate(4);
+  public SocketWriteData(final byte[] data, final int count) {
+    this(data, count, null);
+  }
+
+  /**
+   * Copies the data into a buffer from the pool, which is given back once the packet is released.
+   */
+  SocketWriteData(final byte[] data, final int count, final ByteBufferPool pool) {
+    this(data, count, pool, false);
+  }
+
+  /**
+   * @param compressed
+   *        whether the data is the content of a compressed packet, see PacketCompression
+   */
+  SocketWriteData(final byte[] data, int count, final ByteBufferPool pool, final boolean compressed) {
     if (count < 0 || count > SocketReadData.MAX_MESSAGE_SIZE) {
       throw new IllegalStateException("Invalid message size:" + count);
     }
-    count = count ^ SocketReadData.MAGIC;
+    m_pool = pool;
+    m_content = pool == null ? ByteBuffer.allocate(count) : pool.acquire(count);
+    m_content.put(data, 0, count);
+    m_size = ByteBuffer.allocate(4);
+    count = count ^ (compressed ? PacketCompression.COMPRESSED_MAGIC : SocketReadData.MAGIC);
     m_size.putInt(count);
     m_size.flip();
     m_content.flip();
+    m_buffers = new ByteBuffer[] {m_size, m_content};
+    m_references = new AtomicInteger(1);
+  }
+
+  private SocketWriteData(final ByteBuffer size, final ByteBuffer content, final ByteBufferPool pool,
+      final AtomicInteger references) {
+    m_size = size;
+    m_content = content;
+    m_buffers = new ByteBuffer[] {m_size, m_content};
+    m_pool = pool;
+    m_references = references;
+  }
+
+  /**
+   * Makes a packet with the same bytes, for sending one encoded message to several channels.
+   * The bytes are shared, each packet only keeps its own position in them. Each packet must be released.
+   */
+  public SocketWriteData duplicate() {
+    final ByteBuffer size = m_size.duplicate();
+    size.rewind();
+    final ByteBuffer content = m_content.duplicate();
+    content.rewind();
+    m_references.incrementAndGet();
+    return new SocketWriteData(size, content, m_pool, m_references);
   }
 
   public int size() {
-    return m_size.capacity() + m_content.capacity();
+    return m_size.limit() + m_content.limit();
   }
 
   public int getWriteCalls() {
@@ -49,31 +97,49 @@ public class SocketWriteData {
    */
   public boolean write(final SocketChannel channel) throws IOException {
     m_writeCalls++;
-    if (m_size.hasRemaining()) {
-      final int count = channel.write(m_size);
-      if (count == -1) {
-        throw new IOException("triplea: end of stream detected");
-      }
-      if (s_logger.isLoggable(Level.FINEST)) {
-        s_logger.finest("wrote size_buffer bytes:" + count);
-      }
-      // we could not write everything
-      if (m_size.hasRemaining()) {
-        return false;
-      }
-    }
-    final int count = channel.write(m_content);
+    final long count = channel.write(m_buffers);
     if (count == -1) {
       throw new IOException("triplea: end of stream detected");
     }
     if (s_logger.isLoggable(Level.FINEST)) {
-      s_logger.finest("wrote content bytes:" + count);
+      s_logger.finest("wrote bytes:" + count);
     }
     return !m_content.hasRemaining();
   }
 
+  /**
+   * The size and content buffers, for writing several packets with one gathering write.
+   */
+  ByteBuffer[] getBuffers() {
+    return m_buffers;
+  }
+
+  /**
+   * Count a write this packet took part in.
+   */
+  void countWriteCall() {
+    m_writeCalls++;
+  }
+
+  boolean isWritten() {
+    return !m_content.hasRemaining();
+  }
+
+  /**
+   * Called once the packet has been written, so the content can go back to the pool when no other packet shares it.
+   */
+  void release() {
+    if (m_released) {
+      return;
+    }
+    m_released = true;
+    if (m_references.decrementAndGet() == 0 && m_pool != null) {
+      m_pool.release(m_content);
+    }
+  }
+
   @Override
   public String toString() {
-    return "<id:" + m_number + " size:" + m_content.capacity() + ">";
+    return "<id:" + m_number + " size:" + m_content.limit() + ">";
   }
 }
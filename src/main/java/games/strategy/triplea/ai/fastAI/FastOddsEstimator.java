@@ -13,6 +13,7 @@ import games.strategy.engine.data.Unit;
 import games.strategy.triplea.ai.proAI.util.ProBattleUtils;
 import games.strategy.triplea.ai.proAI.util.ProPurchaseUtils;
 import games.strategy.triplea.oddsCalculator.ta.AggregateResults;
+import games.strategy.triplea.oddsCalculator.ta.BattleSpecification;
 import games.strategy.triplea.oddsCalculator.ta.IOddsCalculator;
 import games.strategy.triplea.oddsCalculator.ta.OddsCalculatorListener;
 
@@ -64,6 +65,17 @@ public class FastOddsEstimator implements IOddsCalculator {
     return calculate();
   }
 
+  @Override
+  public List<AggregateResults> calculate(final List<BattleSpecification> battles) {
+    final List<AggregateResults> results = new ArrayList<>(battles.size());
+    for (final BattleSpecification battle : battles) {
+      results.add(setCalculateDataAndCalculate(battle.getAttacker(), battle.getDefender(), battle.getLocation(),
+          battle.getAttackingUnits(), battle.getDefendingUnits(), battle.getBombardingUnits(),
+          battle.getTerritoryEffects(), battle.getRunCount()));
+    }
+    return results;
+  }
+
   @Override
   public int getRunCount() {
     return 1;
@@ -109,6 +121,16 @@ public class FastOddsEstimator implements IOddsCalculator {
 
   }
 
+  @Override
+  public void setConvergenceTolerance(final double tolerance) {
+
+  }
+
+  @Override
+  public void setTimeLimit(final long timeLimitMillis) {
+
+  }
+
   @Override
   public void cancel() {
 
@@ -46,7 +46,9 @@ import games.strategy.triplea.delegate.remote.IAbstractPlaceDelegate;
 import games.strategy.triplea.delegate.remote.IMoveDelegate;
 import games.strategy.triplea.delegate.remote.IPurchaseDelegate;
 import games.strategy.triplea.delegate.remote.ITechDelegate;
+import games.strategy.triplea.oddsCalculator.ta.CachingOddsCalculator;
 import games.strategy.triplea.oddsCalculator.ta.ConcurrentOddsCalculator;
+import games.strategy.triplea.oddsCalculator.ta.ExactOddsCalculator;
 import games.strategy.triplea.oddsCalculator.ta.IOddsCalculator;
 import games.strategy.triplea.ui.TripleAFrame;
 import games.strategy.util.Match;
@@ -97,7 +99,8 @@ public class ProAI extends AbstractAI {
   }
 
   protected void initializeCalc() {
-    calc = new ProOddsCalculator(concurrentCalc);
+    // repeated battles come from the cache, plain battles are worked out exactly, the rest are simulated
+    calc = new ProOddsCalculator(new CachingOddsCalculator(new ExactOddsCalculator(concurrentCalc)));
   }
 
   public ProOddsCalculator getCalc() {
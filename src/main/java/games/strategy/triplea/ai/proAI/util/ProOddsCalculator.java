@@ -23,11 +23,28 @@ import games.strategy.util.Match;
  */
 public class ProOddsCalculator {
 
+  /**
+   * System property for the convergence tolerance of the AI's battle calcs, see
+   * IOddsCalculator.setConvergenceTolerance. Off unless set: the AI compares win % to thresholds only a few percent
+   * apart and fights at most 100 battles per calc, too few for any interval that tight, so stopping early would only
+   * ever trade its decisions for speed.
+   */
+  public static final String CONVERGENCE_TOLERANCE_PROPERTY = "triplea.proai.convergenceTolerance";
+
   private final IOddsCalculator calc;
   private boolean isCanceled = false;
 
   public ProOddsCalculator(final IOddsCalculator calc) {
     this.calc = calc;
+    calc.setConvergenceTolerance(getConvergenceTolerance());
+  }
+
+  private static double getConvergenceTolerance() {
+    try {
+      return Double.parseDouble(System.getProperty(CONVERGENCE_TOLERANCE_PROPERTY, "0"));
+    } catch (final NumberFormatException e) {
+      return 0;
+    }
   }
 
   public void setData(final GameData data) {
@@ -220,6 +220,9 @@ public class AggregateResults implements Serializable {
     return count / m_results.size();
   }
 
+  /**
+   * The number of battles actually fought, which is less than the run count when the calculation stopped early.
+   */
   public int getRollCount() {
     return m_results.size();
   }
@@ -48,10 +48,26 @@ public class BattleResults extends GameDataComponent {
     m_whoWon = scriptedWhoWon;
   }
 
+  /**
+   * For a battle that was not fought, but whose outcome was worked out some other way.
+   */
+  public BattleResults(final int battleRoundsFought, final List<Unit> remainingAttackingUnits,
+      final List<Unit> remainingDefendingUnits, final WhoWon whoWon, final GameData data) {
+    super(data);
+    m_battleRoundsFought = battleRoundsFought;
+    m_remainingAttackingUnits = remainingAttackingUnits;
+    m_remainingDefendingUnits = remainingDefendingUnits;
+    m_whoWon = whoWon;
+  }
+
   public void setWhoWon(final WhoWon whoWon) {
     m_whoWon = whoWon;
   }
 
+  public WhoWon getWhoWon() {
+    return m_whoWon;
+  }
+
   public List<Unit> getRemainingAttackingUnits() {
     return m_remainingAttackingUnits;
   }
@@ -0,0 +1,75 @@
+package games.strategy.triplea.oddsCalculator.ta;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+import games.strategy.engine.data.PlayerID;
+import games.strategy.engine.data.Territory;
+import games.strategy.engine.data.TerritoryEffect;
+import games.strategy.engine.data.Unit;
+
+/**
+ * One battle to calculate with {@link IOddsCalculator#calculate(java.util.List)}, holding the same things that are
+ * given to setCalculateData.
+ */
+public class BattleSpecification {
+  private final PlayerID m_attacker;
+  private final PlayerID m_defender;
+  private final Territory m_location;
+  private final Collection<Unit> m_attackingUnits;
+  private final Collection<Unit> m_defendingUnits;
+  private final Collection<Unit> m_bombardingUnits;
+  private final Collection<TerritoryEffect> m_territoryEffects;
+  private final int m_runCount;
+
+  public BattleSpecification(final PlayerID attacker, final PlayerID defender, final Territory location,
+      final Collection<Unit> attacking, final Collection<Unit> defending, final Collection<Unit> bombarding,
+      final Collection<TerritoryEffect> territoryEffects, final int runCount) {
+    m_attacker = attacker;
+    m_defender = defender;
+    m_location = location;
+    m_attackingUnits = new ArrayList<>(attacking);
+    m_defendingUnits = new ArrayList<>(defending);
+    m_bombardingUnits = bombarding == null ? new ArrayList<>() : new ArrayList<>(bombarding);
+    m_territoryEffects = territoryEffects == null ? new ArrayList<>() : new ArrayList<>(territoryEffects);
+    m_runCount = runCount;
+  }
+
+  public PlayerID getAttacker() {
+    return m_attacker;
+  }
+
+  public PlayerID getDefender() {
+    return m_defender;
+  }
+
+  public Territory getLocation() {
+    return m_location;
+  }
+
+  public Collection<Unit> getAttackingUnits() {
+    return m_attackingUnits;
+  }
+
+  public Collection<Unit> getDefendingUnits() {
+    return m_defendingUnits;
+  }
+
+  public Collection<Unit> getBombardingUnits() {
+    return m_bombardingUnits;
+  }
+
+  public Collection<TerritoryEffect> getTerritoryEffects() {
+    return m_territoryEffects;
+  }
+
+  public int getRunCount() {
+    return m_runCount;
+  }
+
+  @Override
+  public String toString() {
+    return "Battle in " + m_location + " attacked by " + m_attacker + " with " + m_attackingUnits.size()
+        + " units, defended by " + m_defender + " with " + m_defendingUnits.size() + " units";
+  }
+}
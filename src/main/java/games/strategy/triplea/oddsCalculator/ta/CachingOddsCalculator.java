@@ -0,0 +1,427 @@
+package games.strategy.triplea.oddsCalculator.ta;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import games.strategy.engine.data.GameData;
+import games.strategy.engine.data.PlayerID;
+import games.strategy.engine.data.Territory;
+import games.strategy.engine.data.TerritoryEffect;
+import games.strategy.engine.data.Unit;
+import games.strategy.triplea.TripleAUnit;
+
+/**
+ * Remembers the results of recent battle calculations, so the same battle is not calculated again.
+ * Two battles are the same if they have the same players, territory, territory effects, settings, run count, and the
+ * same number of units of each type, owner and damage on each side. Units being transported are told apart from
+ * other units of their type.
+ * Results from the cache are given back with the units of the new battle in place of the units of the battle they
+ * were calculated for.
+ * The cache is emptied whenever the game data is set, and when the game data has changed since the cached results
+ * were calculated, as anything from unit hits to techs and properties may change the odds.
+ */
+public class CachingOddsCalculator implements IOddsCalculator {
+  private static final Logger s_logger = Logger.getLogger(CachingOddsCalculator.class.getName());
+  private static final int DEFAULT_MAX_SIZE = 256;
+  private final IOddsCalculator m_calculator;
+  private final Map<String, CachedResults> m_cache;
+  private GameData m_data = null;
+  // the change version of the game data the cached results were calculated at
+  private long m_dataVersion = -1;
+  private PlayerID m_attacker = null;
+  private PlayerID m_defender = null;
+  private Territory m_location = null;
+  private Collection<Unit> m_attackingUnits = new ArrayList<>();
+  private Collection<Unit> m_defendingUnits = new ArrayList<>();
+  private Collection<Unit> m_bombardingUnits = new ArrayList<>();
+  private Collection<TerritoryEffect> m_territoryEffects = new ArrayList<>();
+  private boolean m_keepOneAttackingLandUnit = false;
+  private boolean m_amphibious = false;
+  private int m_retreatAfterRound = -1;
+  private int m_retreatAfterXUnitsLeft = -1;
+  private boolean m_retreatWhenOnlyAirLeft = false;
+  private String m_attackerOrderOfLosses = null;
+  private String m_defenderOrderOfLosses = null;
+  private double m_convergenceTolerance = 0;
+  private long m_timeLimit = 0;
+  private int m_runCount = 0;
+  private boolean m_isCalcSet = false;
+  private int m_hits = 0;
+  private int m_misses = 0;
+
+  public CachingOddsCalculator(final IOddsCalculator calculator) {
+    this(calculator, DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * @param maxSize
+   *        number of battles to remember, the least recently used is forgotten first.
+   */
+  public CachingOddsCalculator(final IOddsCalculator calculator, final int maxSize) {
+    m_calculator = calculator;
+    m_cache = new LinkedHashMap<String, CachedResults>(16, 0.75f, true) {
+      private static final long serialVersionUID = 3530569376474573150L;
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<String, CachedResults> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  @Override
+  public synchronized void setGameData(final GameData data) {
+    if (m_hits + m_misses > 0) {
+      s_logger.fine("Battle calc cache had " + m_hits + " hits and " + m_misses + " misses");
+    }
+    m_cache.clear();
+    m_data = data;
+    m_dataVersion = data == null ? -1 : data.getChangeVersion();
+    m_isCalcSet = false;
+    m_attacker = null;
+    m_defender = null;
+    m_location = null;
+    m_attackingUnits = new ArrayList<>();
+    m_defendingUnits = new ArrayList<>();
+    m_bombardingUnits = new ArrayList<>();
+    m_territoryEffects = new ArrayList<>();
+    m_runCount = 0;
+    m_calculator.setGameData(data);
+  }
+
+  @Override
+  public synchronized void setCalculateData(final PlayerID attacker, final PlayerID defender,
+      final Territory location, final Collection<Unit> attacking, final Collection<Unit> defending,
+      final Collection<Unit> bombarding, final Collection<TerritoryEffect> territoryEffects, final int runCount) {
+    if (m_data == null) {
+      throw new IllegalStateException("Called set calculation before setting game data!");
+    }
+    m_attacker = attacker;
+    m_defender = defender;
+    m_location = location;
+    m_attackingUnits = new ArrayList<>(attacking);
+    m_defendingUnits = new ArrayList<>(defending);
+    m_bombardingUnits = bombarding == null ? new ArrayList<>() : new ArrayList<>(bombarding);
+    m_territoryEffects = territoryEffects == null ? new ArrayList<>() : new ArrayList<>(territoryEffects);
+    m_runCount = runCount;
+    m_isCalcSet = true;
+  }
+
+  @Override
+  public synchronized AggregateResults setCalculateDataAndCalculate(final PlayerID attacker, final PlayerID defender,
+      final Territory location, final Collection<Unit> attacking, final Collection<Unit> defending,
+      final Collection<Unit> bombarding, final Collection<TerritoryEffect> territoryEffects, final int runCount) {
+    setCalculateData(attacker, defender, location, attacking, defending, bombarding, territoryEffects, runCount);
+    return calculate();
+  }
+
+  @Override
+  public synchronized AggregateResults calculate() {
+    if (!getIsReady()) {
+      throw new IllegalStateException("Called calculate before setting calculate data!");
+    }
+    dropIfDataChanged();
+    final List<Unit> attacking = sortBySignature(m_attackingUnits);
+    final List<Unit> defending = sortBySignature(m_defendingUnits);
+    final List<Unit> bombarding = sortBySignature(m_bombardingUnits);
+    final String key = getKey(attacking, defending, bombarding);
+    final CachedResults cached = m_cache.get(key);
+    if (cached != null) {
+      m_hits++;
+      return cached.translate(attacking, defending, bombarding, m_data);
+    }
+    m_misses++;
+    final AggregateResults results = m_calculator.setCalculateDataAndCalculate(m_attacker, m_defender, m_location,
+        m_attackingUnits, m_defendingUnits, m_bombardingUnits, m_territoryEffects, m_runCount);
+    cache(key, attacking, defending, bombarding, results);
+    return results;
+  }
+
+  /**
+   * Takes the battles it can from the cache, and passes the rest on as one batch. A battle that is in the batch more
+   * than once is only calculated once.
+   */
+  @Override
+  public synchronized List<AggregateResults> calculate(final List<BattleSpecification> battles) {
+    final AggregateResults[] results = new AggregateResults[battles.size()];
+    final List<List<List<Unit>>> sortedUnits = new ArrayList<>(battles.size());
+    // battles to calculate, by key, with the indexes of the battles in the batch that need them
+    final Map<String, BattleSpecification> toCalculate = new LinkedHashMap<>();
+    final Map<String, List<Integer>> indexes = new HashMap<>();
+    dropIfDataChanged();
+    for (int i = 0; i < battles.size(); i++) {
+      final BattleSpecification battle = battles.get(i);
+      setCalculateData(battle.getAttacker(), battle.getDefender(), battle.getLocation(), battle.getAttackingUnits(),
+          battle.getDefendingUnits(), battle.getBombardingUnits(), battle.getTerritoryEffects(),
+          battle.getRunCount());
+      final List<Unit> attacking = sortBySignature(m_attackingUnits);
+      final List<Unit> defending = sortBySignature(m_defendingUnits);
+      final List<Unit> bombarding = sortBySignature(m_bombardingUnits);
+      final String key = getKey(attacking, defending, bombarding);
+      sortedUnits.add(Arrays.asList(attacking, defending, bombarding));
+      final CachedResults cached = m_cache.get(key);
+      if (cached != null) {
+        m_hits++;
+        results[i] = cached.translate(attacking, defending, bombarding, m_data);
+      } else {
+        m_misses++;
+        if (!toCalculate.containsKey(key)) {
+          toCalculate.put(key, battle);
+          indexes.put(key, new ArrayList<>());
+        }
+        indexes.get(key).add(i);
+      }
+    }
+    m_isCalcSet = false;
+    if (!toCalculate.isEmpty()) {
+      final List<AggregateResults> calculated = m_calculator.calculate(new ArrayList<>(toCalculate.values()));
+      int j = 0;
+      for (final String key : toCalculate.keySet()) {
+        final AggregateResults battleResults = calculated.get(j++);
+        final List<Integer> battleIndexes = indexes.get(key);
+        final int first = battleIndexes.get(0);
+        final List<List<Unit>> units = sortedUnits.get(first);
+        results[first] = battleResults;
+        final CachedResults cached = new CachedResults(units.get(0), units.get(1), units.get(2), battleResults);
+        for (final int index : battleIndexes.subList(1, battleIndexes.size())) {
+          final List<List<Unit>> otherUnits = sortedUnits.get(index);
+          results[index] = cached.translate(otherUnits.get(0), otherUnits.get(1), otherUnits.get(2), m_data);
+        }
+        cache(key, units.get(0), units.get(1), units.get(2), battleResults);
+      }
+    }
+    return Arrays.asList(results);
+  }
+
+  /**
+   * Empty the cache if the game data changed since the cached results were calculated.
+   */
+  private void dropIfDataChanged() {
+    if (m_data == null) {
+      return;
+    }
+    final long version = m_data.getChangeVersion();
+    if (version != m_dataVersion) {
+      m_cache.clear();
+      m_dataVersion = version;
+    }
+  }
+
+  private void cache(final String key, final List<Unit> attacking, final List<Unit> defending,
+      final List<Unit> bombarding, final AggregateResults results) {
+    // a cancelled calculation is missing results
+    if (results.getRollCount() > 0) {
+      m_cache.put(key, new CachedResults(attacking, defending, bombarding, results));
+    }
+  }
+
+  private String getKey(final List<Unit> attacking, final List<Unit> defending, final List<Unit> bombarding) {
+    final StringBuilder key = new StringBuilder();
+    key.append(m_attacker == null ? null : m_attacker.getName()).append(';');
+    key.append(m_defender == null ? null : m_defender.getName()).append(';');
+    key.append(m_location.getName()).append(';');
+    final List<String> effects = new ArrayList<>();
+    for (final TerritoryEffect effect : m_territoryEffects) {
+      effects.add(effect.getName());
+    }
+    Collections.sort(effects);
+    key.append(effects).append(';');
+    key.append(m_keepOneAttackingLandUnit).append(';').append(m_amphibious).append(';');
+    key.append(m_retreatAfterRound).append(';').append(m_retreatAfterXUnitsLeft).append(';');
+    key.append(m_retreatWhenOnlyAirLeft).append(';');
+    key.append(m_attackerOrderOfLosses).append(';').append(m_defenderOrderOfLosses).append(';');
+    key.append(m_convergenceTolerance).append(';').append(m_timeLimit).append(';').append(m_runCount).append(';');
+    appendSignatures(key, attacking);
+    appendSignatures(key, defending);
+    appendSignatures(key, bombarding);
+    return key.toString();
+  }
+
+  private static void appendSignatures(final StringBuilder key, final List<Unit> units) {
+    key.append('[');
+    for (final Unit unit : units) {
+      key.append(getSignature(unit)).append(',');
+    }
+    key.append(']');
+  }
+
+  private static String getSignature(final Unit unit) {
+    return unit.getType().getName() + "|" + unit.getOwner().getName() + "|" + unit.getHits() + "|"
+        + (TripleAUnit.get(unit).getTransportedBy() != null);
+  }
+
+  private static List<Unit> sortBySignature(final Collection<Unit> units) {
+    final Map<Unit, String> signatures = new IdentityHashMap<>();
+    for (final Unit unit : units) {
+      signatures.put(unit, getSignature(unit));
+    }
+    final List<Unit> sorted = new ArrayList<>(units);
+    Collections.sort(sorted, Comparator.comparing(signatures::get));
+    return sorted;
+  }
+
+  public synchronized int getCacheHits() {
+    return m_hits;
+  }
+
+  public synchronized int getCacheMisses() {
+    return m_misses;
+  }
+
+  @Override
+  public synchronized int getRunCount() {
+    return m_runCount;
+  }
+
+  @Override
+  public synchronized boolean getIsReady() {
+    return m_data != null && m_isCalcSet;
+  }
+
+  @Override
+  public synchronized void setKeepOneAttackingLandUnit(final boolean bool) {
+    m_keepOneAttackingLandUnit = bool;
+    m_calculator.setKeepOneAttackingLandUnit(bool);
+  }
+
+  @Override
+  public synchronized void setAmphibious(final boolean bool) {
+    m_amphibious = bool;
+    m_calculator.setAmphibious(bool);
+  }
+
+  @Override
+  public synchronized void setRetreatAfterRound(final int value) {
+    m_retreatAfterRound = value;
+    m_calculator.setRetreatAfterRound(value);
+  }
+
+  @Override
+  public synchronized void setRetreatAfterXUnitsLeft(final int value) {
+    m_retreatAfterXUnitsLeft = value;
+    m_calculator.setRetreatAfterXUnitsLeft(value);
+  }
+
+  @Override
+  public synchronized void setRetreatWhenOnlyAirLeft(final boolean value) {
+    m_retreatWhenOnlyAirLeft = value;
+    m_calculator.setRetreatWhenOnlyAirLeft(value);
+  }
+
+  @Override
+  public synchronized void setAttackerOrderOfLosses(final String attackerOrderOfLosses) {
+    m_attackerOrderOfLosses = attackerOrderOfLosses;
+    m_calculator.setAttackerOrderOfLosses(attackerOrderOfLosses);
+  }
+
+  @Override
+  public synchronized void setDefenderOrderOfLosses(final String defenderOrderOfLosses) {
+    m_defenderOrderOfLosses = defenderOrderOfLosses;
+    m_calculator.setDefenderOrderOfLosses(defenderOrderOfLosses);
+  }
+
+  @Override
+  public synchronized void setConvergenceTolerance(final double tolerance) {
+    m_convergenceTolerance = tolerance;
+    m_calculator.setConvergenceTolerance(tolerance);
+  }
+
+  @Override
+  public synchronized void setTimeLimit(final long timeLimitMillis) {
+    m_timeLimit = timeLimitMillis;
+    m_calculator.setTimeLimit(timeLimitMillis);
+  }
+
+  // not synchronized, we need to be able to cancel at any time
+  @Override
+  public void cancel() {
+    m_calculator.cancel();
+  }
+
+  @Override
+  public void shutdown() {
+    m_calculator.shutdown();
+  }
+
+  @Override
+  public int getThreadCount() {
+    return m_calculator.getThreadCount();
+  }
+
+  @Override
+  public void addOddsCalculatorListener(final OddsCalculatorListener listener) {
+    m_calculator.addOddsCalculatorListener(listener);
+  }
+
+  @Override
+  public void removeOddsCalculatorListener(final OddsCalculatorListener listener) {
+    m_calculator.removeOddsCalculatorListener(listener);
+  }
+
+  /**
+   * Results of one battle, with the units it was calculated for sorted by signature, so the units of another battle
+   * with the same key can be matched to them one by one.
+   */
+  private static final class CachedResults {
+    private final List<Unit> m_attacking;
+    private final List<Unit> m_defending;
+    private final List<Unit> m_bombarding;
+    private final AggregateResults m_results;
+
+    private CachedResults(final List<Unit> attacking, final List<Unit> defending, final List<Unit> bombarding,
+        final AggregateResults results) {
+      m_attacking = attacking;
+      m_defending = defending;
+      m_bombarding = bombarding;
+      m_results = results;
+    }
+
+    private AggregateResults translate(final List<Unit> attacking, final List<Unit> defending,
+        final List<Unit> bombarding, final GameData data) {
+      final long start = System.currentTimeMillis();
+      // the calculator may have given back copies of the units, these are equal to the originals
+      final Map<Unit, Unit> units = new HashMap<>();
+      addAll(units, m_attacking, attacking);
+      addAll(units, m_defending, defending);
+      addAll(units, m_bombarding, bombarding);
+      final AggregateResults rVal = new AggregateResults(m_results.getRollCount());
+      final Map<BattleResults, BattleResults> translated = new IdentityHashMap<>();
+      for (final BattleResults result : m_results.getResults()) {
+        BattleResults translatedResult = translated.get(result);
+        if (translatedResult == null) {
+          translatedResult = new BattleResults(result.getBattleRoundsFought(),
+              translate(units, result.getRemainingAttackingUnits()),
+              translate(units, result.getRemainingDefendingUnits()), result.getWhoWon(), data);
+          translated.put(result, translatedResult);
+        }
+        rVal.addResult(translatedResult);
+      }
+      rVal.setTime(System.currentTimeMillis() - start);
+      return rVal;
+    }
+
+    private static void addAll(final Map<Unit, Unit> units, final List<Unit> from, final List<Unit> to) {
+      for (int i = 0; i < from.size(); i++) {
+        units.put(from.get(i), to.get(i));
+      }
+    }
+
+    private static List<Unit> translate(final Map<Unit, Unit> units, final List<Unit> from) {
+      final List<Unit> rVal = new ArrayList<>(from.size());
+      for (final Unit unit : from) {
+        final Unit translated = units.get(unit);
+        rVal.add(translated == null ? unit : translated);
+      }
+      return rVal;
+    }
+  }
+}
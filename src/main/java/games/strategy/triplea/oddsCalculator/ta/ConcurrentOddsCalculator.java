@@ -1,6 +1,7 @@
 package games.strategy.triplea.oddsCalculator.ta;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -13,6 +14,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -53,6 +55,11 @@ public class ConcurrentOddsCalculator implements IOddsCalculator {
   // do not let multiple calculations or setting calc data happen at same time
   private final Object m_mutexCalcIsRunning = new Object();
   private final List<OddsCalculatorListener> m_listeners = new ArrayList<>();
+  // kept here rather than on the workers, since the workers are replaced whenever the game data is set
+  private volatile double m_convergenceTolerance = 0;
+  private volatile long m_timeLimit = 0;
+  // stops the rest of a batch of battles from being calculated
+  private volatile boolean m_isBatchCancelled = false;
 
   public ConcurrentOddsCalculator(final String threadNamePrefix) {
     m_executor = Executors.newFixedThreadPool(MAX_THREADS,
@@ -253,6 +260,8 @@ public class ConcurrentOddsCalculator implements IOddsCalculator {
     synchronized (m_mutexCalcIsRunning) {
       awaitLatch();
       final long start = System.currentTimeMillis();
+      // all workers stop together, once the results they have between them are good enough
+      final ConvergenceMonitor monitor = createConvergenceMonitor();
       // Create worker thread pool and start all workers
       int totalRunCount = 0;
       final List<Future<AggregateResults>> list = new ArrayList<>();
@@ -266,6 +275,7 @@ public class ConcurrentOddsCalculator implements IOddsCalculator {
           throw new IllegalStateException("Called calculate before setting calculate data!");
         }
         if (worker.getRunCount() > 0) {
+          worker.setConvergenceMonitor(monitor);
           totalRunCount += worker.getRunCount();
           final Future<AggregateResults> workerResult = m_executor.submit(worker);
           list.add(workerResult);
@@ -291,25 +301,94 @@ public class ConcurrentOddsCalculator implements IOddsCalculator {
           executionExceptions.put(cause, exceptions);
         }
       }
-      // we don't want to scare the user with 8+ errors all for the same thing
-      if (!interruptExceptions.isEmpty()) {
-        s_logger.log(Level.SEVERE, interruptExceptions.size() + " Battle results workers interrupted",
-            interruptExceptions.iterator().next());
+      reportExceptions(interruptExceptions, executionExceptions);
+      results.setTime(System.currentTimeMillis() - start);
+      return results;
+    }
+  }
+
+  private ConvergenceMonitor createConvergenceMonitor() {
+    return (m_convergenceTolerance > 0 || m_timeLimit > 0)
+        ? new ConvergenceMonitor(m_convergenceTolerance, m_timeLimit) : null;
+  }
+
+  private static void reportExceptions(final Set<InterruptedException> interruptExceptions,
+      final Map<String, Set<ExecutionException>> executionExceptions) {
+    // we don't want to scare the user with 8+ errors all for the same thing
+    if (!interruptExceptions.isEmpty()) {
+      s_logger.log(Level.SEVERE, interruptExceptions.size() + " Battle results workers interrupted",
+          interruptExceptions.iterator().next());
+    }
+    if (!executionExceptions.isEmpty()) {
+      Exception e = null;
+      for (final Set<ExecutionException> entry : executionExceptions.values()) {
+        if (!entry.isEmpty()) {
+          e = entry.iterator().next();
+          s_logger.log(Level.SEVERE, entry.size() + " Battle results workers aborted by exception", e.getCause());
+        }
+      }
+      if (e != null) {
+        throw new IllegalStateException(e.getCause());
       }
-      if (!executionExceptions.isEmpty()) {
-        Exception e = null;
-        for (final Set<ExecutionException> entry : executionExceptions.values()) {
-          if (!entry.isEmpty()) {
-            e = entry.iterator().next();
-            s_logger.log(Level.SEVERE, entry.size() + " Battle results workers aborted by exception", e.getCause());
+    }
+  }
+
+  /**
+   * Calculates the battles concurrently, each battle on a single worker, with every worker taking the next battle
+   * as soon as it is done with the last. This keeps all workers busy even when the battles are too small to be
+   * worth splitting up.
+   */
+  @Override
+  public List<AggregateResults> calculate(final List<BattleSpecification> battles) {
+    synchronized (m_mutexCalcIsRunning) {
+      awaitLatch();
+      // the workers will be left with different battles set
+      m_isCalcSet = false;
+      final AggregateResults[] results = new AggregateResults[battles.size()];
+      if (m_isDataSet && !m_isShutDown) {
+        m_isBatchCancelled = false;
+        final AtomicInteger nextBattle = new AtomicInteger();
+        final List<Future<?>> list = new ArrayList<>();
+        for (final OddsCalculator worker : m_workers) {
+          list.add(m_executor.submit(() -> {
+            int i;
+            while ((i = nextBattle.getAndIncrement()) < battles.size() && !m_isBatchCancelled) {
+              final BattleSpecification battle = battles.get(i);
+              worker.setConvergenceMonitor(createConvergenceMonitor());
+              worker.setCalculateData(battle.getAttacker(), battle.getDefender(), battle.getLocation(),
+                  battle.getAttackingUnits(), battle.getDefendingUnits(), battle.getBombardingUnits(),
+                  battle.getTerritoryEffects(), battle.getRunCount());
+              results[i] = worker.calculate();
+            }
+            return null;
+          }));
+        }
+        final Set<InterruptedException> interruptExceptions = new HashSet<>();
+        final Map<String, Set<ExecutionException>> executionExceptions = new HashMap<>();
+        for (final Future<?> future : list) {
+          try {
+            future.get();
+          } catch (final InterruptedException e) {
+            interruptExceptions.add(e);
+          } catch (final ExecutionException e) {
+            final String cause = e.getCause().getLocalizedMessage();
+            Set<ExecutionException> exceptions = executionExceptions.get(cause);
+            if (exceptions == null) {
+              exceptions = new HashSet<>();
+            }
+            exceptions.add(e);
+            executionExceptions.put(cause, exceptions);
           }
         }
-        if (e != null) {
-          throw new IllegalStateException(e.getCause());
+        reportExceptions(interruptExceptions, executionExceptions);
+      }
+      // battles that were not calculated because we were cancelled, or the data was not set, have no results
+      for (int i = 0; i < results.length; i++) {
+        if (results[i] == null) {
+          results[i] = new AggregateResults(0);
         }
       }
-      results.setTime(System.currentTimeMillis() - start);
-      return results;
+      return Arrays.asList(results);
     }
   }
 
@@ -408,9 +487,20 @@ public class ConcurrentOddsCalculator implements IOddsCalculator {
     }
   }
 
+  @Override
+  public void setConvergenceTolerance(final double tolerance) {
+    m_convergenceTolerance = tolerance;
+  }
+
+  @Override
+  public void setTimeLimit(final long timeLimitMillis) {
+    m_timeLimit = timeLimitMillis;
+  }
+
   // not on purpose, we need to be able to cancel at any time
   @Override
   public void cancel() {
+    m_isBatchCancelled = true;
     for (final OddsCalculator worker : m_workers) {
       worker.cancel();
     }
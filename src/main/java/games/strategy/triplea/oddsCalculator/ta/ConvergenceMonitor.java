@@ -0,0 +1,93 @@
+package games.strategy.triplea.oddsCalculator.ta;
+
+/**
+ * Decides when a battle calculation has fought enough battles. Every battle adds a sample of whether the attacker won,
+ * the combat units each side has left and the TUV swing, the last three scaled to the size of the armies. Once the
+ * 95% confidence interval of every one of them is narrower than the tolerance, or the time limit is up, the
+ * calculation can stop early. One monitor can be shared by all the workers calculating the same battle.
+ */
+class ConvergenceMonitor {
+  // the confidence intervals can not be trusted before this many battles have been fought
+  static final int MIN_RUNS = 30;
+  private static final double Z_95 = 1.96;
+  private static final int ATTACKING_UNITS_LEFT = 0;
+  private static final int DEFENDING_UNITS_LEFT = 1;
+  private static final int TUV_SWING = 2;
+  private final double m_tolerance;
+  private final long m_deadline;
+  private int m_runCount = 0;
+  private int m_attackerWins = 0;
+  private final double[] m_sums = new double[3];
+  private final double[] m_sumsOfSquares = new double[3];
+  private volatile boolean m_isDone = false;
+
+  /**
+   * @param tolerance
+   *        widest confidence interval half width that is accepted, as a fraction (0.02 is 2% of the win percent, of
+   *        the units in the battle and of the TUV in the battle). Zero or less means never stop early because of it.
+   * @param timeLimitMillis
+   *        time after which no more battles should be started. Zero or less means no limit.
+   */
+  ConvergenceMonitor(final double tolerance, final long timeLimitMillis) {
+    m_tolerance = tolerance;
+    m_deadline = timeLimitMillis > 0 ? System.currentTimeMillis() + timeLimitMillis : Long.MAX_VALUE;
+  }
+
+  /**
+   * @param attackingUnitsLeft
+   *        attacking combat units left, divided by the number of attacking units
+   * @param defendingUnitsLeft
+   *        defending combat units left, divided by the number of defending units
+   * @param tuvSwing
+   *        TUV swing of the battle, divided by the total TUV of both sides
+   */
+  synchronized void addResult(final boolean attackerWon, final double attackingUnitsLeft,
+      final double defendingUnitsLeft, final double tuvSwing) {
+    m_runCount++;
+    if (attackerWon) {
+      m_attackerWins++;
+    }
+    add(ATTACKING_UNITS_LEFT, attackingUnitsLeft);
+    add(DEFENDING_UNITS_LEFT, defendingUnitsLeft);
+    add(TUV_SWING, tuvSwing);
+    if (m_tolerance > 0 && m_runCount >= MIN_RUNS && hasConverged()) {
+      m_isDone = true;
+    }
+  }
+
+  private void add(final int index, final double value) {
+    m_sums[index] += value;
+    m_sumsOfSquares[index] += value * value;
+  }
+
+  private boolean hasConverged() {
+    // the adjusted (Agresti-Coull) interval does not collapse to nothing when every battle had the same outcome
+    final double adjustedCount = m_runCount + Z_95 * Z_95;
+    final double adjustedWinRate = (m_attackerWins + Z_95 * Z_95 / 2) / adjustedCount;
+    if (Z_95 * Math.sqrt(adjustedWinRate * (1 - adjustedWinRate) / adjustedCount) > m_tolerance) {
+      return false;
+    }
+    for (int i = 0; i < m_sums.length; i++) {
+      final double variance =
+          Math.max(0, (m_sumsOfSquares[i] - m_sums[i] * m_sums[i] / m_runCount) / (m_runCount - 1));
+      if (Z_95 * Math.sqrt(variance / m_runCount) > m_tolerance) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return true if no more battles need to be fought.
+   */
+  boolean isDone() {
+    if (!m_isDone && System.currentTimeMillis() >= m_deadline) {
+      m_isDone = true;
+    }
+    return m_isDone;
+  }
+
+  synchronized int getRunCount() {
+    return m_runCount;
+  }
+}
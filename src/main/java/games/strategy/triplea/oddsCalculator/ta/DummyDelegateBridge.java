@@ -0,0 +1,156 @@
+package games.strategy.triplea.oddsCalculator.ta;
+
+import java.util.List;
+import java.util.Properties;
+
+import games.strategy.engine.data.Change;
+import games.strategy.engine.data.GameData;
+import games.strategy.engine.data.PlayerID;
+import games.strategy.engine.data.Unit;
+import games.strategy.engine.data.UnitHitsChange;
+import games.strategy.engine.delegate.IDelegateBridge;
+import games.strategy.engine.display.IDisplay;
+import games.strategy.engine.gamePlayer.IRemotePlayer;
+import games.strategy.engine.history.DelegateHistoryWriter;
+import games.strategy.engine.history.IDelegateHistoryWriter;
+import games.strategy.engine.random.IRandomStats.DiceType;
+import games.strategy.engine.random.PlainRandomSource;
+import games.strategy.sound.HeadlessSoundChannel;
+import games.strategy.sound.ISound;
+import games.strategy.triplea.delegate.MustFightBattle;
+import games.strategy.triplea.ui.display.HeadlessDisplay;
+import games.strategy.triplea.ui.display.ITripleADisplay;
+import games.strategy.util.IntegerMap;
+
+class DummyDelegateBridge implements IDelegateBridge {
+  private final PlainRandomSource m_randomSource = new PlainRandomSource();
+  private final ITripleADisplay m_display = new HeadlessDisplay();
+  private final ISound m_soundChannel = new HeadlessSoundChannel();
+  private final DummyPlayer m_attackingPlayer;
+  private final DummyPlayer m_defendingPlayer;
+  private final PlayerID m_attacker;
+  private final DelegateHistoryWriter m_writer = new DelegateHistoryWriter(new DummyGameModifiedChannel());
+  // hits each damaged unit had before the current battle, so the battle can be undone without inverting changes
+  private final IntegerMap<Unit> m_undoHits = new IntegerMap<>();
+  private final GameData m_data;
+  private MustFightBattle m_battle = null;
+
+  public DummyDelegateBridge(final PlayerID attacker, final GameData data, final List<Unit> attackerOrderOfLosses,
+      final List<Unit> defenderOrderOfLosses, final boolean attackerKeepOneLandUnit, final int retreatAfterRound,
+      final int retreatAfterXUnitsLeft, final boolean retreatWhenOnlyAirLeft) {
+    m_attackingPlayer = new DummyPlayer(this, true, "battle calc dummy", "None (AI)", attackerOrderOfLosses,
+        attackerKeepOneLandUnit, retreatAfterRound, retreatAfterXUnitsLeft, retreatWhenOnlyAirLeft);
+    m_defendingPlayer = new DummyPlayer(this, false, "battle calc dummy", "None (AI)", defenderOrderOfLosses, false,
+        retreatAfterRound, -1, false);
+    m_data = data;
+    m_attacker = attacker;
+  }
+
+  @Override
+  public GameData getData() {
+    return m_data;
+  }
+
+  @Override
+  public void leaveDelegateExecution() {}
+
+  @Override
+  public Properties getStepProperties() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public String getStepName() {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public IRemotePlayer getRemotePlayer(final PlayerID id) {
+    if (id.equals(m_attacker)) {
+      return m_attackingPlayer;
+    } else {
+      return m_defendingPlayer;
+    }
+  }
+
+  @Override
+  public IRemotePlayer getRemotePlayer() {
+    // the current player is attacker
+    return m_attackingPlayer;
+  }
+
+  @Override
+  public int[] getRandom(final int max, final int count, final PlayerID player, final DiceType diceType,
+      final String annotation) {
+    return m_randomSource.getRandom(max, count, annotation);
+  }
+
+  @Override
+  public int getRandom(final int max, final PlayerID player, final DiceType diceType, final String annotation) {
+    return m_randomSource.getRandom(max, annotation);
+  }
+
+  @Override
+  public PlayerID getPlayerID() {
+    return m_attacker;
+  }
+
+  @Override
+  public IDelegateHistoryWriter getHistoryWriter() {
+    return m_writer;
+  }
+
+  @Override
+  public IDisplay getDisplayChannelBroadcaster() {
+    return m_display;
+  }
+
+  @Override
+  public ISound getSoundChannelBroadcaster() {
+    return m_soundChannel;
+  }
+
+  @Override
+  public void enterDelegateExecution() {}
+
+  @Override
+  public void addChange(final Change aChange) {
+    if (!(aChange instanceof UnitHitsChange)) {
+      return;
+    }
+    for (final Unit unit : ((UnitHitsChange) aChange).getUnits()) {
+      if (!m_undoHits.containsKey(unit)) {
+        m_undoHits.put(unit, unit.getHits());
+      }
+    }
+    m_data.performChange(aChange);
+  }
+
+  /**
+   * Puts every unit damaged since the last rollback back to the hits it had before.
+   * Only unit hits are ever changed by the battle calc, so this restores the game data to its original state.
+   */
+  public void rollback() {
+    if (m_undoHits.size() == 0) {
+      return;
+    }
+    for (final Unit unit : m_undoHits.keySet()) {
+      unit.setHits(m_undoHits.getInt(unit));
+    }
+    m_undoHits.clear();
+    if (m_battle != null) {
+      m_battle.getTerritory().notifyChanged();
+    }
+  }
+
+  @Override
+  public void stopGameSequence() {}
+
+  public MustFightBattle getBattle() {
+    return m_battle;
+  }
+
+  public void setBattle(final MustFightBattle battle) {
+    m_battle = battle;
+  }
+}
@@ -0,0 +1,26 @@
+package games.strategy.triplea.oddsCalculator.ta;
+
+import games.strategy.engine.data.Change;
+import games.strategy.engine.data.PlayerID;
+import games.strategy.engine.framework.IGameModifiedChannel;
+
+class DummyGameModifiedChannel implements IGameModifiedChannel {
+  @Override
+  public void addChildToEvent(final String text, final Object renderingData) {}
+
+  @Override
+  public void gameDataChanged(final Change aChange) {}
+
+  @Override
+  public void shutDown() {}
+
+  @Override
+  public void startHistoryEvent(final String event) {}
+
+  @Override
+  public void stepChanged(final String stepName, final String delegateName, final PlayerID player, final int round,
+      final String displayName, final boolean loadedFromSavedGame) {}
+
+  @Override
+  public void startHistoryEvent(final String event, final Object renderingData) {}
+}
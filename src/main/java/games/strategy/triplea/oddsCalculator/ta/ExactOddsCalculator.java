@@ -0,0 +1,484 @@
+package games.strategy.triplea.oddsCalculator.ta;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import games.strategy.engine.data.GameData;
+import games.strategy.engine.data.PlayerID;
+import games.strategy.engine.data.Territory;
+import games.strategy.engine.data.TerritoryEffect;
+import games.strategy.engine.data.Unit;
+import games.strategy.triplea.Properties;
+import games.strategy.triplea.attachments.UnitAttachment;
+import games.strategy.triplea.attachments.UnitSupportAttachment;
+import games.strategy.triplea.delegate.BattleCalculator;
+import games.strategy.triplea.delegate.DiceRoll;
+import games.strategy.triplea.delegate.IBattle.WhoWon;
+import games.strategy.triplea.delegate.Matches;
+import games.strategy.util.Tuple;
+
+/**
+ * Works out the odds of plain battles exactly, instead of fighting them over and over.
+ * Each side takes its casualties in a fixed order (the order of losses, then the default casualty order), so the
+ * state of the battle is just how many units each side has left. From the power and rolls of the units left we know
+ * the chance of every number of hits, and following the chance of being in every state round by round gives the
+ * chance of every way the battle can end.
+ * Battles with anything more than that (retreats, bombarding, amphibious assaults, AA, subs, transports,
+ * infrastructure, suicide or multiple hit point units, support, low luck) are passed on to the fallback
+ * calculator.
+ * The results hold the run count of battles, split between the endings in proportion to their chance.
+ */
+public class ExactOddsCalculator implements IOddsCalculator {
+  // every round visits every state, so bigger battles are left to the fallback
+  private static final int MAX_STATES = 2500;
+  // stop following the battle once this little chance is left that it is not over yet
+  private static final double EPSILON = 1e-12;
+  private static final int MAX_ROUNDS = 10000;
+  private final IOddsCalculator m_fallback;
+  private GameData m_data = null;
+  private PlayerID m_attacker = null;
+  private PlayerID m_defender = null;
+  private Territory m_location = null;
+  private Collection<Unit> m_attackingUnits = new ArrayList<>();
+  private Collection<Unit> m_defendingUnits = new ArrayList<>();
+  private Collection<Unit> m_bombardingUnits = new ArrayList<>();
+  private Collection<TerritoryEffect> m_territoryEffects = new ArrayList<>();
+  private boolean m_keepOneAttackingLandUnit = false;
+  private boolean m_amphibious = false;
+  private int m_retreatAfterRound = -1;
+  private int m_retreatAfterXUnitsLeft = -1;
+  private boolean m_retreatWhenOnlyAirLeft = false;
+  private String m_attackerOrderOfLosses = null;
+  private String m_defenderOrderOfLosses = null;
+  private int m_runCount = 0;
+  private boolean m_isCalcSet = false;
+
+  /**
+   * @param fallback
+   *        calculator used for battles that can not be worked out exactly. It is given the same game data and
+   *        settings as this calculator.
+   */
+  public ExactOddsCalculator(final IOddsCalculator fallback) {
+    m_fallback = fallback;
+  }
+
+  @Override
+  public void setGameData(final GameData data) {
+    m_data = data;
+    m_isCalcSet = false;
+    m_attacker = null;
+    m_defender = null;
+    m_location = null;
+    m_attackingUnits = new ArrayList<>();
+    m_defendingUnits = new ArrayList<>();
+    m_bombardingUnits = new ArrayList<>();
+    m_territoryEffects = new ArrayList<>();
+    m_runCount = 0;
+    m_fallback.setGameData(data);
+  }
+
+  @Override
+  public void setCalculateData(final PlayerID attacker, final PlayerID defender, final Territory location,
+      final Collection<Unit> attacking, final Collection<Unit> defending, final Collection<Unit> bombarding,
+      final Collection<TerritoryEffect> territoryEffects, final int runCount) {
+    if (m_data == null) {
+      throw new IllegalStateException("Called set calculation before setting game data!");
+    }
+    m_attacker = attacker == null ? PlayerID.NULL_PLAYERID : attacker;
+    m_defender = defender == null ? PlayerID.NULL_PLAYERID : defender;
+    m_location = location;
+    m_attackingUnits = new ArrayList<>(attacking);
+    m_defendingUnits = new ArrayList<>(defending);
+    m_bombardingUnits = bombarding == null ? new ArrayList<>() : new ArrayList<>(bombarding);
+    m_territoryEffects = territoryEffects == null ? new ArrayList<>() : new ArrayList<>(territoryEffects);
+    m_runCount = runCount;
+    m_isCalcSet = true;
+  }
+
+  @Override
+  public AggregateResults setCalculateDataAndCalculate(final PlayerID attacker, final PlayerID defender,
+      final Territory location, final Collection<Unit> attacking, final Collection<Unit> defending,
+      final Collection<Unit> bombarding, final Collection<TerritoryEffect> territoryEffects, final int runCount) {
+    setCalculateData(attacker, defender, location, attacking, defending, bombarding, territoryEffects, runCount);
+    return calculate();
+  }
+
+  @Override
+  public AggregateResults calculate() {
+    if (!getIsReady()) {
+      throw new IllegalStateException("Called calculate before setting calculate data!");
+    }
+    final AggregateResults results = calculateIfSupported();
+    if (results != null) {
+      return results;
+    }
+    return m_fallback.setCalculateDataAndCalculate(m_attacker, m_defender, m_location, m_attackingUnits,
+        m_defendingUnits, m_bombardingUnits, m_territoryEffects, m_runCount);
+  }
+
+  /**
+   * Works out the battles it can, and passes the rest on to the fallback as one batch.
+   */
+  @Override
+  public List<AggregateResults> calculate(final List<BattleSpecification> battles) {
+    final AggregateResults[] results = new AggregateResults[battles.size()];
+    final List<BattleSpecification> simulated = new ArrayList<>();
+    final List<Integer> simulatedIndexes = new ArrayList<>();
+    for (int i = 0; i < battles.size(); i++) {
+      final BattleSpecification battle = battles.get(i);
+      setCalculateData(battle.getAttacker(), battle.getDefender(), battle.getLocation(), battle.getAttackingUnits(),
+          battle.getDefendingUnits(), battle.getBombardingUnits(), battle.getTerritoryEffects(),
+          battle.getRunCount());
+      results[i] = calculateIfSupported();
+      if (results[i] == null) {
+        simulated.add(battle);
+        simulatedIndexes.add(i);
+      }
+    }
+    m_isCalcSet = false;
+    if (!simulated.isEmpty()) {
+      final List<AggregateResults> simulatedResults = m_fallback.calculate(simulated);
+      for (int i = 0; i < simulatedIndexes.size(); i++) {
+        results[simulatedIndexes.get(i)] = simulatedResults.get(i);
+      }
+    }
+    return Arrays.asList(results);
+  }
+
+  /**
+   * @return the results, or null if the battle can not be worked out exactly.
+   */
+  private AggregateResults calculateIfSupported() {
+    final long start = System.currentTimeMillis();
+    m_data.acquireReadLock();
+    try {
+      if (!isSupported()) {
+        return null;
+      }
+      final AggregateResults results = calculateExactly();
+      results.setTime(System.currentTimeMillis() - start);
+      return results;
+    } finally {
+      m_data.releaseReadLock();
+    }
+  }
+
+  /**
+   * @return true if the battle set to be calculated can be worked out exactly.
+   */
+  boolean isSupported() {
+    if (m_keepOneAttackingLandUnit || m_amphibious || m_retreatAfterRound > -1 || m_retreatAfterXUnitsLeft > -1
+        || m_retreatWhenOnlyAirLeft || !m_bombardingUnits.isEmpty()) {
+      return false;
+    }
+    if (m_attackingUnits.isEmpty() || m_defendingUnits.isEmpty()
+        || (m_attackingUnits.size() + 1) * (m_defendingUnits.size() + 1) > MAX_STATES) {
+      return false;
+    }
+    if (Properties.getLow_Luck(m_data)) {
+      return false;
+    }
+    for (final Unit unit : m_attackingUnits) {
+      if (!isPlainUnit(unit)) {
+        return false;
+      }
+    }
+    for (final Unit unit : m_defendingUnits) {
+      if (!isPlainUnit(unit)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private boolean isPlainUnit(final Unit unit) {
+    if (UnitAttachment.get(unit.getType()).getHitPoints() != 1 || Matches.UnitIsAAforAnything.match(unit)
+        || Matches.UnitIsSub.match(unit) || Matches.UnitIsInfrastructure.match(unit)
+        || Matches.UnitIsSuicide.match(unit) || Matches.UnitIsTransportButNotCombatTransport.match(unit)) {
+      return false;
+    }
+    // sea units in a land battle are bombarding, land units in a sea battle are cargo
+    if (m_location.isWater() ? Matches.UnitIsLand.match(unit) : Matches.UnitIsSea.match(unit)) {
+      return false;
+    }
+    // what support gives changes with which units are left, and with it the best casualties to take, so one fixed
+    // order of losses would be wrong
+    return UnitSupportAttachment.get(unit.getType()).isEmpty();
+  }
+
+  private AggregateResults calculateExactly() {
+    final List<Unit> attackOrder =
+        getOrderOfLosses(m_attackingUnits, m_attackerOrderOfLosses, false, m_attacker, m_defendingUnits);
+    final List<Unit> defendOrder =
+        getOrderOfLosses(m_defendingUnits, m_defenderOrderOfLosses, true, m_defender, m_attackingUnits);
+    final int attackers = attackOrder.size();
+    final int defenders = defendOrder.size();
+    final double[][] attackerHits = getHitDistributions(attackOrder, m_defendingUnits, false, defenders);
+    final double[][] defenderHits = getHitDistributions(defendOrder, m_attackingUnits, true, attackers);
+    final int maxRounds = m_location.isWater() ? Properties.getSeaBattleRounds(m_data)
+        : Properties.getLandBattleRounds(m_data);
+    // chance of the battle still going on with [attackers left][defenders left]
+    double[][] current = new double[attackers + 1][defenders + 1];
+    current[attackers][defenders] = 1;
+    // chance of the battle having ended with [attackers left][defenders left], and that chance times the rounds fought
+    final double[][] ended = new double[attackers + 1][defenders + 1];
+    final double[][] endedRounds = new double[attackers + 1][defenders + 1];
+    double left = 1;
+    int round = 0;
+    while (left > EPSILON && round < MAX_ROUNDS) {
+      round++;
+      final double[][] next = new double[attackers + 1][defenders + 1];
+      for (int a = 1; a <= attackers; a++) {
+        for (int d = 1; d <= defenders; d++) {
+          final double chance = current[a][d];
+          if (chance == 0) {
+            continue;
+          }
+          final double[] hitsOnDefenders = attackerHits[a];
+          final double[] hitsOnAttackers = defenderHits[d];
+          for (int i = 0; i < hitsOnDefenders.length; i++) {
+            if (hitsOnDefenders[i] == 0) {
+              continue;
+            }
+            for (int j = 0; j < hitsOnAttackers.length; j++) {
+              next[Math.max(0, a - j)][Math.max(0, d - i)] += chance * hitsOnDefenders[i] * hitsOnAttackers[j];
+            }
+          }
+        }
+      }
+      left = 0;
+      for (int a = 0; a <= attackers; a++) {
+        for (int d = 0; d <= defenders; d++) {
+          final double chance = next[a][d];
+          if (chance == 0) {
+            continue;
+          }
+          // like MustFightBattle, the battle is over when a side is gone, the last round was fought, or nobody can hit
+          if (a == 0 || d == 0 || (maxRounds > 0 && round >= maxRounds)
+              || (attackerHits[a][0] == 1 && defenderHits[d][0] == 1)) {
+            ended[a][d] += chance;
+            endedRounds[a][d] += chance * round;
+            next[a][d] = 0;
+          } else {
+            left += chance;
+          }
+        }
+      }
+      current = next;
+    }
+    // whatever little chance is left is counted as a draw where it stands
+    for (int a = 1; a <= attackers; a++) {
+      for (int d = 1; d <= defenders; d++) {
+        ended[a][d] += current[a][d];
+        endedRounds[a][d] += current[a][d] * round;
+      }
+    }
+    return getResults(ended, endedRounds, attackOrder, defendOrder);
+  }
+
+  private List<Unit> getOrderOfLosses(final Collection<Unit> units, final String orderOfLosses,
+      final boolean defending, final PlayerID player, final Collection<Unit> enemyUnits) {
+    final List<Unit> sorted = new ArrayList<>(BattleCalculator.sortUnitsForCasualtiesWithSupport(units, units.size(),
+        defending, player, enemyUnits, false, null, m_location, BattleCalculator.getCostsForTUV(player, m_data),
+        m_territoryEffects, m_data, false, true));
+    final List<Unit> chosen = OddsCalculator.getUnitListByOrderOfLoss(orderOfLosses, units, m_data);
+    if (chosen == null) {
+      return sorted;
+    }
+    // the dummy player takes casualties from the order of losses first, and then from the default casualties
+    final List<Unit> order = new ArrayList<>(chosen);
+    sorted.removeAll(chosen);
+    order.addAll(sorted);
+    return order;
+  }
+
+  /**
+   * @return for each number of units left, the chance of each number of hits those units score in a round. The units
+   *         left are the last ones in the order of losses. Hits are capped at maxHits.
+   */
+  private double[][] getHitDistributions(final List<Unit> orderOfLosses, final Collection<Unit> enemyUnits,
+      final boolean defending, final int maxHits) {
+    final int diceSides = m_data.getDiceSides();
+    final boolean lhtrBombers = Properties.getLHTR_Heavy_Bombers(m_data);
+    final int count = orderOfLosses.size();
+    final double[][] rVal = new double[count + 1][];
+    rVal[0] = new double[] {1};
+    for (int alive = 1; alive <= count; alive++) {
+      final List<Unit> units = new ArrayList<>(orderOfLosses.subList(count - alive, count));
+      final Map<Unit, Tuple<Integer, Integer>> powerAndRolls = DiceRoll.getUnitPowerAndRollsForNormalBattles(units,
+          new ArrayList<>(enemyUnits), defending, false, m_data, m_location, m_territoryEffects, false, null);
+      double[] hits = {1};
+      for (final Unit unit : units) {
+        final int strength = powerAndRolls.get(unit).getFirst();
+        final int rolls = powerAndRolls.get(unit).getSecond();
+        if (strength <= 0 || rolls <= 0) {
+          continue;
+        }
+        final double chance = (double) strength / diceSides;
+        if (rolls > 1 && (lhtrBombers || UnitAttachment.get(unit.getType()).getChooseBestRoll())) {
+          // only the best die counts
+          hits = addDie(hits, 1 - Math.pow(1 - chance, rolls), maxHits);
+        } else {
+          for (int i = 0; i < rolls; i++) {
+            hits = addDie(hits, chance, maxHits);
+          }
+        }
+      }
+      rVal[alive] = hits;
+    }
+    return rVal;
+  }
+
+  private static double[] addDie(final double[] hits, final double chance, final int maxHits) {
+    final double[] rVal = new double[Math.min(hits.length + 1, maxHits + 1)];
+    for (int h = 0; h < hits.length; h++) {
+      rVal[h] += hits[h] * (1 - chance);
+      rVal[Math.min(h + 1, maxHits)] += hits[h] * chance;
+    }
+    return rVal;
+  }
+
+  /**
+   * Splits the run count between the endings of the battle by their chance (largest remainder first).
+   */
+  private AggregateResults getResults(final double[][] ended, final double[][] endedRounds,
+      final List<Unit> attackOrder, final List<Unit> defendOrder) {
+    final int count = Math.max(1, m_runCount);
+    final int attackers = attackOrder.size();
+    final int defenders = defendOrder.size();
+    double total = 0;
+    for (int a = 0; a <= attackers; a++) {
+      for (int d = 0; d <= defenders; d++) {
+        total += ended[a][d];
+      }
+    }
+    final int[][] shares = new int[attackers + 1][defenders + 1];
+    final List<Tuple<Double, Integer>> remainders = new ArrayList<>();
+    int given = 0;
+    for (int a = 0; a <= attackers; a++) {
+      for (int d = 0; d <= defenders; d++) {
+        final double share = ended[a][d] / total * count;
+        shares[a][d] = (int) share;
+        given += shares[a][d];
+        if (ended[a][d] > 0) {
+          remainders.add(Tuple.of(share - shares[a][d], a * (defenders + 1) + d));
+        }
+      }
+    }
+    Collections.sort(remainders, (r1, r2) -> Double.compare(r2.getFirst(), r1.getFirst()));
+    for (int i = 0; given < count && i < remainders.size(); i++, given++) {
+      final int state = remainders.get(i).getSecond();
+      shares[state / (defenders + 1)][state % (defenders + 1)]++;
+    }
+    final AggregateResults rVal = new AggregateResults(count);
+    for (int a = 0; a <= attackers; a++) {
+      for (int d = 0; d <= defenders; d++) {
+        if (shares[a][d] == 0) {
+          continue;
+        }
+        final WhoWon whoWon = (a > 0 && d == 0) ? WhoWon.ATTACKER : ((a == 0 && d > 0) ? WhoWon.DEFENDER : WhoWon.DRAW);
+        final int rounds = Math.max(1, (int) Math.round(endedRounds[a][d] / ended[a][d]));
+        final BattleResults result = new BattleResults(rounds, new ArrayList<>(attackOrder.subList(attackers - a,
+            attackers)), new ArrayList<>(defendOrder.subList(defenders - d, defenders)), whoWon, m_data);
+        for (int i = 0; i < shares[a][d]; i++) {
+          rVal.addResult(result);
+        }
+      }
+    }
+    return rVal;
+  }
+
+  @Override
+  public int getRunCount() {
+    return m_runCount;
+  }
+
+  @Override
+  public boolean getIsReady() {
+    return m_data != null && m_isCalcSet;
+  }
+
+  @Override
+  public void setKeepOneAttackingLandUnit(final boolean bool) {
+    m_keepOneAttackingLandUnit = bool;
+    m_fallback.setKeepOneAttackingLandUnit(bool);
+  }
+
+  @Override
+  public void setAmphibious(final boolean bool) {
+    m_amphibious = bool;
+    m_fallback.setAmphibious(bool);
+  }
+
+  @Override
+  public void setRetreatAfterRound(final int value) {
+    m_retreatAfterRound = value;
+    m_fallback.setRetreatAfterRound(value);
+  }
+
+  @Override
+  public void setRetreatAfterXUnitsLeft(final int value) {
+    m_retreatAfterXUnitsLeft = value;
+    m_fallback.setRetreatAfterXUnitsLeft(value);
+  }
+
+  @Override
+  public void setRetreatWhenOnlyAirLeft(final boolean value) {
+    m_retreatWhenOnlyAirLeft = value;
+    m_fallback.setRetreatWhenOnlyAirLeft(value);
+  }
+
+  @Override
+  public void setAttackerOrderOfLosses(final String attackerOrderOfLosses) {
+    m_attackerOrderOfLosses = attackerOrderOfLosses;
+    m_fallback.setAttackerOrderOfLosses(attackerOrderOfLosses);
+  }
+
+  @Override
+  public void setDefenderOrderOfLosses(final String defenderOrderOfLosses) {
+    m_defenderOrderOfLosses = defenderOrderOfLosses;
+    m_fallback.setDefenderOrderOfLosses(defenderOrderOfLosses);
+  }
+
+  /**
+   * Exact results have no error, so this only applies to battles passed on to the fallback.
+   */
+  @Override
+  public void setConvergenceTolerance(final double tolerance) {
+    m_fallback.setConvergenceTolerance(tolerance);
+  }
+
+  @Override
+  public void setTimeLimit(final long timeLimitMillis) {
+    m_fallback.setTimeLimit(timeLimitMillis);
+  }
+
+  @Override
+  public void cancel() {
+    m_fallback.cancel();
+  }
+
+  @Override
+  public void shutdown() {
+    m_fallback.shutdown();
+  }
+
+  @Override
+  public int getThreadCount() {
+    return m_fallback.getThreadCount();
+  }
+
+  @Override
+  public void addOddsCalculatorListener(final OddsCalculatorListener listener) {
+    m_fallback.addOddsCalculatorListener(listener);
+  }
+
+  @Override
+  public void removeOddsCalculatorListener(final OddsCalculatorListener listener) {
+    m_fallback.removeOddsCalculatorListener(listener);
+  }
+}
@@ -1,6 +1,7 @@
 package games.strategy.triplea.oddsCalculator.ta;
 
 import java.util.Collection;
+import java.util.List;
 
 import games.strategy.engine.data.GameData;
 import games.strategy.engine.data.PlayerID;
@@ -24,6 +25,12 @@ public interface IOddsCalculator {
       final Territory location, final Collection<Unit> attacking, final Collection<Unit> defending,
       final Collection<Unit> bombarding, final Collection<TerritoryEffect> territoryEffects, final int runCount);
 
+  /**
+   * Calculates every battle with the current settings, and returns the results in the same order. Implementations
+   * that have several workers spread the battles across them. Leaves the calculate data unset.
+   */
+  List<AggregateResults> calculate(final List<BattleSpecification> battles);
+
   int getRunCount();
 
   boolean getIsReady();
@@ -42,6 +49,18 @@ public interface IOddsCalculator {
 
   void setDefenderOrderOfLosses(final String defenderOrderOfLosses);
 
+  /**
+   * Stop calculating before the run count is reached once the confidence intervals of the attacker win percent, the
+   * units left and the TUV swing are all narrower than the tolerance (a fraction, e.g. 0.02). Zero turns this off.
+   * The number of battles actually fought is the roll count of the results.
+   */
+  void setConvergenceTolerance(final double tolerance);
+
+  /**
+   * Stop calculating before the run count is reached once this many milliseconds have passed. Zero turns this off.
+   */
+  void setTimeLimit(final long timeLimitMillis);
+
   void cancel();
 
   void shutdown();
@@ -5,51 +5,24 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
-import java.util.Properties;
 import java.util.Set;
 import java.util.concurrent.Callable;
 
-import games.strategy.engine.data.Change;
-import games.strategy.engine.data.CompositeChange;
 import games.strategy.engine.data.GameData;
 import games.strategy.engine.data.PlayerID;
 import games.strategy.engine.data.Territory;
 import games.strategy.engine.data.TerritoryEffect;
 import games.strategy.engine.data.Unit;
-import games.strategy.engine.data.UnitHitsChange;
 import games.strategy.engine.data.UnitType;
 import games.strategy.engine.data.UnitTypeList;
 import games.strategy.engine.data.changefactory.ChangeFactory;
-import games.strategy.engine.delegate.IDelegateBridge;
-import games.strategy.engine.display.IDisplay;
 import games.strategy.engine.framework.GameDataUtils;
-import games.strategy.engine.framework.IGameModifiedChannel;
-import games.strategy.engine.gamePlayer.IRemotePlayer;
-import games.strategy.engine.history.DelegateHistoryWriter;
-import games.strategy.engine.history.IDelegateHistoryWriter;
-import games.strategy.engine.random.IRandomStats.DiceType;
-import games.strategy.engine.random.PlainRandomSource;
-import games.strategy.net.GUID;
-import games.strategy.sound.HeadlessSoundChannel;
-import games.strategy.sound.ISound;
-import games.strategy.triplea.ai.AIUtils;
-import games.strategy.triplea.ai.AbstractAI;
+import games.strategy.triplea.delegate.BattleCalculator;
 import games.strategy.triplea.delegate.BattleTracker;
-import games.strategy.triplea.delegate.DiceRoll;
 import games.strategy.triplea.delegate.GameDelegateBridge;
 import games.strategy.triplea.delegate.Matches;
 import games.strategy.triplea.delegate.MustFightBattle;
-import games.strategy.triplea.delegate.dataObjects.CasualtyDetails;
-import games.strategy.triplea.delegate.dataObjects.CasualtyList;
-import games.strategy.triplea.delegate.remote.IAbstractPlaceDelegate;
-import games.strategy.triplea.delegate.remote.IMoveDelegate;
-import games.strategy.triplea.delegate.remote.IPurchaseDelegate;
-import games.strategy.triplea.delegate.remote.ITechDelegate;
-import games.strategy.triplea.ui.display.HeadlessDisplay;
-import games.strategy.triplea.ui.display.ITripleADisplay;
-import games.strategy.util.CompositeMatch;
-import games.strategy.util.CompositeMatchAnd;
+import games.strategy.util.IntegerMap;
 import games.strategy.util.Match;
 import games.strategy.util.Tuple;
 
@@ -76,6 +49,10 @@ public class OddsCalculator implements IOddsCalculator, Callable<AggregateResult
   private String m_attackerOrderOfLosses = null;
   private String m_defenderOrderOfLosses = null;
   private int m_runCount = 0;
+  private double m_convergenceTolerance = 0;
+  private long m_timeLimit = 0;
+  // set when this is one of several workers calculating the same battle
+  private ConvergenceMonitor m_sharedMonitor = null;
   private volatile boolean m_cancelled = false;
   private volatile boolean m_isDataSet = false;
   private volatile boolean m_isCalcSet = false;
@@ -165,6 +142,19 @@ public class OddsCalculator implements IOddsCalculator, Callable<AggregateResult
     return calculate(m_runCount);
   }
 
+  @Override
+  public List<AggregateResults> calculate(final List<BattleSpecification> battles) {
+    final List<AggregateResults> rVal = new ArrayList<>(battles.size());
+    for (final BattleSpecification battle : battles) {
+      setCalculateData(battle.getAttacker(), battle.getDefender(), battle.getLocation(), battle.getAttackingUnits(),
+          battle.getDefendingUnits(), battle.getBombardingUnits(), battle.getTerritoryEffects(),
+          battle.getRunCount());
+      rVal.add(calculate());
+    }
+    m_isCalcSet = false;
+    return rVal;
+  }
+
   @Override
   public AggregateResults call() throws Exception {
     return calculate();
@@ -215,6 +205,24 @@ public class OddsCalculator implements IOddsCalculator, Callable<AggregateResult
     m_defenderOrderOfLosses = defenderOrderOfLosses;
   }
 
+  @Override
+  public void setConvergenceTolerance(final double tolerance) {
+    m_convergenceTolerance = tolerance;
+  }
+
+  @Override
+  public void setTimeLimit(final long timeLimitMillis) {
+    m_timeLimit = timeLimitMillis;
+  }
+
+  /**
+   * Makes the next calculation stop when the given monitor is done, instead of using this calculator's own tolerance
+   * and time limit.
+   */
+  void setConvergenceMonitor(final ConvergenceMonitor monitor) {
+    m_sharedMonitor = monitor;
+  }
+
   @Override
   public void cancel() {
     m_cancelled = true;
@@ -248,12 +256,21 @@ public class OddsCalculator implements IOddsCalculator, Callable<AggregateResult
         OddsCalculator.getUnitListByOrderOfLoss(m_attackerOrderOfLosses, m_attackingUnits, m_data);
     final List<Unit> defenderOrderOfLosses =
         OddsCalculator.getUnitListByOrderOfLoss(m_defenderOrderOfLosses, m_defendingUnits, m_data);
-    for (int i = 0; i < count && !m_cancelled; i++) {
-      final CompositeChange allChanges = new CompositeChange();
-      final DummyDelegateBridge bridge1 =
-          new DummyDelegateBridge(m_attacker, m_data, allChanges, attackerOrderOfLosses, defenderOrderOfLosses,
-              m_keepOneAttackingLandUnit, m_retreatAfterRound, m_retreatAfterXUnitsLeft, m_retreatWhenOnlyAirLeft);
-      final GameDelegateBridge bridge = new GameDelegateBridge(bridge1);
+    // the bridges only hold the players and the undo journal, so one pair serves every run
+    final DummyDelegateBridge bridge1 = new DummyDelegateBridge(m_attacker, m_data, attackerOrderOfLosses,
+        defenderOrderOfLosses, m_keepOneAttackingLandUnit, m_retreatAfterRound, m_retreatAfterXUnitsLeft,
+        m_retreatWhenOnlyAirLeft);
+    final GameDelegateBridge bridge = new GameDelegateBridge(bridge1);
+    final ConvergenceMonitor monitor = m_sharedMonitor != null ? m_sharedMonitor
+        : ((m_convergenceTolerance > 0 || m_timeLimit > 0)
+            ? new ConvergenceMonitor(m_convergenceTolerance, m_timeLimit) : null);
+    final IntegerMap<UnitType> attackerCostsForTUV =
+        monitor == null ? null : BattleCalculator.getCostsForTUV(m_attacker, m_data);
+    final IntegerMap<UnitType> defenderCostsForTUV =
+        monitor == null ? null : BattleCalculator.getCostsForTUV(m_defender, m_data);
+    final int attackerTotalTUV = monitor == null ? 0 : BattleCalculator.getTUV(m_attackingUnits, attackerCostsForTUV);
+    final int defenderTotalTUV = monitor == null ? 0 : BattleCalculator.getTUV(m_defendingUnits, defenderCostsForTUV);
+    for (int i = 0; i < count && !m_cancelled && (monitor == null || !monitor.isDone()); i++) {
       final MustFightBattle battle = new MustFightBattle(m_location, m_attacker, m_data, battleTracker);
       battle.setHeadless(true);
       battle.isAmphibious();
@@ -262,9 +279,20 @@ public class OddsCalculator implements IOddsCalculator, Callable<AggregateResult
       // battle.setAttackingFromAndMap(attackingFromMap);
       bridge1.setBattle(battle);
       battle.fight(bridge);
-      rVal.addResult(new BattleResults(battle, m_data));
+      final BattleResults results = new BattleResults(battle, m_data);
+      rVal.addResult(results);
+      if (monitor != null) {
+        final double attackerLost =
+            attackerTotalTUV - BattleCalculator.getTUV(results.getRemainingAttackingUnits(), attackerCostsForTUV);
+        final double defenderLost =
+            defenderTotalTUV - BattleCalculator.getTUV(results.getRemainingDefendingUnits(), defenderCostsForTUV);
+        monitor.addResult(results.attackerWon(),
+            (double) results.getAttackingCombatUnitsLeft() / Math.max(1, m_attackingUnits.size()),
+            (double) results.getDefendingCombatUnitsLeft() / Math.max(1, m_defendingUnits.size()),
+            (defenderLost - attackerLost) / Math.max(1, attackerTotalTUV + defenderTotalTUV));
+      }
       // restore the game to its original state
-      m_data.performChange(allChanges.invert());
+      bridge1.rollback();
       battleTracker.clear();
       battleTracker.clearBattleRecords();
     }
@@ -319,7 +347,7 @@ public class OddsCalculator implements IOddsCalculator, Callable<AggregateResult
     return true;
   }
 
-  private static List<Unit> getUnitListByOrderOfLoss(final String ool, final Collection<Unit> units,
+  static List<Unit> getUnitListByOrderOfLoss(final String ool, final Collection<Unit> units,
       final GameData data) {
     if (ool == null || ool.trim().length() == 0) {
       return null;
@@ -376,339 +404,3 @@ public class OddsCalculator implements IOddsCalculator, Callable<AggregateResult
     }
   }
 }
-
-
-class DummyDelegateBridge implements IDelegateBridge {
-  private final PlainRandomSource m_randomSource = new PlainRandomSource();
-  private final ITripleADisplay m_display = new HeadlessDisplay();
-  private final ISound m_soundChannel = new HeadlessSoundChannel();
-  private final DummyPlayer m_attackingPlayer;
-  private final DummyPlayer m_defendingPlayer;
-  private final PlayerID m_attacker;
-  private final DelegateHistoryWriter m_writer = new DelegateHistoryWriter(new DummyGameModifiedChannel());
-  private final CompositeChange m_allChanges;
-  private final GameData m_data;
-  private MustFightBattle m_battle = null;
-
-  public DummyDelegateBridge(final PlayerID attacker, final GameData data, final CompositeChange allChanges,
-      final List<Unit> attackerOrderOfLosses, final List<Unit> defenderOrderOfLosses,
-      final boolean attackerKeepOneLandUnit, final int retreatAfterRound, final int retreatAfterXUnitsLeft,
-      final boolean retreatWhenOnlyAirLeft) {
-    m_attackingPlayer = new DummyPlayer(this, true, "battle calc dummy", "None (AI)", attackerOrderOfLosses,
-        attackerKeepOneLandUnit, retreatAfterRound, retreatAfterXUnitsLeft, retreatWhenOnlyAirLeft);
-    m_defendingPlayer = new DummyPlayer(this, false, "battle calc dummy", "None (AI)", defenderOrderOfLosses, false,
-        retreatAfterRound, -1, false);
-    m_data = data;
-    m_attacker = attacker;
-    m_allChanges = allChanges;
-  }
-
-  @Override
-  public GameData getData() {
-    return m_data;
-  }
-
-  @Override
-  public void leaveDelegateExecution() {}
-
-  @Override
-  public Properties getStepProperties() {
-    throw new UnsupportedOperationException();
-  }
-
-  @Override
-  public String getStepName() {
-    throw new UnsupportedOperationException();
-  }
-
-  @Override
-  public IRemotePlayer getRemotePlayer(final PlayerID id) {
-    if (id.equals(m_attacker)) {
-      return m_attackingPlayer;
-    } else {
-      return m_defendingPlayer;
-    }
-  }
-
-  @Override
-  public IRemotePlayer getRemotePlayer() {
-    // the current player is attacker
-    return m_attackingPlayer;
-  }
-
-  @Override
-  public int[] getRandom(final int max, final int count, final PlayerID player, final DiceType diceType,
-      final String annotation) {
-    return m_randomSource.getRandom(max, count, annotation);
-  }
-
-  @Override
-  public int getRandom(final int max, final PlayerID player, final DiceType diceType, final String annotation) {
-    return m_randomSource.getRandom(max, annotation);
-  }
-
-  @Override
-  public PlayerID getPlayerID() {
-    return m_attacker;
-  }
-
-  @Override
-  public IDelegateHistoryWriter getHistoryWriter() {
-    return m_writer;
-  }
-
-  @Override
-  public IDisplay getDisplayChannelBroadcaster() {
-    return m_display;
-  }
-
-  @Override
-  public ISound getSoundChannelBroadcaster() {
-    return m_soundChannel;
-  }
-
-  @Override
-  public void enterDelegateExecution() {}
-
-  @Override
-  public void addChange(final Change aChange) {
-    if (!(aChange instanceof UnitHitsChange)) {
-      return;
-    }
-    m_allChanges.add(aChange);
-    m_data.performChange(aChange);
-  }
-
-  @Override
-  public void stopGameSequence() {}
-
-  public MustFightBattle getBattle() {
-    return m_battle;
-  }
-
-  public void setBattle(final MustFightBattle battle) {
-    m_battle = battle;
-  }
-}
-
-
-class DummyGameModifiedChannel implements IGameModifiedChannel {
-  @Override
-  public void addChildToEvent(final String text, final Object renderingData) {}
-
-  @Override
-  public void gameDataChanged(final Change aChange) {}
-
-  @Override
-  public void shutDown() {}
-
-  @Override
-  public void startHistoryEvent(final String event) {}
-
-  @Override
-  public void stepChanged(final String stepName, final String delegateName, final PlayerID player, final int round,
-      final String displayName, final boolean loadedFromSavedGame) {}
-
-  @Override
-  public void startHistoryEvent(final String event, final Object renderingData) {}
-}
-
-
-class DummyPlayer extends AbstractAI {
-  private final boolean m_keepAtLeastOneLand;
-  // negative = do not retreat
-  private final int m_retreatAfterRound;
-  // negative = do not retreat
-  private final int m_retreatAfterXUnitsLeft;
-  private final boolean m_retreatWhenOnlyAirLeft;
-  private final DummyDelegateBridge m_bridge;
-  private final boolean m_isAttacker;
-  private final List<Unit> m_orderOfLosses;
-
-  public DummyPlayer(final DummyDelegateBridge dummyDelegateBridge, final boolean attacker, final String name,
-      final String type, final List<Unit> orderOfLosses, final boolean keepAtLeastOneLand, final int retreatAfterRound,
-      final int retreatAfterXUnitsLeft, final boolean retreatWhenOnlyAirLeft) {
-    super(name, type);
-    m_keepAtLeastOneLand = keepAtLeastOneLand;
-    m_retreatAfterRound = retreatAfterRound;
-    m_retreatAfterXUnitsLeft = retreatAfterXUnitsLeft;
-    m_retreatWhenOnlyAirLeft = retreatWhenOnlyAirLeft;
-    m_bridge = dummyDelegateBridge;
-    m_isAttacker = attacker;
-    m_orderOfLosses = orderOfLosses;
-  }
-
-  private MustFightBattle getBattle() {
-    return m_bridge.getBattle();
-  }
-
-  private List<Unit> getOurUnits() {
-    final MustFightBattle battle = getBattle();
-    if (battle == null) {
-      return null;
-    }
-    return new ArrayList<>((m_isAttacker ? battle.getAttackingUnits() : battle.getDefendingUnits()));
-  }
-
-  private List<Unit> getEnemyUnits() {
-    final MustFightBattle battle = getBattle();
-    if (battle == null) {
-      return null;
-    }
-    return new ArrayList<>((m_isAttacker ? battle.getDefendingUnits() : battle.getAttackingUnits()));
-  }
-
-  @Override
-  protected void move(final boolean nonCombat, final IMoveDelegate moveDel, final GameData data,
-      final PlayerID player) {}
-
-  @Override
-  protected void place(final boolean placeForBid, final IAbstractPlaceDelegate placeDelegate, final GameData data,
-      final PlayerID player) {}
-
-  @Override
-  protected void purchase(final boolean purcahseForBid, final int PUsToSpend, final IPurchaseDelegate purchaseDelegate,
-      final GameData data, final PlayerID player) {}
-
-  @Override
-  protected void tech(final ITechDelegate techDelegate, final GameData data, final PlayerID player) {}
-
-  @Override
-  public boolean confirmMoveInFaceOfAA(final Collection<Territory> aaFiringTerritories) {
-    throw new UnsupportedOperationException();
-  }
-
-  @Override
-  public Collection<Unit> getNumberOfFightersToMoveToNewCarrier(final Collection<Unit> fightersThatCanBeMoved,
-      final Territory from) {
-    throw new UnsupportedOperationException();
-  }
-
-  /**
-   * The battle calc doesn't actually care if you have available territories to retreat to or not.
-   * It will always let you retreat to the 'current' territory (the battle territory), even if that is illegal.
-   * This is because the battle calc does not know where the attackers are actually coming from.
-   */
-  @Override
-  public Territory retreatQuery(final GUID battleID, final boolean submerge, final Territory battleSite,
-      final Collection<Territory> possibleTerritories, final String message) {
-    // null = do not retreat
-    if (possibleTerritories.isEmpty()) {
-      return null;
-    }
-    if (submerge) {
-      // submerge if all air vs subs
-      final CompositeMatch<Unit> seaSub = new CompositeMatchAnd<>(Matches.UnitIsSea, Matches.UnitIsSub);
-      final CompositeMatch<Unit> planeNotDestroyer =
-          new CompositeMatchAnd<>(Matches.UnitIsAir, Matches.UnitIsDestroyer.invert());
-      final List<Unit> ourUnits = getOurUnits();
-      final List<Unit> enemyUnits = getEnemyUnits();
-      if (ourUnits == null || enemyUnits == null) {
-        return null;
-      }
-      if (enemyUnits.size() > 0 && Match.allMatch(ourUnits, seaSub) && Match.allMatch(enemyUnits, planeNotDestroyer)) {
-        return possibleTerritories.iterator().next();
-      }
-      return null;
-    } else {
-      final MustFightBattle battle = getBattle();
-      if (battle == null) {
-        return null;
-      }
-      if (m_retreatAfterRound > -1 && battle.getBattleRound() >= m_retreatAfterRound) {
-        return possibleTerritories.iterator().next();
-      }
-      if (!m_retreatWhenOnlyAirLeft && m_retreatAfterXUnitsLeft <= -1) {
-        return null;
-      }
-      final Collection<Unit> unitsLeft = m_isAttacker ? battle.getAttackingUnits() : battle.getDefendingUnits();
-      final Collection<Unit> airLeft = Match.getMatches(unitsLeft, Matches.UnitIsAir);
-      if (m_retreatWhenOnlyAirLeft) {
-        // lets say we have a bunch of 3 attack air unit, and a 4 attack non-air unit,
-        // and we want to retreat when we have all air units left + that 4 attack non-air (cus it gets taken casualty
-        // last)
-        // then we add the number of air, to the retreat after X left number (which we would set to '1')
-        int retreatNum = airLeft.size();
-        if (m_retreatAfterXUnitsLeft > 0) {
-          retreatNum += m_retreatAfterXUnitsLeft;
-        }
-        if (retreatNum >= unitsLeft.size()) {
-          return possibleTerritories.iterator().next();
-        }
-      }
-      if (m_retreatAfterXUnitsLeft > -1 && m_retreatAfterXUnitsLeft >= unitsLeft.size()) {
-        return possibleTerritories.iterator().next();
-      }
-      return null;
-    }
-  }
-
-  // Added new collection autoKilled to handle killing units prior to casualty selection
-  @Override
-  public CasualtyDetails selectCasualties(final Collection<Unit> selectFrom,
-      final Map<Unit, Collection<Unit>> dependents, final int count, final String message, final DiceRoll dice,
-      final PlayerID hit, final Collection<Unit> friendlyUnits, final PlayerID enemyPlayer,
-      final Collection<Unit> enemyUnits, final boolean amphibious, final Collection<Unit> amphibiousLandAttackers,
-      final CasualtyList defaultCasualties, final GUID battleID, final Territory battlesite,
-      final boolean allowMultipleHitsPerUnit) {
-    final List<Unit> rDamaged = new ArrayList<>(defaultCasualties.getDamaged());
-    final List<Unit> rKilled = new ArrayList<>(defaultCasualties.getKilled());
-    if (m_keepAtLeastOneLand) {
-      final List<Unit> notKilled = new ArrayList<>(selectFrom);
-      notKilled.removeAll(rKilled);
-      // no land units left, but we have a non land unit to kill and land unit was killed
-      if (!Match.someMatch(notKilled, Matches.UnitIsLand) && Match.someMatch(notKilled, Matches.UnitIsNotLand)
-          && Match.someMatch(rKilled, Matches.UnitIsLand)) {
-        final List<Unit> notKilledAndNotLand = Match.getMatches(notKilled, Matches.UnitIsNotLand);
-        // sort according to cost
-        Collections.sort(notKilledAndNotLand, AIUtils.getCostComparator());
-        // remove the last killed unit, this should be the strongest
-        rKilled.remove(rKilled.size() - 1);
-        // add the cheapest unit
-        rKilled.add(notKilledAndNotLand.get(0));
-      }
-    }
-    if (m_orderOfLosses != null && !m_orderOfLosses.isEmpty() && !rKilled.isEmpty()) {
-      final List<Unit> orderOfLosses = new ArrayList<>(m_orderOfLosses);
-      orderOfLosses.retainAll(selectFrom);
-      if (!orderOfLosses.isEmpty()) {
-        int killedSize = rKilled.size();
-        rKilled.clear();
-        while (killedSize > 0 && !orderOfLosses.isEmpty()) {
-          rKilled.add(orderOfLosses.get(0));
-          orderOfLosses.remove(0);
-          killedSize--;
-        }
-        if (killedSize > 0) {
-          final List<Unit> defaultKilled = new ArrayList<>(defaultCasualties.getKilled());
-          defaultKilled.removeAll(rKilled);
-          while (killedSize > 0) {
-            rKilled.add(defaultKilled.get(0));
-            defaultKilled.remove(0);
-            killedSize--;
-          }
-        }
-      }
-    }
-    final CasualtyDetails casualtyDetails = new CasualtyDetails(rKilled, rDamaged, false);
-    return casualtyDetails;
-  }
-
-  @Override
-  public Territory selectTerritoryForAirToLand(final Collection<Territory> candidates, final Territory currentTerritory,
-      final String unitMessage) {
-    throw new UnsupportedOperationException();
-  }
-
-  @Override
-  public boolean shouldBomberBomb(final Territory territory) {
-    throw new UnsupportedOperationException();
-  }
-
-  @Override
-  public Unit whatShouldBomberBomb(final Territory territory, final Collection<Unit> potentialTargets,
-      final Collection<Unit> bombers) {
-    throw new UnsupportedOperationException();
-  }
-
-}
@@ -3,6 +3,7 @@ package games.strategy.triplea.ui;
 import java.awt.BorderLayout;
 import java.awt.Container;
 import java.awt.Insets;
+import java.awt.event.HierarchyEvent;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.Map;
@@ -51,6 +52,7 @@ public class CommentPanel extends JPanel {
   private final SimpleAttributeSet bold = new SimpleAttributeSet();
   private final SimpleAttributeSet italic = new SimpleAttributeSet();
   private final SimpleAttributeSet normal = new SimpleAttributeSet();
+  private boolean m_historyLoaded = false;
 
   public CommentPanel(final TripleAFrame frame, final GameData data) {
     m_frame = frame;
@@ -65,7 +67,12 @@ public class CommentPanel extends JPanel {
     StyleConstants.setBold(bold, true);
     StyleConstants.setItalic(italic, true);
     setSize(300, 200);
-    loadHistory();
+    // reading the comments loads every round of the history, which waits until the comments are shown
+    addHierarchyListener(e -> {
+      if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0 && isShowing() && !m_historyLoaded) {
+        loadHistory();
+      }
+    });
     setupListeners();
   }
 
@@ -122,6 +129,10 @@ public class CommentPanel extends JPanel {
   private void readHistoryTreeEvent(final TreeModelEvent e) {
     final TreeModelEvent tme = e;
     final Runnable runner = () -> {
+      if (!m_historyLoaded) {
+        // the comment is read with the rest of the history
+        return;
+      }
       m_data.acquireReadLock();
       try {
         final Document doc = m_text.getDocument();
@@ -165,6 +176,8 @@ public class CommentPanel extends JPanel {
   }
 
   private void loadHistory() {
+    m_historyLoaded = true;
+    m_data.getHistory().loadAllRounds();
     final Document doc = m_text.getDocument();
     final HistoryNode rootNode = (HistoryNode) m_data.getHistory().getRoot();
     @SuppressWarnings("unchecked")
@@ -22,7 +22,9 @@ import javax.swing.JTree;
 import javax.swing.SwingUtilities;
 import javax.swing.event.PopupMenuEvent;
 import javax.swing.event.PopupMenuListener;
+import javax.swing.event.TreeExpansionEvent;
 import javax.swing.event.TreeSelectionEvent;
+import javax.swing.event.TreeWillExpandListener;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeCellRenderer;
 import javax.swing.tree.TreeNode;
@@ -81,6 +83,16 @@ public class HistoryPanel extends JPanel {
     }
     m_tree = new JTree(m_data.getHistory());
     m_data.getHistory().setTreePanel(this);
+    // rounds of a saved game are loaded when they are first looked at
+    m_tree.addTreeWillExpandListener(new TreeWillExpandListener() {
+      @Override
+      public void treeWillExpand(final TreeExpansionEvent event) {
+        m_data.getHistory().loadRound((HistoryNode) event.getPath().getLastPathComponent());
+      }
+
+      @Override
+      public void treeWillCollapse(final TreeExpansionEvent event) {}
+    });
     m_tree.expandRow(0);
     m_popup = popup;
     m_tree.add(m_popup);
@@ -136,6 +148,7 @@ public class HistoryPanel extends JPanel {
         if (SwingUtilities.isRightMouseButton(me)) {
           m_currentPopupNode =
               (HistoryNode) m_tree.getClosestPathForLocation(me.getX(), me.getY()).getLastPathComponent();
+          m_data.getHistory().loadRound(m_currentPopupNode);
           m_popup.show(me.getComponent(), me.getX(), me.getY());
         } else if (m_mouseWasOverPanel) {
           final TreePath clickedPath = new TreePath(
@@ -180,6 +193,7 @@ public class HistoryPanel extends JPanel {
     }
     final TreePath path = m_tree.getSelectionPath();
     final TreeNode selected = (TreeNode) path.getLastPathComponent();
+    loadNextRound(path, false);
     @SuppressWarnings("unchecked")
     final Enumeration<TreeNode> nodeEnum =
         ((DefaultMutableTreeNode) m_tree.getModel().getRoot()).depthFirstEnumeration();
@@ -197,6 +211,20 @@ public class HistoryPanel extends JPanel {
     }
   }
 
+  /**
+   * The round after or before the one of the path may not be loaded yet.
+   */
+  private void loadNextRound(final TreePath path, final boolean after) {
+    if (path.getPathCount() < 2) {
+      return;
+    }
+    final DefaultMutableTreeNode round = (DefaultMutableTreeNode) path.getPathComponent(1);
+    final HistoryNode nextRound = (HistoryNode) (after ? round.getNextSibling() : round.getPreviousSibling());
+    if (nextRound != null) {
+      m_data.getHistory().loadRound(nextRound);
+    }
+  }
+
   private void navigateTo(final TreeNode target) {
     final TreeNode[] nodes = ((DefaultMutableTreeNode) target).getPath();
     final TreePath newPath = new TreePath(nodes);
@@ -223,6 +251,7 @@ public class HistoryPanel extends JPanel {
     }
     final TreePath path = m_tree.getSelectionPath();
     final TreeNode selected = (TreeNode) path.getLastPathComponent();
+    loadNextRound(path, true);
     @SuppressWarnings("unchecked")
     final Enumeration<TreeNode> nodeEnum = ((DefaultMutableTreeNode) m_tree.getModel().getRoot()).preorderEnumeration();
     TreeNode next = null;
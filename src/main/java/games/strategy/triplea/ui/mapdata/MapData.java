@@ -12,7 +12,6 @@ import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -22,6 +21,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.imageio.ImageIO;
 
@@ -94,6 +94,10 @@ public class MapData implements Closeable {
   private Map<String, List<Point>> m_place;
   // maps String -> Collection of Polygons
   private Map<String, List<Polygon>> m_polys;
+  // index over the polygon bounds, for finding the territory at a point
+  private PolygonGrid m_polygonGrid;
+  // maps String -> Rectangle, the bounds of a territory are asked for every time it is redrawn
+  private final Map<String, Rectangle> m_boundingRects = new ConcurrentHashMap<>();
   // maps String -> Point
   private Map<String, Point> m_centers;
   // maps String -> Point
@@ -160,6 +164,7 @@ public class MapData implements Closeable {
       }
       
       m_polys = PointFileReaderWriter.readOneToManyPolygons(loader.getResourceAsStream(prefix + POLYGON_FILE));
+      m_polygonGrid = new PolygonGrid(m_polys);
       m_centers = PointFileReaderWriter.readOneToOneCenters(loader.getResourceAsStream(prefix + CENTERS_FILE));
       m_vcPlace = PointFileReaderWriter.readOneToOne(loader.getResourceAsStream(prefix + VC_MARKERS));
       m_convoyPlace = PointFileReaderWriter.readOneToOne(loader.getResourceAsStream(prefix + CONVOY_MARKERS));
@@ -616,26 +621,7 @@ public class MapData implements Closeable {
    * Get the territory at the x,y co-ordinates could be null.
    */
   public String getTerritoryAt(final double x, final double y) {
-    String seaName = null;
-    // try to find a land territory.
-    // sea zones often surround a land territory
-    final Iterator<String> keyIter = m_polys.keySet().iterator();
-    while (keyIter.hasNext()) {
-      final String name = keyIter.next();
-      final Collection<Polygon> polygons = m_polys.get(name);
-      final Iterator<Polygon> polyIter = polygons.iterator();
-      while (polyIter.hasNext()) {
-        final Polygon poly = polyIter.next();
-        if (poly.contains(x, y)) {
-          if (Util.isTerritoryNameIndicatingWater(name)) {
-            seaName = name;
-          } else {
-            return name;
-          }
-        }
-      }
-    }
-    return seaName;
+    return m_polygonGrid.getTerritoryAt(x, y);
   }
 
   public Dimension getMapDimensions() {
@@ -656,6 +642,16 @@ public class MapData implements Closeable {
   }
 
   public Rectangle getBoundingRect(final String name) {
+    Rectangle bounds = m_boundingRects.get(name);
+    if (bounds == null) {
+      bounds = computeBoundingRect(name);
+      m_boundingRects.put(name, bounds);
+    }
+    // callers are free to change the rectangle they get
+    return new Rectangle(bounds);
+  }
+
+  private Rectangle computeBoundingRect(final String name) {
     final List<Polygon> polys = m_polys.get(name);
     if (polys == null) {
       throw new IllegalStateException("No polygons found for:" + name + " All territories:" + m_polys.keySet());
@@ -0,0 +1,114 @@
+package games.strategy.triplea.ui.mapdata;
+
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import games.strategy.ui.Util;
+
+/**
+ * A uniform grid over the bounding boxes of the territory polygons, so finding the territory under a point only
+ * has to test the few polygons whose bounds share a cell with that point.
+ */
+class PolygonGrid {
+  static final int CELL_SIZE = 64;
+  private final int m_originX;
+  private final int m_originY;
+  private final int m_columns;
+  private final int m_rows;
+  // cells in row major order, each holding the polygons in the iteration order of the polygon map, null if none
+  private final List<List<Entry>> m_cells;
+
+  PolygonGrid(final Map<String, List<Polygon>> polygons) {
+    Rectangle extent = null;
+    for (final List<Polygon> polys : polygons.values()) {
+      for (final Polygon poly : polys) {
+        if (extent == null) {
+          extent = poly.getBounds();
+        } else {
+          extent.add(poly.getBounds());
+        }
+      }
+    }
+    if (extent == null) {
+      extent = new Rectangle();
+    }
+    m_originX = extent.x;
+    m_originY = extent.y;
+    m_columns = extent.width / CELL_SIZE + 1;
+    m_rows = extent.height / CELL_SIZE + 1;
+    m_cells = new ArrayList<>(Collections.nCopies(m_columns * m_rows, null));
+    for (final Map.Entry<String, List<Polygon>> territory : polygons.entrySet()) {
+      final String name = territory.getKey();
+      final boolean water = Util.isTerritoryNameIndicatingWater(name);
+      for (final Polygon poly : territory.getValue()) {
+        final Entry entry = new Entry(name, water, poly);
+        final Rectangle bounds = poly.getBounds();
+        final int maxColumn = column(bounds.x + bounds.width);
+        final int maxRow = row(bounds.y + bounds.height);
+        for (int row = row(bounds.y); row <= maxRow; row++) {
+          for (int column = column(bounds.x); column <= maxColumn; column++) {
+            final int index = row * m_columns + column;
+            List<Entry> cell = m_cells.get(index);
+            if (cell == null) {
+              cell = new ArrayList<>(4);
+              m_cells.set(index, cell);
+            }
+            cell.add(entry);
+          }
+        }
+      }
+    }
+  }
+
+  private int column(final double x) {
+    return (int) Math.floor((x - m_originX) / CELL_SIZE);
+  }
+
+  private int row(final double y) {
+    return (int) Math.floor((y - m_originY) / CELL_SIZE);
+  }
+
+  private List<Entry> getCell(final double x, final double y) {
+    final int column = column(x);
+    final int row = row(y);
+    if (column < 0 || column >= m_columns || row < 0 || row >= m_rows) {
+      return Collections.emptyList();
+    }
+    final List<Entry> cell = m_cells.get(row * m_columns + column);
+    return cell == null ? Collections.emptyList() : cell;
+  }
+
+  /**
+   * Finds the territory at the given point. Land wins over sea since sea zones often surround a land territory.
+   *
+   * @return the territory name, or null if no polygon contains the point
+   */
+  String getTerritoryAt(final double x, final double y) {
+    String seaName = null;
+    for (final Entry entry : getCell(x, y)) {
+      if (entry.m_polygon.contains(x, y)) {
+        if (!entry.m_water) {
+          return entry.m_name;
+        }
+        seaName = entry.m_name;
+      }
+    }
+    return seaName;
+  }
+
+  private static final class Entry {
+    private final String m_name;
+    private final boolean m_water;
+    private final Polygon m_polygon;
+
+    private Entry(final String name, final boolean water, final Polygon polygon) {
+      m_name = name;
+      m_water = water;
+      m_polygon = polygon;
+    }
+  }
+}
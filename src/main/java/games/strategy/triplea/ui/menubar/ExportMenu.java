@@ -306,6 +306,7 @@ public class ExportMenu {
       }
       text.append("\n");
       clone.getHistory().gotoNode(clone.getHistory().getLastNode());
+      clone.getHistory().loadAllRounds();
       @SuppressWarnings("unchecked")
       final Enumeration<HistoryNode> nodes =
           ((DefaultMutableTreeNode) clone.getHistory().getRoot()).preorderEnumeration();
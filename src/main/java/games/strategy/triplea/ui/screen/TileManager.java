@@ -61,6 +61,8 @@ public class TileManager {
   private static final Logger s_logger = Logger.getLogger(TileManager.class.getName());
   public final static int TILE_SIZE = 256;
   private List<Tile> m_tiles = new ArrayList<>();
+  // the same tiles as m_tiles, indexed by [x][y] so a rectangle can be turned straight into tiles
+  private Tile[][] m_tileGrid = new Tile[0][0];
   private final Lock m_lock = new ReentrantLock();
   private final Map<String, IDrawable> m_territoryOverlays = new HashMap<>();
   // maps territoryname - collection of drawables
@@ -68,6 +70,8 @@ public class TileManager {
   // maps territoryname - collection of tiles where the territory is drawn
   private final Map<String, Set<Tile>> m_territoryTiles = new HashMap<>();
   private final Collection<UnitsDrawer> m_allUnitDrawables = new ArrayList<>();
+  // maps tile - the unit drawables on it, in the same order as m_allUnitDrawables
+  private final Map<Tile, List<UnitsDrawer>> m_tileUnitDrawables = new HashMap<>();
   private final IUIContext m_uiContext;
 
   public TileManager(final IUIContext uiContext) {
@@ -114,27 +118,12 @@ public class TileManager {
     acquireLock();
     try {
       final List<Tile> rVal = new ArrayList<>();
-      for (final Tile tile : m_tiles) {
-        final Rectangle tileBounds = tile.getBounds();
-        if (bounds.contains(tileBounds) || tileBounds.intersects(bounds)) {
-          rVal.add(tile);
-        }
-      }
+      addTiles(bounds, rVal);
       if (boundsXshift != null) {
-        for (final Tile tile : m_tiles) {
-          final Rectangle tileBounds = tile.getBounds();
-          if (boundsXshift.contains(tileBounds) || tileBounds.intersects(boundsXshift)) {
-            rVal.add(tile);
-          }
-        }
+        addTiles(boundsXshift, rVal);
       }
       if (boundsYshift != null) {
-        for (final Tile tile : m_tiles) {
-          final Rectangle tileBounds = tile.getBounds();
-          if (boundsYshift.contains(tileBounds) || tileBounds.intersects(boundsYshift)) {
-            rVal.add(tile);
-          }
-        }
+        addTiles(boundsYshift, rVal);
       }
       return rVal;
     } finally {
@@ -142,6 +131,25 @@ public class TileManager {
     }
   }
 
+  /**
+   * Adds the tiles intersecting bounds, in the order of m_tiles. The tiles form a regular grid so the range of tiles
+   * can be worked out from the bounds instead of testing every tile.
+   */
+  private void addTiles(final Rectangle2D bounds, final List<Tile> tiles) {
+    if (bounds.getWidth() <= 0 || bounds.getHeight() <= 0 || m_tileGrid.length == 0) {
+      return;
+    }
+    final int minX = Math.max(0, (int) Math.floor(bounds.getMinX() / TILE_SIZE));
+    final int maxX = Math.min(m_tileGrid.length - 1, (int) Math.ceil(bounds.getMaxX() / TILE_SIZE) - 1);
+    final int minY = Math.max(0, (int) Math.floor(bounds.getMinY() / TILE_SIZE));
+    final int maxY = Math.min(m_tileGrid[0].length - 1, (int) Math.ceil(bounds.getMaxY() / TILE_SIZE) - 1);
+    for (int x = minX; x <= maxX; x++) {
+      for (int y = minY; y <= maxY; y++) {
+        tiles.add(m_tileGrid[x][y]);
+      }
+    }
+  }
+
   private void acquireLock() {
     Tile.S_TILE_LOCKUTIL.acquireLock(m_lock);
   }
@@ -164,10 +172,16 @@ public class TileManager {
     try {
       // create our tiles
       m_tiles = new ArrayList<>();
-      for (int x = 0; (x) * TILE_SIZE < bounds.width; x++) {
-        for (int y = 0; (y) * TILE_SIZE < bounds.height; y++) {
-          m_tiles.add(new Tile(new Rectangle(x * TILE_SIZE, y * TILE_SIZE, TILE_SIZE, TILE_SIZE), x, y,
-              m_uiContext.getScale()));
+      m_tileUnitDrawables.clear();
+      final int columns = (bounds.width + TILE_SIZE - 1) / TILE_SIZE;
+      final int rows = (bounds.height + TILE_SIZE - 1) / TILE_SIZE;
+      m_tileGrid = new Tile[columns][rows];
+      for (int x = 0; x < columns; x++) {
+        for (int y = 0; y < rows; y++) {
+          final Tile tile = new Tile(new Rectangle(x * TILE_SIZE, y * TILE_SIZE, TILE_SIZE, TILE_SIZE), x, y,
+              m_uiContext.getScale());
+          m_tiles.add(tile);
+          m_tileGrid[x][y] = tile;
         }
       }
     } finally {
@@ -263,6 +277,10 @@ public class TileManager {
     while (tiles.hasNext()) {
       final Tile tile = tiles.next();
       tile.removeDrawables(drawables);
+      final List<UnitsDrawer> unitDrawables = m_tileUnitDrawables.get(tile);
+      if (unitDrawables != null) {
+        unitDrawables.removeAll(drawables);
+      }
     }
     m_allUnitDrawables.removeAll(drawables);
   }
@@ -369,6 +387,7 @@ public class TileManager {
         final Tile tile = tiles.next();
         tile.addDrawable(drawable);
         drawnOn.add(tile);
+        m_tileUnitDrawables.computeIfAbsent(tile, t -> new ArrayList<>()).add(drawable);
       }
     }
   }
@@ -549,7 +568,14 @@ public class TileManager {
     try {
       acquireLock();
       try {
-        for (final UnitsDrawer drawer : m_allUnitDrawables) {
+        // only the unit drawables on the tile under the point can contain it, points off the tiles check them all
+        Collection<UnitsDrawer> drawers = m_allUnitDrawables;
+        final int tileX = (int) Math.floor(x / TILE_SIZE);
+        final int tileY = (int) Math.floor(y / TILE_SIZE);
+        if (tileX >= 0 && tileX < m_tileGrid.length && tileY >= 0 && tileY < m_tileGrid[tileX].length) {
+          drawers = m_tileUnitDrawables.getOrDefault(m_tileGrid[tileX][tileY], Collections.emptyList());
+        }
+        for (final UnitsDrawer drawer : drawers) {
           final Point placementPoint = drawer.getPlacementPoint();
           if (x > placementPoint.x && x < placementPoint.x + m_uiContext.getUnitImageFactory().getUnitImageWidth()) {
             if (y > placementPoint.y && y < placementPoint.y + m_uiContext.getUnitImageFactory().getUnitImageHeight()) {
@@ -0,0 +1,106 @@
+package games.strategy.engine.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class BinaryGameObjectInputTest {
+
+  private static byte[] write(final Object obj) throws Exception {
+    final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+    try (BinaryGameObjectOutput out = new BinaryGameObjectOutput(sink)) {
+      out.writeObject(obj);
+    }
+    return sink.toByteArray();
+  }
+
+  private static Object read(final byte[] bytes) throws Exception {
+    try (BinaryGameObjectInput in = new BinaryGameObjectInput(new ByteArrayInputStream(bytes))) {
+      return in.readObject();
+    }
+  }
+
+  /**
+   * Replaces the name of a class with another of the same length, as if the class changed between engine versions.
+   */
+  private static byte[] rename(final byte[] bytes, final String from, final String to) {
+    final byte[] fromBytes = from.getBytes(StandardCharsets.UTF_8);
+    final byte[] toBytes = to.getBytes(StandardCharsets.UTF_8);
+    final byte[] rVal = bytes.clone();
+    for (int i = 0; i + fromBytes.length <= rVal.length; i++) {
+      boolean match = true;
+      for (int j = 0; j < fromBytes.length && match; j++) {
+        match = rVal[i + j] == fromBytes[j];
+      }
+      if (match) {
+        System.arraycopy(toBytes, 0, rVal, i, toBytes.length);
+      }
+    }
+    return rVal;
+  }
+
+  @Test
+  public void testSharedObjectsStayShared() throws Exception {
+    final Version1 shared = new Version1();
+    final List<Object> list = new ArrayList<>();
+    list.add(shared);
+    list.add(shared);
+    list.add(list);
+    @SuppressWarnings("unchecked")
+    final List<Object> read = (List<Object>) read(write(list));
+    assertEquals(3, read.size());
+    assertSame(read.get(0), read.get(1));
+    assertSame(read, read.get(2));
+    assertEquals("kept", ((Version1) read.get(0)).m_kept);
+  }
+
+  @Test
+  public void testFieldsAreMatchedByName() throws Exception {
+    final byte[] bytes = rename(write(new Version1()), Version1.class.getName(), Version2.class.getName());
+    final Version2 read = (Version2) read(bytes);
+    assertEquals("kept", read.m_kept);
+    assertEquals(3, read.m_count);
+    // a field that was not written is left as serialization leaves it
+    assertNull(read.m_added);
+  }
+
+  @Test
+  public void testObjectsOfRemovedClassesAreNull() throws Exception {
+    final List<Object> list = new ArrayList<>();
+    list.add(new Version1());
+    list.add("after");
+    final byte[] bytes = rename(write(list), Version1.class.getName(), Version1.class.getName().replace("1", "9"));
+    final List<?> read = (List<?>) read(bytes);
+    assertNull(read.get(0));
+    assertEquals("after", read.get(1));
+  }
+
+  private static final class Version1 implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final String m_kept;
+    private final String m_removed;
+    private final int m_count;
+
+    private Version1() {
+      m_kept = "kept";
+      m_removed = "removed";
+      m_count = 3;
+    }
+  }
+
+  private static final class Version2 implements Serializable {
+    private static final long serialVersionUID = 2L;
+    private String m_kept;
+    private String m_added;
+    private int m_count;
+  }
+}
@@ -12,6 +12,7 @@ import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 
 import games.strategy.triplea.xml.TestMapGameData;
 import org.junit.Before;
@@ -302,4 +303,33 @@ public class ChangeTest {
     compositeChange.add(ChangeFactory.removeUnits(can, units));
     assertFalse(compositeChange.isEmpty());
   }
+
+  @Test
+  public void testFold() {
+    final Territory canada = m_data.getMap().getTerritory("canada");
+    final Territory greenland = m_data.getMap().getTerritory("greenland");
+    final PlayerID can = m_data.getPlayerList().getPlayerID("chretian");
+    final Resource gold = m_data.getResourceList().getResource("gold");
+    final List<Unit> units =
+        new ArrayList<>(canada.getUnits().getUnits(m_data.getUnitTypeList().getUnitType(Constants.UNIT_TYPE_INF), 3));
+    final List<Change> changes = new ArrayList<>();
+    // move there and back, move one again, and spend some gold after being given more
+    changes.add(ChangeFactory.moveUnits(canada, greenland, units));
+    changes.add(ChangeFactory.changeResourcesChange(can, gold, 50));
+    changes.add(ChangeFactory.moveUnits(greenland, canada, units));
+    changes.add(ChangeFactory.moveUnits(canada, greenland, units.subList(0, 1)));
+    changes.add(ChangeFactory.changeResourcesChange(can, gold, -30));
+    final Change fold = ChangeFactory.fold(changes);
+    // one remove, one add and one resource change are left
+    assertEquals(3, ((CompositeChange) fold).getChanges().size());
+    m_data.performChange(fold);
+    assertEquals(4, canada.getUnits().getUnitCount());
+    assertEquals(1, greenland.getUnits().getUnitCount());
+    assertTrue(greenland.getUnits().getUnits().contains(units.get(0)));
+    assertEquals(120, can.getResources().getQuantity(gold));
+    m_data.performChange(fold.invert());
+    assertEquals(5, canada.getUnits().getUnitCount());
+    assertEquals(0, greenland.getUnits().getUnitCount());
+    assertEquals(100, can.getResources().getQuantity(gold));
+  }
 }
@@ -0,0 +1,53 @@
+package games.strategy.engine.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import games.strategy.engine.data.changefactory.ChangeFactory;
+import games.strategy.triplea.delegate.GameDataTestUtil;
+import games.strategy.triplea.xml.TestMapGameData;
+
+public class GameDataChangeVersionTest {
+  private GameData m_data;
+
+  @Before
+  public void setUp() throws Exception {
+    m_data = TestMapGameData.REVISED.getGameData();
+  }
+
+  @Test
+  public void testVersionGrowsWithEachChange() {
+    final long version = m_data.getChangeVersion();
+    final Territory germany = m_data.getMap().getTerritory("Germany");
+    m_data.performChange(ChangeFactory.addUnits(germany,
+        GameDataTestUtil.infantry(m_data).create(2, GameDataTestUtil.germans(m_data))));
+    assertTrue(m_data.getChangeVersion() > version);
+  }
+
+  @Test
+  public void testVersionGrowsWhenTheSequenceMoves() {
+    final long version = m_data.getChangeVersion();
+    m_data.getSequence().next();
+    assertTrue(m_data.getChangeVersion() > version);
+  }
+
+  @Test
+  public void testVersionGrowsWhenTheWriteLockIsTaken() {
+    final long version = m_data.getChangeVersion();
+    m_data.acquireWriteLock();
+    m_data.releaseWriteLock();
+    assertTrue(m_data.getChangeVersion() > version);
+  }
+
+  @Test
+  public void testReadingDoesNotChangeTheVersion() {
+    final long version = m_data.getChangeVersion();
+    m_data.acquireReadLock();
+    m_data.getMap().getTerritory("Germany").getUnits().getUnitCount();
+    m_data.releaseReadLock();
+    assertEquals(version, m_data.getChangeVersion());
+  }
+}
@@ -0,0 +1,80 @@
+package games.strategy.engine.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import games.strategy.engine.data.changefactory.ChangeFactory;
+import games.strategy.engine.framework.GameDataManager;
+import games.strategy.engine.history.HistoryWriter;
+import games.strategy.triplea.delegate.GameDataTestUtil;
+import games.strategy.triplea.xml.TestMapGameData;
+
+public class GameDataCopierTest {
+  private GameData m_data;
+
+  @Before
+  public void setUp() throws Exception {
+    m_data = TestMapGameData.REVISED.getGameData();
+  }
+
+  /**
+   * Saving and loading evens out internal details like hash table capacities, after that the copy must be exactly
+   * what a save and load would have produced.
+   */
+  private static byte[] normalizedBytes(final GameData data, final boolean withDelegates) throws IOException {
+    final GameDataManager manager = new GameDataManager();
+    final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+    manager.saveGame(sink, data, withDelegates);
+    final GameData loaded = manager.loadGame(new ByteArrayInputStream(sink.toByteArray()), null);
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    manager.saveGame(bytes, loaded, withDelegates);
+    return bytes.toByteArray();
+  }
+
+  @Test
+  public void testCopyMatchesSaveAndLoad() throws Exception {
+    final GameData copy = GameDataCopier.copy(m_data, false);
+    assertArrayEquals(normalizedBytes(m_data, false), normalizedBytes(copy, false));
+  }
+
+  @Test
+  public void testCopyWithHistoryAndDelegates() throws Exception {
+    final Territory germany = m_data.getMap().getTerritory("Germany");
+    final HistoryWriter writer = m_data.getHistory().getHistoryWriter();
+    writer.startNextStep("germanCombatMove", "move", GameDataTestUtil.germans(m_data), "Combat Move");
+    writer.startEvent("Germans add infantry");
+    final Change change = ChangeFactory.addUnits(germany,
+        GameDataTestUtil.infantry(m_data).create(3, GameDataTestUtil.germans(m_data)));
+    m_data.performChange(change);
+    writer.addChange(change);
+    final GameData copy = GameDataCopier.copy(m_data, true);
+    assertEquals(m_data.getDelegateList().size(), copy.getDelegateList().size());
+    assertNotNull(copy.getDelegateList().getDelegate("move"));
+    assertEquals(m_data.getHistory().getLastNode().toString(), copy.getHistory().getLastNode().toString());
+    assertArrayEquals(normalizedBytes(m_data, true), normalizedBytes(copy, true));
+  }
+
+  @Test
+  public void testCopyIsIndependent() {
+    final GameData copy = GameDataCopier.copy(m_data, false);
+    final Territory germany = m_data.getMap().getTerritory("Germany");
+    final Territory copiedGermany = copy.getMap().getTerritory("Germany");
+    assertNotSame(germany, copiedGermany);
+    assertSame(copy, copiedGermany.getData());
+    assertSame(copy.getPlayerList().getPlayerID("Germans"), copiedGermany.getOwner());
+    final int unitCount = germany.getUnits().getUnitCount();
+    copy.performChange(ChangeFactory.removeUnits(copiedGermany, copiedGermany.getUnits().getUnits()));
+    assertEquals(0, copiedGermany.getUnits().getUnitCount());
+    assertEquals(unitCount, germany.getUnits().getUnitCount());
+  }
+}
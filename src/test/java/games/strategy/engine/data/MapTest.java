@@ -5,6 +5,8 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.Set;
 
 import org.junit.Before;
@@ -245,4 +247,51 @@ public class MapTest {
     assertTrue(neighbors.contains(bb));
     assertTrue(neighbors.contains(ca));
   }
+
+  @Test
+  public void testLandAndWaterDistances() {
+    assertEquals(6, map.getDistance(aa, dd));
+    assertEquals(-1, map.getLandDistance(aa, cd));
+    assertEquals(3, map.getWaterDistance(bc, dd));
+    // the land start does not have to match, only the territories moved into
+    assertEquals(1, map.getWaterDistance(bb, bc));
+    // asking again comes from the cached rows, which a new connection has to clear
+    assertEquals(-1, map.getLandDistance(aa, cd));
+    map.addOneWayConnection(ad, cd);
+    assertEquals(4, map.getLandDistance(aa, cd));
+    assertEquals(-1, map.getLandDistance(cd, aa));
+  }
+
+  @Test
+  public void testGraph() {
+    final TerritoryGraph graph = map.getGraph();
+    assertEquals(16, graph.size());
+    assertEquals(ab, graph.getTerritory(graph.getIndex(ab)));
+    assertEquals(-1, graph.getIndex(nowhere));
+    assertEquals(2, graph.getNeighbors(graph.getIndex(aa)).length);
+    // a copy of a territory is found by name
+    assertEquals(graph.getIndex(cd), graph.getIndex(new Territory("cd", false, null)));
+  }
+
+  @Test
+  public void testNeighborsWithDistanceAndCondition() {
+    final Match<Territory> water = new Match<Territory>() {
+      @Override
+      public boolean match(final Territory t) {
+        return t.isWater();
+      }
+    };
+    // the start does not have to be water
+    final Set<Territory> neighbors = map.getNeighbors(bb, 2, water);
+    assertEquals(3, neighbors.size());
+    assertTrue(neighbors.contains(bc));
+    assertTrue(neighbors.contains(bd));
+    assertTrue(neighbors.contains(cc));
+    final Set<Territory> fromBoth = map.getNeighbors(new HashSet<>(Arrays.asList(ad, cd)), 1);
+    assertEquals(4, fromBoth.size());
+    assertTrue(fromBoth.contains(ac));
+    assertTrue(fromBoth.contains(bd));
+    assertTrue(fromBoth.contains(cc));
+    assertTrue(fromBoth.contains(dd));
+  }
 }
@@ -0,0 +1,79 @@
+package games.strategy.engine.framework;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import games.strategy.engine.data.GameData;
+import games.strategy.triplea.xml.TestMapGameData;
+
+public class AutoSaveWriterTest {
+  private File m_folder;
+
+  @Before
+  public void setUp() throws Exception {
+    m_folder = Files.createTempDirectory("autosave").toFile();
+  }
+
+  @After
+  public void tearDown() {
+    for (final File file : m_folder.listFiles()) {
+      file.delete();
+    }
+    m_folder.delete();
+  }
+
+  @Test
+  public void testSavesAreWrittenBeforeShutDownReturns() throws Exception {
+    final AutoSaveWriter writer = new AutoSaveWriter();
+    final File file = new File(m_folder, "autosave.tsvg");
+    final GameData first = new GameData();
+    final GameData second = new GameData();
+    writer.save("autosave", first, 0, () -> file);
+    writer.save("round", second, 0, () -> new File(m_folder, "round.tsvg"));
+    writer.shutDown(30000);
+    final GameData loaded = new GameDataManager().loadGame(file);
+    assertEquals(first.getProperties().get(GameData.GAME_UUID), loaded.getProperties().get(GameData.GAME_UUID));
+    assertTrue(new File(m_folder, "round.tsvg").exists());
+    assertTrue(writer.getLastBytes() > 0);
+    // the temporary files were renamed
+    assertFalse(new File(m_folder, "autosave.tsvg.tmp").exists());
+    assertEquals(2, m_folder.listFiles().length);
+  }
+
+  @Test
+  public void testSaveReplacesOldFile() throws Exception {
+    final AutoSaveWriter writer = new AutoSaveWriter();
+    final File file = new File(m_folder, "autosave.tsvg");
+    Files.write(file.toPath(), new byte[] {1, 2, 3});
+    final GameData data = new GameData();
+    writer.save("autosave", data, 0, () -> file);
+    writer.shutDown(30000);
+    assertEquals(data.getProperties().get(GameData.GAME_UUID),
+        new GameDataManager().loadGame(file).getProperties().get(GameData.GAME_UUID));
+  }
+
+  @Test
+  public void testDeltasAreAppendedToTheBase() throws Exception {
+    final AutoSaveWriter writer = new AutoSaveWriter();
+    final File file = new File(m_folder, "autosave.tsvg");
+    final GameData data = TestMapGameData.REVISED.getGameData();
+    assertTrue(writer.needsBase("autosave"));
+    writer.saveBase("autosave", data, 0, () -> file);
+    data.getHistory().startJournal();
+    assertFalse(writer.needsBase("autosave"));
+    data.getHistory().getHistoryWriter().startNextRound(2);
+    writer.append("autosave", new GameDataManager().saveDelta(data, data.getHistory().takeJournal()), 0);
+    writer.shutDown(30000);
+    final GameData loaded = new GameDataManager().loadGame(file);
+    assertEquals(data.getProperties().get(GameData.GAME_UUID), loaded.getProperties().get(GameData.GAME_UUID));
+    assertEquals("Round: 2", loaded.getHistory().getLastNode().getTitle());
+  }
+}
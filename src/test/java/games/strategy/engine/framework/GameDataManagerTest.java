@@ -1,13 +1,25 @@
 package games.strategy.engine.framework;
 
+import games.strategy.engine.data.Change;
 import games.strategy.engine.data.GameData;
+import games.strategy.engine.data.Territory;
+import games.strategy.engine.data.Unit;
+import games.strategy.engine.data.changefactory.ChangeFactory;
+import games.strategy.engine.history.HistoryWriter;
+import games.strategy.triplea.delegate.GameDataTestUtil;
+import games.strategy.triplea.xml.TestMapGameData;
 import org.junit.Test;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 
 public class GameDataManagerTest {
 
@@ -20,4 +32,86 @@ public class GameDataManagerTest {
     final GameData loaded = m.loadGame(new ByteArrayInputStream(sink.toByteArray()), null);
     assertEquals(loaded.getProperties().get(GameData.GAME_UUID), data.getProperties().get(GameData.GAME_UUID));
   }
+
+  @Test
+  public void testDeltaSaveReplaysChangesAndSteps() throws Exception {
+    final GameData data = TestMapGameData.REVISED.getGameData();
+    final GameDataManager m = new GameDataManager();
+    final Territory germany = data.getMap().getTerritory("Germany");
+    final HistoryWriter writer = data.getHistory().getHistoryWriter();
+    final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+    m.saveDeltaBase(sink, data);
+    data.getHistory().startJournal();
+    writer.startNextStep("germanCombatMove", "move", GameDataTestUtil.germans(data), "Combat Move");
+    writer.startEvent("Germans add infantry");
+    final Collection<Unit> infantry = GameDataTestUtil.infantry(data).create(3, GameDataTestUtil.germans(data));
+    perform(data, ChangeFactory.addUnits(germany, infantry));
+    writer.setRenderingData(infantry);
+    data.getSequence().next();
+    sink.write(m.saveDelta(data, data.getHistory().takeJournal()));
+    // the units made in the first delta are found by the second
+    writer.startEvent("Germans remove infantry");
+    perform(data, ChangeFactory.removeUnits(germany, Arrays.asList(infantry.iterator().next())));
+    data.getSequence().next();
+    final byte[] delta = m.saveDelta(data, data.getHistory().takeJournal());
+    sink.write(delta);
+
+    final GameData loaded = m.loadGame(new ByteArrayInputStream(sink.toByteArray()), null);
+    assertEquals(new ArrayList<>(germany.getUnits().getUnits()),
+        new ArrayList<>(loaded.getMap().getTerritory("Germany").getUnits().getUnits()));
+    assertEquals(data.getHistory().getChangeCount(), loaded.getHistory().getChangeCount());
+    assertEquals(data.getHistory().getLastNode().toString(), loaded.getHistory().getLastNode().toString());
+    assertEquals(data.getSequence().getStepIndex(), loaded.getSequence().getStepIndex());
+    assertEquals(data.getSequence().getRound(), loaded.getSequence().getRound());
+
+    // a delta cut short is ignored
+    final byte[] truncated = Arrays.copyOf(sink.toByteArray(), sink.size() - delta.length / 2);
+    final GameData partial = m.loadGame(new ByteArrayInputStream(truncated), null);
+    assertEquals(data.getHistory().getChangeCount() - 1, partial.getHistory().getChangeCount());
+    assertEquals(germany.getUnits().getUnitCount() + 1,
+        partial.getMap().getTerritory("Germany").getUnits().getUnitCount());
+  }
+
+  /**
+   * Saving and loading serialized evens out internal details like hash table capacities.
+   */
+  private static byte[] normalizedBytes(final GameData data) throws IOException {
+    final GameDataManager m = new GameDataManager();
+    final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+    m.saveGame(sink, data, true, GameDataManager.SaveFormat.SERIALIZED);
+    final GameData loaded = m.loadGame(new ByteArrayInputStream(sink.toByteArray()), null);
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    m.saveGame(bytes, loaded, true, GameDataManager.SaveFormat.SERIALIZED);
+    return bytes.toByteArray();
+  }
+
+  @Test
+  public void testBinarySaveLoadsTheSameGame() throws Exception {
+    for (final TestMapGameData game : Arrays.asList(TestMapGameData.REVISED, TestMapGameData.GLOBAL1940)) {
+      final GameData data = game.getGameData();
+      final HistoryWriter writer = data.getHistory().getHistoryWriter();
+      writer.startNextStep("germanCombatMove", "move", GameDataTestUtil.germans(data), "Combat Move");
+      writer.startEvent("Germans add infantry");
+      final Collection<Unit> infantry = GameDataTestUtil.infantry(data).create(3, GameDataTestUtil.germans(data));
+      perform(data, ChangeFactory.addUnits(data.getMap().getTerritory("Germany"), infantry));
+      writer.setRenderingData(infantry);
+      final GameDataManager m = new GameDataManager();
+      final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+      m.saveGame(sink, data, true, GameDataManager.SaveFormat.BINARY);
+      final GameData loaded = m.loadGame(new ByteArrayInputStream(sink.toByteArray()), null);
+      assertEquals(data.getDelegateList().size(), loaded.getDelegateList().size());
+      assertArrayEquals(normalizedBytes(data), normalizedBytes(loaded));
+    }
+  }
+
+  @Test
+  public void testJournalNotStarted() {
+    final GameData data = new GameData();
+    assertNull(data.getHistory().takeJournal());
+  }
+
+  private static void perform(final GameData data, final Change change) {
+    data.performChange(change);
+    data.getHistory().getHistoryWriter().addChange(change);
+  }
 }
@@ -0,0 +1,105 @@
+package games.strategy.engine.framework;
+
+import static games.strategy.triplea.delegate.GameDataTestUtil.germans;
+import static games.strategy.triplea.delegate.GameDataTestUtil.territory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import games.strategy.engine.data.Change;
+import games.strategy.engine.data.GameData;
+import games.strategy.engine.data.PlayerID;
+import games.strategy.engine.data.changefactory.ChangeFactory;
+import games.strategy.triplea.xml.TestMapGameData;
+
+public class GameModificationTest {
+  private GameData m_data;
+
+  @Before
+  public void setUp() throws Exception {
+    m_data = TestMapGameData.REVISED.getGameData();
+  }
+
+  private static class RecordingChannel implements IGameModifiedChannel {
+    private final List<String> m_calls = new ArrayList<>();
+    private final List<Object> m_args = new ArrayList<>();
+
+    @Override
+    public void gameDataChanged(final Change change) {
+      m_calls.add("gameDataChanged");
+      m_args.add(change);
+    }
+
+    @Override
+    public void startHistoryEvent(final String event, final Object renderingData) {
+      m_calls.add("startHistoryEvent:" + event);
+      m_args.add(renderingData);
+    }
+
+    @Override
+    public void startHistoryEvent(final String event) {
+      m_calls.add("startHistoryEvent:" + event);
+    }
+
+    @Override
+    public void addChildToEvent(final String text, final Object renderingData) {
+      m_calls.add("addChildToEvent:" + text);
+      m_args.add(renderingData);
+    }
+
+    @Override
+    public void stepChanged(final String stepName, final String delegateName, final PlayerID player, final int round,
+        final String displayName, final boolean loadedFromSavedGame) {
+      m_calls.add("stepChanged:" + stepName + " " + delegateName + " " + round + " " + displayName + " "
+          + loadedFromSavedGame);
+      m_args.add(player);
+    }
+
+    @Override
+    public void shutDown() {}
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<GameModification> roundTrip(final List<GameModification> modifications) throws Exception {
+    final GameObjectStreamFactory factory = new GameObjectStreamFactory(m_data);
+    final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+    try (ObjectOutputStream out = factory.create(sink)) {
+      out.writeObject(new ArrayList<>(modifications));
+    }
+    try (ObjectInputStream in = factory.create(new ByteArrayInputStream(sink.toByteArray()))) {
+      return (List<GameModification>) in.readObject();
+    }
+  }
+
+  @Test
+  public void testModificationsAreReplayedInOrder() throws Exception {
+    final PlayerID germans = germans(m_data);
+    final Change change = ChangeFactory.changeOwner(territory("Midway", m_data), germans);
+    final List<GameModification> modifications = roundTrip(Arrays.asList(
+        GameModification.stepChanged("germanBattle", "battle", germans, 3, "Combat", false),
+        GameModification.startHistoryEvent("event", null),
+        GameModification.startHistoryEvent("rendered event", "data"),
+        GameModification.addChildToEvent("child", null),
+        GameModification.gameDataChanged(change)));
+    final RecordingChannel channel = new RecordingChannel();
+    for (final GameModification modification : modifications) {
+      modification.applyTo(channel);
+    }
+    assertEquals(Arrays.asList("stepChanged:germanBattle battle 3 Combat false", "startHistoryEvent:event",
+        "startHistoryEvent:rendered event", "addChildToEvent:child", "gameDataChanged"), channel.m_calls);
+    // game objects resolve to those of the observer's game data
+    assertSame(germans, channel.m_args.get(0));
+    assertEquals("data", channel.m_args.get(1));
+    assertEquals(change.toString(), channel.m_args.get(3).toString());
+  }
+}
@@ -0,0 +1,53 @@
+package games.strategy.engine.framework;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class RecentGameModificationsTest {
+  private final GameModification m_event = GameModification.startHistoryEvent("event", null);
+  private final GameModification m_child = GameModification.addChildToEvent("child", null);
+  private final GameModification m_change = GameModification.gameDataChanged(null);
+
+  @Test
+  public void testIndexCountsChangesAndModificationsSince() {
+    final RecentGameModifications recent = new RecentGameModifications(new ModificationIndex(10, 0), 100);
+    recent.add(m_event);
+    recent.add(m_child);
+    assertEquals(new ModificationIndex(10, 2), recent.getIndex());
+    recent.add(m_change);
+    assertEquals(new ModificationIndex(11, 0), recent.getIndex());
+    recent.add(m_event);
+    assertEquals(new ModificationIndex(11, 1), recent.getIndex());
+  }
+
+  @Test
+  public void testSince() {
+    final RecentGameModifications recent = new RecentGameModifications(new ModificationIndex(10, 0), 100);
+    recent.add(m_event);
+    recent.add(m_change);
+    recent.add(m_child);
+    assertEquals(Arrays.asList(m_event, m_change, m_child), recent.since(new ModificationIndex(10, 0)));
+    assertEquals(Arrays.asList(m_change, m_child), recent.since(new ModificationIndex(10, 1)));
+    assertEquals(Arrays.asList(m_child), recent.since(new ModificationIndex(11, 0)));
+    assertEquals(Collections.emptyList(), recent.since(new ModificationIndex(11, 1)));
+    // ahead of us, or a different game
+    assertNull(recent.since(new ModificationIndex(11, 2)));
+    assertNull(recent.since(new ModificationIndex(9, 0)));
+  }
+
+  @Test
+  public void testTooFarBehind() {
+    final RecentGameModifications recent = new RecentGameModifications(new ModificationIndex(0, 0), 2);
+    recent.add(m_change);
+    recent.add(m_event);
+    recent.add(m_change);
+    assertNull(recent.since(new ModificationIndex(0, 0)));
+    assertEquals(Arrays.asList(m_event, m_change), recent.since(new ModificationIndex(1, 0)));
+    assertEquals(new ModificationIndex(2, 0), recent.getIndex());
+  }
+}
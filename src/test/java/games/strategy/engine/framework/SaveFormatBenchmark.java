@@ -0,0 +1,70 @@
+package games.strategy.engine.framework;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import games.strategy.engine.data.GameData;
+import games.strategy.triplea.xml.TestMapGameData;
+
+/**
+ * Compares the size of saved games and how fast they are saved and loaded in each save format, for the test games.
+ * <p>
+ * Not a test, run it by hand: java games.strategy.engine.framework.SaveFormatBenchmark [iterations]
+ */
+public class SaveFormatBenchmark {
+  public static void main(final String[] args) throws Exception {
+    final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+    System.out.println(String.format("%-30s %-10s %10s %10s %10s %10s %10s", "game", "format", "bytes", "save ms",
+        "load ms", "save MB/s", "load MB/s"));
+    for (final TestMapGameData game : TestMapGameData.values()) {
+      final GameData data;
+      try {
+        data = game.getGameData();
+      } catch (final Exception e) {
+        System.out.println(game + " not parsed: " + e);
+        continue;
+      }
+      for (final GameDataManager.SaveFormat format : GameDataManager.SaveFormat.values()) {
+        run(game.toString(), data, format, iterations);
+      }
+    }
+  }
+
+  private static void run(final String game, final GameData data, final GameDataManager.SaveFormat format,
+      final int iterations) throws IOException {
+    final GameDataManager manager = new GameDataManager();
+    byte[] bytes = save(manager, data, format);
+    // warm up
+    for (int i = 0; i < iterations; i++) {
+      manager.loadGame(new ByteArrayInputStream(save(manager, data, format)), null);
+    }
+    long saveNanos = 0;
+    long loadNanos = 0;
+    for (int i = 0; i < iterations; i++) {
+      final long start = System.nanoTime();
+      bytes = save(manager, data, format);
+      final long saved = System.nanoTime();
+      manager.loadGame(new ByteArrayInputStream(bytes), null);
+      loadNanos += System.nanoTime() - saved;
+      saveNanos += saved - start;
+    }
+    final double saveMillis = TimeUnit.NANOSECONDS.toMicros(saveNanos) / 1000.0 / iterations;
+    final double loadMillis = TimeUnit.NANOSECONDS.toMicros(loadNanos) / 1000.0 / iterations;
+    System.out.println(String.format("%-30s %-10s %10d %10.2f %10.2f %10.2f %10.2f", game, format, bytes.length,
+        saveMillis, loadMillis, megabytesPerSecond(bytes.length, saveMillis),
+        megabytesPerSecond(bytes.length, loadMillis)));
+  }
+
+  private static byte[] save(final GameDataManager manager, final GameData data,
+      final GameDataManager.SaveFormat format) throws IOException {
+    final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+    manager.saveGame(sink, data, true, format);
+    return sink.toByteArray();
+  }
+
+  private static double megabytesPerSecond(final int bytes, final double millis) {
+    return millis == 0 ? 0 : bytes / 1024.0 / 1024.0 / (millis / 1000.0);
+  }
+}
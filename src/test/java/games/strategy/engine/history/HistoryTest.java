@@ -0,0 +1,178 @@
+package games.strategy.engine.history;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import games.strategy.engine.data.Change;
+import games.strategy.engine.data.CompositeChange;
+import games.strategy.engine.data.GameData;
+import games.strategy.engine.data.PlayerID;
+import games.strategy.engine.data.Territory;
+import games.strategy.engine.data.changefactory.ChangeFactory;
+import games.strategy.engine.framework.GameDataManager;
+import games.strategy.triplea.delegate.GameDataTestUtil;
+import games.strategy.triplea.xml.TestMapGameData;
+
+public class HistoryTest {
+  private GameData m_data;
+
+  @Before
+  public void setUp() throws Exception {
+    m_data = TestMapGameData.REVISED.getGameData();
+    final HistoryWriter writer = m_data.getHistory().getHistoryWriter();
+    final PlayerID germans = GameDataTestUtil.germans(m_data);
+    final Territory germany = m_data.getMap().getTerritory("Germany");
+    for (int round = 1; round <= 3; round++) {
+      writer.startNextRound(round);
+      writer.startNextStep("germanPurchase", "purchase", germans, "Purchase");
+      writer.startEvent("Germans buy infantry in round " + round);
+      final Change change = ChangeFactory.addUnits(germany, GameDataTestUtil.infantry(m_data).create(round, germans));
+      m_data.performChange(change);
+      writer.addChange(change);
+      writer.addChildToEvent(new EventChild("bought " + round, null));
+      // a step where nothing happens is removed
+      writer.startNextStep("germanBattle", "battle", germans, "Battle");
+    }
+  }
+
+  private static GameData saveAndLoad(final GameData data) throws Exception {
+    final GameDataManager manager = new GameDataManager();
+    final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+    manager.saveGame(sink, data);
+    return manager.loadGame(new ByteArrayInputStream(sink.toByteArray()), null);
+  }
+
+  private static List<String> titles(final History history) {
+    final List<String> rVal = new ArrayList<>();
+    final Enumeration<?> nodes = ((HistoryNode) history.getRoot()).preorderEnumeration();
+    while (nodes.hasMoreElements()) {
+      rVal.add(nodes.nextElement().toString());
+    }
+    return rVal;
+  }
+
+  private static Round round(final History history, final int index) {
+    return (Round) ((HistoryNode) history.getRoot()).getChildAt(index);
+  }
+
+  @Test
+  public void testRoundsAreLoadedWhenNeeded() throws Exception {
+    final History history = saveAndLoad(m_data).getHistory();
+    assertTrue(round(history, 0).isUnloaded());
+    assertTrue(round(history, 1).isUnloaded());
+    assertFalse(round(history, 2).isUnloaded());
+    assertFalse(round(history, 0).isLeaf());
+    assertEquals(m_data.getHistory().getChangeCount(), history.getChangeCount());
+    assertEquals("Round: 3", history.getLastNode().getParent().toString());
+    history.loadRound(round(history, 1));
+    assertTrue(round(history, 0).isUnloaded());
+    assertFalse(round(history, 1).isUnloaded());
+    history.loadAllRounds();
+    assertEquals(titles(m_data.getHistory()), titles(history));
+  }
+
+  @Test
+  public void testGoingBackLoadsTheChanges() throws Exception {
+    final GameData loaded = saveAndLoad(m_data);
+    final Territory germany = loaded.getMap().getTerritory("Germany");
+    final int units = germany.getUnits().getUnitCount();
+    // going to the start of the second round undoes the 2 and 3 infantry added in the second and third
+    loaded.getHistory().gotoNode(round(loaded.getHistory(), 1));
+    assertEquals(units - 5, germany.getUnits().getUnitCount());
+    loaded.getHistory().gotoNode(loaded.getHistory().getLastNode());
+    assertEquals(units, germany.getUnits().getUnitCount());
+  }
+
+  @Test
+  public void testSavingKeepsRoundsNotLoaded() throws Exception {
+    final GameData loaded = saveAndLoad(saveAndLoad(m_data));
+    assertTrue(round(loaded.getHistory(), 0).isUnloaded());
+    loaded.getHistory().loadAllRounds();
+    assertEquals(titles(m_data.getHistory()), titles(loaded.getHistory()));
+  }
+
+  @Test
+  public void testLoadedRoundsAreWrittenAgainWhenSaved() throws Exception {
+    final GameData loaded = saveAndLoad(m_data);
+    final History history = loaded.getHistory();
+    history.loadRound(round(history, 1));
+    assertNull(round(history, 1).getSegment());
+    assertNotNull(round(history, 0).getSegment());
+    final History reloaded = saveAndLoad(loaded).getHistory();
+    assertTrue(round(reloaded, 1).isUnloaded());
+    reloaded.loadAllRounds();
+    assertEquals(titles(m_data.getHistory()), titles(reloaded));
+  }
+
+  @Test
+  public void testSavingReusesSegmentsOfLoadedRounds() throws Exception {
+    final History history = m_data.getHistory();
+    final List<RoundSegment> segments = history.getSegments();
+    assertEquals(2, segments.size());
+    assertFalse(round(history, 0).isUnloaded());
+    // held softly, the collector only takes them when memory runs short
+    assertSame(segments.get(0), history.getSegments().get(0));
+    assertSame(segments.get(1), round(history, 1).getSegment());
+  }
+
+  @Test
+  public void testRemovingHistory() throws Exception {
+    final GameData loaded = saveAndLoad(m_data);
+    final History history = loaded.getHistory();
+    history.loadRound(round(history, 1));
+    // the event of the second round, the third round comes after it
+    history.removeAllHistoryAfterNode((HistoryNode) round(history, 1).getChildAt(0).getChildAt(0));
+    assertEquals(2, ((HistoryNode) history.getRoot()).getChildCount());
+    final History reloaded = saveAndLoad(loaded).getHistory();
+    reloaded.loadAllRounds();
+    assertEquals(titles(history), titles(reloaded));
+  }
+
+  @Test
+  public void testGoingBackAndForthOverCheckpoints() throws Exception {
+    final Territory germany = m_data.getMap().getTerritory("Germany");
+    final History history = m_data.getHistory();
+    final int units = germany.getUnits().getUnitCount();
+    history.gotoNode(round(history, 0));
+    assertEquals(units - 6, germany.getUnits().getUnitCount());
+    history.gotoNode(round(history, 2));
+    assertEquals(units - 3, germany.getUnits().getUnitCount());
+    history.gotoNode(round(history, 1));
+    assertEquals(units - 5, germany.getUnits().getUnitCount());
+    history.gotoNode(history.getLastNode());
+    assertEquals(units, germany.getUnits().getUnitCount());
+  }
+
+  @Test
+  public void testCheckpointsAreMergedWhenThereAreTooMany() {
+    final Territory germany = m_data.getMap().getTerritory("Germany");
+    final PlayerID germans = GameDataTestUtil.germans(m_data);
+    final List<Change> changes = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      changes.add(ChangeFactory.addUnits(germany, GameDataTestUtil.infantry(m_data).create(1, germans)));
+    }
+    final int[] roundStarts = {0, 1, 2, 3};
+    final HistoryCheckpoints checkpoints = new HistoryCheckpoints(1);
+    assertEquals(4, checkpoints.getChanges(changes, roundStarts, 0, 4).size());
+    assertEquals(2, checkpoints.getStride());
+    // the first two rounds are folded together, the third has no checkpoint after it now and is performed as it is
+    final List<Change> folded = checkpoints.getChanges(changes, roundStarts, 0, 4);
+    assertEquals(3, folded.size());
+    final int units = germany.getUnits().getUnitCount();
+    m_data.performChange(new CompositeChange(folded));
+    assertEquals(units + 4, germany.getUnits().getUnitCount());
+  }
+}
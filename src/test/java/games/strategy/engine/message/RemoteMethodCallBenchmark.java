@@ -0,0 +1,50 @@
+package games.strategy.engine.message;
+
+/**
+ * Compares the size of a remote method call and how fast it is written, serialized as peers that did not negotiate
+ * the compact encoding get it, and in the compact encoding.
+ * <p>
+ * Not a test, run it by hand: java games.strategy.engine.message.RemoteMethodCallBenchmark [iterations]
+ */
+public class RemoteMethodCallBenchmark {
+  public static void main(final String[] args) throws Exception {
+    final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+    final RemoteMethodCallTest test = new RemoteMethodCallTest();
+    test.setUp();
+    final RemoteMethodCall call = test.createCall();
+    System.out.println(String.format("%-10s %10s %10s %10s", "encoding", "bytes", "write ns", "read ns"));
+    // the first rounds warm up
+    for (int round = 0; round < 3; round++) {
+      long start = System.nanoTime();
+      byte[] bytes = null;
+      for (int i = 0; i < iterations; i++) {
+        bytes = test.writeSerialized(call);
+      }
+      long written = System.nanoTime() - start;
+      start = System.nanoTime();
+      for (int i = 0; i < iterations; i++) {
+        test.readSerialized(bytes);
+      }
+      long read = System.nanoTime() - start;
+      System.out.println(String.format("%-10s %10d %10d %10d", "serialized", bytes.length, written / iterations,
+          read / iterations));
+      // names are numbered from the second call on, as on a connection
+      final RemoteNameTable names = new RemoteNameTable();
+      test.write(call, names);
+      start = System.nanoTime();
+      for (int i = 0; i < iterations; i++) {
+        bytes = test.write(call, names);
+      }
+      written = System.nanoTime() - start;
+      final RemoteNameTable readNames = new RemoteNameTable();
+      test.read(test.write(call, readNames), readNames);
+      start = System.nanoTime();
+      for (int i = 0; i < iterations; i++) {
+        test.read(bytes, readNames);
+      }
+      read = System.nanoTime() - start;
+      System.out.println(String.format("%-10s %10d %10d %10d", "compact", bytes.length, written / iterations,
+          read / iterations));
+    }
+  }
+}
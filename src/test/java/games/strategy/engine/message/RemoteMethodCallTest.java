@@ -0,0 +1,157 @@
+package games.strategy.engine.message;
+
+import static games.strategy.triplea.delegate.GameDataTestUtil.armour;
+import static games.strategy.triplea.delegate.GameDataTestUtil.germans;
+import static games.strategy.triplea.delegate.GameDataTestUtil.territory;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import games.strategy.engine.data.GameData;
+import games.strategy.engine.data.PlayerID;
+import games.strategy.engine.data.Territory;
+import games.strategy.engine.data.UnitType;
+import games.strategy.engine.framework.GameObjectStreamFactory;
+import games.strategy.net.GUID;
+import games.strategy.triplea.xml.TestMapGameData;
+import games.strategy.util.IntegerMap;
+
+public class RemoteMethodCallTest {
+  private static final String REMOTE_NAME = "games.strategy.engine.message.RemoteMethodCallTest.IMoves.GERMANS";
+  private GameData m_data;
+  private GameObjectStreamFactory m_factory;
+
+  public interface IMoves extends IRemote {
+    void move(Territory from, Territory to, PlayerID player, IntegerMap<UnitType> units, int count, boolean retreat,
+        String text, GUID id, Object nothing, List<String> other);
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    m_data = TestMapGameData.REVISED.getGameData();
+    m_factory = new GameObjectStreamFactory(m_data);
+  }
+
+  RemoteMethodCall createCall() {
+    final IntegerMap<UnitType> units = new IntegerMap<>();
+    units.put(armour(m_data), 3);
+    final Object[] args = {territory("Germany", m_data), territory("Midway", m_data), germans(m_data), units, 4, true,
+        "blitz", new GUID(), null, new ArrayList<>(Arrays.asList("a", "b"))};
+    return new RemoteMethodCall(REMOTE_NAME, "move", args, new Class<?>[] {Territory.class, Territory.class,
+        PlayerID.class, IntegerMap.class, int.class, boolean.class, String.class, GUID.class, Object.class,
+        List.class}, IMoves.class);
+  }
+
+  byte[] write(final RemoteMethodCall call, final RemoteNameTable names) throws Exception {
+    final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+    final ObjectOutputStream out = m_factory.create(sink);
+    call.writeCompact(out, names);
+    out.flush();
+    return sink.toByteArray();
+  }
+
+  RemoteMethodCall read(final byte[] bytes, final RemoteNameTable names) throws Exception {
+    final ObjectInputStream in = m_factory.create(new ByteArrayInputStream(bytes));
+    final RemoteMethodCall call = new RemoteMethodCall();
+    call.readCompact(in, names);
+    call.resolve(IMoves.class);
+    return call;
+  }
+
+  /**
+   * Written as peers that did not negotiate the compact encoding read it, with serialization.
+   */
+  byte[] writeSerialized(final RemoteMethodCall call) throws Exception {
+    final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+    final ObjectOutputStream out = m_factory.create(sink);
+    call.writeExternal(out);
+    out.flush();
+    return sink.toByteArray();
+  }
+
+  RemoteMethodCall readSerialized(final byte[] bytes) throws Exception {
+    final ObjectInputStream in = m_factory.create(new ByteArrayInputStream(bytes));
+    final RemoteMethodCall call = new RemoteMethodCall();
+    call.readExternal(in);
+    call.resolve(IMoves.class);
+    return call;
+  }
+
+  @Test
+  public void testArgumentsRoundTrip() throws Exception {
+    final RemoteMethodCall call = createCall();
+    assertRead(call, read(write(call, null), null));
+  }
+
+  @Test
+  public void testSerializedArgumentsRoundTrip() throws Exception {
+    final RemoteMethodCall call = createCall();
+    assertRead(call, readSerialized(writeSerialized(call)));
+  }
+
+  @Test
+  public void testSerializedIsWhatOlderVersionsWrite() throws Exception {
+    final RemoteMethodCall call = createCall();
+    final ByteArrayOutputStream sink = new ByteArrayOutputStream();
+    final ObjectOutput out = m_factory.create(sink);
+    out.writeUTF(call.getRemoteName());
+    out.writeByte(0);
+    out.writeByte(call.getArgs().length);
+    for (final Object arg : call.getArgs()) {
+      out.writeObject(arg);
+    }
+    out.flush();
+    assertArrayEquals(sink.toByteArray(), writeSerialized(call));
+  }
+
+  private void assertRead(final RemoteMethodCall call, final RemoteMethodCall read) {
+    assertEquals(REMOTE_NAME, read.getRemoteName());
+    assertEquals("move", read.getMethodName());
+    final Object[] args = read.getArgs();
+    // game objects resolve to the same instances
+    assertSame(call.getArgs()[0], args[0]);
+    assertSame(call.getArgs()[1], args[1]);
+    assertSame(call.getArgs()[2], args[2]);
+    assertEquals(call.getArgs()[3], args[3]);
+    assertSame(armour(m_data), ((IntegerMap<?>) args[3]).keySet().iterator().next());
+    for (int i = 4; i < args.length; i++) {
+      assertEquals(call.getArgs()[i], args[i]);
+    }
+    assertNull(args[8]);
+  }
+
+  @Test
+  public void testRemoteNamesAreNumbered() throws Exception {
+    final RemoteNameTable written = new RemoteNameTable();
+    final RemoteNameTable read = new RemoteNameTable();
+    final byte[] first = write(createCall(), written);
+    final byte[] second = write(createCall(), written);
+    assertTrue(second.length + REMOTE_NAME.length() - 4 <= first.length);
+    assertEquals(REMOTE_NAME, read(first, read).getRemoteName());
+    assertEquals(REMOTE_NAME, read(second, read).getRemoteName());
+    written.truncate(0);
+    assertEquals(0, written.size());
+  }
+
+  @Test
+  public void testSmallerThanSerialization() throws Exception {
+    final RemoteMethodCall call = createCall();
+    final int serialized = writeSerialized(call).length;
+    final int written = write(call, new RemoteNameTable()).length;
+    assertTrue("written:" + written + " serialized:" + serialized, written * 2 < serialized);
+  }
+}
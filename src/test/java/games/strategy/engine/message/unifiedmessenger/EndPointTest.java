@@ -1,9 +1,14 @@
 package games.strategy.engine.message.unifiedmessenger;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 
@@ -23,4 +28,70 @@ public class EndPointTest {
     assertEquals(results.size(), 1);
     assertEquals(2, (results.iterator().next()).getRVal());
   }
+
+  @Test
+  public void testSingleThreadedInvocationsRunInOrder() throws Exception {
+    final EndPoint endPoint = new EndPoint("", Comparator.class, true);
+    final List<Object> invoked = new ArrayList<>();
+    endPoint.addImplementor((Comparator<Object>) (o1, o2) -> {
+      invoked.add(o1);
+      return 0;
+    });
+    final int count = 50;
+    final CountDownLatch done = new CountDownLatch(count);
+    final InvocationExecutor executor = new InvocationExecutor(4, 100);
+    for (int i = 0; i < count; i++) {
+      final RemoteMethodCall call = new RemoteMethodCall("", "compare", new Object[] {i, ""},
+          TestUtil.getClassArrayFrom(Object.class, Object.class), Comparator.class);
+      endPoint.invokeLocalLater(call, null, executor, results -> done.countDown());
+    }
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+    for (int i = 0; i < count; i++) {
+      assertEquals(i, invoked.get(i));
+    }
+  }
+
+  @Test
+  public void testFullQueueRunsOnExtraThread() throws Exception {
+    final InvocationExecutor executor = new InvocationExecutor(1, 1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(3);
+    for (int i = 0; i < 3; i++) {
+      executor.execute(() -> {
+        try {
+          release.await();
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        done.countDown();
+      });
+    }
+    assertEquals(1, executor.getOverflowCount());
+    release.countDown();
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testCallerRunsOnceExtraThreadsAreUsedUp() throws Exception {
+    final InvocationExecutor executor = new InvocationExecutor(1, 1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final CountDownLatch done = new CountDownLatch(3);
+    for (int i = 0; i < 3; i++) {
+      executor.execute(() -> {
+        try {
+          release.await();
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        done.countDown();
+      });
+    }
+    final Thread caller = Thread.currentThread();
+    final List<Thread> ranOn = new ArrayList<>();
+    executor.execute(() -> ranOn.add(Thread.currentThread()));
+    assertEquals(Collections.singletonList(caller), ranOn);
+    assertEquals(2, executor.getOverflowCount());
+    release.countDown();
+    assertTrue(done.await(5, TimeUnit.SECONDS));
+  }
 }
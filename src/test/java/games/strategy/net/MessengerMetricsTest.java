@@ -0,0 +1,85 @@
+package games.strategy.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class MessengerMetricsTest {
+  private final MessengerMetrics m_metrics = new MessengerMetrics();
+
+  @Before
+  public void setUp() {
+    m_metrics.setEnabled(true);
+  }
+
+  @Test
+  public void testTrafficByNodeAndType() throws Exception {
+    final INode bob = new Node("bob", InetAddress.getLocalHost(), 3300);
+    final INode alice = new Node("alice", InetAddress.getLocalHost(), 3301);
+    m_metrics.sent(bob, "IChat.sendMessage", 100);
+    m_metrics.sent(alice, "IChat.sendMessage", 100);
+    m_metrics.received(bob, "IChat.sendMessage", 50);
+    m_metrics.received(bob, "HubInvocationResults", 10);
+    final Map<String, MessengerMetrics.Traffic> byType = m_metrics.getTrafficByType();
+    assertEquals(2, byType.get("IChat.sendMessage").getMessagesOut());
+    assertEquals(200, byType.get("IChat.sendMessage").getBytesOut());
+    assertEquals(50, byType.get("IChat.sendMessage").getBytesIn());
+    final Map<String, MessengerMetrics.Traffic> byNode = m_metrics.getTrafficByNode();
+    assertEquals(2, byNode.get("bob").getMessagesIn());
+    assertEquals(160, byNode.get("bob").getTotalBytes());
+    assertEquals(100, byNode.get("alice").getTotalBytes());
+    // a node that left is forgotten, what it sent is still counted by type
+    m_metrics.removeNode(alice);
+    assertFalse(m_metrics.getTrafficByNode().containsKey("alice"));
+    assertEquals(2, m_metrics.getTrafficByType().get("IChat.sendMessage").getMessagesOut());
+    m_metrics.reset();
+    assertTrue(m_metrics.getTrafficByType().isEmpty());
+  }
+
+  @Test
+  public void testNothingIsCountedWhenOff() throws Exception {
+    m_metrics.setEnabled(false);
+    m_metrics.sent(new Node("bob", InetAddress.getLocalHost(), 3300), "IChat.sendMessage", 100);
+    m_metrics.invocationReturned("IServerRemote.getSavedGame", 1000);
+    assertTrue(m_metrics.getTrafficByType().isEmpty());
+    assertTrue(m_metrics.getTrafficByNode().isEmpty());
+    assertNull(m_metrics.getRoundTripTimes("IServerRemote.getSavedGame"));
+  }
+
+  @Test
+  public void testHistogram() {
+    for (int i = 0; i < 99; i++) {
+      m_metrics.invocationReturned("IServerRemote.getSavedGame", TimeUnit.MICROSECONDS.toNanos(100));
+    }
+    m_metrics.invocationReturned("IServerRemote.getSavedGame", TimeUnit.MILLISECONDS.toNanos(50));
+    final MessengerMetrics.Histogram times = m_metrics.getRoundTripTimes("IServerRemote.getSavedGame");
+    assertEquals(100, times.getCount());
+    assertEquals(50, times.getMaxMillis(), 0.001);
+    // 100 microseconds falls in the bucket up to 128
+    assertEquals(0.128, times.getPercentileMillis(0.5), 0.001);
+    assertEquals(50, times.getPercentileMillis(1), 0.001);
+    assertEquals((99 * 0.1 + 50) / 100, times.getAverageMillis(), 0.001);
+    assertNull(m_metrics.getRoundTripTimes("IServerRemote.other"));
+  }
+
+  @Test
+  public void testReportShowsQueues() {
+    final int[] depth = {3};
+    final IntSupplier supplier = () -> depth[0];
+    m_metrics.addQueue("test queue", supplier);
+    m_metrics.encoded("IChat.sendMessage", 1000);
+    assertTrue(m_metrics.getReport().contains("test queue: 3"));
+    assertTrue(m_metrics.getReport().contains("IChat.sendMessage: count:1"));
+    m_metrics.removeQueue(supplier);
+    assertFalse(m_metrics.getReport().contains("test queue"));
+  }
+}
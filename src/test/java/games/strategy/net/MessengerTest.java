@@ -195,6 +195,38 @@ public class MessengerTest {
     }
   }
 
+  @Test
+  public void testMessagesFromEachClientStayInOrder() throws Exception {
+    // clients are decoded in parallel, but each in the order it sent
+    final Thread t1 = new Thread(() -> {
+      for (int i = 0; i < 100; i++) {
+        m_client1.send(i, m_server.getLocalNode());
+      }
+    });
+    final Thread t2 = new Thread(() -> {
+      for (int i = 0; i < 100; i++) {
+        m_client2.send(i, m_server.getLocalNode());
+      }
+    });
+    t1.start();
+    t2.start();
+    t1.join();
+    t2.join();
+    int fromClient1 = 0;
+    int fromClient2 = 0;
+    for (int i = 0; i < 200; i++) {
+      final Object message = m_serverListener.getLastMessage();
+      if (m_serverListener.getLastSender().equals(m_client1.getLocalNode())) {
+        assertEquals(fromClient1++, message);
+      } else {
+        assertEquals(fromClient2++, message);
+      }
+      m_serverListener.clearLastMessage();
+    }
+    assertEquals(100, fromClient1);
+    assertEquals(100, fromClient2);
+  }
+
   @Test
   public void testCorrectNodeCountInRemove() throws InterruptedException {
     // when we receive the notification that a
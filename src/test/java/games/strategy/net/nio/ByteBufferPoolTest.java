@@ -0,0 +1,90 @@
+package games.strategy.net.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ByteBufferPoolTest {
+
+  @Test
+  public void testBuffersAreReused() {
+    final ByteBufferPool pool = new ByteBufferPool();
+    final ByteBuffer first = pool.acquire(700);
+    assertTrue(first.isDirect());
+    assertEquals(1024, first.capacity());
+    assertEquals(700, first.limit());
+    assertEquals(0, first.position());
+    first.put((byte) 1);
+    pool.release(first);
+    // same size class
+    final ByteBuffer second = pool.acquire(1000);
+    assertSame(first, second);
+    assertEquals(0, second.position());
+    assertEquals(1000, second.limit());
+    assertNotSame(second, pool.acquire(1000));
+  }
+
+  @Test
+  public void testHugeBuffersAreNotPooled() {
+    final ByteBufferPool pool = new ByteBufferPool();
+    final ByteBuffer huge = pool.acquire(5 * 1024 * 1024);
+    assertFalse(huge.isDirect());
+    assertEquals(5 * 1024 * 1024, huge.limit());
+    pool.release(huge);
+    assertNotSame(huge, pool.acquire(5 * 1024 * 1024));
+  }
+
+  @Test
+  public void testFreeBuffersAreBounded() {
+    final ByteBufferPool pool = new ByteBufferPool();
+    final List<ByteBuffer> buffers = new ArrayList<>();
+    for (int size = 512; size <= 1024 * 1024; size *= 2) {
+      for (int i = 0; i < 10; i++) {
+        buffers.add(pool.acquire(size));
+      }
+    }
+    for (final ByteBuffer buffer : buffers) {
+      pool.release(buffer);
+    }
+    assertTrue(pool.getFreeBytes() > 0);
+    assertTrue(pool.getFreeBytes() <= ByteBufferPool.MAX_FREE_BYTES);
+  }
+
+  @Test
+  public void testLargestClassKeepsOneBuffer() {
+    final ByteBufferPool pool = new ByteBufferPool();
+    final ByteBuffer first = pool.acquire(1024 * 1024);
+    final ByteBuffer second = pool.acquire(1024 * 1024);
+    pool.release(first);
+    pool.release(second);
+    assertEquals(1024 * 1024, pool.getFreeBytes());
+    assertSame(first, pool.acquire(1024 * 1024));
+    assertEquals(0, pool.getFreeBytes());
+  }
+
+  @Test
+  public void testSharedWriteDataIsReleasedOnce() {
+    final ByteBufferPool pool = new ByteBufferPool();
+    final SocketWriteData data = new SocketWriteData(new byte[] {1, 2, 3}, 3, pool);
+    final SocketWriteData copy = data.duplicate();
+    assertEquals(7, copy.size());
+    data.release();
+    // the copy still uses the content, so a new buffer is handed out
+    assertEquals(0, pool.acquire(3).get(0));
+    copy.release();
+    copy.release();
+    final ByteBuffer reused = pool.acquire(3);
+    assertEquals(1, reused.get(0));
+    assertEquals(3, reused.get(2));
+    // given back only once
+    assertEquals(0, pool.acquire(3).get(0));
+  }
+}
@@ -0,0 +1,65 @@
+package games.strategy.net.nio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInputStream;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NIOWriterTest {
+  private ServerSocketChannel m_server;
+  private SocketChannel m_sending;
+  private SocketChannel m_receiving;
+  private NIOWriter m_writer;
+
+  @Before
+  public void setUp() throws Exception {
+    m_server = ServerSocketChannel.open();
+    m_server.bind(new InetSocketAddress("127.0.0.1", 0));
+    m_sending = SocketChannel.open(m_server.getLocalAddress());
+    m_sending.configureBlocking(false);
+    m_receiving = m_server.accept();
+    m_writer = new NIOWriter((channel, e) -> {
+    }, "test");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    m_writer.shutDown();
+    m_sending.close();
+    m_receiving.close();
+    m_server.close();
+  }
+
+  @Test
+  public void testBurstIsCoalesced() throws Exception {
+    m_writer.setLingerMicros(200 * 1000);
+    final int packets = 50;
+    for (int i = 0; i < packets; i++) {
+      m_writer.enque(new SocketWriteData(new byte[] {(byte) i, 7}, 2), m_sending);
+    }
+    final DataInputStream in = new DataInputStream(m_receiving.socket().getInputStream());
+    for (int i = 0; i < packets; i++) {
+      assertEquals(2 ^ SocketReadData.MAGIC, in.readInt());
+      assertEquals(i, in.readByte());
+      assertEquals(7, in.readByte());
+    }
+    // the stats are counted after the write, which the reader may see first
+    NIOWriter.WriteStats stats = m_writer.getStats(m_sending);
+    for (int i = 0; i < 100 && (stats == null || stats.getPackets() < packets); i++) {
+      Thread.sleep(20);
+      stats = m_writer.getStats(m_sending);
+    }
+    assertNotNull(stats);
+    assertEquals(packets, stats.getPackets());
+    assertEquals(packets * 6, stats.getBytes());
+    assertTrue(stats.toString(), stats.getWrites() < packets);
+  }
+}
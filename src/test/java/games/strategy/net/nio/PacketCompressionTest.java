@@ -0,0 +1,66 @@
+package games.strategy.net.nio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class PacketCompressionTest {
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    final byte[] data = new byte[PacketCompression.THRESHOLD * 4];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (i % 31);
+    }
+    final ByteArrayOutputStream2 compressed = PacketCompression.compress(data, data.length);
+    assertNotNull(compressed);
+    assertTrue(compressed.size() < data.length);
+    final ByteBuffer content = ByteBuffer.wrap(Arrays.copyOf(compressed.getBuffer(), compressed.size()));
+    final ByteBuffer read = PacketCompression.decompress(content);
+    assertEquals(data.length, read.remaining());
+    final byte[] readData = new byte[read.remaining()];
+    read.get(readData);
+    assertArrayEquals(data, readData);
+  }
+
+  @Test
+  public void testSmallDataIsNotCompressed() {
+    final byte[] data = new byte[PacketCompression.THRESHOLD - 1];
+    assertNull(PacketCompression.compress(data, data.length));
+  }
+
+  @Test
+  public void testWriteDataIsFlagged() {
+    final SocketWriteData data = new SocketWriteData(new byte[] {1, 2}, 2, new ByteBufferPool(), true);
+    final ByteBuffer first = data.getBuffers()[0];
+    assertEquals(2 ^ PacketCompression.COMPRESSED_MAGIC, first.getInt(0));
+  }
+
+  @Test(expected = IOException.class)
+  public void testContentBiggerThanItsSizeIsRejected() throws Exception {
+    final byte[] data = new byte[PacketCompression.THRESHOLD * 4];
+    final ByteArrayOutputStream2 compressed = PacketCompression.compress(data, data.length);
+    final ByteBuffer content = ByteBuffer.wrap(Arrays.copyOf(compressed.getBuffer(), compressed.size()));
+    // claim less than the data holds
+    content.putInt(0, PacketCompression.THRESHOLD);
+    PacketCompression.decompress(content);
+  }
+
+  @Test(expected = IOException.class)
+  public void testTruncatedContentIsRejected() throws Exception {
+    final byte[] data = new byte[PacketCompression.THRESHOLD * 4];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (i * i);
+    }
+    final ByteArrayOutputStream2 compressed = PacketCompression.compress(data, data.length);
+    PacketCompression.decompress(ByteBuffer.wrap(Arrays.copyOf(compressed.getBuffer(), compressed.size() / 2)));
+  }
+}
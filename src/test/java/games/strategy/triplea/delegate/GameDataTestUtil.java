@@ -64,6 +64,10 @@ public class GameDataTestUtil {
     return unitType(Constants.UNIT_TYPE_ARMOUR, data);
   }
 
+  public static UnitType artillery(final GameData data) {
+    return unitType(Constants.UNIT_TYPE_ARTILLERY, data);
+  }
+
   public static UnitType aaGun(final GameData data) {
     return unitType(Constants.UNIT_TYPE_AAGUN, data);
   }
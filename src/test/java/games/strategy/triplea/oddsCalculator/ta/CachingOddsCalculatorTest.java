@@ -0,0 +1,120 @@
+package games.strategy.triplea.oddsCalculator.ta;
+
+import static games.strategy.triplea.delegate.GameDataTestUtil.armour;
+import static games.strategy.triplea.delegate.GameDataTestUtil.germans;
+import static games.strategy.triplea.delegate.GameDataTestUtil.infantry;
+import static games.strategy.triplea.delegate.GameDataTestUtil.russians;
+import static games.strategy.triplea.delegate.GameDataTestUtil.territory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import games.strategy.engine.data.GameData;
+import games.strategy.engine.data.Territory;
+import games.strategy.engine.data.Unit;
+import games.strategy.engine.data.changefactory.ChangeFactory;
+import games.strategy.triplea.delegate.TerritoryEffectHelper;
+import games.strategy.triplea.xml.TestMapGameData;
+
+public class CachingOddsCalculatorTest {
+  private GameData m_data;
+  private Territory m_germany;
+
+  @Before
+  public void setUp() throws Exception {
+    m_data = TestMapGameData.REVISED.getGameData();
+    m_germany = territory("Germany", m_data);
+  }
+
+  private AggregateResults calculate(final IOddsCalculator calculator, final List<Unit> attacking,
+      final List<Unit> defending) {
+    return calculator.setCalculateDataAndCalculate(russians(m_data), germans(m_data), m_germany, attacking, defending,
+        Collections.<Unit>emptyList(), TerritoryEffectHelper.getEffects(m_germany), 200);
+  }
+
+  @Test
+  public void testSameBattleComesFromCache() {
+    final CachingOddsCalculator calculator = new CachingOddsCalculator(new OddsCalculator(m_data));
+    calculator.setGameData(m_data);
+    final List<Unit> attacking = infantry(m_data).create(4, russians(m_data));
+    attacking.addAll(armour(m_data).create(2, russians(m_data)));
+    final AggregateResults first = calculate(calculator, attacking, infantry(m_data).create(3, germans(m_data)));
+    // the same mix of units in another order
+    final List<Unit> otherAttacking = armour(m_data).create(2, russians(m_data));
+    otherAttacking.addAll(infantry(m_data).create(4, russians(m_data)));
+    final List<Unit> otherDefending = infantry(m_data).create(3, germans(m_data));
+    final AggregateResults second = calculate(calculator, otherAttacking, otherDefending);
+    assertEquals(1, calculator.getCacheHits());
+    assertEquals(1, calculator.getCacheMisses());
+    assertEquals(first.getRollCount(), second.getRollCount());
+    assertEquals(first.getAttackerWinPercent(), second.getAttackerWinPercent(), 0.0);
+    assertEquals(first.getAverageAttackingUnitsLeft(), second.getAverageAttackingUnitsLeft(), 0.0);
+    // the cached results are given back with the units of the second battle
+    for (final BattleResults result : second.getResults()) {
+      assertTrue(otherAttacking.containsAll(result.getRemainingAttackingUnits()));
+      assertTrue(otherDefending.containsAll(result.getRemainingDefendingUnits()));
+    }
+    calculator.shutdown();
+  }
+
+  @Test
+  public void testBatchCalculatesRepeatedBattleOnce() {
+    final CachingOddsCalculator calculator = new CachingOddsCalculator(new OddsCalculator(m_data));
+    calculator.setGameData(m_data);
+    final List<BattleSpecification> battles = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      battles.add(new BattleSpecification(russians(m_data), germans(m_data), m_germany,
+          infantry(m_data).create(4, russians(m_data)), infantry(m_data).create(2 + i % 2, germans(m_data)),
+          Collections.<Unit>emptyList(), TerritoryEffectHelper.getEffects(m_germany), 200));
+    }
+    final List<AggregateResults> results = calculator.calculate(battles);
+    assertEquals(3, results.size());
+    assertEquals(3, calculator.getCacheMisses());
+    assertEquals(results.get(0).getAttackerWinPercent(), results.get(2).getAttackerWinPercent(), 0.0);
+    for (final BattleResults result : results.get(2).getResults()) {
+      assertTrue(battles.get(2).getAttackingUnits().containsAll(result.getRemainingAttackingUnits()));
+    }
+    calculate(calculator, infantry(m_data).create(4, russians(m_data)), infantry(m_data).create(3, germans(m_data)));
+    assertEquals(1, calculator.getCacheHits());
+    calculator.shutdown();
+  }
+
+  @Test
+  public void testDifferentBattlesAndNewDataMiss() {
+    final CachingOddsCalculator calculator = new CachingOddsCalculator(new OddsCalculator(m_data));
+    calculator.setGameData(m_data);
+    final List<Unit> attacking = infantry(m_data).create(4, russians(m_data));
+    calculate(calculator, attacking, infantry(m_data).create(3, germans(m_data)));
+    calculate(calculator, attacking, infantry(m_data).create(2, germans(m_data)));
+    calculator.setRetreatAfterRound(2);
+    calculate(calculator, attacking, infantry(m_data).create(2, germans(m_data)));
+    calculator.setGameData(m_data);
+    calculate(calculator, attacking, infantry(m_data).create(2, germans(m_data)));
+    assertEquals(0, calculator.getCacheHits());
+    assertEquals(4, calculator.getCacheMisses());
+    calculator.shutdown();
+  }
+
+  @Test
+  public void testChangedDataMisses() {
+    final CachingOddsCalculator calculator = new CachingOddsCalculator(new OddsCalculator(m_data));
+    calculator.setGameData(m_data);
+    final List<Unit> attacking = infantry(m_data).create(4, russians(m_data));
+    calculate(calculator, attacking, infantry(m_data).create(3, germans(m_data)));
+    // the same game data object keeps changing during the game
+    m_data.performChange(ChangeFactory.addUnits(territory("Eastern Europe", m_data),
+        infantry(m_data).create(1, germans(m_data))));
+    calculate(calculator, attacking, infantry(m_data).create(3, germans(m_data)));
+    assertEquals(0, calculator.getCacheHits());
+    calculate(calculator, attacking, infantry(m_data).create(3, germans(m_data)));
+    assertEquals(1, calculator.getCacheHits());
+    assertEquals(2, calculator.getCacheMisses());
+    calculator.shutdown();
+  }
+}
@@ -0,0 +1,61 @@
+package games.strategy.triplea.oddsCalculator.ta;
+
+import static games.strategy.triplea.delegate.GameDataTestUtil.germans;
+import static games.strategy.triplea.delegate.GameDataTestUtil.infantry;
+import static games.strategy.triplea.delegate.GameDataTestUtil.russians;
+import static games.strategy.triplea.delegate.GameDataTestUtil.territory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import games.strategy.engine.data.GameData;
+import games.strategy.engine.data.Territory;
+import games.strategy.engine.data.Unit;
+import games.strategy.triplea.delegate.TerritoryEffectHelper;
+import games.strategy.triplea.xml.TestMapGameData;
+
+public class ConcurrentOddsCalculatorTest {
+  private GameData m_data;
+
+  @Before
+  public void setUp() throws Exception {
+    m_data = TestMapGameData.REVISED.getGameData();
+  }
+
+  private BattleSpecification battle(final int attackers, final int defenders) {
+    final Territory germany = territory("Germany", m_data);
+    return new BattleSpecification(russians(m_data), germans(m_data), germany,
+        infantry(m_data).create(attackers, russians(m_data)), infantry(m_data).create(defenders, germans(m_data)),
+        Collections.<Unit>emptyList(), TerritoryEffectHelper.getEffects(germany), 100);
+  }
+
+  @Test
+  public void testBatchKeepsOrder() {
+    final ConcurrentOddsCalculator calculator = new ConcurrentOddsCalculator("Test");
+    calculator.setGameData(m_data);
+    final List<BattleSpecification> battles = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      battles.add(i % 2 == 0 ? battle(30, 1) : battle(1, 30));
+    }
+    final List<AggregateResults> results = calculator.calculate(battles);
+    assertEquals(battles.size(), results.size());
+    for (int i = 0; i < results.size(); i++) {
+      assertEquals(100, results.get(i).getRollCount());
+      if (i % 2 == 0) {
+        assertTrue(results.get(i).getAttackerWinPercent() > 0.9);
+      } else {
+        assertTrue(results.get(i).getDefenderWinPercent() > 0.9);
+      }
+    }
+    // the workers were left with different battles
+    assertFalse(calculator.getIsReady());
+    calculator.shutdown();
+  }
+}
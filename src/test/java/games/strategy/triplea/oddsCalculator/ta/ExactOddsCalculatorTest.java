@@ -0,0 +1,115 @@
+package games.strategy.triplea.oddsCalculator.ta;
+
+import static games.strategy.triplea.delegate.GameDataTestUtil.armour;
+import static games.strategy.triplea.delegate.GameDataTestUtil.artillery;
+import static games.strategy.triplea.delegate.GameDataTestUtil.british;
+import static games.strategy.triplea.delegate.GameDataTestUtil.fighter;
+import static games.strategy.triplea.delegate.GameDataTestUtil.germans;
+import static games.strategy.triplea.delegate.GameDataTestUtil.infantry;
+import static games.strategy.triplea.delegate.GameDataTestUtil.russians;
+import static games.strategy.triplea.delegate.GameDataTestUtil.territory;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import games.strategy.engine.data.GameData;
+import games.strategy.engine.data.Territory;
+import games.strategy.engine.data.Unit;
+import games.strategy.triplea.delegate.TerritoryEffectHelper;
+import games.strategy.triplea.xml.TestMapGameData;
+
+public class ExactOddsCalculatorTest {
+  private GameData m_data;
+
+  @Before
+  public void setUp() throws Exception {
+    m_data = TestMapGameData.REVISED.getGameData();
+  }
+
+  @Test
+  public void testOneOnOne() {
+    // attacker hits 1 in 6, defender 2 in 6, so each round:
+    // both hit 2/36, only attacker 4/36, only defender 10/36, nobody 20/36
+    final Territory germany = territory("Germany", m_data);
+    final List<Unit> attacking = infantry(m_data).create(1, russians(m_data));
+    final List<Unit> defending = infantry(m_data).create(1, germans(m_data));
+    final ExactOddsCalculator calculator = new ExactOddsCalculator(new OddsCalculator(m_data));
+    calculator.setGameData(m_data);
+    final AggregateResults results = calculator.setCalculateDataAndCalculate(russians(m_data), germans(m_data),
+        germany, attacking, defending, Collections.<Unit>emptyList(), TerritoryEffectHelper.getEffects(germany), 1000);
+    calculator.shutdown();
+    assertEquals(1000, results.getRollCount());
+    assertEquals(0.25, results.getAttackerWinPercent(), 0.0);
+    assertEquals(0.625, results.getDefenderWinPercent(), 0.0);
+    assertEquals(0.125, results.getDrawPercent(), 0.0);
+  }
+
+  @Test
+  public void testMatchesSimulation() {
+    final Territory germany = territory("Germany", m_data);
+    final List<Unit> attacking = infantry(m_data).create(6, russians(m_data));
+    attacking.addAll(armour(m_data).create(3, russians(m_data)));
+    final List<Unit> defending = infantry(m_data).create(5, germans(m_data));
+    defending.addAll(fighter(m_data).create(1, germans(m_data)));
+    final ExactOddsCalculator calculator = new ExactOddsCalculator(new OddsCalculator(m_data));
+    calculator.setGameData(m_data);
+    calculator.setCalculateData(russians(m_data), germans(m_data), germany, attacking, defending,
+        Collections.<Unit>emptyList(), TerritoryEffectHelper.getEffects(germany), 1000);
+    assertTrue(calculator.isSupported());
+    final AggregateResults exact = calculator.calculate();
+    final OddsCalculator simulation = new OddsCalculator(m_data);
+    final AggregateResults simulated = simulation.setCalculateDataAndCalculate(russians(m_data), germans(m_data),
+        germany, attacking, defending, Collections.<Unit>emptyList(), TerritoryEffectHelper.getEffects(germany), 3000);
+    simulation.shutdown();
+    calculator.shutdown();
+    assertEquals(simulated.getAttackerWinPercent(), exact.getAttackerWinPercent(), 0.05);
+    assertEquals(simulated.getAverageAttackingUnitsLeft(), exact.getAverageAttackingUnitsLeft(), 0.3);
+    assertEquals(simulated.getAverageDefendingUnitsLeft(), exact.getAverageDefendingUnitsLeft(), 0.3);
+  }
+
+  @Test
+  public void testMatchesConcurrentWithSupport() {
+    // artillery supports infantry only while there is an artillery left for each, which a fixed order cannot follow
+    final Territory germany = territory("Germany", m_data);
+    final List<Unit> attacking = infantry(m_data).create(4, russians(m_data));
+    attacking.addAll(artillery(m_data).create(2, russians(m_data)));
+    final List<Unit> defending = infantry(m_data).create(4, germans(m_data));
+    final ExactOddsCalculator calculator = new ExactOddsCalculator(new ConcurrentOddsCalculator("ExactTest"));
+    calculator.setGameData(m_data);
+    calculator.setCalculateData(russians(m_data), germans(m_data), germany, attacking, defending,
+        Collections.<Unit>emptyList(), TerritoryEffectHelper.getEffects(germany), 2000);
+    assertFalse(calculator.isSupported());
+    final AggregateResults exact = calculator.calculate();
+    final ConcurrentOddsCalculator concurrent = new ConcurrentOddsCalculator("ConcurrentTest");
+    concurrent.setGameData(m_data);
+    final AggregateResults simulated = concurrent.setCalculateDataAndCalculate(russians(m_data), germans(m_data),
+        germany, attacking, defending, Collections.<Unit>emptyList(), TerritoryEffectHelper.getEffects(germany), 2000);
+    concurrent.shutdown();
+    calculator.shutdown();
+    assertEquals(2000, exact.getRollCount());
+    assertEquals(simulated.getAttackerWinPercent(), exact.getAttackerWinPercent(), 0.05);
+    assertEquals(simulated.getAverageAttackingUnitsLeft(), exact.getAverageAttackingUnitsLeft(), 0.3);
+  }
+
+  @Test
+  public void testFallsBackForRetreats() {
+    final Territory germany = territory("Germany", m_data);
+    final List<Unit> attacking = infantry(m_data).create(3, british(m_data));
+    final List<Unit> defending = infantry(m_data).create(3, germans(m_data));
+    final ExactOddsCalculator calculator = new ExactOddsCalculator(new OddsCalculator(m_data));
+    calculator.setGameData(m_data);
+    calculator.setRetreatAfterRound(1);
+    final AggregateResults results = calculator.setCalculateDataAndCalculate(british(m_data), germans(m_data),
+        germany, attacking, defending, Collections.<Unit>emptyList(), TerritoryEffectHelper.getEffects(germany), 50);
+    assertFalse(calculator.isSupported());
+    calculator.shutdown();
+    assertEquals(50, results.getRollCount());
+    assertEquals(1.0, results.getAverageBattleRoundsFought(), 0.0);
+  }
+}
@@ -1,6 +1,7 @@
 package games.strategy.triplea.oddsCalculator.ta;
 
 import static games.strategy.triplea.delegate.GameDataTestUtil.americans;
+import static games.strategy.triplea.delegate.GameDataTestUtil.battleship;
 import static games.strategy.triplea.delegate.GameDataTestUtil.germans;
 import static games.strategy.triplea.delegate.GameDataTestUtil.submarine;
 import static games.strategy.triplea.delegate.GameDataTestUtil.territory;
@@ -19,9 +20,11 @@ import games.strategy.engine.data.GameData;
 import games.strategy.engine.data.PlayerID;
 import games.strategy.engine.data.Territory;
 import games.strategy.engine.data.Unit;
+import games.strategy.engine.data.changefactory.ChangeFactory;
 import games.strategy.triplea.delegate.GameDataTestUtil;
 import games.strategy.triplea.delegate.TerritoryEffectHelper;
 import games.strategy.triplea.xml.TestMapGameData;
+import games.strategy.util.IntegerMap;
 
 public class OddsCalculatorTest {
   private GameData m_data;
@@ -48,6 +51,23 @@ public class OddsCalculatorTest {
     assertTrue(results.getDrawPercent() < 0.1);
   }
 
+  @Test
+  public void testStopsEarlyOnceConverged() {
+    final Territory germany = m_data.getMap().getTerritory("Germany");
+    final List<Unit> defendingUnits = new ArrayList<>(germany.getUnits().getUnits());
+    final PlayerID russians = GameDataTestUtil.russians(m_data);
+    final PlayerID germans = GameDataTestUtil.germans(m_data);
+    final List<Unit> attackingUnits = GameDataTestUtil.infantry(m_data).create(100, russians);
+    final IOddsCalculator calculator = new OddsCalculator(m_data);
+    calculator.setConvergenceTolerance(0.05);
+    final AggregateResults results = calculator.setCalculateDataAndCalculate(russians, germans, germany, attackingUnits,
+        defendingUnits, Collections.<Unit>emptyList(), TerritoryEffectHelper.getEffects(germany), 5000);
+    calculator.shutdown();
+    assertTrue(results.getRollCount() >= ConvergenceMonitor.MIN_RUNS);
+    assertTrue(results.getRollCount() < 5000);
+    assertTrue(results.getAttackerWinPercent() > 0.99);
+  }
+
   @Test
   public void testKeepOneAttackingLand() {
     // 1 bomber and 1 infantry attacking
@@ -99,4 +119,25 @@ public class OddsCalculatorTest {
     assertEquals(results.getAttackerWinPercent(), 1.0, 0.0);
     assertEquals(results.getDefenderWinPercent(), 0.0, 0.0);
   }
+
+  @Test
+  public void testRollbackRestoresUnitHits() {
+    final Territory sz1 = territory("1 Sea Zone", m_data);
+    final List<Unit> battleships = battleship(m_data).create(2, germans(m_data));
+    m_data.performChange(ChangeFactory.addUnits(sz1, battleships));
+    final Unit first = battleships.get(0);
+    final Unit second = battleships.get(1);
+    final DummyDelegateBridge bridge = new DummyDelegateBridge(americans(m_data), m_data, null, null, false, -1, -1,
+        false);
+    bridge.addChange(ChangeFactory.unitsHit(new IntegerMap<>(first, 1)));
+    final IntegerMap<Unit> hits = new IntegerMap<>();
+    hits.put(first, 2);
+    hits.put(second, 1);
+    bridge.addChange(ChangeFactory.unitsHit(hits));
+    assertEquals(2, first.getHits());
+    assertEquals(1, second.getHits());
+    bridge.rollback();
+    assertEquals(0, first.getHits());
+    assertEquals(0, second.getHits());
+  }
 }
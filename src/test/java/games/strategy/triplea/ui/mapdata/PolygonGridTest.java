@@ -0,0 +1,33 @@
+package games.strategy.triplea.ui.mapdata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.awt.Polygon;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class PolygonGridTest {
+
+  private static Polygon square(final int x, final int y, final int size) {
+    return new Polygon(new int[] {x, x + size, x + size, x}, new int[] {y, y, y + size, y + size}, 4);
+  }
+
+  @Test
+  public void testLandWinsOverSurroundingSea() {
+    final Map<String, List<Polygon>> polygons = new LinkedHashMap<>();
+    polygons.put("Sea Zone", Arrays.asList(square(0, 0, 1000)));
+    polygons.put("Island", Arrays.asList(square(400, 400, 100), square(700, 100, 20)));
+    final PolygonGrid grid = new PolygonGrid(polygons);
+    assertEquals("Island", grid.getTerritoryAt(450, 450));
+    assertEquals("Island", grid.getTerritoryAt(710, 110));
+    assertEquals("Sea Zone", grid.getTerritoryAt(300, 450));
+    assertEquals("Sea Zone", grid.getTerritoryAt(999, 999));
+    assertNull(grid.getTerritoryAt(1500, 20));
+    assertNull(grid.getTerritoryAt(-5, 20));
+  }
+}